@@ -0,0 +1,46 @@
+#!/usr/bin/env bash
+#
+# Records the time to ready and the time to the first request for every startup mode.
+#
+# Usage: ./mvnw -q package -DskipTests && scripts/startup-benchmark.sh [runs]
+#
+# Every mode is started the given number of times (default 5), the StartupTimer class logs 
+# the uptime of the JVM when the application is ready and when the first request is answered.
+# The results are written to target/startup-benchmark.csv.
+
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=${PORT:-8080}
+JAR=$(ls target/school-management-*.jar | grep -v original | head -n 1)
+OUT=target/startup-benchmark.csv
+MODES=("default" "fast-startup" "persistent" "persistent,fast-startup")
+
+echo "mode,run,ready_ms,first_request_ms" > "$OUT"
+
+for mode in "${MODES[@]}"; do
+	for run in $(seq 1 "$RUNS"); do
+		log=$(mktemp)
+		if [ "$mode" = "default" ]; then
+			java -jar "$JAR" --server.port="$PORT" > "$log" 2>&1 &
+		else
+			java -jar "$JAR" --server.port="$PORT" --spring.profiles.active="$mode" > "$log" 2>&1 &
+		fi
+		pid=$!
+
+		# The first request is sent as soon as the port accepts connections
+		until curl -s -o /dev/null "http://localhost:$PORT/h2-console/"; do
+			sleep 0.05
+		done
+		sleep 0.5
+
+		ready=$(grep -o 'startup-timing ready=[0-9]*' "$log" | grep -o '[0-9]*$')
+		first=$(grep -o 'startup-timing first-request=[0-9]*' "$log" | grep -o '[0-9]*$')
+		echo "$mode,$run,$ready,$first" >> "$OUT"
+
+		kill "$pid" && wait "$pid" || true
+		rm -f "$log"
+	done
+done
+
+cat "$OUT"
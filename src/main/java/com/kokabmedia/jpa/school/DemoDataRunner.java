@@ -0,0 +1,54 @@
+package com.kokabmedia.jpa.school;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.kokabmedia.jpa.school.entity.Course;
+import com.kokabmedia.jpa.school.repository.CourseRepository;
+import com.kokabmedia.jpa.school.repository.StudentRepository;
+
+/*
+ * This class runs the demo queries and inserts of the application.
+ * 
+ * The @ConditionalOnProperty annotation makes sure that the bean is only created when the 
+ * application is started with school.demo.enabled=true, by default the demo writes are not
+ * part of the startup and the application is ready without touching the database.
+ */
+@Component
+@ConditionalOnProperty(name = "school.demo.enabled", havingValue = "true")
+public class DemoDataRunner implements CommandLineRunner {
+
+	// For logging purposes
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+	
+	/*
+	 * The @Autowired annotation tells the Spring framework that CourseRepository
+	 * instance (bean) is an dependency of DemoDataRunner class, it is a mechanism 
+	 * for implementing Spring dependency injection.
+	 */
+	@Autowired
+	private CourseRepository courseRepository;
+	
+	@Autowired
+	private StudentRepository studentRepository;
+
+	/*
+	 * With the CommandLineRunner the code in this run() method will be executes as soon as the 
+	 * Application Context is launched.
+	 */
+	@Override
+	public void run(String... args) throws Exception {
+		Course course = courseRepository.findById(10001L);
+		
+		logger.info("Course 10001 -> {}", course );
+				
+		// creating and persisting a new Course object (row) in the database
+		courseRepository.save(new Course("MS in 50 Steps"));
+		
+		studentRepository.saveStudentWithPassport();
+	}
+}
@@ -0,0 +1,49 @@
+package com.kokabmedia.jpa.school;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import com.kokabmedia.jpa.school.generator.GeneratorSettings;
+import com.kokabmedia.jpa.school.generator.SyntheticDataGenerator;
+
+/*
+ * This class is the command line entry point of the SyntheticDataGenerator, it writes a 
+ * generated school into an existing database without starting the Spring framework.
+ * 
+ * The tables are created by the Flyway migrations in src/main/resources/db/migration, Hibernate
+ * only validates them. Start the application once with the persistent profile before 
+ * generating into ./data/school:
+ * 
+ * java -cp target/classes:<dependencies> com.kokabmedia.jpa.school.SchoolDataGenerator \
+ *     --url=jdbc:h2:./data/school --user=sa --students=1000000 --courses=5000 --reviews=5000000
+ * 
+ * The other arguments are listed in GeneratorSettings.fromArgs(). For the in memory database use
+ * the generated profile instead, see the GeneratedDataInitializer.
+ */
+public class SchoolDataGenerator {
+
+	public static void main(String[] args) throws SQLException {
+
+		String url = argument(args, "url", "jdbc:h2:./data/school");
+		String user = argument(args, "user", "sa");
+		String password = argument(args, "password", "");
+		GeneratorSettings settings = GeneratorSettings.fromArgs(args);
+
+		long start = System.currentTimeMillis();
+		try (Connection connection = DriverManager.getConnection(url, user, password)) {
+			long rows = new SyntheticDataGenerator(settings).generate(connection);
+			System.out.println("Generated " + rows + " rows (" + settings + ") in "
+					+ (System.currentTimeMillis() - start) + " ms");
+		}
+	}
+
+	private static String argument(String[] args, String name, String defaultValue) {
+		for (String arg : args) {
+			if (arg.startsWith("--" + name + "=")) {
+				return arg.substring(name.length() + 3);
+			}
+		}
+		return defaultValue;
+	}
+}
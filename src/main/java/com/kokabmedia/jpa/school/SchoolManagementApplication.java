@@ -1,15 +1,8 @@
 package com.kokabmedia.jpa.school;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-
-import com.kokabmedia.jpa.school.entity.Course;
-import com.kokabmedia.jpa.school.repository.CourseRepository;
-import com.kokabmedia.jpa.school.repository.StudentRepository;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /*
  * This class is the main thread class of the application, with the main method that 
@@ -20,48 +13,21 @@ import com.kokabmedia.jpa.school.repository.StudentRepository;
  * IOC Container that manages all of the beans. It also initialises Spring Boot framework and auto 
  * configuration and enables component scanning of this package and sub-packages to locate beans,
  * this is all done automatically. 
+ * 
+ * The @EnableScheduling annotation enables the @Scheduled methods, for example the OutboxRelay
+ * that sends the outbox events every 500 milliseconds.
  */
 @SpringBootApplication
-public class SchoolManagementApplication implements CommandLineRunner{
-	
-	// For logging purposes
-	private Logger logger = LoggerFactory.getLogger(this.getClass());
-	
+@EnableScheduling
+public class SchoolManagementApplication {
+
 	/*
-	 * The @Autowired annotation tells the Spring framework that CourseRepository
-	 * instance (bean) is an dependency of SchoolManagementApplication class, it is a 
-	 * mechanism for implementing Spring dependency injection.
-	 * 
-	 * The CourseRepository class is now a dependency of the SchoolManagementApplication class.
-	 * 
-	 * Spring framework creates an instance (bean) of the CourseRepository and autowires it to
-	 * the SchoolManagementApplication class object as a dependency.
+	 * The demo code is in the DemoDataRunner class, it is only executed when the property 
+	 * school.demo.enabled=true is set so that no database writes are done on the startup path.
 	 */
-	@Autowired
-	private CourseRepository courseRepository;
-	
-	@Autowired
-	private StudentRepository studentRepository;
-
 	public static void main(String[] args) {
 		
 		// Returns Application Context
 		SpringApplication.run(SchoolManagementApplication.class, args);
 	}
-
-	/*
-	 * With the CommandLineRunner the code in this run() method will be executes as soon as the 
-	 * Application Context is launched.
-	 */
-	@Override
-	public void run(String... args) throws Exception {
-		Course course = courseRepository.findById(10001L);
-		
-		logger.info("Course 10001 -> {}", course );
-				
-		// creating and persisting a new Course object (row) in the database
-		courseRepository.save(new Course("MS in 50 Steps"));
-		
-		studentRepository.saveStudentWithPassport();
-	}
 }
@@ -0,0 +1,49 @@
+package com.kokabmedia.jpa.school.batch;
+
+/*
+ * A job that processes every row of an entity in chunks, it is run by the BatchJobRunner.
+ *
+ * The runner reads the entities of a chunk ordered by id and calls process() for every entity.
+ * A new entity is written with BatchWriter.insert() and a changed entity with
+ * BatchWriter.update(). Jobs are Spring beans, the BatchJobEndpoint finds them by name.
+ */
+public interface BatchJob<T> {
+
+	// The unique name of the job, the checkpoints of the job are stored with it
+	String getName();
+
+	// The entity class that is read, its id must be a Long named id
+	Class<T> getEntityType();
+
+	/*
+	 * A stateless job reads and writes the entities with a Hibernate StatelessSession: no
+	 * Persistence Context, no dirty checking, no second level cache, no cascades and no entity
+	 * listeners or generated time stamps. It is the fast path for plain inserts and updates of
+	 * columns that no listener or report depends on.
+	 */
+	default boolean isStateless() {
+		return false;
+	}
+
+	/*
+	 * A job that is not restartable starts a new run from the first id after a failure, for
+	 * example a job that builds something in memory that is lost when the run fails.
+	 */
+	default boolean isRestartable() {
+		return true;
+	}
+
+	// Called before the first chunk of a run, not when a failed run is continued
+	default void beforeRun() {
+	}
+
+	// Called when every partition of the run has finished, completed is false when one failed
+	default void afterRun(boolean completed) {
+	}
+
+	/*
+	 * Called for every entity of a chunk by the thread of the partition, the entities of the 
+	 * other partitions are processed at the same time by other threads.
+	 */
+	void process(T entity, BatchWriter writer);
+}
@@ -0,0 +1,83 @@
+package com.kokabmedia.jpa.school.batch;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import com.kokabmedia.jpa.school.repository.BatchCheckpointRepository;
+import com.kokabmedia.jpa.school.tenant.TenantContext;
+
+/*
+ * This class starts the BatchJob beans and shows their progress and checkpoints with an
+ * actuator endpoint, for the school of the request.
+ *
+ * GET  /actuator/batchjobs        the progress of the last run and the checkpoints of the
+ *                                 partitions of every job
+ * GET  /actuator/batchjobs/{name} the progress of the last run of the job
+ * POST /actuator/batchjobs/{name} start the job on a new thread, a failed job continues after
+ *                                 its checkpoints when it is started again
+ */
+@Component
+@Endpoint(id = "batchjobs")
+public class BatchJobEndpoint {
+
+	// For logging purposes
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	@Autowired
+	List<BatchJob<?>> jobs;
+
+	@Autowired
+	BatchJobRunner runner;
+
+	@Autowired
+	BatchCheckpointRepository checkpoints;
+
+	@ReadOperation
+	public Map<String, Map<String, Object>> jobs() {
+		Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+		for (BatchJob<?> job : jobs) {
+			Map<String, Object> state = new LinkedHashMap<>();
+			state.put("progress", runner.getProgress(job.getName()));
+			state.put("checkpoints", checkpoints.findByJob(job.getName()));
+			result.put(job.getName(), state);
+		}
+		return result;
+	}
+
+	// Null is answered with 404 by the actuator
+	@ReadOperation
+	public BatchJobProgress job(@Selector String name) {
+		return runner.getProgress(name);
+	}
+
+	@WriteOperation
+	public String start(@Selector String name) {
+
+		BatchJob<?> job = jobs.stream().filter(candidate -> candidate.getName().equals(name)).findFirst()
+				.orElseThrow(() -> new IllegalArgumentException("Unknown batch job " + name));
+		if (runner.isRunning(name)) {
+			return "running";
+		}
+
+		String tenant = TenantContext.get();
+		Thread thread = new Thread(() -> TenantContext.runAs(tenant, () -> {
+			try {
+				runner.run(job);
+			} catch (RuntimeException e) {
+				logger.warn("Batch job {} of school {} failed", name, tenant, e);
+			}
+		}), "batch-" + name);
+		thread.start();
+		return "started";
+	}
+}
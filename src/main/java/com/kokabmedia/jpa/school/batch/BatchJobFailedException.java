@@ -0,0 +1,14 @@
+package com.kokabmedia.jpa.school.batch;
+
+/*
+ * Thrown by the BatchJobRunner when one or more partitions of a job failed. The other partitions
+ * have finished, the next run of the job continues the failed partitions after their checkpoint.
+ */
+public class BatchJobFailedException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public BatchJobFailedException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,112 @@
+package com.kokabmedia.jpa.school.batch;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * The progress of a run of a BatchJob, it is updated by the partitions while the job runs and
+ * shown by the BatchJobEndpoint. The last run of every job is kept.
+ *
+ * The number of rows is counted when the run starts, rows that are inserted or deleted during
+ * the run make it an estimate.
+ */
+public class BatchJobProgress {
+
+	private final String jobName;
+	private final String school;
+	private final int partitions;
+	private final long rows;
+	private final LocalDateTime startedAt = LocalDateTime.now();
+	private final long startNanos = System.nanoTime();
+
+	private final AtomicLong processed = new AtomicLong();
+	private final AtomicInteger completedPartitions = new AtomicInteger();
+	private final AtomicInteger failedPartitions = new AtomicInteger();
+	private final AtomicInteger retries = new AtomicInteger();
+	private volatile long elapsedNanos = -1;
+
+	BatchJobProgress(String jobName, String school, int partitions, long rows) {
+		this.jobName = jobName;
+		this.school = school;
+		this.partitions = partitions;
+		this.rows = rows;
+	}
+
+	void chunkProcessed(int entities) {
+		processed.addAndGet(entities);
+	}
+
+	void partitionCompleted() {
+		completedPartitions.incrementAndGet();
+	}
+
+	void partitionFailed() {
+		failedPartitions.incrementAndGet();
+	}
+
+	void chunkRetried() {
+		retries.incrementAndGet();
+	}
+
+	void finished() {
+		elapsedNanos = System.nanoTime() - startNanos;
+	}
+
+	public String getJobName() {
+		return jobName;
+	}
+
+	public String getSchool() {
+		return school;
+	}
+
+	public int getPartitions() {
+		return partitions;
+	}
+
+	public long getRows() {
+		return rows;
+	}
+
+	public LocalDateTime getStartedAt() {
+		return startedAt;
+	}
+
+	public long getProcessed() {
+		return processed.get();
+	}
+
+	public int getCompletedPartitions() {
+		return completedPartitions.get();
+	}
+
+	public int getFailedPartitions() {
+		return failedPartitions.get();
+	}
+
+	public int getRetries() {
+		return retries.get();
+	}
+
+	public boolean isRunning() {
+		return elapsedNanos < 0;
+	}
+
+	public long getElapsedMs() {
+		return (isRunning() ? System.nanoTime() - startNanos : elapsedNanos) / 1_000_000;
+	}
+
+	public long getRowsPerSecond() {
+		return getProcessed() * 1000 / Math.max(getElapsedMs(), 1);
+	}
+
+	// The expected time until the job is done at the current speed, -1 when it is not known
+	public long getRemainingMs() {
+		long rowsPerSecond = getRowsPerSecond();
+		if (!isRunning()) {
+			return 0;
+		}
+		return rowsPerSecond == 0 ? -1 : Math.max(0, rows - getProcessed()) * 1000 / rowsPerSecond;
+	}
+}
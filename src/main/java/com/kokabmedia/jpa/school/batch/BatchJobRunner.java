@@ -0,0 +1,407 @@
+package com.kokabmedia.jpa.school.batch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+
+import org.hibernate.Cache;
+import org.hibernate.Session;
+import org.hibernate.StatelessSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kokabmedia.jpa.school.entity.BatchCheckpoint;
+import com.kokabmedia.jpa.school.repository.BatchCheckpointRepository;
+import com.kokabmedia.jpa.school.tenant.TenantContext;
+
+/*
+ * This class runs a BatchJob over all the rows of its entity with chunked read, process and
+ * write, so that a job over millions of rows does not keep them in one Persistence Context.
+ *
+ * - The ids of the entity are split into ranges of the same size, school.batch.partitions-per-thread
+ *   ranges for every thread of the pool. The partitions are run by a work stealing ForkJoinPool
+ *   of school.batch.parallelism threads, default one per core. There are more partitions than
+ *   threads, a thread that finishes a range with few rows takes the next partition, so that a
+ *   range with many rows does not leave the other cores idle.
+ * - A partition reads school.batch.chunk-size entities at the time with a keyset query,
+ *   id > lastId order by id. Every chunk is one transaction of the thread of the partition, after
+ *   processing the chunk its Persistence Context is flushed and cleared, so the flush only checks
+ *   the entities of one chunk and the memory use does not grow with the size of the table.
+ * - The BatchCheckpoint of the partition is moved to the last id of the chunk in the same
+ *   transaction. When a job fails, the next run continues every partition that is not completed
+ *   after its checkpoint, only the chunk that failed is processed again. When all partitions of
+ *   the previous run are completed a new run starts from the beginning.
+ * - A chunk that fails is retried school.batch.partition-retries times after a short pause. When
+ *   it still fails only its partition stops, the other partitions finish and run() throws a
+ *   BatchJobFailedException at the end.
+ * - school.batch.max-rows-per-second limits the rows per second of all the partitions of a job
+ *   together, 0 is no limit.
+ * - A stateless job, see BatchJob.isStateless(), reads and writes with a StatelessSession on the
+ *   connection of the chunk transaction. The updated entities are evicted from the second level
+ *   cache after the commit.
+ *
+ * The job runs in the school of the calling thread. Every partition thread holds a connection
+ * of the pool while it processes a chunk, school.batch.parallelism must stay below
+ * spring.datasource.hikari.maximum-pool-size to leave connections for the requests. The
+ * progress of the last run of every job is kept in a BatchJobProgress.
+ */
+@Component
+public class BatchJobRunner {
+
+	// For logging purposes
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	@Value("${school.batch.chunk-size:500}")
+	int chunkSize;
+
+	// Number of threads, 0 is the number of available processors
+	@Value("${school.batch.parallelism:0}")
+	int parallelism;
+
+	@Value("${school.batch.partitions-per-thread:4}")
+	int partitionsPerThread;
+
+	@Value("${school.batch.partition-retries:2}")
+	int partitionRetries;
+
+	@Value("${school.batch.max-rows-per-second:0}")
+	long maxRowsPerSecond;
+
+	@Autowired
+	EntityManager em;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@Autowired
+	BatchCheckpointRepository checkpoints;
+
+	private ForkJoinPool pool;
+
+	// The progress of the last run of every job by school and name, a job runs only once at the time
+	private final Map<String, BatchJobProgress> progress = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	void startPool() {
+		int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+		pool = new ForkJoinPool(threads, forkJoinPool -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+			thread.setName("batch-worker-" + thread.getPoolIndex());
+			return thread;
+		}, null, false);
+	}
+
+	@PreDestroy
+	void stopPool() throws InterruptedException {
+		pool.shutdownNow();
+		pool.awaitTermination(10, TimeUnit.SECONDS);
+	}
+
+	// Run the job and return the number of entities that were processed by this run
+	public <T> long run(BatchJob<T> job) {
+
+		String tenant = TenantContext.get();
+		String key = key(job.getName());
+		progress.compute(key, (name, last) -> {
+			if (last != null && last.isRunning()) {
+				throw new IllegalStateException("Batch job " + job.getName() + " is already running");
+			}
+			return new BatchJobProgress(job.getName(), tenant, 0, 0);
+		});
+
+		boolean completed = false;
+		try {
+			TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+			List<BatchCheckpoint> open = transaction.execute(status -> start(job));
+			BatchJobProgress run = new BatchJobProgress(job.getName(), tenant, open.size(),
+					transaction.execute(status -> countRows(job, open)));
+			progress.put(key, run);
+
+			long processed = runPartitions(job, tenant, open, run);
+			completed = true;
+			logger.info("Batch job {} of school {} processed {} entities in {} partitions in {} ms", job.getName(),
+					tenant, processed, open.size(), run.getElapsedMs());
+			return processed;
+		} finally {
+			progress.get(key).finished();
+			job.afterRun(completed);
+		}
+	}
+
+	public boolean isRunning(String jobName) {
+		BatchJobProgress last = progress.get(key(jobName));
+		return last != null && last.isRunning();
+	}
+
+	// The progress of the last run of the job in the school of the current thread, null when it did not run
+	public BatchJobProgress getProgress(String jobName) {
+		return progress.get(key(jobName));
+	}
+
+	private static String key(String jobName) {
+		return TenantContext.get() + ":" + jobName;
+	}
+
+	// The partitions that are not completed, new partitions when the previous run was completed
+	private List<BatchCheckpoint> start(BatchJob<?> job) {
+
+		List<BatchCheckpoint> open = new ArrayList<>();
+		if (job.isRestartable()) {
+			for (BatchCheckpoint checkpoint : checkpoints.findByJob(job.getName())) {
+				if (!checkpoint.isCompleted()) {
+					open.add(checkpoint);
+				}
+			}
+			if (!open.isEmpty()) {
+				logger.info("Batch job {} continues {} partitions after their checkpoint", job.getName(), open.size());
+				return open;
+			}
+		}
+
+		checkpoints.deleteByJob(job.getName());
+		job.beforeRun();
+		Object[] range = em.createQuery("select min(e.id), max(e.id) from " + entityName(job), Object[].class)
+				.getSingleResult();
+		if (range[0] == null) {
+			return Collections.emptyList();
+		}
+
+		int partitions = pool.getParallelism() * partitionsPerThread;
+		long min = ((Number) range[0]).longValue();
+		long max = ((Number) range[1]).longValue();
+		long size = (max - min) / partitions + 1;
+		for (int partition = 0; partition < partitions && min + partition * size <= max; partition++) {
+			long from = min + partition * size;
+			open.add(checkpoints.create(job.getName(), partition, from - 1, Math.min(max, from + size - 1)));
+		}
+		return open;
+	}
+
+	// The rows that are not yet processed by the partitions
+	private long countRows(BatchJob<?> job, List<BatchCheckpoint> open) {
+		long rows = 0;
+		for (BatchCheckpoint checkpoint : open) {
+			rows += em.createQuery("select count(e) from " + entityName(job) + " e where e.id > :afterId and e.id <= :toId",
+					Long.class)
+					.setParameter("afterId", checkpoint.getLastId())
+					.setParameter("toId", checkpoint.getToId())
+					.getSingleResult();
+		}
+		return rows;
+	}
+
+	private <T> long runPartitions(BatchJob<T> job, String tenant, List<BatchCheckpoint> open, BatchJobProgress run) {
+
+		BatchThrottle throttle = new BatchThrottle(maxRowsPerSecond);
+		List<Future<Long>> results = new ArrayList<>();
+		for (BatchCheckpoint checkpoint : open) {
+			results.add(pool.submit(() -> TenantContext.callAs(tenant, () -> runPartition(job, checkpoint, run, throttle))));
+		}
+
+		long processed = 0;
+		BatchJobFailedException failure = null;
+		for (int i = 0; i < results.size(); i++) {
+			try {
+				processed += results.get(i).get();
+			} catch (ExecutionException e) {
+				logger.warn("Partition {} of batch job {} failed", open.get(i).getPartitionNumber(), job.getName(),
+						e.getCause());
+				if (failure == null) {
+					failure = new BatchJobFailedException("Batch job " + job.getName() + " failed", e.getCause());
+				} else {
+					failure.addSuppressed(e.getCause());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				results.forEach(result -> result.cancel(true));
+				throw new IllegalStateException("Interrupted while waiting for batch job " + job.getName(), e);
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+		return processed;
+	}
+
+	// Process the chunks of one partition, returns the number of processed entities
+	private <T> long runPartition(BatchJob<T> job, BatchCheckpoint checkpoint, BatchJobProgress run,
+			BatchThrottle throttle) {
+
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		long lastId = checkpoint.getLastId();
+		long processed = 0;
+		int failures = 0;
+		long[] chunk = null;
+		do {
+			long afterId = lastId;
+			try {
+				chunk = transaction.execute(status -> job.isStateless() ? statelessChunk(job, checkpoint, afterId)
+						: chunk(job, checkpoint, afterId));
+				failures = 0;
+			} catch (RuntimeException e) {
+				if (++failures > partitionRetries) {
+					run.partitionFailed();
+					throw e;
+				}
+				// The chunk was rolled back, it is processed again from the same checkpoint
+				run.chunkRetried();
+				logger.debug("Chunk after id {} of batch job {} failed, retrying", afterId, job.getName(), e);
+				pause(failures * 100L);
+				continue;
+			}
+			processed += chunk[0];
+			lastId = chunk[1];
+			run.chunkProcessed((int) chunk[0]);
+			try {
+				throttle.acquire((int) chunk[0]);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted batch job " + job.getName(), e);
+			}
+		} while (chunk == null || chunk[0] == chunkSize);
+
+		transaction.executeWithoutResult(status -> checkpoints.complete(checkpoint.getId()));
+		run.partitionCompleted();
+		return processed;
+	}
+
+	private static void pause(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while retrying a chunk", e);
+		}
+	}
+
+	// Returns the number of entities in the chunk and the id of the last one
+	private <T> long[] chunk(BatchJob<T> job, BatchCheckpoint checkpoint, long afterId) {
+
+		List<T> entities = em.createQuery(chunkQuery(job), job.getEntityType())
+				.setParameter("afterId", afterId)
+				.setParameter("toId", checkpoint.getToId())
+				.setMaxResults(chunkSize)
+				.getResultList();
+		if (entities.isEmpty()) {
+			return new long[] { 0, afterId };
+		}
+
+		BatchWriter writer = new BatchWriter() {
+			@Override
+			public void insert(Object entity) {
+				em.persist(entity);
+			}
+
+			@Override
+			public void update(Object entity) {
+				if (!em.contains(entity)) {
+					em.merge(entity);
+				}
+			}
+		};
+		for (T entity : entities) {
+			job.process(entity, writer);
+		}
+
+		long lastId = idOf(entities.get(entities.size() - 1));
+		checkpoints.advance(checkpoint.getId(), lastId, entities.size());
+
+		// Send the changes of the chunk to the database and remove the entities from the Persistence Context
+		em.flush();
+		em.clear();
+		return new long[] { entities.size(), lastId };
+	}
+
+	private <T> long[] statelessChunk(BatchJob<T> job, BatchCheckpoint checkpoint, long afterId) {
+
+		Session session = em.unwrap(Session.class);
+		List<Long> updated = new ArrayList<>();
+
+		long[] chunk = session.doReturningWork(connection -> {
+			StatelessSession stateless = session.getSessionFactory().withStatelessOptions().connection(connection)
+					.openStatelessSession();
+			try {
+				List<T> entities = stateless.createQuery(chunkQuery(job), job.getEntityType())
+						.setParameter("afterId", afterId)
+						.setParameter("toId", checkpoint.getToId())
+						.setMaxResults(chunkSize)
+						.getResultList();
+
+				BatchWriter writer = new BatchWriter() {
+					@Override
+					public void insert(Object entity) {
+						stateless.insert(entity);
+					}
+
+					@Override
+					public void update(Object entity) {
+						stateless.update(entity);
+						updated.add(idOf(entity));
+					}
+				};
+				for (T entity : entities) {
+					job.process(entity, writer);
+				}
+				return entities.isEmpty() ? new long[] { 0, afterId }
+						: new long[] { entities.size(), idOf(entities.get(entities.size() - 1)) };
+			} finally {
+				stateless.close();
+			}
+		});
+
+		if (chunk[0] > 0) {
+			checkpoints.advance(checkpoint.getId(), chunk[1], (int) chunk[0]);
+		}
+		evictAfterCommit(job.getEntityType(), updated);
+		return chunk;
+	}
+
+	// The StatelessSession does not update the second level cache, the cached entities are stale
+	private void evictAfterCommit(Class<?> entityType, List<Long> ids) {
+
+		if (ids.isEmpty()) {
+			return;
+		}
+		Cache cache = em.unwrap(Session.class).getSessionFactory().getCache();
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				for (Long id : ids) {
+					cache.evictEntityData(entityType, id);
+				}
+			}
+		});
+	}
+
+	private long idOf(Object entity) {
+		return (Long) em.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(entity);
+	}
+
+	// The lazy properties like Review.description are selected with the rows of the chunk
+	private static String chunkQuery(BatchJob<?> job) {
+		return "select e from " + entityName(job) + " e fetch all properties "
+				+ "where e.id > :afterId and e.id <= :toId order by e.id";
+	}
+
+	private static String entityName(BatchJob<?> job) {
+		return job.getEntityType().getSimpleName();
+	}
+}
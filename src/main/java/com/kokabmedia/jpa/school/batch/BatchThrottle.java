@@ -0,0 +1,34 @@
+package com.kokabmedia.jpa.school.batch;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Limits the number of rows per second of one run of a BatchJob over all its partitions, so
+ * that a recompute does not take all the capacity of the database from the requests.
+ *
+ * Every chunk reserves the time its rows take at the maximum rate, after the reservations of
+ * the chunks before it. A partition sleeps until the start of its reservation.
+ */
+class BatchThrottle {
+
+	private final long nanosPerRow;
+	private final AtomicLong next = new AtomicLong(System.nanoTime());
+
+	// 0 rows per second is no limit
+	BatchThrottle(long maxRowsPerSecond) {
+		this.nanosPerRow = maxRowsPerSecond <= 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / maxRowsPerSecond;
+	}
+
+	void acquire(int rows) throws InterruptedException {
+		if (nanosPerRow == 0 || rows == 0) {
+			return;
+		}
+		long now = System.nanoTime();
+		long start = next.getAndAccumulate(rows * nanosPerRow, (reserved, cost) -> Math.max(reserved, now) + cost);
+		long wait = start - now;
+		if (wait > 0) {
+			TimeUnit.NANOSECONDS.sleep(wait);
+		}
+	}
+}
@@ -0,0 +1,15 @@
+package com.kokabmedia.jpa.school.batch;
+
+/*
+ * Writes the entities of a BatchJob in the transaction of the chunk.
+ *
+ * In a normal job update() does nothing for a managed entity, the change is found by dirty
+ * checking when the chunk is flushed. In a stateless job every call is sent to the database
+ * immediately.
+ */
+public interface BatchWriter {
+
+	void insert(Object entity);
+
+	void update(Object entity);
+}
@@ -0,0 +1,55 @@
+package com.kokabmedia.jpa.school.batch;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.kokabmedia.jpa.school.entity.Course;
+import com.kokabmedia.jpa.school.repository.CourseCounterRepository;
+
+/*
+ * Counts the enrollments, reviews and ratings of every course again and corrects the counter
+ * stripes that differ, see CourseCounterRepository.recount(). The courses of the partitions
+ * are recounted in parallel, every course locks only its own stripes.
+ */
+@Component
+public class CourseCounterRecomputeJob implements BatchJob<Course> {
+
+	// For logging purposes
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	@Autowired
+	CourseCounterRepository counters;
+
+	private final AtomicLong corrected = new AtomicLong();
+
+	@Override
+	public String getName() {
+		return "course-counter-recompute";
+	}
+
+	@Override
+	public Class<Course> getEntityType() {
+		return Course.class;
+	}
+
+	@Override
+	public void beforeRun() {
+		corrected.set(0);
+	}
+
+	@Override
+	public void process(Course course, BatchWriter writer) {
+		if (counters.recount(course.getId(), course.getCapacity())) {
+			corrected.incrementAndGet();
+		}
+	}
+
+	@Override
+	public void afterRun(boolean completed) {
+		logger.info("Course counter recompute corrected the counters of {} courses", corrected.get());
+	}
+}
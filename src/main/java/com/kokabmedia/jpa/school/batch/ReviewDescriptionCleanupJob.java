@@ -0,0 +1,49 @@
+package com.kokabmedia.jpa.school.batch;
+
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+import org.springframework.stereotype.Component;
+
+import com.kokabmedia.jpa.school.entity.Review;
+
+/*
+ * Removes the white space around the description of every review and replaces white space
+ * inside it with one space, so that the same text is always stored the same way.
+ *
+ * The job only updates the description column, which no listener, counter or report depends
+ * on, it therefore uses the stateless fast path of the BatchJobRunner.
+ */
+@Component
+public class ReviewDescriptionCleanupJob implements BatchJob<Review> {
+
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+	@Override
+	public String getName() {
+		return "review-description-cleanup";
+	}
+
+	@Override
+	public Class<Review> getEntityType() {
+		return Review.class;
+	}
+
+	@Override
+	public boolean isStateless() {
+		return true;
+	}
+
+	@Override
+	public void process(Review review, BatchWriter writer) {
+		String description = clean(review.getDescription());
+		if (!Objects.equals(description, review.getDescription())) {
+			review.setDescription(description);
+			writer.update(review);
+		}
+	}
+
+	static String clean(String description) {
+		return description == null ? null : WHITESPACE.matcher(description.trim()).replaceAll(" ");
+	}
+}
@@ -0,0 +1,85 @@
+package com.kokabmedia.jpa.school.codec;
+
+import java.nio.charset.StandardCharsets;
+
+/*
+ * This class reads the values that the BinaryWriter wrote, in the same order.
+ * 
+ * A value that goes past the end of the bytes or a variable length integer that is longer than 
+ * ten bytes throws an IllegalArgumentException, the bytes are then not a read model of this 
+ * format.
+ */
+public final class BinaryReader {
+
+	private final byte[] bytes;
+	private int position;
+
+	public BinaryReader(byte[] bytes) {
+		this.bytes = bytes;
+	}
+
+	public int readByte() {
+		check(1);
+		return bytes[position++] & 0xFF;
+	}
+
+	public long readVarLong() {
+		long value = 0;
+		for (int shift = 0; shift < 70; shift += 7) {
+			int b = readByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Variable length integer longer than 10 bytes at " + position);
+	}
+
+	public long readSignedVarLong() {
+		long value = readVarLong();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	public Integer readNullableInt() {
+		long value = readVarLong();
+		if (value == 0) {
+			return null;
+		}
+		value--;
+		return Math.toIntExact((value >>> 1) ^ -(value & 1));
+	}
+
+	public Double readNullableDouble() {
+		if (readByte() == 0) {
+			return null;
+		}
+		check(8);
+		long bits = 0;
+		for (int i = 0; i < 8; i++) {
+			bits = (bits << 8) | (bytes[position++] & 0xFF);
+		}
+		return Double.longBitsToDouble(bits);
+	}
+
+	public String readString() {
+		long length = readVarLong();
+		if (length == 0) {
+			return null;
+		}
+		int size = Math.toIntExact(length - 1);
+		check(size);
+		String value = new String(bytes, position, size, StandardCharsets.UTF_8);
+		position += size;
+		return value;
+	}
+
+	public boolean hasRemaining() {
+		return position < bytes.length;
+	}
+
+	private void check(int size) {
+		if (size < 0 || position + size > bytes.length) {
+			throw new IllegalArgumentException("Read past the end of " + bytes.length + " bytes");
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package com.kokabmedia.jpa.school.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+ * This class writes values into a growing byte array for the compact binary format of the read 
+ * models, see the ReadModelCodec.
+ * 
+ * The format has no field names, the codec of a read model writes the fields in a fixed order 
+ * and reads them back in the same order. The whole numbers are written as variable length 
+ * integers, seven bits per byte, a small number such as a counter takes one byte instead of 
+ * eight. Negative numbers are zig zag encoded first so that -1 also takes one byte.
+ * 
+ * The values that can be null are written with one more than their value or length, the 0 
+ * means null.
+ */
+public final class BinaryWriter {
+
+	private byte[] buffer;
+	private int size;
+
+	public BinaryWriter(int initialCapacity) {
+		buffer = new byte[Math.max(initialCapacity, 16)];
+	}
+
+	public BinaryWriter writeByte(int value) {
+		ensure(1);
+		buffer[size++] = (byte) value;
+		return this;
+	}
+
+	// An unsigned variable length integer, the value must not be negative
+	public BinaryWriter writeVarLong(long value) {
+		ensure(10);
+		while ((value & ~0x7FL) != 0) {
+			buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[size++] = (byte) value;
+		return this;
+	}
+
+	public BinaryWriter writeSignedVarLong(long value) {
+		return writeVarLong((value << 1) ^ (value >> 63));
+	}
+
+	public BinaryWriter writeNullableInt(Integer value) {
+		if (value == null) {
+			return writeVarLong(0);
+		}
+		long zigZag = ((long) value << 1) ^ (value >> 31);
+		return writeVarLong(zigZag + 1);
+	}
+
+	public BinaryWriter writeNullableDouble(Double value) {
+		if (value == null) {
+			return writeByte(0);
+		}
+		writeByte(1);
+		ensure(8);
+		long bits = Double.doubleToRawLongBits(value);
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			buffer[size++] = (byte) (bits >>> shift);
+		}
+		return this;
+	}
+
+	// The length of the UTF-8 bytes plus one, followed by the bytes
+	public BinaryWriter writeString(String value) {
+		if (value == null) {
+			return writeVarLong(0);
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarLong(bytes.length + 1L);
+		ensure(bytes.length);
+		System.arraycopy(bytes, 0, buffer, size, bytes.length);
+		size += bytes.length;
+		return this;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public byte[] toByteArray() {
+		return Arrays.copyOf(buffer, size);
+	}
+
+	private void ensure(int bytes) {
+		if (size + bytes > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + bytes));
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package com.kokabmedia.jpa.school.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/*
+ * This class configures how the Flyway migrations in src/main/resources/db are applied at
+ * startup, Spring Boot runs them before the EntityManagerFactory is created and Hibernate
+ * validates the tables against the entity classes.
+ *
+ * The schema was created by Hibernate with spring.jpa.hibernate.ddl-auto=create-drop before,
+ * the tables were dropped and created again for every Application Context. With
+ * school.flyway.clean-on-start=true the tables are dropped before the migrations are applied
+ * in the same way, the tests use it so that an Application Context that is created after a
+ * @DirtiesContext test starts with the seed data again, the TenantSchemaInitializer cleans the
+ * schemas of the other schools in the same way. Never set it for a persistent database.
+ */
+@Configuration
+public class DatabaseMigrationConfig {
+
+	@Value("${school.flyway.clean-on-start:false}")
+	boolean cleanOnStart;
+
+	@Bean
+	public FlywayMigrationStrategy flywayMigrationStrategy() {
+		return flyway -> {
+			if (cleanOnStart) {
+				flyway.clean();
+			}
+			flyway.migrate();
+		};
+	}
+}
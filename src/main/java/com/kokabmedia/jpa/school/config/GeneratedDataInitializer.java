@@ -0,0 +1,74 @@
+package com.kokabmedia.jpa.school.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.kokabmedia.jpa.school.generator.GeneratorSettings;
+import com.kokabmedia.jpa.school.generator.SyntheticDataGenerator;
+
+/*
+ * This class seeds the database with the SyntheticDataGenerator instead of the seed migration 
+ * when the application is started with the generated profile, see 
+ * application-generated.properties.
+ * 
+ * The settings are the school.generator.* properties, for example 
+ * school.generator.students=1000000. The data is only generated when the database has no 
+ * students, a file based database is not seeded again.
+ */
+@Component
+@Profile("generated")
+@Lazy(false) // Seed also when spring.main.lazy-initialization=true is set
+public class GeneratedDataInitializer {
+
+	// For logging purposes
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	@Autowired
+	DataSource dataSource;
+
+	// The EntityManagerFactory is created after the Flyway migrations have created the tables
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	GeneratorSettings settings;
+
+	@Bean
+	@ConfigurationProperties("school.generator")
+	public static GeneratorSettings generatorSettings() {
+		return new GeneratorSettings();
+	}
+
+	@PostConstruct
+	public void generate() throws SQLException {
+
+		// Wait until the migrations are applied and Hibernate has validated the schema
+		entityManagerFactory.getMetamodel();
+
+		Long students = new JdbcTemplate(dataSource).queryForObject("select count(*) from student_details", Long.class);
+		if (students != null && students > 0) {
+			logger.info("Database already has {} students, skipping the generator", students);
+			return;
+		}
+
+		long start = System.currentTimeMillis();
+		try (Connection connection = dataSource.getConnection()) {
+			long rows = new SyntheticDataGenerator(settings).generate(connection);
+			logger.info("Generated {} rows ({}) in {} ms", rows, settings, System.currentTimeMillis() - start);
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package com.kokabmedia.jpa.school.config;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/*
+ * This class records how long the application needs from the start of the JVM until it is
+ * ready and until the first HTTP request has been answered.
+ *
+ * With lazy initialization and the deferred JPA bootstrap the application is ready earlier but
+ * the first request pays for the beans and the EntityManagerFactory that are not yet created,
+ * the time to the first request is the number that should be compared between the modes.
+ *
+ * The times are logged with the "startup-timing" prefix, the scripts/startup-benchmark.sh
+ * script collects them for every mode.
+ *
+ * The @Lazy(false) annotation makes sure that the filter is created at startup also when
+ * spring.main.lazy-initialization=true is set.
+ */
+@Component
+@Lazy(false)
+public class StartupTimer extends OncePerRequestFilter {
+
+	// For logging purposes
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	private final AtomicBoolean firstRequestDone = new AtomicBoolean();
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void applicationReady() {
+		logger.info("startup-timing ready={}ms", ManagementFactory.getRuntimeMXBean().getUptime());
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+			FilterChain filterChain) throws ServletException, IOException {
+
+		filterChain.doFilter(request, response);
+
+		// Only the first request is logged, later requests only pay for the boolean check
+		if (!firstRequestDone.get() && firstRequestDone.compareAndSet(false, true)) {
+			logger.info("startup-timing first-request={}ms uri={}",
+					ManagementFactory.getRuntimeMXBean().getUptime(), request.getRequestURI());
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package com.kokabmedia.jpa.school.entity;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import org.hibernate.annotations.UpdateTimestamp;
+
+/*
+ * This is a entity class for the progress of one partition of a batch job, see the
+ * BatchJobRunner.
+ *
+ * A partition processes the rows with an id above lastId up to and including toId. After every
+ * chunk lastId is moved to the id of the last row of the chunk, in the transaction of the chunk.
+ * When a job stops with a failure the next run of the job continues every partition after its
+ * lastId instead of starting again.
+ *
+ * The @Entity annotation will automatically with Hibernate, JPA and Spring auto configuration
+ * create a Batch_Checkpoints table in the H2 in memory database.
+ */
+@Entity
+@Table(name="BatchCheckpoints", uniqueConstraints = @UniqueConstraint(columnNames = { "jobName", "partitionNumber" }))
+public class BatchCheckpoint {
+
+	@Id
+	@GeneratedValue
+	private Long id;
+
+	// The name of the BatchJob
+	@Column(nullable = false)
+	private String jobName;
+
+	private int partitionNumber;
+
+	// The id of the last processed row, the partition continues after it
+	private long lastId;
+
+	// The last id of the partition
+	private long toId;
+
+	// Number of rows that are processed
+	private long processed;
+
+	private boolean completed;
+
+	@UpdateTimestamp
+	private LocalDateTime lastUpdatedDate;
+
+	/*
+	 * JPA mandates a default no argument constructor, this constructor will be
+	 * used by JPA to create this specific bean.
+	 */
+	public BatchCheckpoint() {}
+
+	public BatchCheckpoint(String jobName, int partitionNumber, long lastId, long toId) {
+		this.jobName = jobName;
+		this.partitionNumber = partitionNumber;
+		this.lastId = lastId;
+		this.toId = toId;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getJobName() {
+		return jobName;
+	}
+
+	public int getPartitionNumber() {
+		return partitionNumber;
+	}
+
+	public long getLastId() {
+		return lastId;
+	}
+
+	public long getToId() {
+		return toId;
+	}
+
+	public long getProcessed() {
+		return processed;
+	}
+
+	public boolean isCompleted() {
+		return completed;
+	}
+
+	public LocalDateTime getLastUpdatedDate() {
+		return lastUpdatedDate;
+	}
+
+	@Override
+	public String toString() {
+		return "BatchCheckpoint [jobName=" + jobName + ", partitionNumber=" + partitionNumber + ", lastId=" + lastId
+				+ ", toId=" + toId + ", completed=" + completed + "]";
+	}
+}
@@ -7,19 +7,25 @@ import java.util.List;
 import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
 import javax.persistence.OneToMany;
+import javax.persistence.PreRemove;
 import javax.persistence.Table;
 
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.hibernate.annotations.SQLDelete;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.hibernate.annotations.Where;
 
+import com.kokabmedia.jpa.school.search.SearchIndexListener;
+
 /*
  * This is a entity class for the purpose of retrieving, creating, updating, deleting 
  * data with a database.
@@ -52,14 +58,25 @@ import org.hibernate.annotations.Where;
  * information about an object. SecondLevelCache stores common information for all the users of an 
  * application. The data is collected from the database and stored in the SecondLevelCache.
  */
+/*
+ * The @EntityListeners annotation registers the SearchIndexListener that updates the in memory
+ * search index when a Course is saved or deleted.
+ */
+@EntityListeners(SearchIndexListener.class)
 @Cacheable
+/*
+ * The @NaturalIdCache annotation caches the mapping from the course name to the primary key id,
+ * a lookup with the course name is then answered from the Second Level Cache without a query.
+ */
+@NaturalIdCache
 /*
  * The @SQLDelete annotation enables soft deleting with the isDeleted boolean field by updating the 
- * value of isDelted to true.
+ * value of isDelted to true. The last updated time stamp is also set so that the ReportingService 
+ * sees the deleted course.
  * 
  * The @Where annotation restricts the retrieve  scope to where isDeleted has a false value.
  */
-@SQLDelete(sql="upate course set is_deleted=true where id=?")
+@SQLDelete(sql="update course_details set is_deleted=true, last_updated_date=localtimestamp where id=?")
 @Where(clause="is_deleted=false")
 public class Course {
 	
@@ -75,7 +92,15 @@ public class Course {
 	private Long id;
 	
 	 
-	// The name of the column is course_name and the field cannot have a null value 
+	/*
+	 * The name of the column is course_name and the field cannot have a null value.
+	 * 
+	 * The @NaturalId annotation makes the course name the business key of the Course, other 
+	 * systems refer to a course with its name. Hibernate creates a unique constraint on the column,
+	 * the name of a soft deleted course can therefore not be used by a new course. The mutable 
+	 * parameter allows the name to be changed with setName().
+	 */
+	@NaturalId(mutable = true)
 	@Column(name="courseName", nullable = false) 
 	private String name;
 	 
@@ -88,6 +113,18 @@ public class Course {
 	// If a Course row is deleted then this field will updated to true
 	private boolean isDeleted;
 	
+	/*
+	 * The maximum number of students in the course, null means that there is no limit.
+	 * 
+	 * The number of students enrolled in the course and the review aggregates are maintained in 
+	 * the Course_Counter_Stripes table by the CourseCounterRepository together with the 
+	 * STUDENT_COURSE and Review rows, the students and reviews do not have to be loaded to count 
+	 * them. The counters are not fields of the Course, they change with every enrollment and 
+	 * review and the Second Level Cache entry of the Course would keep old counters, they are read
+	 * with CourseRepository.findCounters().
+	 */
+	private Integer capacity;
+	
 	/* 
 	 * This field is for relation mapping purposes, a course can have a list of
 	 * multiple reviews.
@@ -129,6 +166,11 @@ public class Course {
 	 * the owning side of the relationship.
 	 * 
 	 * The fetch strategy for the ManyToMany side of the relations is Lazy Fetch.
+	 * 
+	 * The entity classes are enhanced with bidirectional association management at build time 
+	 * (see pom.xml), a change to one side of the relationship is also made to the other side 
+	 * when the other side is already loaded. Only the owning side Student.courses is written to 
+	 * the STUDENT_COURSE table.
 	 */
 	@ManyToMany(mappedBy="courses")
 	private List<Student> students = new ArrayList<>();
@@ -170,6 +212,27 @@ public class Course {
 		this.reviews.remove(reviews);
 	}
 
+	public Integer getCapacity() {
+		return capacity;
+	}
+
+	public void setCapacity(Integer capacity) {
+		this.capacity = capacity;
+	}
+
+	public boolean isDeleted() {
+		return isDeleted;
+	}
+
+	/*
+	 * The @PreRemove annotation makes JPA call this method before the soft delete, the entity 
+	 * object then has the same isDeleted value as the row in the database.
+	 */
+	@PreRemove
+	private void preRemove() {
+		this.isDeleted = true;
+	}
+
 	public List<Student> getStudents() {
 		return students;
 	}
@@ -0,0 +1,129 @@
+package com.kokabmedia.jpa.school.entity;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+
+/*
+ * This is a entity class for one stripe of the counters of a course, every course has 
+ * CourseCounterRepository.STRIPES rows in the Course_Counter_Stripes table.
+ * 
+ * When registration opens many students enroll in the same course at the same time, with one 
+ * counter in the Course row every enrollment waits for the lock on that row. The counters are 
+ * therefore split over several rows, an enrollment only locks the stripe it updates and the 
+ * enrollments of different students run in parallel. The value of a counter is the sum of all 
+ * the stripes of the course, it is read in one query so that the sum is consistent.
+ * 
+ * With a capacity every stripe gets a part of the free places as its quota, a stripe never 
+ * enrolls more students than its quota and the sum of the quotas is the capacity of the course.
+ * 
+ * The entity is used to create the table and the rows of a new course, the counters are changed
+ * with update queries in the CourseCounterRepository.
+ */
+@Entity
+@Table(name="CourseCounterStripes")
+@IdClass(CourseCounterStripe.StripeId.class)
+public class CourseCounterStripe {
+
+	// The primary key of the table is the course id together with the stripe number
+	@Id
+	private Long courseId;
+	
+	@Id
+	private int stripe;
+	
+	// Number of students enrolled through this stripe
+	@Column(nullable = false)
+	private int enrolled;
+	
+	// The number of places of this stripe, null means that the course has no capacity
+	private Integer quota;
+	
+	// Number of reviews, and the number and sum of the ratings that are a number
+	@Column(nullable = false)
+	private int reviewCount;
+	
+	@Column(nullable = false)
+	private int ratingCount;
+	
+	@Column(nullable = false)
+	private long ratingSum;
+	
+	/*
+	 * JPA mandates a default no argument constructor, this constructor will be
+	 * used by JPA to create this specific bean.
+	 */
+	protected CourseCounterStripe() {}
+	
+	public CourseCounterStripe(Long courseId, int stripe, Integer quota) {
+		this.courseId = courseId;
+		this.stripe = stripe;
+		this.quota = quota;
+	}
+
+	public Long getCourseId() {
+		return courseId;
+	}
+
+	public int getStripe() {
+		return stripe;
+	}
+
+	public int getEnrolled() {
+		return enrolled;
+	}
+
+	public Integer getQuota() {
+		return quota;
+	}
+
+	public int getReviewCount() {
+		return reviewCount;
+	}
+
+	public int getRatingCount() {
+		return ratingCount;
+	}
+
+	public long getRatingSum() {
+		return ratingSum;
+	}
+	
+	// The primary key class that JPA requires for an entity with more than one @Id field
+	public static class StripeId implements Serializable {
+		
+		private static final long serialVersionUID = 1L;
+
+		private Long courseId;
+		private int stripe;
+		
+		public StripeId() {}
+		
+		public StripeId(Long courseId, int stripe) {
+			this.courseId = courseId;
+			this.stripe = stripe;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof StripeId)) {
+				return false;
+			}
+			StripeId that = (StripeId) other;
+			return stripe == that.stripe && Objects.equals(courseId, that.courseId);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(courseId, stripe);
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package com.kokabmedia.jpa.school.entity;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.CreationTimestamp;
+
+/*
+ * This is a entity class for the transactional outbox, every change to a Course, a Student, an
+ * enrollment or a Review also inserts an OutboxEvent row in the same transaction. 
+ * 
+ * When the transaction is rolled back the event is rolled back with it, when the transaction is
+ * committed the event is committed with it. The OutboxRelay reads the events that are not yet 
+ * published and sends them to an OutboxSink, downstream systems read the changes from the sink 
+ * instead of polling the tables.
+ * 
+ * The @Entity annotation will automatically with Hibernate, JPA and Spring auto configuration 
+ * create a Outbox_Events table in the H2 in memory database.
+ */
+@Entity
+@Table(name="OutboxEvents")// Define the name of the database table
+public class OutboxEvent {
+
+	/*
+	 * The ids are generated in the order the events are inserted, an event of a transaction that
+	 * commits later can still have a lower id, the relay therefore uses the published flag and 
+	 * not the id to find the events it has not yet sent.
+	 */
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_generator")
+	@SequenceGenerator(name = "outbox_generator", sequenceName = "outbox_sequence", allocationSize = 50)
+	private Long id;
+
+	// The entity that has changed, for example Course
+	@Column(nullable = false)
+	private String aggregateType;
+
+	// The primary key id of the entity that has changed
+	@Column(nullable = false)
+	private Long aggregateId;
+
+	// What has happened, for example CREATED or ENROLLED
+	@Column(nullable = false)
+	private String eventType;
+
+	// The details of the change as JSON
+	@Column(length = 4000)
+	private String payload;
+
+	@CreationTimestamp // Store created time of row 
+	private LocalDateTime createdDate;
+
+	// Set to true by the OutboxRelay when the event is sent to the OutboxSink
+	private boolean published;
+
+	/*
+	 * JPA mandates a default no argument constructor, this constructor will be
+	 * used by JPA to create this specific bean.
+	 */
+	public OutboxEvent() {}
+
+	public OutboxEvent(String aggregateType, Long aggregateId, String eventType, String payload) {
+		this.aggregateType = aggregateType;
+		this.aggregateId = aggregateId;
+		this.eventType = eventType;
+		this.payload = payload;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getAggregateType() {
+		return aggregateType;
+	}
+
+	public Long getAggregateId() {
+		return aggregateId;
+	}
+
+	public String getEventType() {
+		return eventType;
+	}
+
+	public String getPayload() {
+		return payload;
+	}
+
+	public LocalDateTime getCreatedDate() {
+		return createdDate;
+	}
+
+	public boolean isPublished() {
+		return published;
+	}
+
+	public void setPublished(boolean published) {
+		this.published = published;
+	}
+
+	/*
+	 * The purpose of this method is to returns a textual representation 
+	 * of the object, instead of for example hash code in the logger.
+	 */
+	@Override
+	public String toString() {
+		return "OutboxEvent [id=" + id + ", aggregateType=" + aggregateType + ", aggregateId=" + aggregateId
+				+ ", eventType=" + eventType + "]";
+	}
+
+}
@@ -1,5 +1,6 @@
 package com.kokabmedia.jpa.school.entity;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
@@ -8,6 +9,11 @@ import javax.persistence.Id;
 import javax.persistence.OneToOne;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.LazyToOne;
+import org.hibernate.annotations.LazyToOneOption;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+
 /*
  * This is a entity class for the purpose of retrieving, creating, updating, deleting 
  * data with a database.
@@ -22,6 +28,15 @@ import javax.persistence.Table;
  */
 @Entity 
 @Table(name="PassportDetails")// Define the name of the database table
+/*
+ * The @Cacheable annotation enables Second Level Cache for the Passport entity.
+ * 
+ * The @NaturalIdCache annotation caches the mapping from the passport number to the primary key id,
+ * a lookup with the passport number can then be answered from the Second Level Cache without a 
+ * query against the database.
+ */
+@Cacheable
+@NaturalIdCache
 public class Passport {
 	
 	/*
@@ -35,7 +50,15 @@ public class Passport {
 	@GeneratedValue
 	private Long id;
 	
-	// The name of the column is passport_name and the field cannot have a null value 
+	/*
+	 * The name of the column is passport_number and the field cannot have a null value.
+	 * 
+	 * The @NaturalId annotation makes the passport number the business key of the Passport, 
+	 * Hibernate creates a unique constraint and with it a unique index on the column so that a 
+	 * passport number is found without reading the whole table. The mutable parameter allows the
+	 * number to be changed with setNumber(), for example when a passport is renewed.
+	 */
+	@NaturalId(mutable = true)
 	@Column(name="passportNumber", nullable = false) 
 	private String number;
 	 
@@ -59,8 +82,15 @@ public class Passport {
 	 * Passport has bidirectional association with Student. OneToOne annotation makes it possible 
 	 * to navigate to the Student table even with mappedBy parameter indicating that Student is the 
 	 * owning side of the relationship.
+	 * 
+	 * The Passport table has no student_id column, without bytecode enhancement Hibernate cannot 
+	 * know if there is a Student without a query and selects it with every Passport, the LAZY 
+	 * fetch type is ignored. The entity classes are enhanced at build time by the 
+	 * hibernate-enhance-maven-plugin (see pom.xml), with @LazyToOne(NO_PROXY) the enhanced 
+	 * getStudent() method selects the Student the first time it is called instead.
 	 */
 	@OneToOne(fetch=FetchType.LAZY, mappedBy="passport") 
+	@LazyToOne(LazyToOneOption.NO_PROXY)
 	private Student student;
 	
 	/*
@@ -1,14 +1,24 @@
 package com.kokabmedia.jpa.school.entity;
 
+import java.time.LocalDateTime;
 
+import javax.persistence.Basic;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import com.kokabmedia.jpa.school.feed.ReviewFeedListener;
+
 
 /*
  * This is a entity class for the purpose of retrieving, creating, updating, deleting 
@@ -23,6 +33,11 @@ import javax.persistence.Table;
  */
 @Entity 
 @Table(name="ReviewDetails")// Define the name of the database table
+/*
+ * The @EntityListeners annotation registers the ReviewFeedListener that sends a new Review to the
+ * clients that follow the feed of its course.
+ */
+@EntityListeners(ReviewFeedListener.class)
 public class Review {
 	
 	/*
@@ -31,18 +46,39 @@ public class Review {
 	 * The @GeneratedValue annotation makes the Hibernate generate the primary key value.
 	 * 
 	 * Primary key will uniquely identify each row in a database table.
+	 * 
+	 * The @SequenceGenerator annotation uses a separate review_sequence with an allocation size 
+	 * of 50, Hibernate reserves 50 ids with one call to the sequence instead of one call for every
+	 * review. This keeps the batched inserts of the ReviewIngestionQueue to one round trip to the 
+	 * database per batch.
 	 */
 	@Id
-	@GeneratedValue
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "review_generator")
+	@SequenceGenerator(name = "review_generator", sequenceName = "review_sequence", allocationSize = 50)
 	private Long id;
 	
-	// The name of the column is description_review
+	/*
+	 * The name of the column is description_review.
+	 * 
+	 * The description is the largest column of the table and is not needed to count or rate 
+	 * reviews, with the bytecode enhancement of the entity classes (see pom.xml) it is only 
+	 * selected when getDescription() is called. A query that reads the descriptions of many 
+	 * reviews uses "fetch all properties" so that they are not selected one review at the time.
+	 */
+	@Basic(fetch=FetchType.LAZY)
 	@Column(name="descriptionReview") 
 	private String description;
 	
 	// The field cannot have a null value 
 	@Column(nullable = false) 
 	private String rating;
+	
+	@CreationTimestamp // Store created time of row 
+	private LocalDateTime createdDate;
+	
+	// Every time this row is changed in the database update this time stamp, used by the ReportingService
+	@UpdateTimestamp
+	private LocalDateTime lastUpdatedDate;
 
 	/*
 	 * This field is for relation mapping purposes, it will hold an Course object
@@ -102,6 +138,10 @@ public class Review {
 	public Long getId() {
 		return id;
 	}
+
+	public LocalDateTime getLastUpdatedDate() {
+		return lastUpdatedDate;
+	}
 	
 	public Course getCourse() {
 		return course;
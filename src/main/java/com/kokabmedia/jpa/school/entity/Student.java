@@ -1,10 +1,13 @@
 package com.kokabmedia.jpa.school.entity;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
@@ -14,6 +17,11 @@ import javax.persistence.ManyToMany;
 import javax.persistence.OneToOne;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import com.kokabmedia.jpa.school.search.SearchIndexListener;
+
 /*
  * This is a entity class for the purpose of retrieving, creating, updating, deleting 
  * data with a database.
@@ -30,6 +38,17 @@ import javax.persistence.Table;
  */
 @Entity 
 @Table(name="StudentDetails")// Define the name of the database table
+/*
+ * The @EntityListeners annotation registers the SearchIndexListener that updates the in memory
+ * search index when a Student is saved or deleted.
+ */
+@EntityListeners(SearchIndexListener.class)
+/*
+ * The @Cacheable annotation enables Second Level Cache for the Student entity, a Student that is
+ * found with a query, for example with the passport number, is then retrieved from the cache 
+ * with findById() instead of the database.
+ */
+@Cacheable
 public class Student {
 	
 	/*
@@ -51,6 +70,17 @@ public class Student {
 	@Column(name="studentLastName", nullable = false) 
 	private String lastName;
 	
+	@CreationTimestamp // Store created time of row 
+	private LocalDateTime createdDate;
+	
+	/*
+	 * Every time this row is changed in the database update this time stamp, the enrollment 
+	 * queries of the StudentRepository also update it when a STUDENT_COURSE row of the student is 
+	 * inserted or deleted. The ReportingService reads the changed rows with this time stamp.
+	 */
+	@UpdateTimestamp
+	private LocalDateTime lastUpdatedDate;
+	
 	
 	/*
 	 * Creates a OneToOne relationship mapping with the @OneToOne annotation, Student can have
@@ -81,6 +111,9 @@ public class Student {
 	 * is the  owning side of the relationship because the .
 	 * 
 	 * The fetch strategy for the ManyToMany side of the relations is Lazy Fetch.
+	 * 
+	 * The enrollments that take a place in the counters of the course are made with
+	 * StudentRepository.enrollIfCapacity(), see addCourse().
 	 */
 	@ManyToMany
 	/* 
@@ -124,6 +157,10 @@ public class Student {
 		return id;
 	}
 
+	public LocalDateTime getLastUpdatedDate() {
+		return lastUpdatedDate;
+	}
+
 	public Passport getPassport() {
 		return passport;
 	}
@@ -138,7 +175,13 @@ public class Student {
 		return courses;
 	}
 
-	// Add one course at the time to the list of courses
+	/*
+	 * Add one course at the time to the list of courses.
+	 * 
+	 * The STUDENT_COURSE row that is inserted when the student is saved does not take a place 
+	 * in the counters of the course and does not check its capacity, use 
+	 * StudentRepository.enrollIfCapacity() and withdrawFromCourse() for enrollments.
+	 */
 	public void addCourse(Course course) {
 		this.courses.add(course);
 	}
@@ -0,0 +1,175 @@
+package com.kokabmedia.jpa.school.feed;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kokabmedia.jpa.school.repository.EnrollmentChangedEvent;
+import com.kokabmedia.jpa.school.tenant.TenantContext;
+
+/*
+ * This class sends the new reviews and the enrollment changes of a course to the clients of the
+ * feed of the course, see CourseController.feed().
+ * 
+ * The changes are published after the commit, a rolled back review or enrollment is never sent.
+ * The reviews come from the ReviewFeedListener, the enrollments from the EnrollmentChangedEvent
+ * of the StudentRepository. The event is converted to JSON once and added to the queue of every 
+ * subscriber of the course.
+ * 
+ * A small pool of sender threads writes the queued events to the connections, the number of 
+ * threads does not grow with the number of subscribers. The queue of a subscriber holds at most
+ * school.course-feed.buffer-size events, a subscriber with a full queue does not read its events
+ * fast enough and is disconnected. A slow client then does not hold the memory of an ever 
+ * growing queue, it can connect again and read the course before it follows the feed.
+ * 
+ * The feeds of every school are separate, the key of a feed is the school and the course id.
+ */
+@Component
+@Lazy(false) // Register the @Scheduled heartbeat also when spring.main.lazy-initialization=true is set
+public class CourseFeedBroadcaster {
+
+	// For logging purposes
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	@Value("${school.course-feed.buffer-size:64}")
+	int bufferSize;
+
+	@Value("${school.course-feed.timeout-ms:1800000}")
+	long timeoutMs;
+
+	@Value("${school.course-feed.sender-threads:4}")
+	int senderThreads;
+
+	@Autowired
+	ObjectMapper objectMapper;
+
+	private final ConcurrentMap<String, Set<CourseFeedSubscriber>> feeds = new ConcurrentHashMap<>();
+	private final AtomicLong eventIds = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private ExecutorService senders;
+
+	@PostConstruct
+	public void start() {
+		AtomicInteger threads = new AtomicInteger();
+		senders = Executors.newFixedThreadPool(senderThreads, task -> {
+			Thread thread = new Thread(task, "course-feed-sender-" + threads.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@PreDestroy
+	public void stop() {
+		feeds.values().forEach(subscribers -> subscribers.forEach(CourseFeedSubscriber::close));
+		senders.shutdownNow();
+	}
+
+	// Open a feed of the course for the school of the current thread
+	public SseEmitter subscribe(long courseId) {
+
+		String key = key(courseId);
+		SseEmitter emitter = new SseEmitter(timeoutMs);
+		CourseFeedSubscriber subscriber = new CourseFeedSubscriber(emitter, bufferSize, senders);
+
+		feeds.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+		Runnable remove = () -> remove(key, subscriber);
+		emitter.onCompletion(remove);
+		emitter.onTimeout(remove);
+		emitter.onError(error -> remove.run());
+
+		return emitter;
+	}
+
+	private void remove(String key, CourseFeedSubscriber subscriber) {
+		feeds.computeIfPresent(key, (k, subscribers) -> {
+			subscribers.remove(subscriber);
+			return subscribers.isEmpty() ? null : subscribers;
+		});
+	}
+
+	public boolean hasSubscribers(long courseId) {
+		return feeds.containsKey(key(courseId));
+	}
+
+	// Send a new review of the course, called after the commit of the review
+	public void reviewAdded(long courseId, long reviewId, String description, String rating) {
+		publish(courseId, "review", Map.of("id", reviewId, "courseId", courseId,
+				"description", description == null ? "" : description, "rating", rating == null ? "" : rating));
+	}
+
+	// A deleted student has a null course id, its courses are not known and are not sent
+	@TransactionalEventListener
+	public void enrollmentChanged(EnrollmentChangedEvent event) {
+		if (event.getCourseId() != null) {
+			publish(event.getCourseId(), "enrollment", Map.of("studentId", event.getStudentId(),
+					"courseId", event.getCourseId(), "enrolled", event.isEnrolled()));
+		}
+	}
+
+	private void publish(long courseId, String name, Object data) {
+
+		Set<CourseFeedSubscriber> subscribers = feeds.get(key(courseId));
+		if (subscribers == null) {
+			return;
+		}
+
+		CourseFeedEvent event;
+		try {
+			event = new CourseFeedEvent(eventIds.incrementAndGet(), name, objectMapper.writeValueAsString(data));
+		} catch (JsonProcessingException e) {
+			logger.warn("Course feed event {} of course {} not sent", name, courseId, e);
+			return;
+		}
+
+		for (CourseFeedSubscriber subscriber : subscribers) {
+			offer(subscriber, event);
+		}
+	}
+
+	private void offer(CourseFeedSubscriber subscriber, CourseFeedEvent event) {
+		if (!subscriber.offer(event)) {
+			dropped.incrementAndGet();
+			subscriber.close();
+		}
+	}
+
+	// Proxies and load balancers close a connection without traffic, a closed connection fails the heartbeat
+	@Scheduled(fixedDelayString = "${school.course-feed.heartbeat-ms:15000}",
+			initialDelayString = "${school.course-feed.heartbeat-ms:15000}")
+	public void heartbeat() {
+		feeds.values().forEach(subscribers -> subscribers.forEach(subscriber -> offer(subscriber, CourseFeedEvent.HEARTBEAT)));
+	}
+
+	public int getSubscriberCount() {
+		return feeds.values().stream().mapToInt(Set::size).sum();
+	}
+
+	// The number of subscribers that were disconnected because their queue was full
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	private static String key(long courseId) {
+		return TenantContext.get() + ":" + courseId;
+	}
+}
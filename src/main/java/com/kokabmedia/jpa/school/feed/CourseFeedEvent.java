@@ -0,0 +1,32 @@
+package com.kokabmedia.jpa.school.feed;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+/*
+ * This class is one event of a course feed. The data is converted to JSON once by the 
+ * CourseFeedBroadcaster and the same text is sent to every subscriber of the course.
+ */
+final class CourseFeedEvent {
+
+	// A comment that keeps the connection open and finds the connections that are closed
+	static final CourseFeedEvent HEARTBEAT = new CourseFeedEvent(0, null, null);
+
+	private final long id;
+	private final String name;
+	private final String json;
+
+	CourseFeedEvent(long id, String name, String json) {
+		this.id = id;
+		this.name = name;
+		this.json = json;
+	}
+
+	// A new builder for every subscriber, the SseEventBuilder can only be sent once
+	SseEventBuilder toSse() {
+		if (this == HEARTBEAT) {
+			return SseEmitter.event().comment("heartbeat");
+		}
+		return SseEmitter.event().id(Long.toString(id)).name(name).data(json);
+	}
+}
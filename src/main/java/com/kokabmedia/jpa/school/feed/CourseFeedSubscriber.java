@@ -0,0 +1,82 @@
+package com.kokabmedia.jpa.school.feed;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/*
+ * This class is one open connection to a course feed with its own bounded queue of events.
+ * 
+ * The publishing thread only adds the event to the queue. When the queue was empty a sender 
+ * thread of the CourseFeedBroadcaster is asked to send the queued events, at most one sender 
+ * works on a subscriber at the time so the events are sent in order. A subscriber without 
+ * events does not use a thread.
+ */
+class CourseFeedSubscriber {
+
+	private final SseEmitter emitter;
+	private final BlockingQueue<CourseFeedEvent> queue;
+	private final Executor senders;
+	private final AtomicBoolean sending = new AtomicBoolean();
+	private volatile boolean closed;
+
+	CourseFeedSubscriber(SseEmitter emitter, int bufferSize, Executor senders) {
+		this.emitter = emitter;
+		this.queue = new ArrayBlockingQueue<>(bufferSize);
+		this.senders = senders;
+	}
+
+	SseEmitter getEmitter() {
+		return emitter;
+	}
+
+	boolean isClosed() {
+		return closed;
+	}
+
+	// Returns false when the queue is full, the subscriber does not keep up with the events
+	boolean offer(CourseFeedEvent event) {
+		if (closed) {
+			return true;
+		}
+		if (!queue.offer(event)) {
+			return false;
+		}
+		scheduleSend();
+		return true;
+	}
+
+	private void scheduleSend() {
+		if (sending.compareAndSet(false, true)) {
+			senders.execute(this::send);
+		}
+	}
+
+	private void send() {
+		try {
+			CourseFeedEvent event;
+			while (!closed && (event = queue.poll()) != null) {
+				emitter.send(event.toSse());
+			}
+		} catch (Exception e) {
+			// The client has closed the connection
+			close();
+		} finally {
+			sending.set(false);
+		}
+		// An event that was added after the last poll and before sending was reset
+		if (!closed && !queue.isEmpty()) {
+			scheduleSend();
+		}
+	}
+
+	// Stop sending and end the response, the client can connect again and read the course
+	void close() {
+		closed = true;
+		queue.clear();
+		emitter.complete();
+	}
+}
@@ -0,0 +1,47 @@
+package com.kokabmedia.jpa.school.feed;
+
+import javax.persistence.PostPersist;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.kokabmedia.jpa.school.entity.Review;
+
+/*
+ * This class is a JPA entity listener that sends a new Review to the feed of its course after the
+ * transaction is committed. It is added to the Review entity with the @EntityListeners annotation,
+ * it sees the reviews of CourseRepository.addReviewToCourse() and of the ReviewBatchWriter.
+ * 
+ * The values are copied from the Review when it is inserted, the Review can be detached when the
+ * transaction has committed.
+ */
+public class ReviewFeedListener {
+
+	@Autowired
+	CourseFeedBroadcaster broadcaster;
+
+	@PostPersist
+	public void persisted(Review review) {
+		// Most reviews are written for a course without an open feed
+		if (review.getCourse() == null || !broadcaster.hasSubscribers(review.getCourse().getId())) {
+			return;
+		}
+		long courseId = review.getCourse().getId();
+		long reviewId = review.getId();
+		String description = review.getDescription();
+		String rating = review.getRating();
+
+		Runnable publish = () -> broadcaster.reviewAdded(courseId, reviewId, description, rating);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					publish.run();
+				}
+			});
+		} else {
+			publish.run();
+		}
+	}
+}
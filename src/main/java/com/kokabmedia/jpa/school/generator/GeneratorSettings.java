@@ -0,0 +1,159 @@
+package com.kokabmedia.jpa.school.generator;
+
+/*
+ * The settings of the SyntheticDataGenerator, the same settings always generate the same rows.
+ * 
+ * The settings are read from command line arguments like --students=1000000 by the 
+ * SchoolDataGenerator, or from the school.generator.* properties by the GeneratedDataInitializer.
+ */
+public class GeneratorSettings {
+
+	private int students = 100_000;
+	private int courses = 1_000;
+
+	// Average number of courses of a student, the number is Poisson distributed
+	private double coursesPerStudent = 5;
+
+	private int reviews = 500_000;
+
+	// The part of the students that has a passport
+	private double passportShare = 0.9;
+
+	// The exponent of the Zipf distribution of the course popularity, 0 is uniform
+	private double zipfExponent = 1.0;
+
+	private long seed = 42;
+
+	// Number of rows in one JDBC batch
+	private int batchSize = 10_000;
+
+	// The first id of the generated rows, above the ids of the seed migration
+	private long firstId = 1_000_000;
+
+	// Parse arguments like --students=1000000, unknown arguments are rejected
+	public static GeneratorSettings fromArgs(String[] args) {
+		GeneratorSettings settings = new GeneratorSettings();
+		for (String arg : args) {
+			if (!arg.startsWith("--") || !arg.contains("=")) {
+				continue;
+			}
+			String name = arg.substring(2, arg.indexOf('='));
+			String value = arg.substring(arg.indexOf('=') + 1);
+			switch (name) {
+			case "students":
+				settings.setStudents(Integer.parseInt(value));
+				break;
+			case "courses":
+				settings.setCourses(Integer.parseInt(value));
+				break;
+			case "courses-per-student":
+				settings.setCoursesPerStudent(Double.parseDouble(value));
+				break;
+			case "reviews":
+				settings.setReviews(Integer.parseInt(value));
+				break;
+			case "passport-share":
+				settings.setPassportShare(Double.parseDouble(value));
+				break;
+			case "zipf-exponent":
+				settings.setZipfExponent(Double.parseDouble(value));
+				break;
+			case "seed":
+				settings.setSeed(Long.parseLong(value));
+				break;
+			case "batch-size":
+				settings.setBatchSize(Integer.parseInt(value));
+				break;
+			case "first-id":
+				settings.setFirstId(Long.parseLong(value));
+				break;
+			case "url":
+			case "user":
+			case "password":
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown argument " + arg);
+			}
+		}
+		return settings;
+	}
+
+	public int getStudents() {
+		return students;
+	}
+
+	public void setStudents(int students) {
+		this.students = students;
+	}
+
+	public int getCourses() {
+		return courses;
+	}
+
+	public void setCourses(int courses) {
+		this.courses = courses;
+	}
+
+	public double getCoursesPerStudent() {
+		return coursesPerStudent;
+	}
+
+	public void setCoursesPerStudent(double coursesPerStudent) {
+		this.coursesPerStudent = coursesPerStudent;
+	}
+
+	public int getReviews() {
+		return reviews;
+	}
+
+	public void setReviews(int reviews) {
+		this.reviews = reviews;
+	}
+
+	public double getPassportShare() {
+		return passportShare;
+	}
+
+	public void setPassportShare(double passportShare) {
+		this.passportShare = passportShare;
+	}
+
+	public double getZipfExponent() {
+		return zipfExponent;
+	}
+
+	public void setZipfExponent(double zipfExponent) {
+		this.zipfExponent = zipfExponent;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public long getFirstId() {
+		return firstId;
+	}
+
+	public void setFirstId(long firstId) {
+		this.firstId = firstId;
+	}
+
+	@Override
+	public String toString() {
+		return "students=" + students + ", courses=" + courses + ", coursesPerStudent=" + coursesPerStudent
+				+ ", reviews=" + reviews + ", passportShare=" + passportShare + ", zipfExponent=" + zipfExponent
+				+ ", seed=" + seed;
+	}
+}
@@ -0,0 +1,312 @@
+package com.kokabmedia.jpa.school.generator;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+
+import com.kokabmedia.jpa.school.repository.CourseCounterRepository;
+
+/*
+ * This class generates a school with realistic distributions and writes it with batched JDBC 
+ * inserts, millions of rows are written in seconds instead of a transaction per entity.
+ * 
+ * - The popularity of the courses has a Zipf distribution, a few courses get most of the 
+ *   enrollments and reviews. The ranks are shuffled so that the popular courses do not all have
+ *   the lowest ids.
+ * - The number of courses of a student has a Poisson distribution with coursesPerStudent as the 
+ *   average, every student has at least one course.
+ * - Every course has a quality, the ratings of its reviews are spread around it.
+ * - A part of the students has a passport.
+ * 
+ * All random numbers come from one SplittableRandom with the seed, the same settings generate 
+ * the same rows. The rows are not kept in memory, only the counters of every course, which are 
+ * written to the first counter stripe of the course as the seed migration does.
+ * 
+ * The tables must exist, they are created by the Flyway migrations in db/migration when the
+ * application starts. The ids start at GeneratorSettings.firstId and the sequences are moved 
+ * above the generated ids.
+ */
+public class SyntheticDataGenerator {
+
+	private static final String[] FIRST_NAMES = { "Anna", "Bob", "Carla", "David", "Emma", "Erik", "Fatima",
+			"Gustav", "Hanna", "Ibrahim", "Jill", "Johan", "Karin", "Lars", "Maria", "Mohammed", "Nina", "Oscar",
+			"Paula", "Rasmus", "Sara", "Simon", "Tove", "Umar", "Vera", "William", "Yasmin", "Zoran" };
+
+	private static final String[] LAST_NAMES = { "Andersson", "Berg", "Edards", "Lund", "Erikson", "Forsberg",
+			"Gustafsson", "Hansson", "Holm", "Jonson", "Karlsson", "Larsson", "Lindqvist", "Nilsson", "Nyberg",
+			"Olsson", "Persson", "Sandberg", "Svensson", "Wallin", "Zargarian" };
+
+	private static final String[] TOPICS = { "JPA", "Spring", "REST", "Hibernate", "SQL", "Java", "Kotlin",
+			"Docker", "Kubernetes", "React", "Security", "Testing", "Algorithms", "Statistics", "Networks" };
+
+	private static final String[] REVIEWS = { "Good course", "Great course", "Awsome course", "Too fast",
+			"Clear examples", "Hard exercises", "Boring", "Very useful" };
+
+	// The review_sequence has an allocation size of 50, Hibernate uses the 50 ids below a value
+	private static final int REVIEW_ALLOCATION_SIZE = 50;
+
+	private static final LocalDateTime START = LocalDateTime.of(2021, 8, 1, 8, 0);
+
+	private final GeneratorSettings settings;
+	private final SplittableRandom random;
+
+	// The counters of every course, by position
+	private final int[] enrolled;
+	private final int[] reviewCount;
+	private final int[] ratingCount;
+	private final long[] ratingSum;
+
+	// The course position of every popularity rank
+	private final int[] courseByRank;
+	private final ZipfSampler popularity;
+
+	public SyntheticDataGenerator(GeneratorSettings settings) {
+		this.settings = settings;
+		this.random = new SplittableRandom(settings.getSeed());
+
+		int courses = settings.getCourses();
+		enrolled = new int[courses];
+		reviewCount = new int[courses];
+		ratingCount = new int[courses];
+		ratingSum = new long[courses];
+
+		courseByRank = new int[courses];
+		for (int i = 0; i < courses; i++) {
+			courseByRank[i] = i;
+		}
+		for (int i = courses - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = courseByRank[i];
+			courseByRank[i] = courseByRank[j];
+			courseByRank[j] = swap;
+		}
+		popularity = new ZipfSampler(courses, settings.getZipfExponent());
+	}
+
+	/*
+	 * Write the rows in one transaction, the connection is committed at the end and rolled back 
+	 * when a statement fails. Returns the number of rows that were written.
+	 */
+	public long generate(Connection connection) throws SQLException {
+
+		boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(false);
+		try {
+			long rows = writeCourses(connection);
+			rows += writeStudents(connection);
+			rows += writeReviews(connection);
+			rows += writeCounterStripes(connection);
+			moveSequences(connection);
+			connection.commit();
+			return rows;
+		} catch (SQLException | RuntimeException e) {
+			connection.rollback();
+			throw e;
+		} finally {
+			connection.setAutoCommit(autoCommit);
+		}
+	}
+
+	private long courseId(int position) {
+		return settings.getFirstId() + position;
+	}
+
+	private long studentId(int position) {
+		return settings.getFirstId() + settings.getCourses() + position;
+	}
+
+	private long passportId(int position) {
+		return studentId(settings.getStudents()) + position;
+	}
+
+	private long reviewId(int position) {
+		return settings.getFirstId() + position;
+	}
+
+	private long writeCourses(Connection connection) throws SQLException {
+		try (Batch courses = new Batch(connection, "insert into course_details"
+				+ "(id, course_name, created_date, last_updated_date, is_deleted) values (?, ?, ?, ?, false)")) {
+			for (int i = 0; i < settings.getCourses(); i++) {
+				Timestamp created = timestamp();
+				courses.statement.setLong(1, courseId(i));
+				courses.statement.setString(2, TOPICS[i % TOPICS.length] + " level " + (1 + i / TOPICS.length));
+				courses.statement.setTimestamp(3, created);
+				courses.statement.setTimestamp(4, created);
+				courses.add();
+			}
+			return courses.count;
+		}
+	}
+
+	// The students with their passports and enrollments
+	private long writeStudents(Connection connection) throws SQLException {
+		try (Batch passports = new Batch(connection, "insert into passport_details(id, passport_number) values (?, ?)");
+				Batch students = new Batch(connection, "insert into student_details(id, student_first_name, "
+						+ "student_last_name, passport_id, created_date, last_updated_date) values (?, ?, ?, ?, ?, ?)");
+				Batch enrollments = new Batch(connection,
+						"insert into student_course(student_id, course_id) values (?, ?)")) {
+
+			int[] courses = new int[settings.getCourses()];
+			for (int i = 0; i < settings.getStudents(); i++) {
+
+				boolean hasPassport = random.nextDouble() < settings.getPassportShare();
+				if (hasPassport) {
+					passports.statement.setLong(1, passportId(i));
+					passports.statement.setString(2, "P" + passportId(i));
+					passports.add();
+				}
+
+				Timestamp created = timestamp();
+				students.statement.setLong(1, studentId(i));
+				students.statement.setString(2, FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]);
+				students.statement.setString(3, LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
+				students.statement.setObject(4, hasPassport ? passportId(i) : null, Types.BIGINT);
+				students.statement.setTimestamp(5, created);
+				students.statement.setTimestamp(6, created);
+				students.add();
+
+				// Distinct popular courses, the number is limited by the number of courses
+				int count = Math.min(1 + poisson(settings.getCoursesPerStudent() - 1), settings.getCourses());
+				for (int c = 0; c < count; c++) {
+					int course;
+					do {
+						course = courseByRank[popularity.sample(random.nextDouble())];
+					} while (contains(courses, c, course));
+					courses[c] = course;
+					enrolled[course]++;
+
+					enrollments.statement.setLong(1, studentId(i));
+					enrollments.statement.setLong(2, courseId(course));
+					enrollments.add();
+				}
+			}
+			return passports.count + students.count + enrollments.count;
+		}
+	}
+
+	private long writeReviews(Connection connection) throws SQLException {
+
+		// The quality of every course, between 2 and 5
+		double[] quality = new double[settings.getCourses()];
+		for (int i = 0; i < quality.length; i++) {
+			quality[i] = 2 + 3 * random.nextDouble();
+		}
+
+		try (Batch reviews = new Batch(connection, "insert into review_details(id, description_review, rating, "
+				+ "course_id, created_date, last_updated_date) values (?, ?, ?, ?, ?, ?)")) {
+			for (int i = 0; i < settings.getReviews(); i++) {
+				int course = courseByRank[popularity.sample(random.nextDouble())];
+				int rating = (int) Math.max(1, Math.min(5, Math.round(quality[course] + gaussian() * 0.8)));
+				reviewCount[course]++;
+				ratingCount[course]++;
+				ratingSum[course] += rating;
+
+				Timestamp created = timestamp();
+				reviews.statement.setLong(1, reviewId(i));
+				reviews.statement.setString(2, REVIEWS[random.nextInt(REVIEWS.length)]);
+				reviews.statement.setString(3, String.valueOf(rating));
+				reviews.statement.setLong(4, courseId(course));
+				reviews.statement.setTimestamp(5, created);
+				reviews.statement.setTimestamp(6, created);
+				reviews.add();
+			}
+			return reviews.count;
+		}
+	}
+
+	// The counters are written to the first stripe, the other stripes start at 0
+	private long writeCounterStripes(Connection connection) throws SQLException {
+		try (Batch stripes = new Batch(connection, "insert into course_counter_stripes(course_id, stripe, enrolled, "
+				+ "review_count, rating_count, rating_sum) values (?, ?, ?, ?, ?, ?)")) {
+			for (int i = 0; i < settings.getCourses(); i++) {
+				for (int stripe = 0; stripe < CourseCounterRepository.STRIPES; stripe++) {
+					boolean first = stripe == 0;
+					stripes.statement.setLong(1, courseId(i));
+					stripes.statement.setInt(2, stripe);
+					stripes.statement.setInt(3, first ? enrolled[i] : 0);
+					stripes.statement.setInt(4, first ? reviewCount[i] : 0);
+					stripes.statement.setInt(5, first ? ratingCount[i] : 0);
+					stripes.statement.setLong(6, first ? ratingSum[i] : 0);
+					stripes.add();
+				}
+			}
+			return stripes.count;
+		}
+	}
+
+	// Move the sequences above the generated ids so that Hibernate does not generate the same ids
+	private void moveSequences(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("alter sequence hibernate_sequence restart with " + passportId(settings.getStudents()));
+			statement.execute("alter sequence review_sequence restart with "
+					+ (reviewId(settings.getReviews()) + REVIEW_ALLOCATION_SIZE));
+		}
+	}
+
+	private Timestamp timestamp() {
+		return Timestamp.valueOf(START.plusMinutes(random.nextInt(60 * 24 * 30)));
+	}
+
+	// Knuth's method, fast enough for the small averages of courses per student
+	private int poisson(double mean) {
+		if (mean <= 0) {
+			return 0;
+		}
+		double limit = Math.exp(-mean);
+		double product = random.nextDouble();
+		int count = 0;
+		while (product > limit) {
+			product *= random.nextDouble();
+			count++;
+		}
+		return count;
+	}
+
+	// Box-Muller transform, SplittableRandom has no nextGaussian()
+	private double gaussian() {
+		return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+	}
+
+	private static boolean contains(int[] values, int length, int value) {
+		for (int i = 0; i < length; i++) {
+			if (values[i] == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// A prepared statement that is executed every batchSize rows and at close()
+	private class Batch implements AutoCloseable {
+
+		final PreparedStatement statement;
+		long count;
+
+		Batch(Connection connection, String sql) throws SQLException {
+			statement = connection.prepareStatement(sql);
+		}
+
+		void add() throws SQLException {
+			statement.addBatch();
+			if (++count % settings.getBatchSize() == 0) {
+				statement.executeBatch();
+			}
+		}
+
+		@Override
+		public void close() throws SQLException {
+			try {
+				if (count % settings.getBatchSize() != 0) {
+					statement.executeBatch();
+				}
+			} finally {
+				statement.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package com.kokabmedia.jpa.school.generator;
+
+import java.util.Arrays;
+
+/*
+ * Chooses a rank between 0 and size - 1 with a Zipf distribution, rank 0 is chosen most often.
+ * With exponent 1 the most popular course gets about as many enrollments as the next two 
+ * together, as on registration day when everybody wants the same few courses.
+ * 
+ * The cumulative probabilities are calculated once, a sample is a binary search with a uniform 
+ * random number between 0 and 1, so that the caller decides which random generator is used.
+ */
+public class ZipfSampler {
+
+	private final double[] cumulative;
+
+	public ZipfSampler(int size, double exponent) {
+		cumulative = new double[size];
+		double sum = 0;
+		for (int i = 0; i < size; i++) {
+			sum += 1 / Math.pow(i + 1, exponent);
+			cumulative[i] = sum;
+		}
+		for (int i = 0; i < size; i++) {
+			cumulative[i] /= sum;
+		}
+	}
+
+	public int sample(double uniform) {
+		int position = Arrays.binarySearch(cumulative, uniform);
+		return Math.min(position >= 0 ? position : -position - 1, cumulative.length - 1);
+	}
+
+	public int size() {
+		return cumulative.length;
+	}
+}
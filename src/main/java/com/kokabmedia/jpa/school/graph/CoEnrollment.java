@@ -0,0 +1,24 @@
+package com.kokabmedia.jpa.school.graph;
+
+/*
+ * This class is one result of EnrollmentGraph.coEnrolledCourses(), a course and the number of 
+ * students of the searched course that are also enrolled in it.
+ */
+public class CoEnrollment {
+
+	private final long courseId;
+	private final int sharedStudents;
+
+	public CoEnrollment(long courseId, int sharedStudents) {
+		this.courseId = courseId;
+		this.sharedStudents = sharedStudents;
+	}
+
+	public long getCourseId() {
+		return courseId;
+	}
+
+	public int getSharedStudents() {
+		return sharedStudents;
+	}
+}
@@ -0,0 +1,237 @@
+package com.kokabmedia.jpa.school.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongFunction;
+
+/*
+ * This class holds the STUDENT_COURSE rows in memory as two adjacency lists, the sorted course 
+ * ids of every student and the sorted student ids of every course.
+ * 
+ * The ids are stored in long arrays instead of List<Long> or entity collections, one enrollment
+ * takes 8 bytes in each direction. The set operations are done by SortedLongArrays on the sorted
+ * arrays, "students enrolled in both A and B" is the intersection of the student arrays of A 
+ * and B.
+ * 
+ * An enrollment change copies the arrays of the student and the course, the arrays that are 
+ * returned by the queries are never changed afterwards. The maps are guarded with a read write 
+ * lock, the queries only hold the read lock while they look up the arrays.
+ */
+public class EnrollmentGraph {
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final LongArrayMap coursesByStudent;
+	private final LongArrayMap studentsByCourse;
+	private long enrollmentCount;
+
+	public EnrollmentGraph(int expectedStudents, int expectedCourses) {
+		coursesByStudent = new LongArrayMap(expectedStudents);
+		studentsByCourse = new LongArrayMap(expectedCourses);
+	}
+
+	// Add an enrollment, returns false when the student is already enrolled in the course
+	public boolean add(long studentId, long courseId) {
+		lock.writeLock().lock();
+		try {
+			long[] courses = coursesByStudent.get(studentId);
+			long[] updated = SortedLongArrays.insert(courses, courseId);
+			if (updated == courses) {
+				return false;
+			}
+			coursesByStudent.put(studentId, updated);
+			studentsByCourse.put(courseId, SortedLongArrays.insert(studentsByCourse.get(courseId), studentId));
+			enrollmentCount++;
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// Remove an enrollment, returns false when the student was not enrolled in the course
+	public boolean remove(long studentId, long courseId) {
+		lock.writeLock().lock();
+		try {
+			long[] courses = coursesByStudent.get(studentId);
+			long[] updated = SortedLongArrays.remove(courses, courseId);
+			if (updated == courses) {
+				return false;
+			}
+			coursesByStudent.put(studentId, updated);
+			studentsByCourse.put(courseId, SortedLongArrays.remove(studentsByCourse.get(courseId), studentId));
+			enrollmentCount--;
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// Remove every enrollment of a student, for example when the student is deleted
+	public void removeStudent(long studentId) {
+		lock.writeLock().lock();
+		try {
+			for (long courseId : coursesByStudent.get(studentId)) {
+				studentsByCourse.put(courseId, SortedLongArrays.remove(studentsByCourse.get(courseId), studentId));
+				enrollmentCount--;
+			}
+			coursesByStudent.put(studentId, SortedLongArrays.EMPTY);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/*
+	 * Add the sorted course ids of a student and the sorted student ids of a course when the 
+	 * graph is loaded from the database, the ids are merged with the ids that are already there.
+	 * The number of enrollments is counted with the student side only.
+	 */
+	void loadStudent(long studentId, long[] sortedCourseIds) {
+		lock.writeLock().lock();
+		try {
+			long[] courses = coursesByStudent.get(studentId);
+			long[] merged = SortedLongArrays.union(courses, sortedCourseIds);
+			coursesByStudent.put(studentId, merged);
+			enrollmentCount += merged.length - courses.length;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	void loadCourse(long courseId, long[] sortedStudentIds) {
+		lock.writeLock().lock();
+		try {
+			studentsByCourse.put(courseId, SortedLongArrays.union(studentsByCourse.get(courseId), sortedStudentIds));
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// The sorted ids of the courses of a student
+	public long[] coursesOf(long studentId) {
+		lock.readLock().lock();
+		try {
+			return coursesByStudent.get(studentId);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// The sorted ids of the students of a course
+	public long[] studentsOf(long courseId) {
+		lock.readLock().lock();
+		try {
+			return studentsByCourse.get(courseId);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// The students that are enrolled in every one of the courses
+	public long[] studentsInAllCourses(long... courseIds) {
+		return combine(courseIds, this::studentsOf, true);
+	}
+
+	// The students that are enrolled in at least one of the courses
+	public long[] studentsInAnyCourse(long... courseIds) {
+		return combine(courseIds, this::studentsOf, false);
+	}
+
+	// The courses that every one of the students is enrolled in
+	public long[] sharedCourses(long... studentIds) {
+		return combine(studentIds, this::coursesOf, true);
+	}
+
+	// The courses that at least one of the students is enrolled in
+	public long[] coursesOfAnyStudent(long... studentIds) {
+		return combine(studentIds, this::coursesOf, false);
+	}
+
+	/*
+	 * The other courses of the students of a course, with the number of students of the course 
+	 * that are also enrolled in it. The course with the most shared students comes first.
+	 * 
+	 * The course ids of all the students are collected in one array and sorted, equal ids are 
+	 * then next to each other and are counted in one pass.
+	 */
+	public List<CoEnrollment> coEnrolledCourses(long courseId, int limit) {
+
+		long[] all;
+		int size = 0;
+		lock.readLock().lock();
+		try {
+			long[] students = studentsByCourse.get(courseId);
+			long[][] coursesOfStudents = new long[students.length][];
+			int total = 0;
+			for (int i = 0; i < students.length; i++) {
+				coursesOfStudents[i] = coursesByStudent.get(students[i]);
+				total += coursesOfStudents[i].length;
+			}
+			all = new long[total];
+			for (long[] courses : coursesOfStudents) {
+				System.arraycopy(courses, 0, all, size, courses.length);
+				size += courses.length;
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		Arrays.sort(all);
+
+		List<CoEnrollment> result = new ArrayList<>();
+		for (int i = 0; i < size;) {
+			int j = i;
+			while (j < size && all[j] == all[i]) {
+				j++;
+			}
+			if (all[i] != courseId) {
+				result.add(new CoEnrollment(all[i], j - i));
+			}
+			i = j;
+		}
+		result.sort(Comparator.comparingInt(CoEnrollment::getSharedStudents).reversed()
+				.thenComparingLong(CoEnrollment::getCourseId));
+		return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+	}
+
+	public long getEnrollmentCount() {
+		lock.readLock().lock();
+		try {
+			return enrollmentCount;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Estimated number of bytes of the adjacency arrays and the hash tables
+	public long memoryBytes() {
+		lock.readLock().lock();
+		try {
+			return coursesByStudent.memoryBytes() + studentsByCourse.memoryBytes();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Intersect or unite the arrays of the ids, the intersection starts with the smallest array
+	private static long[] combine(long[] ids, LongFunction<long[]> arrayOf, boolean intersect) {
+
+		if (ids.length == 0) {
+			return SortedLongArrays.EMPTY;
+		}
+		long[][] arrays = new long[ids.length][];
+		for (int i = 0; i < ids.length; i++) {
+			arrays[i] = arrayOf.apply(ids[i]);
+		}
+		if (intersect) {
+			Arrays.sort(arrays, Comparator.comparingInt(array -> array.length));
+		}
+
+		long[] result = arrays[0];
+		for (int i = 1; i < arrays.length; i++) {
+			result = intersect ? SortedLongArrays.intersect(result, arrays[i]) : SortedLongArrays.union(result, arrays[i]);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,163 @@
+package com.kokabmedia.jpa.school.graph;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import javax.persistence.EntityManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.kokabmedia.jpa.school.repository.EnrollmentChangedEvent;
+import com.kokabmedia.jpa.school.tenant.TenantContext;
+
+/*
+ * This class keeps the EnrollmentGraph in sync with the STUDENT_COURSE table.
+ * 
+ * The graph is loaded from the database when the application is ready. After that every 
+ * EnrollmentChangedEvent of the StudentRepository is applied to the graph when the transaction 
+ * has committed, a rolled back enrollment never reaches the graph.
+ * 
+ * While the graph is rebuilt the changes are applied to both the current and the new graph, the
+ * queries use the current graph until the new graph is complete. Enrollments that are added 
+ * with Student.addCourse() do not publish an event, the scheduled check compares the number of 
+ * rows in the table with the graph and rebuilds the graph when they differ.
+ */
+@Service
+@Lazy(false) // Register the @Scheduled check also when spring.main.lazy-initialization=true is set
+public class EnrollmentGraphService {
+
+	// Number of rows that are read from the database at the time during a rebuild
+	static final int CHUNK_SIZE = 10_000;
+
+	// For logging purposes
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	@Autowired
+	EntityManager em;
+
+	private volatile EnrollmentGraph graph = new EnrollmentGraph(0, 0);
+
+	// The graph that is being built by a rebuild, null when no rebuild is running
+	private volatile EnrollmentGraph rebuilding;
+
+	public EnrollmentGraph getGraph() {
+		return graph;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void buildOnStartup() {
+		rebuild();
+	}
+
+	/*
+	 * Read the STUDENT_COURSE table twice, ordered by student and ordered by course, so that the 
+	 * ids of every student and every course arrive already grouped and sorted.
+	 */
+	@Transactional(readOnly = true)
+	public synchronized void rebuild() {
+
+		long start = System.currentTimeMillis();
+		int students = ((Number) em.createNativeQuery("select count(*) from student_details").getSingleResult()).intValue();
+		int courses = ((Number) em.createNativeQuery("select count(*) from course_details").getSingleResult()).intValue();
+
+		EnrollmentGraph next = new EnrollmentGraph(students, courses);
+		rebuilding = next;
+		try {
+			readAdjacency("student_id", "course_id", next::loadStudent);
+			readAdjacency("course_id", "student_id", next::loadCourse);
+			graph = next;
+		} finally {
+			rebuilding = null;
+		}
+
+		logger.info("Enrollment graph built with {} enrollments, {} bytes, in {} ms", next.getEnrollmentCount(),
+				next.memoryBytes(), System.currentTimeMillis() - start);
+	}
+
+	// Apply an enrollment change after the commit, to the new graph first when a rebuild is running
+	// The graph holds the enrollments of the default school, the changes of other schools are ignored
+	@TransactionalEventListener
+	public void enrollmentChanged(EnrollmentChangedEvent event) {
+		if (!TenantContext.isDefault()) {
+			return;
+		}
+		EnrollmentGraph next = rebuilding;
+		EnrollmentGraph current = graph;
+		if (next != null && next != current) {
+			apply(next, event);
+		}
+		apply(current, event);
+	}
+
+	// Rebuild the graph when changes were made that did not publish an EnrollmentChangedEvent
+	@Scheduled(fixedDelayString = "${school.enrollment-graph.check-interval-ms:60000}",
+			initialDelayString = "${school.enrollment-graph.check-interval-ms:60000}")
+	@Transactional(readOnly = true)
+	public void checkConsistency() {
+		long rows = ((Number) em.createNativeQuery("select count(*) from student_course").getSingleResult()).longValue();
+		if (rows != graph.getEnrollmentCount()) {
+			logger.debug("Enrollment graph has {} enrollments and the table {}, rebuilding", graph.getEnrollmentCount(), rows);
+			rebuild();
+		}
+	}
+
+	private void apply(EnrollmentGraph target, EnrollmentChangedEvent event) {
+		if (event.getCourseId() == null) {
+			target.removeStudent(event.getStudentId());
+		} else if (event.isEnrolled()) {
+			target.add(event.getStudentId(), event.getCourseId());
+		} else {
+			target.remove(event.getStudentId(), event.getCourseId());
+		}
+	}
+
+	/*
+	 * Read the rows ordered by the key column and then the value column in chunks, the sorted 
+	 * values of every key are passed to the loader. A key that is split over two chunks is passed
+	 * twice, the EnrollmentGraph merges the values.
+	 */
+	private void readAdjacency(String keyColumn, String valueColumn, BiConsumer<Long, long[]> loader) {
+
+		String sql = "select " + keyColumn + ", " + valueColumn + " from student_course where " + keyColumn
+				+ " > :lastKey or (" + keyColumn + " = :lastKey and " + valueColumn + " > :lastValue) order by "
+				+ keyColumn + ", " + valueColumn;
+
+		long lastKey = Long.MIN_VALUE;
+		long lastValue = Long.MIN_VALUE;
+		long[] values = new long[CHUNK_SIZE];
+		List<?> rows;
+		do {
+			rows = em.createNativeQuery(sql)
+					.setParameter("lastKey", lastKey)
+					.setParameter("lastValue", lastValue)
+					.setMaxResults(CHUNK_SIZE)
+					.getResultList();
+
+			int size = 0;
+			for (int i = 0; i < rows.size(); i++) {
+				Object[] row = (Object[]) rows.get(i);
+				long key = ((Number) row[0]).longValue();
+				if (i > 0 && key != lastKey) {
+					loader.accept(lastKey, Arrays.copyOf(values, size));
+					size = 0;
+				}
+				lastKey = key;
+				lastValue = ((Number) row[1]).longValue();
+				values[size++] = lastValue;
+			}
+			if (size > 0) {
+				loader.accept(lastKey, Arrays.copyOf(values, size));
+			}
+		} while (rows.size() == CHUNK_SIZE);
+	}
+}
@@ -0,0 +1,93 @@
+package com.kokabmedia.jpa.school.graph;
+
+/*
+ * This class maps a long id to a sorted long array, the adjacency list of a student or a course
+ * in the EnrollmentGraph.
+ * 
+ * The ids are stored in an open addressing hash table with linear probing. A removed key is 
+ * kept with an empty array instead of a tombstone, a student that withdraws from every course 
+ * keeps its slot. The map is not thread safe, the EnrollmentGraph guards it with a lock.
+ */
+class LongArrayMap {
+
+	private long[] keys;
+	private long[][] values;
+	private int size;
+
+	LongArrayMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2) - 1) << 1;
+		keys = new long[capacity];
+		values = new long[capacity][];
+	}
+
+	// The array of the key, an empty array when the key is not in the map
+	long[] get(long key) {
+		int mask = keys.length - 1;
+		for (int slot = hash(key) & mask; values[slot] != null; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) {
+				return values[slot];
+			}
+		}
+		return SortedLongArrays.EMPTY;
+	}
+
+	void put(long key, long[] value) {
+		if ((size + 1) * 2 > keys.length) {
+			resize(keys.length * 2);
+		}
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (values[slot] != null) {
+			if (keys[slot] == key) {
+				values[slot] = value;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		size++;
+	}
+
+	// Number of keys, including the keys with an empty array
+	int size() {
+		return size;
+	}
+
+	/*
+	 * Estimated number of bytes of the map on a 64 bit JVM with compressed references, an array
+	 * has a header of 16 bytes and the elements are padded to 8 bytes.
+	 */
+	long memoryBytes() {
+		long bytes = arrayBytes(keys.length * 8L) + arrayBytes(values.length * 4L);
+		for (long[] value : values) {
+			if (value != null && value != SortedLongArrays.EMPTY) {
+				bytes += arrayBytes(value.length * 8L);
+			}
+		}
+		return bytes;
+	}
+
+	private static long arrayBytes(long elementBytes) {
+		return 16 + ((elementBytes + 7) & ~7L);
+	}
+
+	private void resize(int capacity) {
+		long[] oldKeys = keys;
+		long[][] oldValues = values;
+		keys = new long[capacity];
+		values = new long[capacity][];
+		size = 0;
+		for (int slot = 0; slot < oldKeys.length; slot++) {
+			if (oldValues[slot] != null) {
+				put(oldKeys[slot], oldValues[slot]);
+			}
+		}
+	}
+
+	// Spread sequential ids over the table
+	private static int hash(long key) {
+		long mixed = (key ^ (key >>> 32)) * 0x9E3779B97F4A7C15L;
+		return (int) (mixed ^ (mixed >>> 32));
+	}
+}
@@ -0,0 +1,85 @@
+package com.kokabmedia.jpa.school.graph;
+
+import java.util.Arrays;
+
+/*
+ * This class has the set operations of the EnrollmentGraph on sorted long arrays without 
+ * duplicates. The arrays are not changed, every operation returns a new array.
+ * 
+ * An intersection or a union of two sorted arrays walks both arrays once, the same as merging 
+ * two sorted lists, without hashing and without boxing the ids into Long objects.
+ */
+final class SortedLongArrays {
+
+	static final long[] EMPTY = new long[0];
+
+	private SortedLongArrays() {}
+
+	static boolean contains(long[] array, long value) {
+		return Arrays.binarySearch(array, value) >= 0;
+	}
+
+	// A copy of the array with the value added at its sorted position, the array itself when it is already there
+	static long[] insert(long[] array, long value) {
+		int position = Arrays.binarySearch(array, value);
+		if (position >= 0) {
+			return array;
+		}
+		position = -position - 1;
+		long[] result = new long[array.length + 1];
+		System.arraycopy(array, 0, result, 0, position);
+		result[position] = value;
+		System.arraycopy(array, position, result, position + 1, array.length - position);
+		return result;
+	}
+
+	// A copy of the array without the value, the array itself when the value is not there
+	static long[] remove(long[] array, long value) {
+		int position = Arrays.binarySearch(array, value);
+		if (position < 0) {
+			return array;
+		}
+		long[] result = new long[array.length - 1];
+		System.arraycopy(array, 0, result, 0, position);
+		System.arraycopy(array, position + 1, result, position, array.length - position - 1);
+		return result;
+	}
+
+	static long[] intersect(long[] a, long[] b) {
+		long[] result = new long[Math.min(a.length, b.length)];
+		int size = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.length && j < b.length) {
+			if (a[i] < b[j]) {
+				i++;
+			} else if (a[i] > b[j]) {
+				j++;
+			} else {
+				result[size++] = a[i];
+				i++;
+				j++;
+			}
+		}
+		return size == result.length ? result : Arrays.copyOf(result, size);
+	}
+
+	static long[] union(long[] a, long[] b) {
+		long[] result = new long[a.length + b.length];
+		int size = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.length || j < b.length) {
+			if (j == b.length || (i < a.length && a[i] < b[j])) {
+				result[size++] = a[i++];
+			} else if (i == a.length || a[i] > b[j]) {
+				result[size++] = b[j++];
+			} else {
+				result[size++] = a[i];
+				i++;
+				j++;
+			}
+		}
+		return size == result.length ? result : Arrays.copyOf(result, size);
+	}
+}
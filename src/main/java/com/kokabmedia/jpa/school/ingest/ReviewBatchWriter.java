@@ -0,0 +1,71 @@
+package com.kokabmedia.jpa.school.ingest;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.kokabmedia.jpa.school.entity.Course;
+import com.kokabmedia.jpa.school.entity.Review;
+import com.kokabmedia.jpa.school.repository.CourseCounterRepository;
+import com.kokabmedia.jpa.school.repository.OutboxRepository;
+
+/*
+ * This class writes a batch of submitted reviews to the database in one transaction, it is used
+ * by the writer thread of the ReviewIngestionQueue.
+ * 
+ * The Course is not retrieved, em.getReference() returns a proxy with only the id that is used
+ * for the course_id foreign key. With hibernate.jdbc.batch_size the inserts are sent to the 
+ * database in JDBC batches when the Persistence Context is flushed.
+ */
+@Repository
+@Transactional
+public class ReviewBatchWriter {
+
+	@Autowired
+	EntityManager em;
+
+	// Every review is also recorded as an event in the transactional outbox
+	@Autowired
+	OutboxRepository outbox;
+
+	// The review counters of the courses
+	@Autowired
+	CourseCounterRepository counters;
+
+	public void writeBatch(List<ReviewSubmission> batch) {
+
+		// The number of reviews, the number of ratings and the sum of the ratings of every course
+		Map<Long, long[]> countersByCourse = new LinkedHashMap<>();
+
+		for (ReviewSubmission submission : batch) {
+			Review review = new Review(submission.getDescription(), submission.getRating());
+			review.setCourse(em.getReference(Course.class, submission.getCourseId()));
+			em.persist(review);
+			outbox.record("Course", submission.getCourseId(), "REVIEW_ADDED", OutboxRepository.reviewPayload(review));
+
+			Integer rating = CourseCounterRepository.ratingValue(submission.getRating());
+			long[] counts = countersByCourse.computeIfAbsent(submission.getCourseId(), id -> new long[3]);
+			counts[0]++;
+			if (rating != null) {
+				counts[1]++;
+				counts[2] += rating;
+			}
+		}
+
+		// One counter update for every course in the batch instead of one for every review
+		for (Map.Entry<Long, long[]> entry : countersByCourse.entrySet()) {
+			long[] counts = entry.getValue();
+			counters.addReviews(entry.getKey(), (int) counts[0], (int) counts[1], counts[2]);
+		}
+
+		// Send the inserts to the database and remove the reviews from the Persistence Context
+		em.flush();
+		em.clear();
+	}
+}
@@ -0,0 +1,236 @@
+package com.kokabmedia.jpa.school.ingest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import com.kokabmedia.jpa.school.tenant.TenantContext;
+
+/*
+ * This class accepts reviews without writing them to the database right away, a dedicated writer
+ * thread takes the reviews from the queue and writes them with the ReviewBatchWriter in batches.
+ *
+ * At the end of a term many reviews are submitted at the same time, with a transaction, an insert
+ * and a cache update for every review the database becomes the bottleneck. With the queue the
+ * submitting thread only adds the review to the queue, the writer thread writes all the reviews
+ * that are waiting in one transaction with batched inserts.
+ *
+ * The queue is a ConcurrentLinkedQueue that does not use locks, the number of waiting reviews is
+ * limited by the school.reviews.ingest.capacity property, submit() returns false when the queue
+ * is full so that the caller can answer with an error instead of running out of memory.
+ *
+ * Durability:
+ * - When the application is stopped the @PreDestroy method writes the waiting reviews before the
+ *   database connections are closed.
+ * - With the school.reviews.ingest.wal-file property every review is also written to a local file
+ *   before it is queued, the reviews that were not written to the database are submitted again at
+ *   the next start. With school.reviews.ingest.wal-sync=true the file is forced to the disk.
+ */
+@Component
+@Lazy(false) // Recover the reviews of the write ahead file at startup
+public class ReviewIngestionQueue {
+
+	// For logging purposes
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	@Value("${school.reviews.ingest.capacity:100000}")
+	int capacity;
+
+	@Value("${school.reviews.ingest.batch-size:500}")
+	int batchSize;
+
+	// Time the writer thread waits for new reviews when the queue is empty
+	@Value("${school.reviews.ingest.max-delay-ms:100}")
+	long maxDelayMs;
+
+	@Value("${school.reviews.ingest.shutdown-timeout-ms:30000}")
+	long shutdownTimeoutMs;
+
+	@Value("${school.reviews.ingest.wal-file:}")
+	String walFile;
+
+	@Value("${school.reviews.ingest.wal-sync:false}")
+	boolean walSync;
+
+	@Autowired
+	ReviewBatchWriter batchWriter;
+
+	private final ConcurrentLinkedQueue<ReviewSubmission> queue = new ConcurrentLinkedQueue<>();
+
+	// Reviews in the queue plus the reviews that the writer thread is writing
+	private final AtomicInteger pending = new AtomicInteger();
+
+	private volatile boolean running;
+	private Thread writerThread;
+	private ReviewWriteAheadLog writeAheadLog;
+
+	@PostConstruct
+	public void start() throws IOException {
+
+		if (!walFile.isEmpty()) {
+			writeAheadLog = new ReviewWriteAheadLog(Paths.get(walFile), walSync);
+			List<ReviewSubmission> recovered = writeAheadLog.recover();
+			queue.addAll(recovered);
+			pending.addAndGet(recovered.size());
+			if (!recovered.isEmpty()) {
+				logger.info("Recovered {} reviews from {}", recovered.size(), walFile);
+			}
+		}
+
+		running = true;
+		writerThread = new Thread(this::writeLoop, "review-ingestion-writer");
+		writerThread.setDaemon(true);
+		writerThread.start();
+	}
+
+	/*
+	 * Add a review to the queue, returns false when the queue is full.
+	 *
+	 * The compare and set loop reserves a place in the queue without a lock, a thread that loses
+	 * the race reads the new size and tries again.
+	 */
+	public boolean submit(ReviewSubmission review) {
+
+		if (!running) {
+			throw new IllegalStateException("The review ingestion queue is stopped");
+		}
+
+		int current;
+		do {
+			current = pending.get();
+			if (current >= capacity) {
+				return false;
+			}
+		} while (!pending.compareAndSet(current, current + 1));
+
+		if (writeAheadLog != null) {
+			try {
+				writeAheadLog.append(review, queue);
+			} catch (IOException e) {
+				pending.decrementAndGet();
+				throw new UncheckedIOException("Could not write the review to " + walFile, e);
+			}
+		} else {
+			queue.offer(review);
+		}
+
+		// Wake up the writer thread as soon as a full batch is waiting
+		if (current + 1 >= batchSize) {
+			LockSupport.unpark(writerThread);
+		}
+		return true;
+	}
+
+	// Number of reviews that are not yet written to the database
+	public int getPendingCount() {
+		return pending.get();
+	}
+
+	// Wait until every submitted review is written to the database, returns false on timeout
+	public boolean awaitEmpty(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (pending.get() > 0) {
+			if (System.nanoTime() > deadline) {
+				return false;
+			}
+			LockSupport.unpark(writerThread);
+			Thread.sleep(1);
+		}
+		return true;
+	}
+
+	@PreDestroy
+	public void stop() throws InterruptedException, IOException {
+
+		running = false;
+		LockSupport.unpark(writerThread);
+		writerThread.join(shutdownTimeoutMs);
+
+		if (pending.get() > 0) {
+			logger.warn("Stopped with {} reviews not written to the database", pending.get());
+		}
+		if (writeAheadLog != null) {
+			writeAheadLog.close();
+		}
+	}
+
+	// The loop of the writer thread, it continues after a stop until the queue is empty
+	private void writeLoop() {
+
+		List<ReviewSubmission> batch = new ArrayList<>(batchSize);
+
+		while (running || !queue.isEmpty()) {
+
+			ReviewSubmission review;
+			while (batch.size() < batchSize && (review = queue.poll()) != null) {
+				batch.add(review);
+			}
+
+			if (batch.isEmpty()) {
+				LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(maxDelayMs));
+				continue;
+			}
+
+			write(batch);
+			batch.clear();
+		}
+	}
+
+	// The reviews of every school are written in a transaction with the schema of the school
+	private void write(List<ReviewSubmission> batch) {
+
+		Map<String, List<ReviewSubmission>> batchesByTenant = new LinkedHashMap<>();
+		for (ReviewSubmission review : batch) {
+			batchesByTenant.computeIfAbsent(review.getTenant(), tenant -> new ArrayList<>()).add(review);
+		}
+		for (Map.Entry<String, List<ReviewSubmission>> tenantBatch : batchesByTenant.entrySet()) {
+			TenantContext.runAs(tenantBatch.getKey(), () -> writeTenantBatch(tenantBatch.getValue()));
+		}
+
+		try {
+			if (writeAheadLog != null) {
+				writeAheadLog.committed(batch.size());
+			}
+		} catch (IOException e) {
+			logger.error("Could not mark {} reviews as committed in {}", batch.size(), walFile, e);
+		} finally {
+			pending.addAndGet(-batch.size());
+		}
+	}
+
+	private void writeTenantBatch(List<ReviewSubmission> batch) {
+		try {
+			batchWriter.writeBatch(batch);
+		} catch (RuntimeException e) {
+
+			// One bad review, for example with an unknown course, should not drop the whole batch
+			logger.warn("Batch of {} reviews failed, writing the reviews one at the time", batch.size(), e);
+			for (ReviewSubmission review : batch) {
+				try {
+					batchWriter.writeBatch(Collections.singletonList(review));
+				} catch (RuntimeException reviewException) {
+					logger.error("Dropped {}", review, reviewException);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package com.kokabmedia.jpa.school.ingest;
+
+import com.kokabmedia.jpa.school.tenant.TenantContext;
+
+/*
+ * This class holds a review that is submitted to the ReviewIngestionQueue and is not yet 
+ * written to the database. It only holds the id of the course so that no Course entity has 
+ * to be retrieved when the review is submitted.
+ * 
+ * The review is written by the writer thread of the queue, the tenant of the thread that 
+ * submitted the review is kept so that the review is written to the schema of its school.
+ */
+public class ReviewSubmission {
+
+	private final String tenant;
+	private final Long courseId;
+	private final String description;
+	private final String rating;
+
+	// A review of the school of the current thread
+	public ReviewSubmission(Long courseId, String description, String rating) {
+		this(TenantContext.get(), courseId, description, rating);
+	}
+
+	public ReviewSubmission(String tenant, Long courseId, String description, String rating) {
+		if (tenant == null || courseId == null || rating == null) {
+			throw new IllegalArgumentException("A review needs a tenant, a course id and a rating");
+		}
+		this.tenant = tenant;
+		this.courseId = courseId;
+		this.description = description;
+		this.rating = rating;
+	}
+
+	public String getTenant() {
+		return tenant;
+	}
+
+	public Long getCourseId() {
+		return courseId;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public String getRating() {
+		return rating;
+	}
+
+	@Override
+	public String toString() {
+		return "ReviewSubmission [tenant=" + tenant + ", courseId=" + courseId + ", description=" + description + ", rating=" + rating + "]";
+	}
+}
@@ -0,0 +1,146 @@
+package com.kokabmedia.jpa.school.ingest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Queue;
+
+import com.kokabmedia.jpa.school.tenant.TenantContext;
+
+/*
+ * This class is a local write ahead file for the ReviewIngestionQueue, a submitted review is
+ * written to the file before it is added to the queue so that it is not lost when the application
+ * stops before the review is written to the database.
+ *
+ * Every line is a review, the description and the rating are Base64 encoded so that a line break
+ * in a description does not break the file. The tenant is the last field, a line of an older 
+ * file without the tenant belongs to the default school. When a batch is committed a "#<count>" line is added,
+ * when all the reviews in the file are committed the file is truncated.
+ *
+ * At startup the reviews after the committed count are read back and submitted again. A review
+ * that was committed just before a crash but not yet marked can be written twice.
+ */
+class ReviewWriteAheadLog implements Closeable {
+
+	private static final String COMMIT_MARKER = "#";
+	private static final String NULL_VALUE = "-";
+
+	private final Path path;
+	private final boolean sync;
+	private FileChannel channel;
+
+	// Reviews written to the file and reviews committed to the database since the last truncate
+	private long appended;
+	private long committed;
+
+	ReviewWriteAheadLog(Path path, boolean sync) {
+		this.path = path;
+		this.sync = sync;
+	}
+
+	// Open the file and return the reviews that were not committed before the last stop
+	synchronized List<ReviewSubmission> recover() throws IOException {
+
+		List<ReviewSubmission> reviews = new ArrayList<>();
+		long committedCount = 0;
+
+		if (Files.exists(path)) {
+			for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+				if (line.startsWith(COMMIT_MARKER)) {
+					committedCount += Long.parseLong(line.substring(1));
+				} else if (!line.isEmpty()) {
+					reviews.add(decode(line));
+				}
+			}
+		} else if (path.toAbsolutePath().getParent() != null) {
+			Files.createDirectories(path.toAbsolutePath().getParent());
+		}
+
+		List<ReviewSubmission> pending = new ArrayList<>(
+				reviews.subList((int) Math.min(committedCount, reviews.size()), reviews.size()));
+
+		// Start a new file that only holds the reviews that are still pending
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		channel.truncate(0);
+		for (ReviewSubmission review : pending) {
+			write(encode(review));
+		}
+		force();
+
+		appended = pending.size();
+		committed = 0;
+		return pending;
+	}
+
+	/*
+	 * Write the review to the file and add it to the queue, both are done while holding the lock
+	 * so that the order in the file is the order in which the reviews are committed.
+	 */
+	synchronized void append(ReviewSubmission review, Queue<ReviewSubmission> queue) throws IOException {
+		write(encode(review));
+		force();
+		appended++;
+		queue.offer(review);
+	}
+
+	// Mark a number of reviews as committed, the file is emptied when every review is committed
+	synchronized void committed(int count) throws IOException {
+		committed += count;
+		if (committed >= appended) {
+			channel.truncate(0);
+			appended = 0;
+			committed = 0;
+		} else {
+			write(COMMIT_MARKER + count);
+		}
+		force();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (channel != null) {
+			channel.close();
+		}
+	}
+
+	private void write(String line) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	// With sync the data is written to the disk, otherwise the OS writes it later
+	private void force() throws IOException {
+		if (sync) {
+			channel.force(false);
+		}
+	}
+
+	static String encode(ReviewSubmission review) {
+		return review.getCourseId() + "\t" + encodeValue(review.getRating()) + "\t" + encodeValue(review.getDescription())
+				+ "\t" + review.getTenant();
+	}
+
+	static ReviewSubmission decode(String line) {
+		String[] fields = line.split("\t", -1);
+		String tenant = fields.length > 3 ? fields[3] : TenantContext.DEFAULT_TENANT;
+		return new ReviewSubmission(tenant, Long.valueOf(fields[0]), decodeValue(fields[2]), decodeValue(fields[1]));
+	}
+
+	private static String encodeValue(String value) {
+		return value == null ? NULL_VALUE : Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String decodeValue(String value) {
+		return NULL_VALUE.equals(value) ? null : new String(Base64.getDecoder().decode(value), StandardCharsets.UTF_8);
+	}
+}
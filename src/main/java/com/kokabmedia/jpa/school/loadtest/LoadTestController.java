@@ -0,0 +1,27 @@
+package com.kokabmedia.jpa.school.loadtest;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/*
+ * This class returns the ids of the rows that the LoadTestDataSeeder seeded, the load generator
+ * chooses the students and courses of its requests from them.
+ * 
+ * GET /loadtest/dataset  {"studentIds": [...], "courseIds": [...]}
+ */
+@RestController
+@Profile("loadtest")
+public class LoadTestController {
+
+	@Autowired
+	LoadTestDataSeeder seeder;
+
+	@GetMapping("/loadtest/dataset")
+	public Map<String, long[]> dataset() {
+		return Map.of("studentIds", seeder.getStudentIds(), "courseIds", seeder.getCourseIds());
+	}
+}
@@ -0,0 +1,148 @@
+package com.kokabmedia.jpa.school.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kokabmedia.jpa.school.entity.Course;
+import com.kokabmedia.jpa.school.entity.Student;
+import com.kokabmedia.jpa.school.ingest.ReviewBatchWriter;
+import com.kokabmedia.jpa.school.ingest.ReviewSubmission;
+import com.kokabmedia.jpa.school.repository.CourseRepository;
+import com.kokabmedia.jpa.school.repository.EnrollmentResult;
+import com.kokabmedia.jpa.school.repository.StudentRepository;
+
+/*
+ * This class seeds the data set for the registration day load test when the application is 
+ * started with the loadtest profile, see application-loadtest.properties.
+ * 
+ * The rows are written through the repositories so that the counters, the outbox events and the 
+ * enrollment graph are maintained as they are in production. Every chunk of CHUNK_SIZE rows is 
+ * written in one transaction with its own Persistence Context.
+ * 
+ * The courses and students are chosen with a Random with the school.loadtest.seed, the same 
+ * settings give the same enrollments and reviews. The ids of the seeded rows are returned by the
+ * LoadTestController for the load generator.
+ */
+@Component
+@Profile("loadtest")
+@Lazy(false)
+public class LoadTestDataSeeder implements ApplicationRunner {
+
+	static final int CHUNK_SIZE = 1_000;
+
+	// For logging purposes
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	@Value("${school.loadtest.students:50000}")
+	int students;
+
+	@Value("${school.loadtest.courses:2000}")
+	int courses;
+
+	@Value("${school.loadtest.enrollments:500000}")
+	int enrollments;
+
+	@Value("${school.loadtest.reviews:1000000}")
+	int reviews;
+
+	// The capacity of every course, the popular courses of the load test fill up
+	@Value("${school.loadtest.capacity:400}")
+	int capacity;
+
+	@Value("${school.loadtest.seed:42}")
+	long seed;
+
+	@Autowired
+	StudentRepository studentRepository;
+
+	@Autowired
+	CourseRepository courseRepository;
+
+	@Autowired
+	ReviewBatchWriter reviewBatchWriter;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	private volatile long[] studentIds = new long[0];
+	private volatile long[] courseIds = new long[0];
+
+	@Override
+	public void run(ApplicationArguments args) {
+
+		long start = System.currentTimeMillis();
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		Random random = new Random(seed);
+
+		long[] newCourseIds = new long[courses];
+		for (int from = 0; from < courses; from += CHUNK_SIZE) {
+			int first = from;
+			transaction.executeWithoutResult(status -> {
+				for (int i = first; i < Math.min(first + CHUNK_SIZE, courses); i++) {
+					Course course = new Course("Load test course " + i);
+					course.setCapacity(capacity);
+					newCourseIds[i] = courseRepository.save(course).getId();
+				}
+			});
+		}
+		courseIds = newCourseIds;
+
+		long[] newStudentIds = new long[students];
+		for (int from = 0; from < students; from += CHUNK_SIZE) {
+			int first = from;
+			transaction.executeWithoutResult(status -> {
+				for (int i = first; i < Math.min(first + CHUNK_SIZE, students); i++) {
+					newStudentIds[i] = studentRepository.save(new Student("Student", "Number " + i)).getId();
+				}
+			});
+		}
+		studentIds = newStudentIds;
+		logger.info("Seeded {} courses and {} students in {} ms", courses, students, System.currentTimeMillis() - start);
+
+		// A course that is full or an enrollment that exists is skipped, the attempts are limited
+		int[] enrolled = new int[1];
+		for (long attempts = 0; enrolled[0] < enrollments && attempts < enrollments * 3L; attempts += CHUNK_SIZE) {
+			transaction.executeWithoutResult(status -> {
+				for (int i = 0; i < CHUNK_SIZE && enrolled[0] < enrollments; i++) {
+					long studentId = newStudentIds[random.nextInt(students)];
+					long courseId = newCourseIds[random.nextInt(courses)];
+					if (studentRepository.enrollIfCapacity(studentId, courseId) == EnrollmentResult.ENROLLED) {
+						enrolled[0]++;
+					}
+				}
+			});
+		}
+		logger.info("Seeded {} enrollments in {} ms", enrolled[0], System.currentTimeMillis() - start);
+
+		for (int from = 0; from < reviews; from += CHUNK_SIZE) {
+			List<ReviewSubmission> batch = new ArrayList<>(CHUNK_SIZE);
+			for (int i = from; i < Math.min(from + CHUNK_SIZE, reviews); i++) {
+				batch.add(new ReviewSubmission(newCourseIds[random.nextInt(courses)], "Load test review " + i,
+						String.valueOf(1 + random.nextInt(5))));
+			}
+			reviewBatchWriter.writeBatch(batch);
+		}
+		logger.info("Seeded {} reviews in {} ms", reviews, System.currentTimeMillis() - start);
+	}
+
+	public long[] getStudentIds() {
+		return studentIds;
+	}
+
+	public long[] getCourseIds() {
+		return courseIds;
+	}
+}
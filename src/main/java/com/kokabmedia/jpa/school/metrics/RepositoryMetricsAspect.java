@@ -0,0 +1,151 @@
+package com.kokabmedia.jpa.school.metrics;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/*
+ * This aspect measures every public method of the classes in the repository package.
+ * 
+ * The @Aspect annotation makes the class an AspectJ aspect that Spring AOP applies to the beans,
+ * the @Around method is called instead of the repository method and calls it with proceed(). 
+ * The repositories already have a proxy for @Transactional, the aspect is added to that proxy.
+ * With @Order(Ordered.HIGHEST_PRECEDENCE) the aspect runs before the transaction is started and
+ * after it is committed, the time and the statements of the flush at the commit are included.
+ * 
+ * For every method these meters are recorded in the Micrometer MeterRegistry:
+ * - school.repository.calls, a timer with the class, method and cache tags. The percentiles are
+ *   calculated in the application with HdrHistogram, over a window of the last minutes.
+ * - school.repository.rows, the number of rows that the method returned or changed.
+ * - school.repository.statements, the number of SQL statements that the method executed.
+ * 
+ * The cache tag is hit for a find method that returned a result without executing a statement,
+ * the entity was in the Persistence Context or the Second Level Cache, miss for a find method 
+ * that executed a statement and none for the other methods.
+ * 
+ * The meters of a method are looked up once and kept in a map, a call costs two System.nanoTime() 
+ * calls, a thread local and a few counters. Use /actuator/repositorymetrics for a summary or 
+ * /actuator/metrics/school.repository.calls for a single meter.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RepositoryMetricsAspect {
+
+	static final String CALLS = "school.repository.calls";
+	static final String ROWS = "school.repository.rows";
+	static final String STATEMENTS = "school.repository.statements";
+
+	@Autowired
+	MeterRegistry registry;
+
+	@Autowired
+	RepositoryTraceEndpoint traceEndpoint;
+
+	// Keep the SQL of the statements of every repository call, see RepositoryTraceEndpoint
+	@Value("${school.repository-metrics.tracing:false}")
+	boolean tracing;
+
+	private final ConcurrentMap<String, MethodMeters> meters = new ConcurrentHashMap<>();
+
+	@Around("within(com.kokabmedia.jpa.school.repository..*) && execution(public * *(..))")
+	public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+
+		String method = joinPoint.getSignature().getDeclaringType().getSimpleName() + "." 
+				+ joinPoint.getSignature().getName();
+		RepositorySpan span = RepositorySpan.start(method, tracing);
+
+		Object result = null;
+		boolean failed = true;
+		try {
+			result = joinPoint.proceed();
+			failed = false;
+			return result;
+		} finally {
+			long nanos = span.finish();
+			MethodMeters methodMeters = meters.computeIfAbsent(method, key -> new MethodMeters(joinPoint));
+
+			String cache = failed || !methodMeters.find ? "none" : span.getStatementCount() == 0 ? "hit" : "miss";
+			methodMeters.timer(cache).record(nanos, TimeUnit.NANOSECONDS);
+			methodMeters.statements.record(span.getStatementCount());
+			if (!failed) {
+				long rows = rows(result);
+				if (rows >= 0) {
+					methodMeters.rows.record(rows);
+				}
+			}
+
+			if (tracing) {
+				traceEndpoint.record(new RepositoryTrace(span, nanos, failed));
+			}
+		}
+	}
+
+	// The number of rows of a result, -1 for a result that is not an entity, a list or a count
+	private static long rows(Object result) {
+		if (result == null) {
+			return 0;
+		} else if (result instanceof Collection) {
+			return ((Collection<?>) result).size();
+		} else if (result instanceof Number) {
+			return ((Number) result).longValue();
+		} else if (result instanceof Boolean) {
+			return (Boolean) result ? 1 : 0;
+		} else if (result.getClass().getPackageName().startsWith("com.kokabmedia.jpa.school.entity")) {
+			return 1;
+		}
+		return -1;
+	}
+
+	// The meters of one repository method
+	private class MethodMeters {
+
+		final boolean find;
+		final Timer hit;
+		final Timer miss;
+		final Timer none;
+		final DistributionSummary rows;
+		final DistributionSummary statements;
+
+		MethodMeters(ProceedingJoinPoint joinPoint) {
+			String type = joinPoint.getSignature().getDeclaringType().getSimpleName();
+			String method = joinPoint.getSignature().getName();
+
+			find = method.startsWith("find") || method.startsWith("get");
+			hit = find ? timer(type, method, "hit") : null;
+			miss = find ? timer(type, method, "miss") : null;
+			none = timer(type, method, "none");
+			rows = DistributionSummary.builder(ROWS)
+					.tags("class", type, "method", method)
+					.register(registry);
+			statements = DistributionSummary.builder(STATEMENTS)
+					.tags("class", type, "method", method)
+					.register(registry);
+		}
+
+		Timer timer(String cache) {
+			return "hit".equals(cache) ? hit : "miss".equals(cache) ? miss : none;
+		}
+
+		private Timer timer(String type, String method, String cache) {
+			return Timer.builder(CALLS)
+					.tags("class", type, "method", method, "cache", cache)
+					.publishPercentiles(0.5, 0.9, 0.99)
+					.register(registry);
+		}
+	}
+}
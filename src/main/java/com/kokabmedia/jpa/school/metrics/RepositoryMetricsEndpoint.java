@@ -0,0 +1,69 @@
+package com.kokabmedia.jpa.school.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+
+/*
+ * This class returns a summary of the meters of the RepositoryMetricsAspect with an actuator 
+ * endpoint, one entry for every repository method and cache tag.
+ * 
+ * GET /actuator/repositorymetrics
+ * 
+ * "CourseRepository.findById cache=hit": {"count": 120, "meanMicros": 15, "p50Micros": 11, ...}
+ * 
+ * The counts are totals since the start, the percentiles and the maximum are over the last 
+ * minutes.
+ */
+@Component
+@Endpoint(id = "repositorymetrics")
+public class RepositoryMetricsEndpoint {
+
+	@Autowired
+	MeterRegistry registry;
+
+	@ReadOperation
+	public Map<String, Map<String, Object>> methods() {
+
+		Map<String, Map<String, Object>> methods = new TreeMap<>();
+
+		for (Timer timer : registry.find(RepositoryMetricsAspect.CALLS).timers()) {
+			if (timer.count() == 0) {
+				continue;
+			}
+			String type = timer.getId().getTag("class");
+			String method = timer.getId().getTag("method");
+
+			Map<String, Object> summary = new TreeMap<>();
+			HistogramSnapshot snapshot = timer.takeSnapshot();
+			summary.put("count", snapshot.count());
+			summary.put("meanMicros", (long) snapshot.mean(TimeUnit.MICROSECONDS));
+			summary.put("maxMicros", (long) snapshot.max(TimeUnit.MICROSECONDS));
+			for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+				summary.put("p" + Math.round(percentile.percentile() * 100) + "Micros",
+						(long) percentile.value(TimeUnit.MICROSECONDS));
+			}
+			summary.put("meanRows", mean(RepositoryMetricsAspect.ROWS, type, method));
+			summary.put("meanStatements", mean(RepositoryMetricsAspect.STATEMENTS, type, method));
+
+			methods.put(type + "." + method + " cache=" + timer.getId().getTag("cache"), summary);
+		}
+		return methods;
+	}
+
+	private double mean(String name, String type, String method) {
+		DistributionSummary summary = registry.find(name).tags("class", type, "method", method).summary();
+		return summary == null ? 0 : summary.mean();
+	}
+}
@@ -0,0 +1,103 @@
+package com.kokabmedia.jpa.school.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * This class is the call of one repository method on the current thread, it counts the SQL 
+ * statements that the method executes.
+ * 
+ * The RepositoryMetricsAspect starts a span before the method and finishes it after the method,
+ * a repository method that calls another repository method starts a child span. The 
+ * QueryBudgetInspector calls statement() with every statement that Hibernate prepares, the 
+ * statement is counted in the innermost span and in all its parents.
+ * 
+ * When tracing is on the SQL of the statements is kept in the span, at most MAX_STATEMENTS of 
+ * them, so that a trace shows which statements a method issued.
+ */
+public class RepositorySpan {
+
+	static final int MAX_STATEMENTS = 50;
+
+	private static final ThreadLocal<RepositorySpan> CURRENT = new ThreadLocal<>();
+	private static final AtomicLong IDS = new AtomicLong();
+
+	private final long id;
+	private final RepositorySpan parent;
+	private final String method;
+	private final long startNanos = System.nanoTime();
+
+	private int statementCount;
+	private final boolean trace;
+	private final List<String> statements;
+
+	private RepositorySpan(String method, RepositorySpan parent, boolean trace) {
+		this.id = IDS.incrementAndGet();
+		this.parent = parent;
+		this.method = method;
+		this.trace = trace;
+		this.statements = trace ? new ArrayList<>() : Collections.emptyList();
+	}
+
+	// Start a span on the current thread, it becomes a child of the span that is already open
+	static RepositorySpan start(String method, boolean trace) {
+		RepositorySpan span = new RepositorySpan(method, CURRENT.get(), trace);
+		CURRENT.set(span);
+		return span;
+	}
+
+	// Close the span, returns the duration in nanoseconds
+	long finish() {
+		if (parent == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(parent);
+		}
+		return System.nanoTime() - startNanos;
+	}
+
+	// Count a statement in the spans of the current thread, does nothing outside a repository method
+	public static void statement(String sql) {
+		RepositorySpan span = CURRENT.get();
+		if (span == null) {
+			return;
+		}
+		if (span.trace && span.statements.size() < MAX_STATEMENTS) {
+			span.statements.add(sql);
+		}
+		for (; span != null; span = span.parent) {
+			span.statementCount++;
+		}
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	// The id of the outermost span, every span of one call to a repository has the same trace id
+	public long getTraceId() {
+		RepositorySpan root = this;
+		while (root.parent != null) {
+			root = root.parent;
+		}
+		return root.id;
+	}
+
+	public Long getParentId() {
+		return parent == null ? null : parent.id;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public int getStatementCount() {
+		return statementCount;
+	}
+
+	public List<String> getStatements() {
+		return statements;
+	}
+}
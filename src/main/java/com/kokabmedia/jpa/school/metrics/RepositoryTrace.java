@@ -0,0 +1,67 @@
+package com.kokabmedia.jpa.school.metrics;
+
+import java.time.Instant;
+import java.util.List;
+
+/*
+ * A finished RepositorySpan, as it is returned by /actuator/repositorytraces.
+ */
+public class RepositoryTrace {
+
+	private final long traceId;
+	private final long spanId;
+	private final Long parentId;
+	private final String method;
+	private final Instant finishedAt = Instant.now();
+	private final long durationMicros;
+	private final boolean failed;
+	private final int statementCount;
+	private final List<String> statements;
+
+	RepositoryTrace(RepositorySpan span, long durationNanos, boolean failed) {
+		this.traceId = span.getTraceId();
+		this.spanId = span.getId();
+		this.parentId = span.getParentId();
+		this.method = span.getMethod();
+		this.durationMicros = durationNanos / 1000;
+		this.failed = failed;
+		this.statementCount = span.getStatementCount();
+		this.statements = span.getStatements();
+	}
+
+	public long getTraceId() {
+		return traceId;
+	}
+
+	public long getSpanId() {
+		return spanId;
+	}
+
+	public Long getParentId() {
+		return parentId;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public Instant getFinishedAt() {
+		return finishedAt;
+	}
+
+	public long getDurationMicros() {
+		return durationMicros;
+	}
+
+	public boolean isFailed() {
+		return failed;
+	}
+
+	public int getStatementCount() {
+		return statementCount;
+	}
+
+	public List<String> getStatements() {
+		return statements;
+	}
+}
@@ -0,0 +1,53 @@
+package com.kokabmedia.jpa.school.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+/*
+ * This class keeps the last traces of the repository methods when 
+ * school.repository-metrics.tracing=true is set, and returns them with an actuator endpoint.
+ * 
+ * GET /actuator/repositorytraces           the last traces, the newest first
+ * GET /actuator/repositorytraces/{traceId} the spans of one call, the outer method and the 
+ *                                          repository methods that it called
+ * 
+ * The traces are kept in a ring buffer of CAPACITY traces, the oldest trace is overwritten.
+ */
+@Component
+@Endpoint(id = "repositorytraces")
+public class RepositoryTraceEndpoint {
+
+	static final int CAPACITY = 1000;
+
+	private final RepositoryTrace[] traces = new RepositoryTrace[CAPACITY];
+	private long next;
+
+	synchronized void record(RepositoryTrace trace) {
+		traces[(int) (next++ % CAPACITY)] = trace;
+	}
+
+	@ReadOperation
+	public synchronized List<RepositoryTrace> traces() {
+		List<RepositoryTrace> result = new ArrayList<>();
+		for (long i = next - 1; i >= 0 && i >= next - CAPACITY; i--) {
+			result.add(traces[(int) (i % CAPACITY)]);
+		}
+		return result;
+	}
+
+	@ReadOperation
+	public synchronized List<RepositoryTrace> trace(@Selector long traceId) {
+		List<RepositoryTrace> result = new ArrayList<>();
+		for (RepositoryTrace trace : traces()) {
+			if (trace.getTraceId() == traceId) {
+				result.add(trace);
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,94 @@
+package com.kokabmedia.jpa.school.outbox;
+
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.kokabmedia.jpa.school.tenant.TenantContext;
+
+/*
+ * This class is a change that is published by the OutboxRelay and read by the consumers.
+ * 
+ * The offset is the position of the event in the OutboxSink, a consumer remembers the nextOffset
+ * of the last event it has processed and continues from there with ChangeEventSource.read(), 
+ * instead of scanning the tables again. The eventId is the id of the OutboxEvent row, the relay 
+ * can publish an event twice after a failure and consumers can use the eventId to skip it.
+ * 
+ * Every school has its own outbox table, the eventId is only unique together with the tenant.
+ */
+public class ChangeEvent {
+
+	private final long offset;
+	private final long nextOffset;
+	private final String tenant;
+	private final Long eventId;
+	private final String aggregateType;
+	private final Long aggregateId;
+	private final String eventType;
+	private final JsonNode payload;
+	private final LocalDateTime createdDate;
+
+	@JsonCreator
+	public ChangeEvent(@JsonProperty("offset") long offset, @JsonProperty("nextOffset") long nextOffset,
+			@JsonProperty("tenant") String tenant, @JsonProperty("eventId") Long eventId, @JsonProperty("aggregateType") String aggregateType,
+			@JsonProperty("aggregateId") Long aggregateId, @JsonProperty("eventType") String eventType,
+			@JsonProperty("payload") JsonNode payload, @JsonProperty("createdDate") LocalDateTime createdDate) {
+		this.offset = offset;
+		this.nextOffset = nextOffset;
+		this.tenant = tenant == null ? TenantContext.DEFAULT_TENANT : tenant;
+		this.eventId = eventId;
+		this.aggregateType = aggregateType;
+		this.aggregateId = aggregateId;
+		this.eventType = eventType;
+		this.payload = payload;
+		this.createdDate = createdDate;
+	}
+
+	// Returns a copy of the event at a position in an OutboxSink
+	public ChangeEvent withOffsets(long offset, long nextOffset) {
+		return new ChangeEvent(offset, nextOffset, tenant, eventId, aggregateType, aggregateId, eventType, payload, createdDate);
+	}
+
+	public long getOffset() {
+		return offset;
+	}
+
+	public long getNextOffset() {
+		return nextOffset;
+	}
+
+	public String getTenant() {
+		return tenant;
+	}
+
+	public Long getEventId() {
+		return eventId;
+	}
+
+	public String getAggregateType() {
+		return aggregateType;
+	}
+
+	public Long getAggregateId() {
+		return aggregateId;
+	}
+
+	public String getEventType() {
+		return eventType;
+	}
+
+	public JsonNode getPayload() {
+		return payload;
+	}
+
+	public LocalDateTime getCreatedDate() {
+		return createdDate;
+	}
+
+	@Override
+	public String toString() {
+		return "ChangeEvent [offset=" + offset + ", tenant=" + tenant + ", eventId=" + eventId + ", aggregateType=" + aggregateType
+				+ ", aggregateId=" + aggregateId + ", eventType=" + eventType + "]";
+	}
+}
@@ -0,0 +1,15 @@
+package com.kokabmedia.jpa.school.outbox;
+
+import java.util.List;
+
+/*
+ * A sink that consumers can read the published events from, starting at an offset.
+ * 
+ * The first call is done with offset 0, the next call with the nextOffset of the last event 
+ * that was returned. An empty list means that there are no newer events yet. An offset that a
+ * source can not continue from throws an IllegalArgumentException.
+ */
+public interface ChangeEventSource {
+
+	List<ChangeEvent> read(long offset, int maxEvents);
+}
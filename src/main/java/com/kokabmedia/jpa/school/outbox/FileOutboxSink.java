@@ -0,0 +1,138 @@
+package com.kokabmedia.jpa.school.outbox;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+ * This class appends the published events as JSON lines to a local file, activate it with 
+ * school.outbox.sink=file and set the file with school.outbox.file.
+ * 
+ * The offset of an event is the byte position of its line in the file, a consumer that continues
+ * at an offset does not have to read the lines before it. The events are kept in the file until 
+ * it is removed.
+ */
+@Component
+@ConditionalOnProperty(name = "school.outbox.sink", havingValue = "file")
+public class FileOutboxSink implements OutboxSink, ChangeEventSource {
+
+	@Value("${school.outbox.file:./data/outbox.jsonl}")
+	String file;
+
+	// Force the lines to the disk before the events are marked as published
+	@Value("${school.outbox.file-sync:true}")
+	boolean sync;
+
+	@Autowired
+	ObjectMapper objectMapper;
+
+	private Path path;
+	private FileChannel channel;
+
+	@PostConstruct
+	public void open() throws IOException {
+		path = Paths.get(file);
+		if (path.toAbsolutePath().getParent() != null) {
+			Files.createDirectories(path.toAbsolutePath().getParent());
+		}
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+
+	@PreDestroy
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	@Override
+	public synchronized void publish(List<ChangeEvent> events) {
+		try {
+			long offset = channel.size();
+			for (ChangeEvent event : events) {
+				byte[] line = (objectMapper.writeValueAsString(event.withOffsets(offset, -1)) + "\n").getBytes(StandardCharsets.UTF_8);
+				ByteBuffer buffer = ByteBuffer.wrap(line);
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				offset += line.length;
+			}
+			if (sync) {
+				channel.force(false);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not write the events to " + path, e);
+		}
+	}
+
+	/*
+	 * Read the lines from the byte position, a line that is not yet complete because it is still
+	 * being written is not returned.
+	 * 
+	 * The offset comes from the consumer, an offset outside of the file or in the middle of a 
+	 * line throws an IllegalArgumentException instead of returning a part of a line. A line
+	 * starts at the beginning of the file or after a newline, the JSON of an event has no 
+	 * newlines in it.
+	 */
+	@Override
+	public List<ChangeEvent> read(long offset, int maxEvents) {
+
+		List<ChangeEvent> events = new ArrayList<>();
+		try (FileChannel reader = FileChannel.open(path, StandardOpenOption.READ)) {
+
+			long size = reader.size();
+			if (offset < 0 || offset > size) {
+				throw new IllegalArgumentException("Offset " + offset + " is not in the " + size + " bytes of " + path);
+			}
+			if (offset > 0) {
+				ByteBuffer previous = ByteBuffer.allocate(1);
+				reader.read(previous, offset - 1);
+				if (previous.get(0) != '\n') {
+					throw new IllegalArgumentException("Offset " + offset + " is not the start of an event in " + path);
+				}
+			}
+
+			reader.position(offset);
+			InputStream in = new BufferedInputStream(Channels.newInputStream(reader));
+			ByteArrayOutputStream line = new ByteArrayOutputStream();
+			long position = offset;
+			long lineStart = offset;
+			int b;
+
+			while (events.size() < maxEvents && (b = in.read()) != -1) {
+				position++;
+				if (b == '\n') {
+					ChangeEvent event = objectMapper.readValue(line.toByteArray(), ChangeEvent.class);
+					events.add(event.withOffsets(lineStart, position));
+					line.reset();
+					lineStart = position;
+				} else {
+					line.write(b);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not read the events from " + path, e);
+		}
+		return events;
+	}
+}
@@ -0,0 +1,56 @@
+package com.kokabmedia.jpa.school.outbox;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/*
+ * This class keeps the published events in memory, for local use and tests.
+ * 
+ * The offset of an event is its number in the stream, only the last school.outbox.memory.retention
+ * events are kept. A consumer that asks for an offset that is no longer kept continues with the 
+ * oldest event that is still kept.
+ * 
+ * This is the default sink, the school.outbox.sink=file property selects the FileOutboxSink.
+ */
+@Component
+@ConditionalOnProperty(name = "school.outbox.sink", havingValue = "memory", matchIfMissing = true)
+public class InMemoryOutboxSink implements OutboxSink, ChangeEventSource {
+
+	@Value("${school.outbox.memory.retention:100000}")
+	int retention;
+
+	private final List<ChangeEvent> events = new ArrayList<>();
+
+	// Offset of the first event in the list
+	private long firstOffset;
+
+	@Override
+	public synchronized void publish(List<ChangeEvent> published) {
+
+		for (ChangeEvent event : published) {
+			long offset = firstOffset + events.size();
+			events.add(event.withOffsets(offset, offset + 1));
+		}
+
+		if (events.size() > retention) {
+			int removed = events.size() - retention;
+			events.subList(0, removed).clear();
+			firstOffset += removed;
+		}
+	}
+
+	@Override
+	public synchronized List<ChangeEvent> read(long offset, int maxEvents) {
+
+		int from = (int) Math.max(0, offset - firstOffset);
+		if (from >= events.size()) {
+			return new ArrayList<>();
+		}
+		int to = (int) Math.min(events.size(), (long) from + maxEvents);
+		return new ArrayList<>(events.subList(from, to));
+	}
+}
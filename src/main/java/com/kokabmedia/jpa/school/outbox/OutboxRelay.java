@@ -0,0 +1,127 @@
+package com.kokabmedia.jpa.school.outbox;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kokabmedia.jpa.school.entity.OutboxEvent;
+import com.kokabmedia.jpa.school.repository.OutboxRepository;
+import com.kokabmedia.jpa.school.tenant.TenantContext;
+import com.kokabmedia.jpa.school.tenant.TenantRegistry;
+
+/*
+ * This class reads the committed events of the transactional outbox in batches and sends them
+ * to the OutboxSink.
+ * 
+ * The events are read, sent and marked as published in one transaction. When the sink fails the
+ * transaction is rolled back and the events are sent again with the next run. When the commit 
+ * fails after the events are sent they are also sent again, an event is sent at least once.
+ * 
+ * The @Scheduled annotation runs the relay every school.outbox.relay.interval-ms milliseconds, 
+ * the relay is meant to run in a single instance of the application. Every school has its own
+ * outbox table, the relay sends the events of one school after the other.
+ */
+@Component
+@Lazy(false) // The @Scheduled methods are only registered when the bean is created
+public class OutboxRelay {
+
+	// For logging purposes
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	@Value("${school.outbox.relay.batch-size:500}")
+	int batchSize;
+
+	@Value("${school.outbox.retention-hours:24}")
+	long retentionHours;
+
+	@Autowired
+	OutboxRepository outboxRepository;
+
+	@Autowired
+	OutboxSink sink;
+
+	@Autowired
+	ObjectMapper objectMapper;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@Autowired
+	TenantRegistry tenantRegistry;
+
+	// Send all the unpublished events of every school, one batch at the time
+	@Scheduled(fixedDelayString = "${school.outbox.relay.interval-ms:500}")
+	public void relay() {
+		for (String tenant : tenantRegistry.getTenants()) {
+			TenantContext.runAs(tenant, () -> {
+				try {
+					// A full batch means that more events can be waiting
+					int sent;
+					do {
+						sent = relayBatch();
+					} while (sent == batchSize);
+				} catch (RuntimeException e) {
+					logger.warn("Outbox relay of school {} failed, the events are sent again with the next run", tenant, e);
+				}
+			});
+		}
+	}
+
+	// Send one batch of events of the school of the current thread, returns the number of events that were sent
+	public synchronized int relayBatch() {
+
+		return new TransactionTemplate(transactionManager).execute(status -> {
+
+			List<OutboxEvent> events = outboxRepository.findUnpublished(batchSize);
+			if (events.isEmpty()) {
+				return 0;
+			}
+
+			List<ChangeEvent> changes = new ArrayList<>(events.size());
+			for (OutboxEvent event : events) {
+				changes.add(toChangeEvent(event));
+			}
+
+			sink.publish(changes);
+
+			// The entities are managed, the update is sent to the database at commit
+			for (OutboxEvent event : events) {
+				event.setPublished(true);
+			}
+			return events.size();
+		});
+	}
+
+	// Remove the published events of every school after the retention time
+	@Scheduled(fixedDelayString = "${school.outbox.cleanup-interval-ms:3600000}")
+	public void cleanup() {
+		for (String tenant : tenantRegistry.getTenants()) {
+			int deleted = TenantContext.callAs(tenant, () -> new TransactionTemplate(transactionManager).execute(
+					status -> outboxRepository.deletePublishedBefore(LocalDateTime.now().minusHours(retentionHours))));
+			if (deleted > 0) {
+				logger.info("Removed {} published outbox events of school {}", deleted, tenant);
+			}
+		}
+	}
+
+	private ChangeEvent toChangeEvent(OutboxEvent event) {
+		try {
+			return new ChangeEvent(-1, -1, TenantContext.get(), event.getId(), event.getAggregateType(), event.getAggregateId(),
+					event.getEventType(), objectMapper.readTree(event.getPayload()), event.getCreatedDate());
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Invalid payload in " + event, e);
+		}
+	}
+}
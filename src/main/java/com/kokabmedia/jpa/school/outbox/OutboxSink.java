@@ -0,0 +1,15 @@
+package com.kokabmedia.jpa.school.outbox;
+
+import java.util.List;
+
+/*
+ * The OutboxRelay sends the committed outbox events to an OutboxSink, for example a message broker.
+ * 
+ * The events are given in the order of the outbox and the sink has to keep that order. When the 
+ * method throws an exception the events stay unpublished and are sent again with the next run of
+ * the relay.
+ */
+public interface OutboxSink {
+
+	void publish(List<ChangeEvent> events);
+}
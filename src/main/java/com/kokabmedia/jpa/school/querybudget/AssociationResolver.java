@@ -0,0 +1,118 @@
+package com.kokabmedia.jpa.school.querybudget;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.collection.AbstractCollectionPersister;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+
+/*
+ * This class finds the entity and the association that a repeated select statement loads, so 
+ * that an N+1 warning names "Student.courses" instead of only showing the SQL.
+ * 
+ * The table and the column of the first where condition of the outer query are read from the 
+ * statement and looked up in the Hibernate metamodel:
+ * - A collection table with its key column is the collection, for example student_course with 
+ *   student_id is Student.courses.
+ * - Otherwise the table is an entity table and the associations of the other entities that 
+ *   point to this entity are listed, for example student_details by passport_id is a Student 
+ *   loaded by Passport.student.
+ */
+class AssociationResolver {
+
+	private static final Pattern PARENTHESES = Pattern.compile("\\([^()]*\\)");
+	private static final Pattern FROM = Pattern.compile("\\bfrom (\\w+)");
+	private static final Pattern WHERE = Pattern.compile("\\bwhere (?:\\w+\\.)?(\\w+) ?= ?\\?");
+
+	// Collection roles by "table.key_column", entity names by table and associations by target entity
+	private final Map<String, String> collections = new HashMap<>();
+	private final Map<String, String> entities = new HashMap<>();
+	private final Map<String, List<String>> associationsByTarget = new HashMap<>();
+
+	AssociationResolver(EntityManagerFactory entityManagerFactory) {
+
+		SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+
+		for (EntityPersister persister : sessionFactory.getMetamodel().entityPersisters().values()) {
+			String entity = simpleName(persister.getEntityName());
+			if (persister instanceof AbstractEntityPersister) {
+				entities.put(lowerCase(((AbstractEntityPersister) persister).getTableName()), entity);
+			}
+			String[] names = persister.getPropertyNames();
+			Type[] types = persister.getPropertyTypes();
+			for (int i = 0; i < names.length; i++) {
+				if (types[i].isEntityType()) {
+					String target = simpleName(((EntityType) types[i]).getAssociatedEntityName());
+					associationsByTarget.computeIfAbsent(target, key -> new ArrayList<>()).add(entity + "." + names[i]);
+				}
+			}
+		}
+
+		for (CollectionPersister persister : sessionFactory.getMetamodel().collectionPersisters().values()) {
+			if (persister instanceof AbstractCollectionPersister) {
+				AbstractCollectionPersister collection = (AbstractCollectionPersister) persister;
+				collections.put(lowerCase(collection.getTableName()) + "." + lowerCase(collection.getKeyColumnNames()[0]),
+						simpleName(collection.getRole()));
+			}
+		}
+	}
+
+	// Describe what a statement shape loads, for example "Student.courses" or "Student by passport_id via Passport.student"
+	String describe(String shape) {
+
+		// Remove the sub queries of @Formula fields and the IN lists, only the outer query is used
+		for (String previous = null; !shape.equals(previous);) {
+			previous = shape;
+			shape = PARENTHESES.matcher(shape).replaceAll("");
+		}
+
+		Matcher from = FROM.matcher(shape);
+		if (!from.find()) {
+			return "unknown";
+		}
+		String table = from.group(1);
+
+		Matcher where = WHERE.matcher(shape);
+		String column = where.find() ? where.group(1) : null;
+
+		String collection = collections.get(table + "." + column);
+		if (collection != null) {
+			return collection;
+		}
+
+		String entity = entities.get(table);
+		if (entity == null) {
+			return table;
+		}
+		List<String> associations = associationsByTarget.getOrDefault(entity, List.of());
+		return entity + (column == null ? "" : " by " + column)
+				+ (associations.isEmpty() ? "" : " via " + String.join(" or ", associations));
+	}
+
+	// com.kokabmedia.jpa.school.entity.Student.courses -> Student.courses
+	private static String simpleName(String name) {
+		int end = name.length();
+		for (int dot = name.lastIndexOf('.'); dot > 0; dot = name.lastIndexOf('.', dot - 1)) {
+			if (Character.isUpperCase(name.charAt(dot + 1))) {
+				return name.substring(dot + 1, end);
+			}
+		}
+		return name;
+	}
+
+	private static String lowerCase(String name) {
+		return name.toLowerCase(Locale.ROOT);
+	}
+}
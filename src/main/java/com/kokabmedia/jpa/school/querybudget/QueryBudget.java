@@ -0,0 +1,26 @@
+package com.kokabmedia.jpa.school.querybudget;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+ * This annotation sets the query budget of a controller method, or of every method of a 
+ * controller class. Without the annotation the school.query-budget.max-statements and 
+ * school.query-budget.max-repeats properties are used.
+ * 
+ * maxStatements is the number of SQL statements one request may execute, maxRepeats is the 
+ * number of times the same select statement with other parameters may be executed before it is
+ * reported as an N+1 query. A negative value means that the default of the property is used.
+ */
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface QueryBudget {
+
+	int maxStatements() default -1;
+
+	int maxRepeats() default -1;
+}
@@ -0,0 +1,33 @@
+package com.kokabmedia.jpa.school.querybudget;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/*
+ * This class registers the QueryBudgetInspector with Hibernate and the QueryBudgetInterceptor 
+ * with Spring MVC.
+ * 
+ * The inspector is passed to Hibernate as an object instead of a class name, Hibernate would 
+ * otherwise create its own instance that is not a Spring bean and has no properties.
+ */
+@Configuration
+public class QueryBudgetConfig implements WebMvcConfigurer {
+
+	@Autowired
+	QueryBudgetInterceptor queryBudgetInterceptor;
+
+	@Bean
+	public HibernatePropertiesCustomizer queryBudgetHibernateProperties(QueryBudgetInspector queryBudgetInspector) {
+		return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, queryBudgetInspector);
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(queryBudgetInterceptor);
+	}
+}
@@ -0,0 +1,14 @@
+package com.kokabmedia.jpa.school.querybudget;
+
+/*
+ * This exception is thrown in the FAIL mode of the QueryBudgetInspector, from the statement that
+ * goes over the query budget, so that the stack trace shows the code that executed it.
+ */
+public class QueryBudgetExceededException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public QueryBudgetExceededException(String message) {
+		super(message);
+	}
+}
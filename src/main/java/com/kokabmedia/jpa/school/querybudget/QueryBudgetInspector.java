@@ -0,0 +1,102 @@
+package com.kokabmedia.jpa.school.querybudget;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.kokabmedia.jpa.school.metrics.RepositorySpan;
+
+/*
+ * This class is registered as the Hibernate StatementInspector by the QueryBudgetConfig, 
+ * Hibernate calls inspect() with the SQL of every statement before it is sent to the database.
+ * 
+ * The statements are counted in the QueryBudgetScope of the current thread. The parameters are
+ * already replaced with ? by Hibernate, the literals and IN lists are replaced as well, so that
+ * the same select statement for another row has the same shape. A shape that is executed more 
+ * than maxRepeats times in one scope is reported as an N+1 query, for example the courses of 
+ * every student in a loop over students.
+ * 
+ * The statement is also counted in the RepositorySpan of the repository method that executes 
+ * it, see the RepositoryMetricsAspect. The inspector does not change the SQL.
+ */
+@Component
+public class QueryBudgetInspector implements StatementInspector {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+	private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+\\b");
+	private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+	@Value("${school.query-budget.mode:warn}")
+	QueryBudgetMode mode;
+
+	/*
+	 * The EntityManagerFactory is created after this inspector, the metamodel is read when the 
+	 * first N+1 query is reported.
+	 */
+	@Autowired
+	transient ObjectProvider<EntityManagerFactory> entityManagerFactory;
+
+	private transient volatile AssociationResolver associationResolver;
+
+	@Override
+	public String inspect(String sql) {
+
+		RepositorySpan.statement(sql);
+
+		QueryBudgetScope scope = QueryBudgetScope.current();
+		if (scope == null || mode == QueryBudgetMode.OFF) {
+			return sql;
+		}
+
+		String shape = shape(sql);
+		int repeats = scope.record(shape, shape.startsWith("select"));
+
+		if (scope.statementBudgetExceeded()) {
+			violation(scope, scope.getName() + " executed more than " + scope.getMaxStatements()
+					+ " statements, statement " + scope.getStatementCount() + ": " + shape);
+		}
+		if (repeats == scope.getMaxRepeats() + 1) {
+			violation(scope, scope.getName() + " N+1 query on " + resolver().describe(shape) + ", executed "
+					+ repeats + " times: " + shape);
+		}
+		return sql;
+	}
+
+	public QueryBudgetMode getMode() {
+		return mode;
+	}
+
+	// The SQL without the values, in lower case and with single spaces
+	static String shape(String sql) {
+		String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+		shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+		shape = IN_LIST.matcher(shape).replaceAll("(?)");
+		return WHITESPACE.matcher(shape).replaceAll(" ").trim().toLowerCase(Locale.ROOT);
+	}
+
+	private void violation(QueryBudgetScope scope, String message) {
+		if (mode == QueryBudgetMode.FAIL) {
+			throw new QueryBudgetExceededException(message);
+		}
+		scope.addViolation(message);
+	}
+
+	private AssociationResolver resolver() {
+		AssociationResolver resolver = associationResolver;
+		if (resolver == null) {
+			resolver = new AssociationResolver(entityManagerFactory.getObject());
+			associationResolver = resolver;
+		}
+		return resolver;
+	}
+}
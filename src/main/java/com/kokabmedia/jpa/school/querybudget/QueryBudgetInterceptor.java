@@ -0,0 +1,90 @@
+package com.kokabmedia.jpa.school.querybudget;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/*
+ * This class opens a QueryBudgetScope for every request that is handled by a controller 
+ * method, the budget of the @QueryBudget annotation of the method or of the controller is used,
+ * otherwise the school.query-budget.max-statements and max-repeats properties.
+ * 
+ * In the warn mode the violations are logged when the request is completed. In the fail mode 
+ * the QueryBudgetExceededException is thrown by the statement that goes over the budget and the
+ * request fails.
+ * 
+ * A controller method that returns a Flux, a Mono or an SseEmitter starts asynchronous request
+ * processing, the thread of the request is given back before afterCompletion() is called. The
+ * scope of the thread is closed in afterConcurrentHandlingStarted(), the dispatch that writes
+ * the result opens and closes a scope of its own on the thread that it runs on.
+ */
+@Component
+public class QueryBudgetInterceptor implements AsyncHandlerInterceptor {
+
+	private static final String SCOPE_ATTRIBUTE = QueryBudgetScope.class.getName();
+
+	// For logging purposes
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	@Value("${school.query-budget.max-statements:50}")
+	int defaultMaxStatements;
+
+	@Value("${school.query-budget.max-repeats:5}")
+	int defaultMaxRepeats;
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+
+		if (!(handler instanceof HandlerMethod)) {
+			return true;
+		}
+		HandlerMethod method = (HandlerMethod) handler;
+
+		QueryBudget budget = AnnotatedElementUtils.findMergedAnnotation(method.getMethod(), QueryBudget.class);
+		if (budget == null) {
+			budget = AnnotatedElementUtils.findMergedAnnotation(method.getBeanType(), QueryBudget.class);
+		}
+
+		int maxStatements = budget == null || budget.maxStatements() < 0 ? defaultMaxStatements : budget.maxStatements();
+		int maxRepeats = budget == null || budget.maxRepeats() < 0 ? defaultMaxRepeats : budget.maxRepeats();
+
+		String name = request.getMethod() + " " + request.getRequestURI();
+		request.setAttribute(SCOPE_ATTRIBUTE, QueryBudgetScope.open(name, maxStatements, maxRepeats));
+		return true;
+	}
+
+	@Override
+	public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+			Object handler) {
+		closeScope(request);
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception exception) {
+		closeScope(request);
+	}
+
+	// Close the scope that preHandle() has opened on the current thread and log its violations
+	private void closeScope(HttpServletRequest request) {
+
+		QueryBudgetScope scope = (QueryBudgetScope) request.getAttribute(SCOPE_ATTRIBUTE);
+		if (scope == null) {
+			return;
+		}
+		request.removeAttribute(SCOPE_ATTRIBUTE);
+		scope.close();
+
+		for (String violation : scope.getViolations()) {
+			logger.warn("Query budget exceeded: {}", violation);
+		}
+		logger.debug("{} executed {} statements", scope.getName(), scope.getStatementCount());
+	}
+}
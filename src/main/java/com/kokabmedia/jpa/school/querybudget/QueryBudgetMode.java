@@ -0,0 +1,17 @@
+package com.kokabmedia.jpa.school.querybudget;
+
+/*
+ * What the QueryBudgetInspector does when a request goes over its query budget, set with the 
+ * school.query-budget.mode property.
+ */
+public enum QueryBudgetMode {
+
+	// The statements are not counted
+	OFF,
+
+	// The violations are logged when the request is completed
+	WARN,
+
+	// The statement that goes over the budget throws a QueryBudgetExceededException
+	FAIL
+}
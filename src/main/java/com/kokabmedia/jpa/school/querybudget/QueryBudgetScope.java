@@ -0,0 +1,99 @@
+package com.kokabmedia.jpa.school.querybudget;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * This class counts the statements of one request or one unit of work on the current thread.
+ * 
+ * A scope is opened by the QueryBudgetInterceptor for a request, or in code with 
+ * open(name, maxStatements, maxRepeats) in a try with resources block, for example around a 
+ * transaction of a scheduled job. The QueryBudgetInspector finds the scope of the thread that 
+ * executes the statement with current().
+ */
+public class QueryBudgetScope implements AutoCloseable {
+
+	private static final ThreadLocal<QueryBudgetScope> CURRENT = new ThreadLocal<>();
+
+	private final String name;
+	private final int maxStatements;
+	private final int maxRepeats;
+	private final QueryBudgetScope previous;
+
+	private int statementCount;
+
+	// The number of times every select statement shape was executed
+	private final Map<String, Integer> repeatsByShape = new HashMap<>();
+
+	private final List<String> violations = new ArrayList<>();
+	private boolean statementBudgetReported;
+
+	private QueryBudgetScope(String name, int maxStatements, int maxRepeats, QueryBudgetScope previous) {
+		this.name = name;
+		this.maxStatements = maxStatements;
+		this.maxRepeats = maxRepeats;
+		this.previous = previous;
+	}
+
+	// Start counting on the current thread, a scope that is already open continues after close()
+	public static QueryBudgetScope open(String name, int maxStatements, int maxRepeats) {
+		QueryBudgetScope scope = new QueryBudgetScope(name, maxStatements, maxRepeats, CURRENT.get());
+		CURRENT.set(scope);
+		return scope;
+	}
+
+	// The scope of the current thread, or null when the statements of the thread are not counted
+	public static QueryBudgetScope current() {
+		return CURRENT.get();
+	}
+
+	@Override
+	public void close() {
+		if (previous == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(previous);
+		}
+	}
+
+	// Count a statement, returns the number of times a select statement with this shape was executed
+	int record(String shape, boolean select) {
+		statementCount++;
+		return select ? repeatsByShape.merge(shape, 1, Integer::sum) : 0;
+	}
+
+	// Returns true the first time that the statement count goes over the budget
+	boolean statementBudgetExceeded() {
+		if (statementCount > maxStatements && !statementBudgetReported) {
+			statementBudgetReported = true;
+			return true;
+		}
+		return false;
+	}
+
+	void addViolation(String violation) {
+		violations.add(violation);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getMaxStatements() {
+		return maxStatements;
+	}
+
+	public int getMaxRepeats() {
+		return maxRepeats;
+	}
+
+	public int getStatementCount() {
+		return statementCount;
+	}
+
+	public List<String> getViolations() {
+		return violations;
+	}
+}
@@ -0,0 +1,44 @@
+package com.kokabmedia.jpa.school.report;
+
+/*
+ * This class is one row of the course report of the ReportSnapshot, it is returned as JSON by 
+ * the ReportController.
+ */
+public class CourseReport {
+
+	private final long courseId;
+	private final String name;
+	private final int enrolledCount;
+	private final int reviewCount;
+
+	// The average of the ratings that are a number, null when the course has no such rating
+	private final Double averageRating;
+
+	public CourseReport(long courseId, String name, int enrolledCount, int reviewCount, Double averageRating) {
+		this.courseId = courseId;
+		this.name = name;
+		this.enrolledCount = enrolledCount;
+		this.reviewCount = reviewCount;
+		this.averageRating = averageRating;
+	}
+
+	public long getCourseId() {
+		return courseId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getEnrolledCount() {
+		return enrolledCount;
+	}
+
+	public int getReviewCount() {
+		return reviewCount;
+	}
+
+	public Double getAverageRating() {
+		return averageRating;
+	}
+}
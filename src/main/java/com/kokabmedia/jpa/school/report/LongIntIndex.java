@@ -0,0 +1,86 @@
+package com.kokabmedia.jpa.school.report;
+
+/*
+ * This class maps a primary key id to the position of the row in the columns of the 
+ * ReportSnapshot, without boxing the keys and values into Long and Integer objects.
+ * 
+ * The ids are stored in an open addressing hash table, a lookup hashes the id and checks the 
+ * next slots until the id or an empty slot is found. Rows are never removed from a snapshot, a 
+ * deleted course is marked as deleted, so the table does not need tombstones.
+ */
+class LongIntIndex {
+
+	private static final int NOT_FOUND = -1;
+
+	private long[] keys;
+	private int[] values;
+	private boolean[] used;
+	private int size;
+
+	LongIntIndex(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2) - 1) << 1;
+		keys = new long[capacity];
+		values = new int[capacity];
+		used = new boolean[capacity];
+	}
+
+	// The position of the id, or -1 when the id is not in the index
+	int get(long key) {
+		int mask = keys.length - 1;
+		for (int slot = hash(key) & mask; used[slot]; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) {
+				return values[slot];
+			}
+		}
+		return NOT_FOUND;
+	}
+
+	void put(long key, int value) {
+		if ((size + 1) * 2 > keys.length) {
+			resize(keys.length * 2);
+		}
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (used[slot]) {
+			if (keys[slot] == key) {
+				values[slot] = value;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		used[slot] = true;
+		keys[slot] = key;
+		values[slot] = value;
+		size++;
+	}
+
+	int size() {
+		return size;
+	}
+
+	private void resize(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		boolean[] oldUsed = used;
+		keys = new long[capacity];
+		values = new int[capacity];
+		used = new boolean[capacity];
+		size = 0;
+		for (int slot = 0; slot < oldKeys.length; slot++) {
+			if (oldUsed[slot]) {
+				put(oldKeys[slot], oldValues[slot]);
+			}
+		}
+	}
+
+	// Spread sequential ids over the table, the same mixing as in Long.hashCode() plus a multiply
+	private static int hash(long key) {
+		long mixed = (key ^ (key >>> 32)) * 0x9E3779B97F4A7C15L;
+		return (int) (mixed ^ (mixed >>> 32));
+	}
+
+	@Override
+	public String toString() {
+		return "LongIntIndex [size=" + size + ", capacity=" + keys.length + "]";
+	}
+}
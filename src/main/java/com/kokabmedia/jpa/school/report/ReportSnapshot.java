@@ -0,0 +1,139 @@
+package com.kokabmedia.jpa.school.report;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/*
+ * This class is a read only copy of the reporting data in columns of primitive arrays, it is 
+ * created by the ReportSnapshotBuilder and replaced as a whole by the ReportingService.
+ * 
+ * A report does not walk the entity graph, it adds up the columns with a parallel IntStream. 
+ * Every thread of the stream counts in its own array that is indexed by the course position,
+ * the arrays of the threads are added together at the end. Because the snapshot never changes,
+ * a report and a refresh can run at the same time without a lock.
+ */
+public final class ReportSnapshot {
+
+	static final ReportSnapshot EMPTY = new ReportSnapshotBuilder().build(null);
+
+	private final LocalDateTime refreshedAt;
+
+	// Columns of the courses, indexed by course position
+	private final long[] courseIds;
+	private final String[] courseNames;
+	private final boolean[] courseDeleted;
+
+	// Columns of the students, indexed by student position
+	private final long[] studentIds;
+	private final String[] studentFirstNames;
+	private final String[] studentLastNames;
+	private final boolean[] studentHasPassport;
+
+	// Columns of the reviews, the course is a course position
+	private final int[] reviewCourses;
+	private final int[] reviewRatings;
+
+	// Columns of the STUDENT_COURSE rows, a student position and a course position
+	private final int[] enrollmentStudents;
+	private final int[] enrollmentCourses;
+
+	ReportSnapshot(LocalDateTime refreshedAt, long[] courseIds, String[] courseNames, boolean[] courseDeleted,
+			long[] studentIds, String[] studentFirstNames, String[] studentLastNames, boolean[] studentHasPassport,
+			int[] reviewCourses, int[] reviewRatings, int[] enrollmentStudents, int[] enrollmentCourses) {
+		this.refreshedAt = refreshedAt;
+		this.courseIds = courseIds;
+		this.courseNames = courseNames;
+		this.courseDeleted = courseDeleted;
+		this.studentIds = studentIds;
+		this.studentFirstNames = studentFirstNames;
+		this.studentLastNames = studentLastNames;
+		this.studentHasPassport = studentHasPassport;
+		this.reviewCourses = reviewCourses;
+		this.reviewRatings = reviewRatings;
+		this.enrollmentStudents = enrollmentStudents;
+		this.enrollmentCourses = enrollmentCourses;
+	}
+
+	// The enrollments, the number of reviews and the average rating of every course that is not deleted
+	public List<CourseReport> courseReports() {
+
+		int courses = courseIds.length;
+
+		int[] enrolled = IntStream.range(0, enrollmentCourses.length).parallel()
+				.collect(() -> new int[courses], (counts, i) -> counts[enrollmentCourses[i]]++, ReportSnapshot::addCounts);
+
+		// For every course the number of reviews, the number of ratings and the sum of the ratings
+		long[] reviews = IntStream.range(0, reviewCourses.length).parallel()
+				.collect(() -> new long[courses * 3], (stats, i) -> {
+					int course = reviewCourses[i] * 3;
+					stats[course]++;
+					if (reviewRatings[i] != ReportSnapshotBuilder.NO_RATING) {
+						stats[course + 1]++;
+						stats[course + 2] += reviewRatings[i];
+					}
+				}, ReportSnapshot::addStats);
+
+		return IntStream.range(0, courses).parallel()
+				.filter(course -> !courseDeleted[course])
+				.mapToObj(course -> new CourseReport(courseIds[course], courseNames[course], enrolled[course],
+						(int) reviews[course * 3],
+						reviews[course * 3 + 1] == 0 ? null : (double) reviews[course * 3 + 2] / reviews[course * 3 + 1]))
+				.collect(Collectors.toList());
+	}
+
+	// The students that do not have a passport
+	public List<StudentReport> studentsWithoutPassport() {
+		return IntStream.range(0, studentIds.length).parallel()
+				.filter(student -> !studentHasPassport[student])
+				.mapToObj(student -> new StudentReport(studentIds[student], studentFirstNames[student],
+						studentLastNames[student]))
+				.collect(Collectors.toList());
+	}
+
+	// The students that are not enrolled in any course
+	public List<StudentReport> studentsWithoutCourse() {
+
+		boolean[] enrolled = new boolean[studentIds.length];
+		IntStream.range(0, enrollmentStudents.length).parallel().forEach(i -> enrolled[enrollmentStudents[i]] = true);
+
+		return IntStream.range(0, studentIds.length).parallel()
+				.filter(student -> !enrolled[student])
+				.mapToObj(student -> new StudentReport(studentIds[student], studentFirstNames[student],
+						studentLastNames[student]))
+				.collect(Collectors.toList());
+	}
+
+	public LocalDateTime getRefreshedAt() {
+		return refreshedAt;
+	}
+
+	public int getCourseCount() {
+		return courseIds.length;
+	}
+
+	public int getStudentCount() {
+		return studentIds.length;
+	}
+
+	public int getReviewCount() {
+		return reviewCourses.length;
+	}
+
+	public int getEnrollmentCount() {
+		return enrollmentCourses.length;
+	}
+
+	private static void addCounts(int[] target, int[] counts) {
+		for (int i = 0; i < target.length; i++) {
+			target[i] += counts[i];
+		}
+	}
+
+	private static void addStats(long[] target, long[] stats) {
+		for (int i = 0; i < target.length; i++) {
+			target[i] += stats[i];
+		}
+	}
+}
@@ -0,0 +1,184 @@
+package com.kokabmedia.jpa.school.report;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import com.kokabmedia.jpa.school.repository.CourseCounterRepository;
+
+/*
+ * This class collects the rows of the course, student, review and STUDENT_COURSE tables in
+ * growing primitive arrays, one array for every column, and creates ReportSnapshot objects
+ * from them.
+ *
+ * A row is stored at a position in the arrays, the LongIntIndex maps the id of the row to its
+ * position. A review and an enrollment refer to a course and a student by its position instead
+ * of its id, an aggregate can then add to a counter array without a lookup.
+ *
+ * The builder is kept between the refreshes of the ReportingService so that only the changed
+ * rows have to be read, it is not thread safe and is only used by the ReportingService.
+ */
+class ReportSnapshotBuilder {
+
+	// The rating of a review that is not a number
+	static final int NO_RATING = Integer.MIN_VALUE;
+
+	private static final int INITIAL_SIZE = 1024;
+
+	private long[] courseIds = new long[INITIAL_SIZE];
+	private String[] courseNames = new String[INITIAL_SIZE];
+	private boolean[] courseDeleted = new boolean[INITIAL_SIZE];
+	private int courseCount;
+	private final LongIntIndex coursePositions = new LongIntIndex(INITIAL_SIZE);
+
+	private long[] studentIds = new long[INITIAL_SIZE];
+	private String[] studentFirstNames = new String[INITIAL_SIZE];
+	private String[] studentLastNames = new String[INITIAL_SIZE];
+	private boolean[] studentHasPassport = new boolean[INITIAL_SIZE];
+	private int studentCount;
+	private final LongIntIndex studentPositions = new LongIntIndex(INITIAL_SIZE);
+
+	private long[] reviewIds = new long[INITIAL_SIZE];
+	private int[] reviewCourses = new int[INITIAL_SIZE];
+	private int[] reviewRatings = new int[INITIAL_SIZE];
+	private int reviewCount;
+	private final LongIntIndex reviewPositions = new LongIntIndex(INITIAL_SIZE);
+
+	private int[] enrollmentStudents = new int[INITIAL_SIZE];
+	private int[] enrollmentCourses = new int[INITIAL_SIZE];
+	private int enrollmentCount;
+
+	// Add a course or replace the values of a course that is already in the builder
+	void putCourse(long id, String name, boolean deleted) {
+		int position = coursePositions.get(id);
+		if (position < 0) {
+			position = courseCount++;
+			if (position == courseIds.length) {
+				int length = position * 2;
+				courseIds = Arrays.copyOf(courseIds, length);
+				courseNames = Arrays.copyOf(courseNames, length);
+				courseDeleted = Arrays.copyOf(courseDeleted, length);
+			}
+			courseIds[position] = id;
+			coursePositions.put(id, position);
+		}
+		courseNames[position] = name;
+		courseDeleted[position] = deleted;
+	}
+
+	// Add a student or replace the values of a student that is already in the builder
+	void putStudent(long id, String firstName, String lastName, boolean hasPassport) {
+		int position = studentPositions.get(id);
+		if (position < 0) {
+			position = studentCount++;
+			if (position == studentIds.length) {
+				int length = position * 2;
+				studentIds = Arrays.copyOf(studentIds, length);
+				studentFirstNames = Arrays.copyOf(studentFirstNames, length);
+				studentLastNames = Arrays.copyOf(studentLastNames, length);
+				studentHasPassport = Arrays.copyOf(studentHasPassport, length);
+			}
+			studentIds[position] = id;
+			studentPositions.put(id, position);
+		}
+		studentFirstNames[position] = firstName;
+		studentLastNames[position] = lastName;
+		studentHasPassport[position] = hasPassport;
+	}
+
+	// Add or replace a review, returns false when the course of the review is not in the builder
+	boolean putReview(long id, long courseId, String rating) {
+		int course = coursePositions.get(courseId);
+		if (course < 0) {
+			return false;
+		}
+		int position = reviewPositions.get(id);
+		if (position < 0) {
+			position = reviewCount++;
+			if (position == reviewIds.length) {
+				int length = position * 2;
+				reviewIds = Arrays.copyOf(reviewIds, length);
+				reviewCourses = Arrays.copyOf(reviewCourses, length);
+				reviewRatings = Arrays.copyOf(reviewRatings, length);
+			}
+			reviewIds[position] = id;
+			reviewPositions.put(id, position);
+		}
+		reviewCourses[position] = course;
+		reviewRatings[position] = ratingValue(rating);
+		return true;
+	}
+
+	// Add an enrollment, returns false when the student or the course is not in the builder
+	boolean addEnrollment(long studentId, long courseId) {
+		int student = studentPositions.get(studentId);
+		int course = coursePositions.get(courseId);
+		if (student < 0 || course < 0) {
+			return false;
+		}
+		if (enrollmentCount == enrollmentStudents.length) {
+			int length = enrollmentCount * 2;
+			enrollmentStudents = Arrays.copyOf(enrollmentStudents, length);
+			enrollmentCourses = Arrays.copyOf(enrollmentCourses, length);
+		}
+		enrollmentStudents[enrollmentCount] = student;
+		enrollmentCourses[enrollmentCount] = course;
+		enrollmentCount++;
+		return true;
+	}
+
+	/*
+	 * Remove the enrollments of the students, before the current enrollments of changed students
+	 * are added again. The enrollments that are kept are moved to the front in one pass.
+	 */
+	void removeEnrollments(long[] ids) {
+		boolean[] removed = new boolean[studentCount];
+		for (long id : ids) {
+			int position = studentPositions.get(id);
+			if (position >= 0) {
+				removed[position] = true;
+			}
+		}
+		int kept = 0;
+		for (int i = 0; i < enrollmentCount; i++) {
+			if (!removed[enrollmentStudents[i]]) {
+				enrollmentStudents[kept] = enrollmentStudents[i];
+				enrollmentCourses[kept] = enrollmentCourses[i];
+				kept++;
+			}
+		}
+		enrollmentCount = kept;
+	}
+
+	int courseCount() {
+		return courseCount;
+	}
+
+	int studentCount() {
+		return studentCount;
+	}
+
+	int reviewCount() {
+		return reviewCount;
+	}
+
+	int enrollmentCount() {
+		return enrollmentCount;
+	}
+
+	// Copy the used part of the arrays into a snapshot that does not change anymore
+	ReportSnapshot build(LocalDateTime refreshedAt) {
+		return new ReportSnapshot(refreshedAt,
+				Arrays.copyOf(courseIds, courseCount), Arrays.copyOf(courseNames, courseCount),
+				Arrays.copyOf(courseDeleted, courseCount),
+				Arrays.copyOf(studentIds, studentCount), Arrays.copyOf(studentFirstNames, studentCount),
+				Arrays.copyOf(studentLastNames, studentCount), Arrays.copyOf(studentHasPassport, studentCount),
+				Arrays.copyOf(reviewCourses, reviewCount), Arrays.copyOf(reviewRatings, reviewCount),
+				Arrays.copyOf(enrollmentStudents, enrollmentCount), Arrays.copyOf(enrollmentCourses, enrollmentCount));
+	}
+
+	// The rating is stored as text, a rating that is not a number is not used for the average
+	private static int ratingValue(String rating) {
+		Integer value = CourseCounterRepository.ratingValue(rating);
+		return value == null ? NO_RATING : value;
+	}
+}
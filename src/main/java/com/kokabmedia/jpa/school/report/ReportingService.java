@@ -0,0 +1,251 @@
+package com.kokabmedia.jpa.school.report;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/*
+ * This class keeps the ReportSnapshot that the term reports are calculated with, the reports
+ * do not query the database and do not load any entities.
+ *
+ * The snapshot is built from the database when the application is ready. After that the
+ * refresh() method reads only the rows where the last_updated_date column changed since the
+ * previous refresh, the changed rows are added to the ReportSnapshotBuilder and a new snapshot
+ * replaces the old one. The STUDENT_COURSE table has no time stamp, the StudentRepository sets
+ * the time stamp of the student when its enrollments change and the enrollments of the changed
+ * students are read again.
+ *
+ * A transaction can commit a row with a time stamp from before the start of the previous
+ * refresh, the refresh therefore reads the rows from school.reporting.overlap-ms before the
+ * previous refresh. Reading a row twice does not change the result.
+ *
+ * Deleted students and reviews and enrollments added with Student.addCourse() do not change a
+ * time stamp. The scheduled checkConsistency() compares the number of rows in the tables with 
+ * the builder and builds the snapshot again from the start when they differ. Counting the rows
+ * reads the whole tables, the check runs every school.reporting.check-interval-ms and not with 
+ * every refresh.
+ */
+@Service
+@Lazy(false) // Register the @Scheduled refresh also when spring.main.lazy-initialization=true is set
+@Transactional(readOnly = true)
+public class ReportingService {
+
+	// Number of rows that are read from the database at the time
+	static final int CHUNK_SIZE = 10_000;
+
+	// Maximum number of student ids in the IN list of the enrollment query
+	static final int ENROLLMENT_CHUNK_SIZE = 1_000;
+
+	// For logging purposes
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	@Value("${school.reporting.overlap-ms:5000}")
+	long overlapMs;
+
+	@Autowired
+	EntityManager em;
+
+	private volatile ReportSnapshot snapshot = ReportSnapshot.EMPTY;
+
+	// The builder and the start of the last refresh, only changed while holding the lock of this object
+	private ReportSnapshotBuilder builder;
+	private LocalDateTime lastRefreshStart;
+
+	public ReportSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	public List<CourseReport> courseReports() {
+		return snapshot.courseReports();
+	}
+
+	public List<StudentReport> studentsWithoutPassport() {
+		return snapshot.studentsWithoutPassport();
+	}
+
+	public List<StudentReport> studentsWithoutCourse() {
+		return snapshot.studentsWithoutCourse();
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void buildOnStartup() {
+		rebuild();
+	}
+
+	// Read all the rows from the database into a new builder
+	public synchronized void rebuild() {
+
+		long start = System.currentTimeMillis();
+		LocalDateTime refreshStart = LocalDateTime.now();
+
+		builder = new ReportSnapshotBuilder();
+		readCourses(null);
+		readStudents(null);
+		readReviews(null);
+		publish(refreshStart);
+
+		logger.info("Report snapshot built with {} courses, {} students, {} reviews and {} enrollments in {} ms",
+				snapshot.getCourseCount(), snapshot.getStudentCount(), snapshot.getReviewCount(),
+				snapshot.getEnrollmentCount(), System.currentTimeMillis() - start);
+	}
+
+	// Read the rows that changed since the previous refresh
+	@Scheduled(fixedDelayString = "${school.reporting.refresh-interval-ms:60000}",
+			initialDelayString = "${school.reporting.refresh-interval-ms:60000}")
+	public synchronized void refresh() {
+
+		if (builder == null) {
+			rebuild();
+			return;
+		}
+
+		LocalDateTime refreshStart = LocalDateTime.now();
+		LocalDateTime since = lastRefreshStart.minusNanos(overlapMs * 1_000_000);
+
+		int courses = readCourses(since);
+		int students = readStudents(since);
+		int reviews = readReviews(since);
+		publish(refreshStart);
+
+		logger.debug("Report snapshot refreshed with {} changed courses, {} changed students and {} changed reviews",
+				courses, students, reviews);
+	}
+
+	/*
+	 * Build the snapshot again when rows were deleted or added without a time stamp. The changed
+	 * rows are read first, the builder then only differs from the tables by such rows.
+	 */
+	@Scheduled(fixedDelayString = "${school.reporting.check-interval-ms:600000}",
+			initialDelayString = "${school.reporting.check-interval-ms:600000}")
+	public synchronized void checkConsistency() {
+
+		refresh();
+
+		if (!matchesDatabase()) {
+			logger.debug("Report snapshot differs from the row counts of the database, building it again");
+			rebuild();
+		}
+	}
+
+	private void publish(LocalDateTime refreshStart) {
+		snapshot = builder.build(refreshStart);
+		lastRefreshStart = refreshStart;
+	}
+
+	private int readCourses(LocalDateTime since) {
+		return readChunks("select id, course_name, is_deleted from course_details", since, rows -> {
+			for (Object[] row : rows) {
+				builder.putCourse(longValue(row[0]), (String) row[1], (Boolean) row[2]);
+			}
+		});
+	}
+
+	// The enrollments of the students are read together with every chunk of students
+	private int readStudents(LocalDateTime since) {
+		return readChunks("select id, student_first_name, student_last_name, passport_id from student_details", since,
+				rows -> {
+					long[] ids = new long[rows.size()];
+					for (int i = 0; i < rows.size(); i++) {
+						Object[] row = rows.get(i);
+						ids[i] = longValue(row[0]);
+						builder.putStudent(ids[i], (String) row[1], (String) row[2], row[3] != null);
+					}
+					if (since != null) {
+						builder.removeEnrollments(ids);
+					}
+					readEnrollments(ids);
+				});
+	}
+
+	private int readReviews(LocalDateTime since) {
+		return readChunks("select id, course_id, rating from review_details", since, rows -> {
+			for (Object[] row : rows) {
+				if (row[1] != null) {
+					builder.putReview(longValue(row[0]), longValue(row[1]), (String) row[2]);
+				}
+			}
+		});
+	}
+
+	/*
+	 * Read the rows of a table in chunks ordered by the primary key, only the rows that changed 
+	 * since the given time when it is not null. Returns the number of rows that were read.
+	 */
+	@SuppressWarnings("unchecked")
+	private int readChunks(String select, LocalDateTime since, Consumer<List<Object[]>> chunkConsumer) {
+
+		String sql = select + " where id > :lastId" + (since == null ? "" : " and last_updated_date >= :since")
+				+ " order by id";
+		long lastId = Long.MIN_VALUE;
+		int count = 0;
+		List<Object[]> rows;
+		do {
+			Query query = em.createNativeQuery(sql)
+					.setParameter("lastId", lastId)
+					.setMaxResults(CHUNK_SIZE);
+			if (since != null) {
+				query.setParameter("since", since);
+			}
+			rows = query.getResultList();
+
+			if (!rows.isEmpty()) {
+				chunkConsumer.accept(rows);
+				lastId = longValue(rows.get(rows.size() - 1)[0]);
+				count += rows.size();
+			}
+		} while (rows.size() == CHUNK_SIZE);
+
+		return count;
+	}
+
+	private void readEnrollments(long[] studentIds) {
+		for (int from = 0; from < studentIds.length; from += ENROLLMENT_CHUNK_SIZE) {
+
+			List<Long> ids = new ArrayList<>(ENROLLMENT_CHUNK_SIZE);
+			for (int i = from; i < Math.min(from + ENROLLMENT_CHUNK_SIZE, studentIds.length); i++) {
+				ids.add(studentIds[i]);
+			}
+
+			@SuppressWarnings("unchecked")
+			List<Object[]> rows = em.createNativeQuery(
+					"select student_id, course_id from student_course where student_id in (:ids)")
+					.setParameter("ids", ids)
+					.getResultList();
+
+			for (Object[] row : rows) {
+				builder.addEnrollment(longValue(row[0]), longValue(row[1]));
+			}
+		}
+	}
+
+	// Compare the number of rows of every table with the number of rows in the builder
+	private boolean matchesDatabase() {
+		return count("course_details") == builder.courseCount()
+				&& count("student_details") == builder.studentCount()
+				&& count("review_details where course_id is not null") == builder.reviewCount()
+				&& count("student_course") == builder.enrollmentCount();
+	}
+
+	private long count(String table) {
+		return longValue(em.createNativeQuery("select count(*) from " + table).getSingleResult());
+	}
+
+	private static long longValue(Object value) {
+		return ((Number) value).longValue();
+	}
+}
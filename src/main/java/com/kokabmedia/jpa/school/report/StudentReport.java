@@ -0,0 +1,30 @@
+package com.kokabmedia.jpa.school.report;
+
+/*
+ * This class is one row of a student report of the ReportSnapshot, it is returned as JSON by 
+ * the ReportController.
+ */
+public class StudentReport {
+
+	private final long studentId;
+	private final String firstName;
+	private final String lastName;
+
+	public StudentReport(long studentId, String firstName, String lastName) {
+		this.studentId = studentId;
+		this.firstName = firstName;
+		this.lastName = lastName;
+	}
+
+	public long getStudentId() {
+		return studentId;
+	}
+
+	public String getFirstName() {
+		return firstName;
+	}
+
+	public String getLastName() {
+		return lastName;
+	}
+}
@@ -0,0 +1,68 @@
+package com.kokabmedia.jpa.school.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.kokabmedia.jpa.school.entity.BatchCheckpoint;
+
+/*
+ * This class is used for handling the BatchCheckpoint rows of the batch jobs, see the
+ * BatchJobRunner.
+ *
+ * advance() and complete() are bulk updates, the checkpoint does not have to be in the
+ * Persistence Context, which is cleared after every chunk. They run with Propagation.MANDATORY
+ * so that the checkpoint always moves in the transaction of the chunk.
+ */
+@Repository
+@Transactional
+public class BatchCheckpointRepository {
+
+	@Autowired
+	EntityManager em;
+
+	// The partitions of a job ordered by the partition number
+	public List<BatchCheckpoint> findByJob(String jobName) {
+		return em.createQuery("select c from BatchCheckpoint c where c.jobName = :jobName order by c.partitionNumber",
+				BatchCheckpoint.class)
+				.setParameter("jobName", jobName)
+				.getResultList();
+	}
+
+	public BatchCheckpoint create(String jobName, int partitionNumber, long lastId, long toId) {
+		BatchCheckpoint checkpoint = new BatchCheckpoint(jobName, partitionNumber, lastId, toId);
+		em.persist(checkpoint);
+		return checkpoint;
+	}
+
+	public int deleteByJob(String jobName) {
+		return em.createQuery("delete from BatchCheckpoint c where c.jobName = :jobName")
+				.setParameter("jobName", jobName)
+				.executeUpdate();
+	}
+
+	// Move the checkpoint after a processed chunk
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void advance(Long checkpointId, long lastId, int processed) {
+		em.createQuery("update BatchCheckpoint c set c.lastId = :lastId, c.processed = c.processed + :processed, "
+				+ "c.lastUpdatedDate = :now where c.id = :id")
+				.setParameter("lastId", lastId)
+				.setParameter("processed", (long) processed)
+				.setParameter("now", LocalDateTime.now())
+				.setParameter("id", checkpointId)
+				.executeUpdate();
+	}
+
+	public void complete(Long checkpointId) {
+		em.createQuery("update BatchCheckpoint c set c.completed = true, c.lastUpdatedDate = :now where c.id = :id")
+				.setParameter("now", LocalDateTime.now())
+				.setParameter("id", checkpointId)
+				.executeUpdate();
+	}
+}
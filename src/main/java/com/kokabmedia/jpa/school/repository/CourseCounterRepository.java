@@ -0,0 +1,256 @@
+package com.kokabmedia.jpa.school.repository;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.hibernate.query.NativeQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.kokabmedia.jpa.school.entity.CourseCounterStripe;
+
+/*
+ * This class is used for changing the striped enrollment and review counters of a course in
+ * the Course_Counter_Stripes table, see the CourseCounterStripe entity.
+ *
+ * Every update query changes one stripe, concurrent enrollments and reviews for the same course
+ * lock different rows when they start with a different stripe. CourseRepository.findCounters()
+ * reads the sums of the stripes.
+ *
+ * The methods run with Propagation.MANDATORY, a counter is always changed in the transaction
+ * that inserts or deletes the STUDENT_COURSE or Review row it counts.
+ */
+@Repository
+@Transactional(propagation = Propagation.MANDATORY)
+public class CourseCounterRepository {
+
+	// Number of stripes of every course, changing it requires new rows for the existing courses
+	public static final int STRIPES = 8;
+
+	@Autowired
+	EntityManager em;
+
+	// The stripe that is tried first for a key, for example the id of the student that enrolls
+	public static int preferredStripe(Long key) {
+		return (int) Math.floorMod(key, (long) STRIPES);
+	}
+
+	// Insert the stripes of a new course
+	public void createStripes(Long courseId, Integer capacity) {
+		for (int stripe = 0; stripe < STRIPES; stripe++) {
+			em.persist(new CourseCounterStripe(courseId, stripe, quota(capacity, 0, stripe)));
+		}
+	}
+
+	/*
+	 * Take one place of the course, starting with the preferred stripe. When the stripe has used
+	 * its quota the next stripes are tried, the method returns false when every stripe is full or
+	 * the course does not exist.
+	 *
+	 * An update that does not find a row because the stripe is full does not lock the row, only
+	 * the stripe that is changed stays locked until the end of the transaction.
+	 */
+	public boolean reserveSeat(Long courseId, int preferredStripe) {
+
+		for (int i = 0; i < STRIPES; i++) {
+			int updated = nativeUpdate("update course_counter_stripes set enrolled = enrolled + 1 "
+					+ "where course_id = :courseId and stripe = :stripe and (quota is null or enrolled < quota) "
+					+ "and exists (select 1 from course_details c where c.id = :courseId and c.is_deleted = false)")
+					.setParameter("courseId", courseId)
+					.setParameter("stripe", (preferredStripe + i) % STRIPES)
+					.executeUpdate();
+			if (updated == 1) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Give back one place of the course to the first stripe that has an enrolled student
+	public void releaseSeat(Long courseId, int preferredStripe) {
+
+		for (int i = 0; i < STRIPES; i++) {
+			int updated = nativeUpdate("update course_counter_stripes set enrolled = enrolled - 1 "
+					+ "where course_id = :courseId and stripe = :stripe and enrolled > 0")
+					.setParameter("courseId", courseId)
+					.setParameter("stripe", (preferredStripe + i) % STRIPES)
+					.executeUpdate();
+			if (updated == 1) {
+				return;
+			}
+		}
+	}
+
+	/*
+	 * Divide the free places of a new capacity over the stripes.
+	 *
+	 * The stripes are locked with select for update so that no enrollment changes them in the
+	 * meantime. Every stripe keeps the students it has and gets an equal part of the free places,
+	 * with a capacity below the number of enrolled students no stripe has a free place.
+	 */
+	public void applyCapacity(Long courseId, Integer capacity) {
+
+		if (capacity == null) {
+			nativeUpdate("update course_counter_stripes set quota = null where course_id = :courseId")
+					.setParameter("courseId", courseId)
+					.executeUpdate();
+			return;
+		}
+
+		@SuppressWarnings("unchecked")
+		List<Object[]> stripes = em.createNativeQuery("select stripe, enrolled from course_counter_stripes "
+				+ "where course_id = :courseId order by stripe for update")
+				.setParameter("courseId", courseId)
+				.getResultList();
+
+		int enrolled = 0;
+		for (Object[] stripe : stripes) {
+			enrolled += ((Number) stripe[1]).intValue();
+		}
+
+		for (Object[] stripe : stripes) {
+			int number = ((Number) stripe[0]).intValue();
+			int stripeEnrolled = ((Number) stripe[1]).intValue();
+			nativeUpdate("update course_counter_stripes set quota = :quota where course_id = :courseId and stripe = :stripe")
+					.setParameter("quota", stripeEnrolled + quota(capacity, enrolled, number))
+					.setParameter("courseId", courseId)
+					.setParameter("stripe", number)
+					.executeUpdate();
+		}
+	}
+
+	/*
+	 * The capacity that the quotas of the stripes were divided for, or null when the stripes have
+	 * no quota. The quotas add up to the capacity, or to the enrolled students when the capacity
+	 * was below the number of enrolled students.
+	 *
+	 * The stripes are read instead of the capacity column of the course, a Course that is
+	 * changed in the Persistence Context can already be written to the course row by a flush
+	 * before CourseRepository.save() is called.
+	 */
+	public Integer appliedCapacity(Long courseId) {
+
+		Object[] quotas = (Object[]) em.createNativeQuery("select count(quota), coalesce(sum(quota), 0) "
+				+ "from course_counter_stripes where course_id = :courseId")
+				.setParameter("courseId", courseId)
+				.getSingleResult();
+
+		return ((Number) quotas[0]).intValue() == 0 ? null : ((Number) quotas[1]).intValue();
+	}
+
+	/*
+	 * Add reviews to the counters of a course, the reviews of one call are added to a random
+	 * stripe. The rating is stored as text, only the ratings that are a number are summed.
+	 */
+	public void addReviews(Long courseId, int reviews, int ratings, long ratingSum) {
+		nativeUpdate("update course_counter_stripes set review_count = review_count + :reviews, "
+				+ "rating_count = rating_count + :ratings, rating_sum = rating_sum + :ratingSum "
+				+ "where course_id = :courseId and stripe = :stripe")
+				.setParameter("reviews", reviews)
+				.setParameter("ratings", ratings)
+				.setParameter("ratingSum", ratingSum)
+				.setParameter("courseId", courseId)
+				.setParameter("stripe", ThreadLocalRandom.current().nextInt(STRIPES))
+				.executeUpdate();
+	}
+
+	/*
+	 * Count the enrollments and reviews of a course again from the STUDENT_COURSE and Review 
+	 * rows and correct the stripes when they differ from the counts, returns true when the 
+	 * stripes were corrected. A counter can differ after a change of the rows outside of the 
+	 * repositories, for example with SQL.
+	 *
+	 * The stripes are locked first, an enrollment or review that has changed a stripe is then
+	 * committed before the rows are counted, and the next one waits until the end of the
+	 * transaction. The corrected counts are written to the first stripe and the quotas of the
+	 * capacity are divided again.
+	 */
+	public boolean recount(Long courseId, Integer capacity) {
+
+		@SuppressWarnings("unchecked")
+		List<Object[]> stripes = em.createNativeQuery("select enrolled, review_count, rating_count, rating_sum "
+				+ "from course_counter_stripes where course_id = :courseId order by stripe for update")
+				.setParameter("courseId", courseId)
+				.getResultList();
+		if (stripes.isEmpty()) {
+			return false;
+		}
+		long[] stored = new long[4];
+		for (Object[] stripe : stripes) {
+			for (int i = 0; i < stored.length; i++) {
+				stored[i] += ((Number) stripe[i]).longValue();
+			}
+		}
+
+		long[] counted = new long[4];
+		counted[0] = ((Number) em.createNativeQuery("select count(*) from student_course where course_id = :courseId")
+				.setParameter("courseId", courseId)
+				.getSingleResult()).longValue();
+
+		// There are only a few different ratings, the ratings that are not a number are not summed
+		@SuppressWarnings("unchecked")
+		List<Object[]> ratings = em.createNativeQuery("select rating, count(*) from review_details "
+				+ "where course_id = :courseId group by rating")
+				.setParameter("courseId", courseId)
+				.getResultList();
+		for (Object[] rating : ratings) {
+			long reviews = ((Number) rating[1]).longValue();
+			Integer value = ratingValue((String) rating[0]);
+			counted[1] += reviews;
+			if (value != null) {
+				counted[2] += reviews;
+				counted[3] += reviews * value;
+			}
+		}
+
+		if (Arrays.equals(stored, counted)) {
+			return false;
+		}
+		nativeUpdate("update course_counter_stripes set enrolled = case when stripe = 0 then :enrolled else 0 end, "
+				+ "review_count = case when stripe = 0 then :reviews else 0 end, "
+				+ "rating_count = case when stripe = 0 then :ratings else 0 end, "
+				+ "rating_sum = case when stripe = 0 then :ratingSum else 0 end where course_id = :courseId")
+				.setParameter("enrolled", counted[0])
+				.setParameter("reviews", counted[1])
+				.setParameter("ratings", counted[2])
+				.setParameter("ratingSum", counted[3])
+				.setParameter("courseId", courseId)
+				.executeUpdate();
+		applyCapacity(courseId, capacity);
+		return true;
+	}
+
+	// The value of a rating, or null when the rating is not a number
+	public static Integer ratingValue(String rating) {
+		try {
+			return rating == null ? null : Integer.valueOf(rating.trim());
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	// The part of the free places of a capacity for a stripe, the first stripes get the remainder
+	private static Integer quota(Integer capacity, int enrolled, int stripe) {
+		if (capacity == null) {
+			return null;
+		}
+		int free = Math.max(0, capacity - enrolled);
+		return free / STRIPES + (stripe < free % STRIPES ? 1 : 0);
+	}
+
+	/*
+	 * Without query spaces Hibernate clears every Second Level Cache region when an update query
+	 * is executed, the counters are not cached in any region.
+	 */
+	private Query nativeUpdate(String sql) {
+		return em.createNativeQuery(sql)
+				.unwrap(NativeQuery.class)
+				.addSynchronizedQuerySpace("course_counter_stripes");
+	}
+}
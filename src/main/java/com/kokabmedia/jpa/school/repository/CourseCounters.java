@@ -0,0 +1,44 @@
+package com.kokabmedia.jpa.school.repository;
+
+/*
+ * This class is the number of students enrolled in a course and the review aggregates of the
+ * course, the sums of the Course_Counter_Stripes rows of the course.
+ *
+ * The counters are read with a query every time and are not part of the Course entity, the
+ * Second Level Cache entry of a Course would keep the counters of the time it was loaded after
+ * an enrollment or a review has changed them.
+ */
+public class CourseCounters {
+
+	// The counters of a course without stripes
+	static final CourseCounters NONE = new CourseCounters(0, 0, null);
+
+	private final int enrolledCount;
+	private final int reviewCount;
+	private final Double averageRating;
+
+	CourseCounters(int enrolledCount, int reviewCount, Double averageRating) {
+		this.enrolledCount = enrolledCount;
+		this.reviewCount = reviewCount;
+		this.averageRating = averageRating;
+	}
+
+	public int getEnrolledCount() {
+		return enrolledCount;
+	}
+
+	public int getReviewCount() {
+		return reviewCount;
+	}
+
+	// The average of the ratings that are a number, null when the course has no such rating
+	public Double getAverageRating() {
+		return averageRating;
+	}
+
+	@Override
+	public String toString() {
+		return "CourseCounters [enrolledCount=" + enrolledCount + ", reviewCount=" + reviewCount + ", averageRating="
+				+ averageRating + "]";
+	}
+}
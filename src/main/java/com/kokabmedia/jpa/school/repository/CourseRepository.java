@@ -1,12 +1,21 @@
 package com.kokabmedia.jpa.school.repository;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
 import javax.persistence.EntityManager;
 
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.kokabmedia.jpa.school.entity.Course;
+import com.kokabmedia.jpa.school.entity.Review;
 
 /*
  * This class is used for handling data to and from the H2 in memory database and by managing
@@ -104,25 +113,178 @@ public class CourseRepository {
 	 * The Persistence Context will live though the length of a method or as long as the Transaction is running.
 	 */
 	EntityManager em;
+	
+	// Every change is also recorded as an event in the transactional outbox
+	@Autowired
+	OutboxRepository outbox;
+	
+	// The enrollment and review counters of the courses
+	@Autowired
+	CourseCounterRepository counters;
 
 	// Retrieve a specific course with a primary key id
 	public Course findById(Long id) {
 		return em.find(Course.class, id);
 	}
 	
+	/*
+	 * Retrieve a course with its name, or null when there is no course with the name or the 
+	 * course is soft deleted.
+	 * 
+	 * The bySimpleNaturalId() method of the Hibernate Session resolves the name to the primary 
+	 * key id with the natural id cache and then retrieves the Course from the Second Level Cache,
+	 * a repeated lookup with the same name does not query the database.
+	 * 
+	 * The Course is loaded with the @Where clause of the entity, a soft deleted course is not 
+	 * returned, the isDeleted check covers an entity that was deleted in the current transaction.
+	 */
+	public Course findByName(String name) {
+		
+		Course course = em.unwrap(Session.class).bySimpleNaturalId(Course.class).load(name);
+		
+		return course == null || course.isDeleted() ? null : course;
+	}
+	
+	/*
+	 * Retrieve the version of a course for the ETag of the CourseController, or null when there
+	 * is no such course. The last updated time stamp changes with the name and the capacity, the
+	 * counters of the stripes do not change a time stamp and are part of the version themselves.
+	 */
+	public ResourceVersion findVersion(Long id) {
+		
+		@SuppressWarnings("unchecked")
+		List<Object[]> rows = em.createNativeQuery("select c.last_updated_date, coalesce(sum(s.enrolled), 0), "
+				+ "coalesce(sum(s.review_count), 0), coalesce(sum(s.rating_count), 0), coalesce(sum(s.rating_sum), 0) "
+				+ "from course_details c left join course_counter_stripes s on s.course_id = c.id "
+				+ "where c.id = :id and c.is_deleted = false group by c.id, c.last_updated_date")
+				.setParameter("id", id)
+				.getResultList();
+		
+		return rows.isEmpty() ? null : new ResourceVersion(rows.get(0));
+	}
+	
+	/*
+	 * Retrieve the enrollment and review counters of a course, the counters are read from the 
+	 * stripes with every call and are never taken from the Second Level Cache.
+	 */
+	public CourseCounters findCounters(Long id) {
+		return findCounters(List.of(id)).get(id);
+	}
+	
+	// Retrieve the counters of the courses of a page with one query, by course id
+	public Map<Long, CourseCounters> findCounters(Collection<Long> ids) {
+		
+		Map<Long, CourseCounters> counters = new HashMap<>();
+		if (ids.isEmpty()) {
+			return counters;
+		}
+		
+		@SuppressWarnings("unchecked")
+		List<Object[]> rows = em.createNativeQuery("select s.course_id, coalesce(sum(s.enrolled), 0), "
+				+ "coalesce(sum(s.review_count), 0), cast(sum(s.rating_sum) as double) / nullif(sum(s.rating_count), 0) "
+				+ "from course_counter_stripes s where s.course_id in (:ids) group by s.course_id")
+				.setParameter("ids", ids)
+				.getResultList();
+		
+		for (Object[] row : rows) {
+			counters.put(((Number) row[0]).longValue(), new CourseCounters(((Number) row[1]).intValue(),
+					((Number) row[2]).intValue(), row[3] == null ? null : ((Number) row[3]).doubleValue()));
+		}
+		
+		// A course without stripes has no enrollments and no reviews
+		for (Long id : ids) {
+			counters.putIfAbsent(id, CourseCounters.NONE);
+		}
+		return counters;
+	}
+	
+	/*
+	 * Retrieve the next page of courses ordered by the primary key id, the courses with an id 
+	 * after the given id. The page starts at an id instead of an offset, the index of the primary 
+	 * key finds the first row and the database does not read the rows of the previous pages.
+	 */
+	public List<Course> findPageAfter(long afterId, int size) {
+		return em.createQuery("select c from Course c where c.id > :afterId order by c.id", Course.class)
+				.setParameter("afterId", afterId)
+				.setMaxResults(size)
+				.getResultList();
+	}
+	
+	// Retrieve all reviews of a course with their lazy descriptions in one select
+	public List<Review> findReviews(Long courseId) {
+		return em.createQuery("select r from Review r fetch all properties where r.course.id = :courseId order by r.id",
+				Review.class)
+				.setParameter("courseId", courseId)
+				.getResultList();
+	}
+
+	/*
+	 * Retrieve the next page of the reviews of a course ordered by the primary key id, with the 
+	 * lazy description of the reviews in the same select.
+	 */
+	public List<Review> findReviewsAfter(Long courseId, long afterId, int size) {
+		return em.createQuery("select r from Review r fetch all properties "
+				+ "where r.course.id = :courseId and r.id > :afterId order by r.id", Review.class)
+				.setParameter("courseId", courseId)
+				.setParameter("afterId", afterId)
+				.setMaxResults(size)
+				.getResultList();
+	}
+	
 	// Insert and update course object (row)
 	 public Course save(Course course) {
 		 
 		 // If there is no course, insert a course else update the course
 		 if(course.getId()==null) {
 			 em.persist(course); // The persist method creates a new entity, a new row in the database table and trigger a insert query
+			 counters.createStripes(course.getId(), course.getCapacity());
+			 outbox.record("Course", course.getId(), "CREATED", Map.of("name", course.getName()));
 		 }else {	  
 			em.merge(course); // The merge method updates a entity (row) in the database table and trigger a update query
+			
+			/*
+			 * Divide the places of the new capacity over the counter stripes. The capacity is 
+			 * compared with the quotas of the stripes, the Course can be the managed instance 
+			 * of the Persistence Context that already has the new capacity.
+			 */
+			if (!Objects.equals(counters.appliedCapacity(course.getId()), course.getCapacity())) {
+				counters.applyCapacity(course.getId(), course.getCapacity());
+			}
+			outbox.record("Course", course.getId(), "UPDATED", Map.of("name", course.getName()));
 		 }
 
 		 return course;
 	 }
 	
+	 /*
+	  * Add a review to a course and persist it, this is the synchronous path for a single review.
+	  * 
+	  * For a large number of reviews the ReviewIngestionQueue writes the reviews in batches.
+	  */
+	 public Review addReviewToCourse(Long courseId, Review review) {
+		 
+		 Course course = findById(courseId);
+		 
+		 /*
+		  * Calling course.addReview() on a list that is not loaded would select all reviews of 
+		  * the course first, the review is only added to a list that is already loaded. The 
+		  * enhanced setCourse() already adds it to a loaded list (see the association management 
+		  * in pom.xml), without the enhancement the list is changed here.
+		  */
+		 review.setCourse(course);
+		 if (Hibernate.isInitialized(course.getReviews()) && !course.getReviews().contains(review)) {
+			 course.addReview(review);
+		 }
+		 em.persist(review);
+		 
+		 Integer rating = CourseCounterRepository.ratingValue(review.getRating());
+		 counters.addReviews(courseId, 1, rating == null ? 0 : 1, rating == null ? 0 : rating);
+		 
+		 outbox.record("Course", courseId, "REVIEW_ADDED", OutboxRepository.reviewPayload(review));
+		 
+		 return review;
+	 }
+	
 	 // Delete a specific course with a primary key id
 	 public void deleteById(Long id) {
 		 
@@ -130,6 +292,8 @@ public class CourseRepository {
 		 
 		  em.remove(course); // The remove method re a entity (row) in the database table and trigger a delete query.
 		  
+		  outbox.record("Course", id, "DELETED", Map.of("name", course.getName()));
+		  
 		  // em.flush() // The flush method sends the changes that occur to the database.
 		  
 		  // em.detach(course) // The detach method enables the detachment of the Entity Manager from the Course entity.
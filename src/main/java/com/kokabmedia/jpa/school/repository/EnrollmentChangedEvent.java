@@ -0,0 +1,39 @@
+package com.kokabmedia.jpa.school.repository;
+
+/*
+ * This class is the Spring application event that the StudentRepository publishes when the 
+ * STUDENT_COURSE rows of a student change. The in memory structures that hold the enrollments 
+ * listen to it with @TransactionalEventListener and apply the change after the commit.
+ * 
+ * The courseId is null when every enrollment of the student is removed because the student is
+ * deleted.
+ */
+public class EnrollmentChangedEvent {
+
+	private final long studentId;
+	private final Long courseId;
+	private final boolean enrolled;
+
+	public EnrollmentChangedEvent(long studentId, Long courseId, boolean enrolled) {
+		this.studentId = studentId;
+		this.courseId = courseId;
+		this.enrolled = enrolled;
+	}
+
+	public long getStudentId() {
+		return studentId;
+	}
+
+	public Long getCourseId() {
+		return courseId;
+	}
+
+	public boolean isEnrolled() {
+		return enrolled;
+	}
+
+	@Override
+	public String toString() {
+		return "EnrollmentChangedEvent [studentId=" + studentId + ", courseId=" + courseId + ", enrolled=" + enrolled + "]";
+	}
+}
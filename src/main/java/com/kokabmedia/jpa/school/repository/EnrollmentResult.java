@@ -0,0 +1,13 @@
+package com.kokabmedia.jpa.school.repository;
+
+/*
+ * The outcome of StudentRepository.enrollIfCapacity(), only ENROLLED inserts a STUDENT_COURSE row.
+ */
+public enum EnrollmentResult {
+
+	ENROLLED,
+	ALREADY_ENROLLED,
+	COURSE_FULL,
+	COURSE_NOT_FOUND,
+	STUDENT_NOT_FOUND
+}
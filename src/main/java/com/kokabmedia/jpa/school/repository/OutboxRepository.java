@@ -0,0 +1,75 @@
+package com.kokabmedia.jpa.school.repository;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kokabmedia.jpa.school.entity.OutboxEvent;
+import com.kokabmedia.jpa.school.entity.Review;
+
+/*
+ * This class is used for handling the OutboxEvent rows of the transactional outbox.
+ * 
+ * The record() method is called by the other repositories when an entity is changed, it runs 
+ * with Propagation.MANDATORY so that the event is always inserted in the transaction of the 
+ * change. Without a running transaction the method fails instead of committing the event on 
+ * its own.
+ */
+@Repository
+@Transactional
+public class OutboxRepository {
+
+	@Autowired
+	EntityManager em;
+
+	// Spring Boot configures the ObjectMapper that is also used for the JSON of the REST API
+	@Autowired
+	ObjectMapper objectMapper;
+
+	// Insert an event for a change, the payload is stored as JSON
+	@Transactional(propagation = Propagation.MANDATORY)
+	public OutboxEvent record(String aggregateType, Long aggregateId, String eventType, Object payload) {
+
+		try {
+			OutboxEvent event = new OutboxEvent(aggregateType, aggregateId, eventType,
+					objectMapper.writeValueAsString(payload));
+			em.persist(event);
+			return event;
+		} catch (JsonProcessingException e) {
+			throw new IllegalArgumentException("Could not write the payload of " + eventType + " as JSON", e);
+		}
+	}
+
+	// Retrieve the oldest events that are not yet sent to the OutboxSink
+	public List<OutboxEvent> findUnpublished(int maxResults) {
+		return em.createQuery("select e from OutboxEvent e where e.published = false order by e.id", OutboxEvent.class)
+				.setMaxResults(maxResults)
+				.getResultList();
+	}
+
+	// Remove the published events that are older than the given time
+	public int deletePublishedBefore(LocalDateTime createdBefore) {
+		return em.createQuery("delete from OutboxEvent e where e.published = true and e.createdDate < :createdBefore")
+				.setParameter("createdBefore", createdBefore)
+				.executeUpdate();
+	}
+
+	// The payload of a REVIEW_ADDED event, the description can be null
+	public static Map<String, Object> reviewPayload(Review review) {
+		Map<String, Object> payload = new LinkedHashMap<>();
+		payload.put("reviewId", review.getId());
+		payload.put("rating", review.getRating());
+		payload.put("description", review.getDescription());
+		return payload;
+	}
+}
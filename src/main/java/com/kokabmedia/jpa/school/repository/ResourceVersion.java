@@ -0,0 +1,42 @@
+package com.kokabmedia.jpa.school.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.springframework.util.DigestUtils;
+
+/*
+ * This class is the version of the JSON representation of a course or a student, it is used as
+ * the ETag of the response.
+ * 
+ * The version is calculated from the time stamp columns and the counters of the rows that are in
+ * the representation, they are read with one small query instead of loading the entities. The 
+ * same values always give the same tag, a changed value gives another tag.
+ */
+public class ResourceVersion {
+
+	private final String tag;
+
+	ResourceVersion(Object[] values) {
+		this.tag = DigestUtils.md5DigestAsHex(Arrays.toString(values).getBytes(StandardCharsets.UTF_8));
+	}
+
+	public String getTag() {
+		return tag;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof ResourceVersion && tag.equals(((ResourceVersion) other).tag);
+	}
+
+	@Override
+	public int hashCode() {
+		return tag.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "ResourceVersion [tag=" + tag + "]";
+	}
+}
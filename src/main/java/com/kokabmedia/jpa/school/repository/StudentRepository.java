@@ -1,8 +1,16 @@
 package com.kokabmedia.jpa.school.repository;
 
+import java.util.List;
+import java.util.Map;
+
 import javax.persistence.EntityManager;
+import javax.persistence.Query;
 
+import org.hibernate.Session;
+import org.hibernate.annotations.QueryHints;
+import org.hibernate.query.NativeQuery;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -106,32 +114,146 @@ public class StudentRepository {
 	 * The Persistence Context will live though the length of a method or as long as the Transaction is running.
 	 */
 	EntityManager em;
+	
+	// Every change is also recorded as an event in the transactional outbox
+	@Autowired
+	OutboxRepository outbox;
+	
+	// The enrollment counters of the courses
+	@Autowired
+	CourseCounterRepository counters;
+	
+	// Publishes an EnrollmentChangedEvent when the enrollments of a student change
+	@Autowired
+	ApplicationEventPublisher eventPublisher;
 
 	// Retrieve a specific Student with a primary key id
 	public Student findById(Long id) {
 		return em.find(Student.class, id);
 	}
 	
+	/*
+	 * Retrieve the Student that owns the passport with the given passport number, or null when 
+	 * there is no such passport or the passport belongs to no student.
+	 * 
+	 * The Student and the Passport are retrieved with one query with the join fetch, the unique 
+	 * index on the passport number finds the Passport row and the unique index on passport_id the
+	 * Student row. The query is not cached, a query cache entry would be removed with every change
+	 * of the student_details and passport_details tables. The loaded Passport is added to its 
+	 * natural id cache and both entities to the Second Level Cache, the following lookups of the 
+	 * passport with findPassportByNumber() and of the student with findById() do not query the 
+	 * database.
+	 */
+	public Student findStudentByPassportNumber(String passportNumber) {
+		
+		List<Student> students = em.createQuery(
+				"select s from Student s join fetch s.passport p where p.number = :number", Student.class)
+				.setParameter("number", passportNumber)
+				.getResultList();
+		
+		return students.isEmpty() ? null : students.get(0);
+	}
+	
+	/*
+	 * Retrieve a Student with its passport and courses for an export, or null when there is no 
+	 * such student. The join fetch reads the student, the passport and the courses with one query
+	 * instead of a query for every lazy relation.
+	 */
+	public Student findForExport(Long id) {
+		
+		List<Student> students = em.createQuery("select distinct s from Student s left join fetch s.passport "
+				+ "left join fetch s.courses where s.id = :id", Student.class)
+				.setParameter("id", id)
+				.setHint(QueryHints.PASS_DISTINCT_THROUGH, false)
+				.getResultList();
+		
+		return students.isEmpty() ? null : students.get(0);
+	}
+	
+	/*
+	 * Retrieve the version of the export of a student for the ETag of the StudentController, or 
+	 * null when there is no such student. The enrollments are counted and summed because the 
+	 * STUDENT_COURSE rows have no time stamp, the passport number is part of the version because
+	 * the Passport has no time stamp.
+	 */
+	public ResourceVersion findVersion(Long id) {
+		
+		@SuppressWarnings("unchecked")
+		List<Object[]> rows = em.createNativeQuery("select s.last_updated_date, p.passport_number, count(c.id), "
+				+ "coalesce(sum(c.id), 0), max(c.last_updated_date) from student_details s "
+				+ "left join passport_details p on p.id = s.passport_id "
+				+ "left join student_course sc on sc.student_id = s.id "
+				+ "left join course_details c on c.id = sc.course_id and c.is_deleted = false "
+				+ "where s.id = :id group by s.id, s.last_updated_date, p.passport_number")
+				.setParameter("id", id)
+				.getResultList();
+		
+		return rows.isEmpty() ? null : new ResourceVersion(rows.get(0));
+	}
+	
+	// Retrieve the next page of the students enrolled in a course ordered by the primary key id
+	public List<Student> findEnrolledAfter(Long courseId, long afterId, int size) {
+		return em.createQuery("select s from Student s join s.courses c where c.id = :courseId and s.id > :afterId "
+				+ "order by s.id", Student.class)
+				.setParameter("courseId", courseId)
+				.setParameter("afterId", afterId)
+				.setMaxResults(size)
+				.getResultList();
+	}
+	
+	/*
+	 * Retrieve a Passport with the passport number, or null when there is no such passport.
+	 * 
+	 * The bySimpleNaturalId() method of the Hibernate Session resolves the passport number to the 
+	 * primary key id with the natural id cache, a repeated lookup does not query the database.
+	 */
+	public Passport findPassportByNumber(String passportNumber) {
+		return em.unwrap(Session.class).bySimpleNaturalId(Passport.class).load(passportNumber);
+	}
+	
 	// Insert and update Student object (row)
 	 public Student save(Student student) {
 		 
 		 // If there is no Student, insert a Student else update the Student
 		 if(student.getId()==null) {
 			 em.persist(student); // The persist method creates a new entity, a new row in the database table and trigger a insert query
+			 outbox.record("Student", student.getId(), "CREATED", studentPayload(student));
 		 }else {	  
 			em.merge(student); // The merge method updates a entity (row) in the database table and trigger a update query
+			outbox.record("Student", student.getId(), "UPDATED", studentPayload(student));
 		 }
 
 		 return student;
 	 }
 	
-	 // Delete a specific Student with a primary key id
+	 /*
+	  * Delete a specific Student with a primary key id.
+	  * 
+	  * The STUDENT_COURSE rows of the student are deleted with a query before the student, and
+	  * every course gives back the place of the student in the same transaction.
+	  */
 	 public void deleteById(Long id) {
 		 
 		 Student Student = findById(id);
 		 
+		 @SuppressWarnings("unchecked")
+		 List<Number> courseIds = em.createNativeQuery("select course_id from student_course where student_id = :studentId")
+				 .setParameter("studentId", id)
+				 .getResultList();
+		 
+		 nativeUpdate("delete from student_course where student_id = :studentId")
+				 .setParameter("studentId", id)
+				 .executeUpdate();
+		 
+		 for (Number courseId : courseIds) {
+			 counters.releaseSeat(courseId.longValue(), CourseCounterRepository.preferredStripe(id));
+		 }
+		 
 		  em.remove(Student); // The remove method re a entity (row) in the database table and trigger a delete query.
 		  
+		  outbox.record("Student", id, "DELETED", studentPayload(Student));
+		  eventPublisher.publishEvent(new EnrollmentChangedEvent(id, null, false));
+		  
 		  // em.flush() // The flush method sends the changes that occur to the database.
 		  
 		  // em.detach(Student) // The detach method enables the detachment of the Entity Manager from the Student entity.
@@ -141,6 +263,108 @@ public class StudentRepository {
 		  // em.refresh(Student) // The refresh method refreshes (updates) the data with the content from the database and all the changes that are done to will be lost.
 	 }
 	 
+	 /*
+	  * Enroll a Student in a Course, the enrollment is done with enrollIfCapacity() so that the 
+	  * enrolled count of the course stays correct.
+	  */
+	 public EnrollmentResult enrollStudentInCourse(Long studentId, Long courseId) {
+		 return enrollIfCapacity(studentId, courseId);
+	 }
+	 
+	 /*
+	  * Enroll a Student in a Course when the course has a free place, without loading the students
+	  * of the course.
+	  * 
+	  * The student row is locked first with an update of its last updated time stamp, two 
+	  * enrollments of the same student wait for each other and the second one finds the 
+	  * STUDENT_COURSE row of the first. The place is taken from one of
+	  * the counter stripes of the course with a conditional update, when the stripe is full the
+	  * update changes no row and the next stripe is tried. Enrollments of different students in 
+	  * the same course lock different stripes and do not wait for each other, the course row 
+	  * itself is not changed.
+	  * 
+	  * The STUDENT_COURSE row is inserted with a query, a Student entity that is already in the 
+	  * Persistence Context does not see the new course in getCourses() until it is retrieved again.
+	  */
+	 public EnrollmentResult enrollIfCapacity(Long studentId, Long courseId) {
+		 
+		 int student = touchStudent(studentId);
+		 
+		 if (student == 0) {
+			 return EnrollmentResult.STUDENT_NOT_FOUND;
+		 }
+		 
+		 Number existing = (Number) em.createNativeQuery(
+				 "select count(*) from student_course where student_id = :studentId and course_id = :courseId")
+				 .setParameter("studentId", studentId)
+				 .setParameter("courseId", courseId)
+				 .getSingleResult();
+		 
+		 if (existing.intValue() > 0) {
+			 return EnrollmentResult.ALREADY_ENROLLED;
+		 }
+		 
+		 if (!counters.reserveSeat(courseId, CourseCounterRepository.preferredStripe(studentId))) {
+			 Number courses = (Number) em.createNativeQuery(
+					 "select count(*) from course_details where id = :courseId and is_deleted = false")
+					 .setParameter("courseId", courseId)
+					 .getSingleResult();
+			 return courses.intValue() == 0 ? EnrollmentResult.COURSE_NOT_FOUND : EnrollmentResult.COURSE_FULL;
+		 }
+		 
+		 nativeUpdate("insert into student_course(student_id, course_id) values(:studentId, :courseId)")
+				 .setParameter("studentId", studentId)
+				 .setParameter("courseId", courseId)
+				 .executeUpdate();
+		 
+		 outbox.record("Student", studentId, "ENROLLED", Map.of("studentId", studentId, "courseId", courseId));
+		 eventPublisher.publishEvent(new EnrollmentChangedEvent(studentId, courseId, true));
+		 
+		 return EnrollmentResult.ENROLLED;
+	 }
+	 
+	 // Remove a Student from a Course and free the place, returns false when the student was not enrolled
+	 public boolean withdrawFromCourse(Long studentId, Long courseId) {
+		 
+		 int deleted = nativeUpdate("delete from student_course where student_id = :studentId and course_id = :courseId")
+				 .setParameter("studentId", studentId)
+				 .setParameter("courseId", courseId)
+				 .executeUpdate();
+		 
+		 if (deleted == 0) {
+			 return false;
+		 }
+		 
+		 touchStudent(studentId);
+		 for (int i = 0; i < deleted; i++) {
+			 counters.releaseSeat(courseId, CourseCounterRepository.preferredStripe(studentId));
+		 }
+		 outbox.record("Student", studentId, "WITHDRAWN", Map.of("studentId", studentId, "courseId", courseId));
+		 eventPublisher.publishEvent(new EnrollmentChangedEvent(studentId, courseId, false));
+		 
+		 return true;
+	 }
+	 
+	 /*
+	  * Set the last updated time stamp of the student when its enrollments change, so that the 
+	  * ReportingService reads the new enrollments. Returns 0 when the student does not exist.
+	  */
+	 private int touchStudent(Long studentId) {
+		 return nativeUpdate("update student_details set last_updated_date = localtimestamp where id = :studentId")
+				 .setParameter("studentId", studentId)
+				 .executeUpdate();
+	 }
+	 
+	 /*
+	  * Without query spaces Hibernate clears every Second Level Cache region when an update query 
+	  * is executed, the student_course query space only invalidates the cached data of that table.
+	  */
+	 private Query nativeUpdate(String sql) {
+		 return em.createNativeQuery(sql)
+				 .unwrap(NativeQuery.class)
+				 .addSynchronizedQuerySpace("student_course");
+	 }
+	 
 	 // Saves a new Student with a new Passport to the database.
 	 public void saveStudentWithPassport() {
 		
@@ -153,6 +377,13 @@ public class StudentRepository {
 		 student.setPassport(passport);
 		 em.persist(student);
 		 
+		 outbox.record("Student", student.getId(), "CREATED", studentPayload(student));
+		 
+	 }
+	 
+	 // The payload of the Student events
+	 static Map<String, Object> studentPayload(Student student) {
+		 return Map.of("firstName", student.getFirstName(), "lastName", student.getLastName());
 	 }
 
 }
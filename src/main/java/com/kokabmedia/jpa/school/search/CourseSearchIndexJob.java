@@ -0,0 +1,45 @@
+package com.kokabmedia.jpa.school.search;
+
+import org.springframework.stereotype.Component;
+
+import com.kokabmedia.jpa.school.entity.Course;
+
+// Builds the index of the course names again, see the SearchIndexJob
+@Component
+public class CourseSearchIndexJob extends SearchIndexJob<Course> {
+
+	@Override
+	public String getName() {
+		return "course-search-index";
+	}
+
+	@Override
+	public Class<Course> getEntityType() {
+		return Course.class;
+	}
+
+	@Override
+	IndexRebuild startRebuild() {
+		return searchIndex.startCourseRebuild();
+	}
+
+	@Override
+	void finishRebuild() {
+		searchIndex.finishCourseRebuild();
+	}
+
+	@Override
+	void cancelRebuild() {
+		searchIndex.cancelCourseRebuild();
+	}
+
+	@Override
+	Long idOf(Course course) {
+		return course.getId();
+	}
+
+	@Override
+	String nameOf(Course course) {
+		return course.getName();
+	}
+}
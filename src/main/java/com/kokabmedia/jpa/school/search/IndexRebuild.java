@@ -0,0 +1,49 @@
+package com.kokabmedia.jpa.school.search;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+ * This class is a NameIndex that is being built from the database while the current index is
+ * still used by the searches.
+ *
+ * A Student or a Course that is saved or deleted during the rebuild is written to the new index
+ * after the commit, see the SearchIndexListener. The rebuild may have read the row before that
+ * commit and would overwrite the new name with the old one, or add a deleted row again. The ids
+ * of the changes are therefore kept, and a name that the rebuild reads for such an id is skipped,
+ * the change is newer than the row the rebuild has read.
+ *
+ * The methods are synchronized, a change can not happen between the check and the put of a
+ * name that the rebuild has read.
+ */
+class IndexRebuild {
+
+	private final NameIndex index = new NameIndex();
+
+	// The ids that were saved or deleted since the rebuild has started
+	private final Set<Long> changed = new HashSet<>();
+
+	// A name read from the database by the rebuild
+	synchronized void putRead(Long id, String name) {
+		if (!changed.contains(id)) {
+			index.put(id, name);
+		}
+	}
+
+	// A name saved during the rebuild
+	synchronized void put(Long id, String name) {
+		changed.add(id);
+		index.put(id, name);
+	}
+
+	// A row deleted during the rebuild
+	synchronized void remove(Long id) {
+		changed.add(id);
+		index.remove(id);
+	}
+
+	// The new index, used by the searches when the rebuild has finished
+	NameIndex index() {
+		return index;
+	}
+}
@@ -0,0 +1,230 @@
+package com.kokabmedia.jpa.school.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/*
+ * This class is an in memory inverted index that maps the words (terms) of a name to the ids
+ * of the rows that contain the word, for example "spring" -> [10002].
+ *
+ * The terms are kept sorted in a ConcurrentSkipListMap, a prefix search walks the terms from the
+ * prefix until a term does not start with the prefix anymore, without looking at the other terms.
+ * A fuzzy search generates every word that is one edit (insert, delete, replace or swap of a
+ * character) away from the searched word and looks them up directly in the map.
+ *
+ * Reads do not take any lock, updates are synchronized because a term and its list of ids are
+ * changed together.
+ */
+public class NameIndex {
+
+	// Characters used to generate the words for the fuzzy search
+	private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789";
+
+	private final ConcurrentSkipListMap<String, Set<Long>> idsByTerm = new ConcurrentSkipListMap<>();
+
+	// The terms of every id, used to remove or replace the terms when a name changes
+	private final Map<Long, List<String>> termsById = new ConcurrentHashMap<>();
+
+	// Add or replace the name of a row
+	public synchronized void put(Long id, String name) {
+
+		List<String> terms = tokenize(name);
+		List<String> previous = termsById.put(id, terms);
+
+		if (previous != null) {
+			for (String term : previous) {
+				if (!terms.contains(term)) {
+					removeId(term, id);
+				}
+			}
+		}
+		for (String term : terms) {
+			idsByTerm.computeIfAbsent(term, key -> ConcurrentHashMap.newKeySet()).add(id);
+		}
+	}
+
+	// Remove a row from the index
+	public synchronized void remove(Long id) {
+
+		List<String> previous = termsById.remove(id);
+
+		if (previous != null) {
+			for (String term : previous) {
+				removeId(term, id);
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		idsByTerm.clear();
+		termsById.clear();
+	}
+
+	public int size() {
+		return termsById.size();
+	}
+
+	/*
+	 * Returns the ids of the rows where every word of the query is the beginning of a word in
+	 * the name, "eri" finds "Erikson" and "jpa st" finds "JPA in 50 steps".
+	 */
+	public Set<Long> searchPrefix(String query, int limit) {
+
+		List<String> tokens = tokenize(query);
+		Set<Long> result = new LinkedHashSet<>();
+		if (tokens.isEmpty()) {
+			return result;
+		}
+
+		String first = tokens.get(0);
+		NavigableMap<String, Set<Long>> matching = idsByTerm.subMap(first, true, first + Character.MAX_VALUE, false);
+
+		for (Set<Long> ids : matching.values()) {
+			for (Long id : ids) {
+				if (matchesAll(id, tokens, true)) {
+					result.add(id);
+					if (result.size() >= limit) {
+						return result;
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * Returns the ids of the rows where every word of the query is equal to a word in the name
+	 * or one typing mistake away from it, "jonsn" finds "Jonson". Exact matches come first.
+	 */
+	public Set<Long> searchFuzzy(String query, int limit) {
+
+		List<String> tokens = tokenize(query);
+		Set<Long> result = new LinkedHashSet<>();
+		if (tokens.isEmpty()) {
+			return result;
+		}
+
+		for (String term : oneEditAway(tokens.get(0))) {
+			Set<Long> ids = idsByTerm.get(term);
+			if (ids == null) {
+				continue;
+			}
+			for (Long id : ids) {
+				if (matchesAll(id, tokens, false)) {
+					result.add(id);
+					if (result.size() >= limit) {
+						return result;
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	// Split a name into lower case words, "JPA in 50 steps" -> [jpa, in, 50, steps]
+	static List<String> tokenize(String text) {
+
+		if (text == null) {
+			return Collections.emptyList();
+		}
+		List<String> terms = new ArrayList<>();
+		for (String term : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{Nd}]+")) {
+			if (!term.isEmpty() && !terms.contains(term)) {
+				terms.add(term);
+			}
+		}
+		return terms;
+	}
+
+	// Check the other words of the query against the terms of the row
+	private boolean matchesAll(Long id, List<String> tokens, boolean prefix) {
+
+		List<String> terms = termsById.get(id);
+		if (terms == null) {
+			return false;
+		}
+		for (int i = 1; i < tokens.size(); i++) {
+			String token = tokens.get(i);
+			boolean found = false;
+			for (String term : terms) {
+				if (prefix ? term.startsWith(token) : isWithinOneEdit(token, term)) {
+					found = true;
+					break;
+				}
+			}
+			if (!found) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void removeId(String term, Long id) {
+		Set<Long> ids = idsByTerm.get(term);
+		if (ids != null) {
+			ids.remove(id);
+			if (ids.isEmpty()) {
+				idsByTerm.remove(term);
+			}
+		}
+	}
+
+	// The word itself followed by every word that is one edit away from it
+	static Set<String> oneEditAway(String word) {
+
+		Set<String> words = new LinkedHashSet<>();
+		words.add(word);
+
+		StringBuilder builder = new StringBuilder(word.length() + 1);
+		for (int i = 0; i <= word.length(); i++) {
+
+			// Delete and swap the character at position i
+			if (i < word.length()) {
+				words.add(word.substring(0, i) + word.substring(i + 1));
+			}
+			if (i < word.length() - 1) {
+				builder.setLength(0);
+				builder.append(word, 0, i).append(word.charAt(i + 1)).append(word.charAt(i)).append(word, i + 2, word.length());
+				words.add(builder.toString());
+			}
+
+			// Replace the character at position i and insert a character before position i
+			for (int c = 0; c < ALPHABET.length(); c++) {
+				char character = ALPHABET.charAt(c);
+				if (i < word.length()) {
+					words.add(word.substring(0, i) + character + word.substring(i + 1));
+				}
+				words.add(word.substring(0, i) + character + word.substring(i));
+			}
+		}
+		return words;
+	}
+
+	// Levenshtein distance of at most one, without building the distance matrix
+	static boolean isWithinOneEdit(String a, String b) {
+
+		if (Math.abs(a.length() - b.length()) > 1) {
+			return false;
+		}
+		int i = 0;
+		while (i < a.length() && i < b.length() && a.charAt(i) == b.charAt(i)) {
+			i++;
+		}
+		if (a.length() == b.length()) {
+			return a.regionMatches(i + 1, b, i + 1, a.length() - i - 1)
+					|| (i < a.length() - 1 && a.charAt(i) == b.charAt(i + 1) && a.charAt(i + 1) == b.charAt(i)
+							&& a.regionMatches(i + 2, b, i + 2, a.length() - i - 2));
+		}
+		String longer = a.length() > b.length() ? a : b;
+		String shorter = a.length() > b.length() ? b : a;
+		return longer.regionMatches(i + 1, shorter, i, shorter.length() - i);
+	}
+}
@@ -0,0 +1,126 @@
+package com.kokabmedia.jpa.school.search;
+
+import java.util.Set;
+
+import org.springframework.stereotype.Component;
+
+/*
+ * This class holds the in memory search indexes for the student last names and the course names.
+ * 
+ * The indexes are kept up to date by the SearchIndexListener entity listener when a Student or a
+ * Course is saved or deleted, and are built from the database by the SearchService.
+ * 
+ * While the indexes are rebuilt the changes are written to both the current and the new indexes,
+ * the searches use the current indexes until the new indexes are complete. A change is written
+ * to the new index first, a change made while the new index replaces the current one is then
+ * in the new index as well. The names that the rebuild reads for the changed rows are skipped,
+ * see the IndexRebuild class.
+ */
+@Component
+public class SearchIndex {
+
+	private volatile NameIndex students = new NameIndex();
+	private volatile NameIndex courses = new NameIndex();
+
+	// The indexes that are being built by a rebuild, null when no rebuild is running
+	private volatile IndexRebuild rebuildStudents;
+	private volatile IndexRebuild rebuildCourses;
+
+	public void putStudent(Long id, String lastName) {
+		IndexRebuild rebuild = rebuildStudents;
+		if (rebuild != null) {
+			rebuild.put(id, lastName);
+		}
+		students.put(id, lastName);
+	}
+
+	public void removeStudent(Long id) {
+		IndexRebuild rebuild = rebuildStudents;
+		if (rebuild != null) {
+			rebuild.remove(id);
+		}
+		students.remove(id);
+	}
+
+	public void putCourse(Long id, String name) {
+		IndexRebuild rebuild = rebuildCourses;
+		if (rebuild != null) {
+			rebuild.put(id, name);
+		}
+		courses.put(id, name);
+	}
+
+	public void removeCourse(Long id) {
+		IndexRebuild rebuild = rebuildCourses;
+		if (rebuild != null) {
+			rebuild.remove(id);
+		}
+		courses.remove(id);
+	}
+
+	public Set<Long> searchStudents(String query, boolean fuzzy, int limit) {
+		return fuzzy ? students.searchFuzzy(query, limit) : students.searchPrefix(query, limit);
+	}
+
+	public Set<Long> searchCourses(String query, boolean fuzzy, int limit) {
+		return fuzzy ? courses.searchFuzzy(query, limit) : courses.searchPrefix(query, limit);
+	}
+
+	public int studentCount() {
+		return students.size();
+	}
+
+	public int courseCount() {
+		return courses.size();
+	}
+
+	// Start a rebuild, returns the empty indexes that the rows from the database are added to
+	synchronized IndexRebuild[] startRebuild() {
+		return new IndexRebuild[] { startStudentRebuild(), startCourseRebuild() };
+	}
+
+	// Replace the current indexes with the rebuilt indexes
+	synchronized void finishRebuild() {
+		finishStudentRebuild();
+		finishCourseRebuild();
+	}
+
+	// Stop a failed rebuild and keep the current indexes
+	synchronized void cancelRebuild() {
+		cancelStudentRebuild();
+		cancelCourseRebuild();
+	}
+
+	// The rebuild of only the student index or only the course index, used by the SearchIndexJob
+	synchronized IndexRebuild startStudentRebuild() {
+		rebuildStudents = new IndexRebuild();
+		return rebuildStudents;
+	}
+
+	synchronized void finishStudentRebuild() {
+		if (rebuildStudents != null) {
+			students = rebuildStudents.index();
+			rebuildStudents = null;
+		}
+	}
+
+	synchronized void cancelStudentRebuild() {
+		rebuildStudents = null;
+	}
+
+	synchronized IndexRebuild startCourseRebuild() {
+		rebuildCourses = new IndexRebuild();
+		return rebuildCourses;
+	}
+
+	synchronized void finishCourseRebuild() {
+		if (rebuildCourses != null) {
+			courses = rebuildCourses.index();
+			rebuildCourses = null;
+		}
+	}
+
+	synchronized void cancelCourseRebuild() {
+		rebuildCourses = null;
+	}
+}
@@ -0,0 +1,71 @@
+package com.kokabmedia.jpa.school.search;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.kokabmedia.jpa.school.batch.BatchJob;
+import com.kokabmedia.jpa.school.batch.BatchWriter;
+import com.kokabmedia.jpa.school.tenant.TenantContext;
+
+/*
+ * A BatchJob that builds one of the indexes of the SearchIndex again, with the partitions of the
+ * BatchJobRunner on all the cores instead of the single thread of SearchService.rebuild(). The
+ * searches use the current index until the job has finished, a failed job keeps the current
+ * index.
+ *
+ * The new index only exists in memory, a failed job is therefore not continued after its
+ * checkpoints but starts again. The search indexes are kept for the default school only.
+ */
+abstract class SearchIndexJob<T> implements BatchJob<T> {
+
+	@Autowired
+	SearchIndex searchIndex;
+
+	// The index that is being built
+	private volatile IndexRebuild index;
+
+	abstract IndexRebuild startRebuild();
+
+	abstract void finishRebuild();
+
+	abstract void cancelRebuild();
+
+	abstract Long idOf(T entity);
+
+	abstract String nameOf(T entity);
+
+	@Override
+	public boolean isRestartable() {
+		return false;
+	}
+
+	@Override
+	public void beforeRun() {
+		if (!TenantContext.isDefault()) {
+			throw new IllegalStateException("The search index is kept for the default school only");
+		}
+		index = startRebuild();
+	}
+
+	/*
+	 * IndexRebuild.putRead() is synchronized, the partitions can add to the index at the same
+	 * time. A row that was saved or deleted after the job has started is skipped, its name is
+	 * already in the new index.
+	 */
+	@Override
+	public void process(T entity, BatchWriter writer) {
+		index.putRead(idOf(entity), nameOf(entity));
+	}
+
+	@Override
+	public void afterRun(boolean completed) {
+		if (index == null) {
+			return;
+		}
+		if (completed) {
+			finishRebuild();
+		} else {
+			cancelRebuild();
+		}
+		index = null;
+	}
+}
@@ -0,0 +1,76 @@
+package com.kokabmedia.jpa.school.search;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.kokabmedia.jpa.school.entity.Course;
+import com.kokabmedia.jpa.school.entity.Student;
+import com.kokabmedia.jpa.school.tenant.TenantContext;
+
+/*
+ * This class is a JPA entity listener that updates the SearchIndex when a Student or a Course
+ * is inserted, updated or deleted. It is added to the entities with the @EntityListeners annotation.
+ * 
+ * Hibernate calls the listener methods when the changes are flushed to the database, the index is
+ * only updated after the transaction is committed so that a rolled back change is not searchable.
+ * 
+ * Spring Boot configures Hibernate to create the entity listeners with the Spring framework, so 
+ * the SearchIndex bean is autowired as in any other bean.
+ */
+public class SearchIndexListener {
+
+	@Autowired
+	SearchIndex searchIndex;
+
+	@PostPersist
+	@PostUpdate
+	public void saved(Object entity) {
+		if (entity instanceof Student) {
+			Student student = (Student) entity;
+			Long id = student.getId();
+			String lastName = student.getLastName();
+			afterCommit(() -> searchIndex.putStudent(id, lastName));
+		} else if (entity instanceof Course) {
+			Course course = (Course) entity;
+			Long id = course.getId();
+			String name = course.getName();
+			afterCommit(() -> searchIndex.putCourse(id, name));
+		}
+	}
+
+	@PostRemove
+	public void removed(Object entity) {
+		if (entity instanceof Student) {
+			Long id = ((Student) entity).getId();
+			afterCommit(() -> searchIndex.removeStudent(id));
+		} else if (entity instanceof Course) {
+			Long id = ((Course) entity).getId();
+			afterCommit(() -> searchIndex.removeCourse(id));
+		}
+	}
+
+	/*
+	 * Run the index update after the commit, or directly when there is no transaction. The index 
+	 * holds the default school only, the changes of other schools are not indexed.
+	 */
+	private void afterCommit(Runnable update) {
+		if (!TenantContext.isDefault()) {
+			return;
+		}
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					update.run();
+				}
+			});
+		} else {
+			update.run();
+		}
+	}
+}
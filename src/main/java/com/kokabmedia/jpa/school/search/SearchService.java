@@ -0,0 +1,132 @@
+package com.kokabmedia.jpa.school.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.kokabmedia.jpa.school.entity.Course;
+import com.kokabmedia.jpa.school.entity.Student;
+
+/*
+ * This class searches students by last name and courses by name with the in memory SearchIndex,
+ * instead of a LIKE '%name%' query that has to read every row of the table.
+ * 
+ * The index returns the ids of the matching rows, the entities are then retrieved with a single
+ * query on the primary key.
+ * 
+ * The index is built from the database when the application is ready and can be rebuilt at any
+ * time with the rebuild() method, for example with POST /search/rebuild. For a large school the
+ * StudentSearchIndexJob and CourseSearchIndexJob rebuild an index on all the cores.
+ */
+@Service
+@Transactional(readOnly = true)
+public class SearchService {
+
+	// Number of rows that are read from the database at the time during a rebuild
+	static final int REBUILD_CHUNK_SIZE = 10_000;
+
+	// For logging purposes
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	@Autowired
+	EntityManager em;
+
+	@Autowired
+	SearchIndex searchIndex;
+
+	// Find students where the last name starts with the query, or is one typing mistake away from it
+	public List<Student> searchStudents(String query, boolean fuzzy, int limit) {
+		Set<Long> ids = searchIndex.searchStudents(query, fuzzy, limit);
+		return findInOrder(Student.class, "select s from Student s where s.id in :ids", ids, Student::getId);
+	}
+
+	// Find courses where the name starts with the query, or is one typing mistake away from it
+	public List<Course> searchCourses(String query, boolean fuzzy, int limit) {
+		Set<Long> ids = searchIndex.searchCourses(query, fuzzy, limit);
+		return findInOrder(Course.class, "select c from Course c where c.id in :ids", ids, Course::getId);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void buildOnStartup() {
+		rebuild();
+	}
+
+	/*
+	 * Read the names of all the students and courses from the database and replace the indexes.
+	 * 
+	 * Only the id and the name columns are selected, no entities are added to the Persistence 
+	 * Context. The rows are read in chunks ordered by the primary key so that a large table is
+	 * not loaded into memory at once.
+	 */
+	public synchronized void rebuild() {
+
+		long start = System.currentTimeMillis();
+		IndexRebuild[] indexes = searchIndex.startRebuild();
+		try {
+			readNames("select s.id, s.lastName from Student s where s.id > :lastId order by s.id", indexes[0]);
+			readNames("select c.id, c.name from Course c where c.id > :lastId order by c.id", indexes[1]);
+			searchIndex.finishRebuild();
+		} catch (RuntimeException e) {
+			searchIndex.cancelRebuild();
+			throw e;
+		}
+
+		logger.info("Search index rebuilt with {} students and {} courses in {} ms", 
+				searchIndex.studentCount(), searchIndex.courseCount(), System.currentTimeMillis() - start);
+	}
+
+	// The rows that are saved or deleted during the rebuild are skipped, see the IndexRebuild class
+	private void readNames(String query, IndexRebuild index) {
+
+		Long lastId = Long.MIN_VALUE;
+		List<Object[]> rows;
+		do {
+			rows = em.createQuery(query, Object[].class)
+					.setParameter("lastId", lastId)
+					.setMaxResults(REBUILD_CHUNK_SIZE)
+					.getResultList();
+
+			for (Object[] row : rows) {
+				lastId = (Long) row[0];
+				index.putRead(lastId, (String) row[1]);
+			}
+		} while (rows.size() == REBUILD_CHUNK_SIZE);
+	}
+
+	// Retrieve the entities with the ids and return them in the order of the search result
+	private <T> List<T> findInOrder(Class<T> type, String query, Set<Long> ids, Function<T, Long> idOf) {
+
+		if (ids.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		Map<Long, T> byId = em.createQuery(query, type)
+				.setParameter("ids", ids)
+				.getResultList()
+				.stream()
+				.collect(Collectors.toMap(idOf, Function.identity()));
+
+		List<T> result = new ArrayList<>(ids.size());
+		for (Long id : ids) {
+			T entity = byId.get(id);
+			if (entity != null) {
+				result.add(entity);
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,45 @@
+package com.kokabmedia.jpa.school.search;
+
+import org.springframework.stereotype.Component;
+
+import com.kokabmedia.jpa.school.entity.Student;
+
+// Builds the index of the student last names again, see the SearchIndexJob
+@Component
+public class StudentSearchIndexJob extends SearchIndexJob<Student> {
+
+	@Override
+	public String getName() {
+		return "student-search-index";
+	}
+
+	@Override
+	public Class<Student> getEntityType() {
+		return Student.class;
+	}
+
+	@Override
+	IndexRebuild startRebuild() {
+		return searchIndex.startStudentRebuild();
+	}
+
+	@Override
+	void finishRebuild() {
+		searchIndex.finishStudentRebuild();
+	}
+
+	@Override
+	void cancelRebuild() {
+		searchIndex.cancelStudentRebuild();
+	}
+
+	@Override
+	Long idOf(Student student) {
+		return student.getId();
+	}
+
+	@Override
+	String nameOf(Student student) {
+		return student.getLastName();
+	}
+}
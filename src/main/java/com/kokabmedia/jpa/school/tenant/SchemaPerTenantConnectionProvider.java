@@ -0,0 +1,119 @@
+package com.kokabmedia.jpa.school.tenant;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.hibernate.engine.jdbc.connections.spi.MultiTenantConnectionProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/*
+ * This class gives Hibernate the connections of a tenant, a connection of the shared pool is 
+ * switched to the schema of the tenant with Connection.setSchema() and switched back to the 
+ * PUBLIC schema when it is returned to the pool.
+ * 
+ * When the connections per tenant are limited, see TenantRegistry, a tenant waits up to 
+ * school.tenancy.connection-timeout-ms for a permit before it gets a connection from the pool.
+ */
+@Component
+public class SchemaPerTenantConnectionProvider implements MultiTenantConnectionProvider {
+
+	private static final long serialVersionUID = 1L;
+
+	@Autowired
+	transient DataSource dataSource;
+
+	@Autowired
+	transient TenantRegistry tenantRegistry;
+
+	@Value("${school.tenancy.connection-timeout-ms:30000}")
+	long connectionTimeoutMs;
+
+	// A connection without a tenant, Hibernate uses it for the schema and the metadata
+	@Override
+	public Connection getAnyConnection() throws SQLException {
+		return dataSource.getConnection();
+	}
+
+	@Override
+	public void releaseAnyConnection(Connection connection) throws SQLException {
+		connection.close();
+	}
+
+	@Override
+	public Connection getConnection(String tenant) throws SQLException {
+
+		String schema = tenantRegistry.schemaOf(tenant);
+		Semaphore permits = tenantRegistry.connectionPermits(tenant);
+		acquire(permits, tenant);
+
+		try {
+			Connection connection = dataSource.getConnection();
+			try {
+				connection.setSchema(schema);
+				return connection;
+			} catch (SQLException e) {
+				connection.close();
+				throw e;
+			}
+		} catch (SQLException | RuntimeException e) {
+			if (permits != null) {
+				permits.release();
+			}
+			throw e;
+		}
+	}
+
+	@Override
+	public void releaseConnection(String tenant, Connection connection) throws SQLException {
+		try {
+			connection.setSchema(TenantRegistry.DEFAULT_SCHEMA);
+		} finally {
+			connection.close();
+			Semaphore permits = tenantRegistry.connectionPermits(tenant);
+			if (permits != null) {
+				permits.release();
+			}
+		}
+	}
+
+	@Override
+	public boolean supportsAggressiveRelease() {
+		return false;
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public boolean isUnwrappableAs(Class type) {
+		return type.isInstance(this);
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> type) {
+		if (isUnwrappableAs(type)) {
+			return type.cast(this);
+		}
+		throw new IllegalArgumentException("Cannot unwrap to " + type);
+	}
+
+	private void acquire(Semaphore permits, String tenant) throws SQLException {
+		if (permits == null) {
+			return;
+		}
+		try {
+			if (!permits.tryAcquire(connectionTimeoutMs, TimeUnit.MILLISECONDS)) {
+				throw new SQLTransientConnectionException("School " + tenant + " has no free connection after "
+						+ connectionTimeoutMs + " ms");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLTransientConnectionException("Interrupted while waiting for a connection", e);
+		}
+	}
+}
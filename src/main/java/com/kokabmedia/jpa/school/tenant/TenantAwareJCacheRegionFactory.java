@@ -0,0 +1,73 @@
+package com.kokabmedia.jpa.school.tenant;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+
+import org.ehcache.config.CacheRuntimeConfiguration;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+/*
+ * This class is the JCache region factory of Hibernate with a separate cache for every tenant
+ * in every region, the caches are Ehcache 3 caches that are configured in ehcache.xml.
+ *
+ * The entity, collection, natural id and query cache regions are TenantAwareStorageAccess
+ * objects that store the data of a tenant in the cache "<region>@<tenant>", the default tenant
+ * uses the cache of the region itself. The cache of a tenant is created with a copy of the
+ * configuration of the region, with the same heap, off heap and disk sizes. Every cache has its
+ * own size limit, the entries of one large school do not evict the entries of another school.
+ *
+ * The update timestamps region stays shared, an update of a table in one school makes the cached
+ * queries on that table of every school stale. That costs a few cache misses but never returns
+ * an outdated result.
+ *
+ * The cache keys do not need the tenant anymore, hibernate.cache.keys_factory=simple is set so
+ * that an eviction with the EntityManagerFactory Cache, which creates a key without a tenant,
+ * finds the cached entry.
+ */
+public class TenantAwareJCacheRegionFactory extends JCacheRegionFactory {
+
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+			DomainDataRegionBuildingContext buildingContext) {
+		SessionFactoryImplementor sessionFactory = buildingContext.getSessionFactory();
+		return new TenantAwareStorageAccess(tenant -> cache(regionConfig.getRegionName(), tenant, sessionFactory));
+	}
+
+	@Override
+	protected StorageAccess createQueryResultsRegionStorageAccess(String regionName,
+			SessionFactoryImplementor sessionFactory) {
+		return new TenantAwareStorageAccess(tenant -> cache(regionName, tenant, sessionFactory));
+	}
+
+	private synchronized Cache<Object, Object> cache(String regionName, String tenant,
+			SessionFactoryImplementor sessionFactory) {
+
+		Cache<Object, Object> regionCache = getOrCreateCache(regionName, sessionFactory);
+		if (TenantContext.DEFAULT_TENANT.equals(tenant)) {
+			return regionCache;
+		}
+
+		String name = regionName + "@" + tenant;
+		CacheManager cacheManager = getCacheManager();
+		Cache<Object, Object> cache = cacheManager.getCache(name);
+		return cache != null ? cache : cacheManager.createCache(name, copyOf(regionCache));
+	}
+
+	// The Ehcache configuration of the region, the tiers and sizes of ehcache.xml
+	@SuppressWarnings("unchecked")
+	private static javax.cache.configuration.Configuration<Object, Object> copyOf(Cache<Object, Object> regionCache) {
+		CacheRuntimeConfiguration<Object, Object> configuration = regionCache
+				.getConfiguration(Eh107Configuration.class).unwrap(CacheRuntimeConfiguration.class);
+		return Eh107Configuration.fromEhcacheCacheConfiguration(
+				CacheConfigurationBuilder.newCacheConfigurationBuilder(configuration));
+	}
+}
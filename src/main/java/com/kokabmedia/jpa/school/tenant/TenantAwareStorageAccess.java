@@ -0,0 +1,65 @@
+package com.kokabmedia.jpa.school.tenant;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import javax.cache.Cache;
+
+import org.hibernate.cache.jcache.internal.JCacheAccessImpl;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+/*
+ * This class is one cache region of Hibernate that keeps the data of every tenant in its own 
+ * cache, see the TenantAwareJCacheRegionFactory.
+ * 
+ * The tenant is the tenant of the Session, the methods without a Session use the tenant of the 
+ * current thread. evictData() without a key clears the caches of every tenant.
+ */
+class TenantAwareStorageAccess implements DomainDataStorageAccess {
+
+	private final Function<String, Cache<Object, Object>> cacheFactory;
+	private final ConcurrentMap<String, JCacheAccessImpl> tenants = new ConcurrentHashMap<>();
+
+	TenantAwareStorageAccess(Function<String, Cache<Object, Object>> cacheFactory) {
+		this.cacheFactory = cacheFactory;
+	}
+
+	private JCacheAccessImpl storage(SharedSessionContractImplementor session) {
+		String tenant = session == null || session.getTenantIdentifier() == null ? TenantContext.get()
+				: session.getTenantIdentifier();
+		return tenants.computeIfAbsent(tenant, key -> new JCacheAccessImpl(cacheFactory.apply(key)));
+	}
+
+	@Override
+	public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+		return storage(session).getFromCache(key, session);
+	}
+
+	@Override
+	public void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+		storage(session).putIntoCache(key, value, session);
+	}
+
+	@Override
+	public boolean contains(Object key) {
+		return storage(null).contains(key);
+	}
+
+	@Override
+	public void evictData() {
+		tenants.values().forEach(JCacheAccessImpl::evictData);
+	}
+
+	@Override
+	public void evictData(Object key) {
+		storage(null).evictData(key);
+	}
+
+	@Override
+	public void release() {
+		tenants.values().forEach(JCacheAccessImpl::release);
+		tenants.clear();
+	}
+}
@@ -0,0 +1,33 @@
+package com.kokabmedia.jpa.school.tenant;
+
+import org.hibernate.MultiTenancyStrategy;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/*
+ * This class configures Hibernate for schema per tenant multi tenancy, every school has its own
+ * database schema, see the TenantRegistry. The connection provider and the tenant resolver are 
+ * passed as Spring beans, Hibernate would otherwise create its own instances without the 
+ * DataSource.
+ */
+@Configuration
+public class TenantConfig {
+
+	@Autowired
+	SchemaPerTenantConnectionProvider connectionProvider;
+
+	@Autowired
+	TenantIdentifierResolver tenantIdentifierResolver;
+
+	@Bean
+	public HibernatePropertiesCustomizer tenantHibernateProperties() {
+		return properties -> {
+			properties.put(AvailableSettings.MULTI_TENANT, MultiTenancyStrategy.SCHEMA);
+			properties.put(AvailableSettings.MULTI_TENANT_CONNECTION_PROVIDER, connectionProvider);
+			properties.put(AvailableSettings.MULTI_TENANT_IDENTIFIER_RESOLVER, tenantIdentifierResolver);
+		};
+	}
+}
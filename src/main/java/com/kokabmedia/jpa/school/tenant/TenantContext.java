@@ -0,0 +1,64 @@
+package com.kokabmedia.jpa.school.tenant;
+
+import java.util.function.Supplier;
+
+/*
+ * This class holds the tenant, the school, of the current thread.
+ * 
+ * The TenantFilter sets the tenant of a request from the X-School-Id header, background threads
+ * like the writer thread of the ReviewIngestionQueue set it with runAs() for the work of one 
+ * school. Hibernate reads it with the TenantIdentifierResolver when a Session is opened, the 
+ * Session then uses the schema of the tenant for all its statements.
+ * 
+ * A thread without a tenant uses the DEFAULT_TENANT, the school of the PUBLIC schema with the 
+ * rows of the seed migration.
+ */
+public final class TenantContext {
+
+	public static final String DEFAULT_TENANT = "default";
+
+	private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+	private TenantContext() {
+	}
+
+	// The tenant of the current thread, or the default tenant
+	public static String get() {
+		String tenant = CURRENT.get();
+		return tenant == null ? DEFAULT_TENANT : tenant;
+	}
+
+	public static boolean isDefault() {
+		return DEFAULT_TENANT.equals(get());
+	}
+
+	static void set(String tenant) {
+		CURRENT.set(tenant);
+	}
+
+	static void clear() {
+		CURRENT.remove();
+	}
+
+	// Run the task with the tenant, the previous tenant of the thread is restored afterwards
+	public static void runAs(String tenant, Runnable task) {
+		callAs(tenant, () -> {
+			task.run();
+			return null;
+		});
+	}
+
+	public static <T> T callAs(String tenant, Supplier<T> task) {
+		String previous = CURRENT.get();
+		CURRENT.set(tenant);
+		try {
+			return task.get();
+		} finally {
+			if (previous == null) {
+				CURRENT.remove();
+			} else {
+				CURRENT.set(previous);
+			}
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package com.kokabmedia.jpa.school.tenant;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/*
+ * This filter sets the tenant of a request from the school.tenancy.header header, X-School-Id by
+ * default. A request without the header belongs to the default school, a request for a school 
+ * that is not listed in school.tenancy.tenants is answered with 400 Bad Request.
+ * 
+ * The filter runs before the OpenEntityManagerInViewInterceptor opens the EntityManager of the 
+ * request, the Session is opened for the tenant of the request.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class TenantFilter extends OncePerRequestFilter {
+
+	@Value("${school.tenancy.header:X-School-Id}")
+	String header;
+
+	@Autowired
+	TenantRegistry tenantRegistry;
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+
+		String tenant = request.getHeader(header);
+		if (tenant == null || tenant.isEmpty()) {
+			tenant = TenantContext.DEFAULT_TENANT;
+		} else if (!tenantRegistry.exists(tenant)) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown school " + tenant);
+			return;
+		}
+
+		TenantContext.set(tenant);
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			TenantContext.clear();
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package com.kokabmedia.jpa.school.tenant;
+
+import org.hibernate.context.spi.CurrentTenantIdentifierResolver;
+import org.springframework.stereotype.Component;
+
+/*
+ * This class tells Hibernate the tenant of the current thread when a Session is opened.
+ */
+@Component
+public class TenantIdentifierResolver implements CurrentTenantIdentifierResolver {
+
+	@Override
+	public String resolveCurrentTenantIdentifier() {
+		return TenantContext.get();
+	}
+
+	// A Session that is used by a thread with another tenant is an error
+	@Override
+	public boolean validateExistingCurrentSessions() {
+		return true;
+	}
+}
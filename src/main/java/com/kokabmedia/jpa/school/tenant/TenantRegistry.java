@@ -0,0 +1,72 @@
+package com.kokabmedia.jpa.school.tenant;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/*
+ * This class knows the tenants, the schools, of the deployment and the database schema of each.
+ * 
+ * The tenants are listed in the school.tenancy.tenants property. The default tenant uses the 
+ * PUBLIC schema, another tenant uses the schema SCHOOL_<TENANT>, for example SCHOOL_NORTH for 
+ * the tenant north.
+ * 
+ * With school.tenancy.max-connections-per-tenant a tenant can use only a part of the connection
+ * pool, the load of one large school then does not take all the connections of the other schools.
+ */
+@Component
+public class TenantRegistry {
+
+	public static final String DEFAULT_SCHEMA = "PUBLIC";
+
+	private static final Pattern TENANT_ID = Pattern.compile("[a-z][a-z0-9_]{0,30}");
+
+	private final Set<String> tenants = new LinkedHashSet<>();
+	private final int maxConnectionsPerTenant;
+	private final ConcurrentMap<String, Semaphore> connectionPermits = new ConcurrentHashMap<>();
+
+	public TenantRegistry(@Value("${school.tenancy.tenants:default}") List<String> tenants,
+			@Value("${school.tenancy.max-connections-per-tenant:0}") int maxConnectionsPerTenant) {
+
+		this.tenants.add(TenantContext.DEFAULT_TENANT);
+		for (String tenant : tenants) {
+			String id = tenant.trim();
+			if (!TENANT_ID.matcher(id).matches()) {
+				throw new IllegalArgumentException("Invalid tenant id " + id + ", use lower case letters, digits and _");
+			}
+			this.tenants.add(id);
+		}
+		this.maxConnectionsPerTenant = maxConnectionsPerTenant;
+	}
+
+	public Set<String> getTenants() {
+		return tenants;
+	}
+
+	public boolean exists(String tenant) {
+		return tenants.contains(tenant);
+	}
+
+	public String schemaOf(String tenant) {
+		if (!exists(tenant)) {
+			throw new UnknownTenantException(tenant);
+		}
+		return TenantContext.DEFAULT_TENANT.equals(tenant) ? DEFAULT_SCHEMA : "SCHOOL_" + tenant.toUpperCase(Locale.ROOT);
+	}
+
+	// The connection permits of a tenant, or null when the connections are not limited
+	Semaphore connectionPermits(String tenant) {
+		if (maxConnectionsPerTenant <= 0) {
+			return null;
+		}
+		return connectionPermits.computeIfAbsent(tenant, key -> new Semaphore(maxConnectionsPerTenant, true));
+	}
+}
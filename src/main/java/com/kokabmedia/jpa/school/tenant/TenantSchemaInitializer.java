@@ -0,0 +1,79 @@
+package com.kokabmedia.jpa.school.tenant;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/*
+ * This class creates or migrates the schema of every tenant that is not the default tenant.
+ * 
+ * Spring Boot applies the Flyway migrations to the PUBLIC schema of the default tenant. The 
+ * migrations of the db/migration location are applied to the schema of every other tenant in 
+ * the same way, Flyway creates the schema and keeps a flyway_schema_history table in it. The 
+ * seed migration in db/seed is left out, the initial rows only belong to the default school.
+ * 
+ * A migration that is added later is applied to the existing tenant schemas on the next start 
+ * as well, in the persistent mode the schemas of all schools have the same tables.
+ * 
+ * With school.flyway.clean-on-start=true the tables of the tenant schemas are dropped before the
+ * migrations are applied, like the PUBLIC schema in the DatabaseMigrationConfig. The tests share
+ * one in memory database, without it the rows of a school stay from one Application Context to
+ * the next.
+ */
+@Component
+@Lazy(false) // Create the schemas also when spring.main.lazy-initialization=true is set
+public class TenantSchemaInitializer {
+
+	// The tables without the seed data of the default school
+	static final String MIGRATIONS = "classpath:db/migration";
+
+	// For logging purposes
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	@Autowired
+	DataSource dataSource;
+
+	@Autowired
+	TenantRegistry tenantRegistry;
+
+	@Value("${school.flyway.clean-on-start:false}")
+	boolean cleanOnStart;
+
+	// A schema that was created before the migrations is recorded as migrated to V1, see application-persistent.properties
+	@Value("${spring.flyway.baseline-on-migrate:false}")
+	boolean baselineOnMigrate;
+
+	@PostConstruct
+	public void createSchemas() {
+
+		for (String tenant : tenantRegistry.getTenants()) {
+			String schema = tenantRegistry.schemaOf(tenant);
+			if (TenantRegistry.DEFAULT_SCHEMA.equals(schema)) {
+				continue;
+			}
+
+			Flyway flyway = Flyway.configure()
+					.dataSource(dataSource)
+					.schemas(schema)
+					.locations(MIGRATIONS)
+					.baselineOnMigrate(baselineOnMigrate)
+					.baselineVersion("1")
+					.load();
+			if (cleanOnStart) {
+				flyway.clean();
+			}
+			MigrateResult result = flyway.migrate();
+			if (result.migrationsExecuted > 0) {
+				logger.info("Applied {} migrations to schema {} for school {}", result.migrationsExecuted, schema, tenant);
+			}
+		}
+	}
+}
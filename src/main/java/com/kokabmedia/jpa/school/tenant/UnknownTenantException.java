@@ -0,0 +1,13 @@
+package com.kokabmedia.jpa.school.tenant;
+
+/*
+ * This exception is thrown for a tenant that is not listed in school.tenancy.tenants.
+ */
+public class UnknownTenantException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public UnknownTenantException(String tenant) {
+		super("Unknown school " + tenant);
+	}
+}
@@ -0,0 +1,38 @@
+package com.kokabmedia.jpa.school.web;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.kokabmedia.jpa.school.outbox.ChangeEvent;
+import com.kokabmedia.jpa.school.outbox.ChangeEventSource;
+
+/*
+ * This class lets downstream systems stream the changes published by the OutboxRelay.
+ * 
+ * GET /changes?offset=0&max=100 returns the first events, the next call is done with the 
+ * nextOffset of the last event that was returned. An empty list means that there are no 
+ * newer changes yet. An offset that is not the start of an event is answered with 400 Bad 
+ * Request.
+ */
+@RestController
+public class ChangesController {
+
+	@Autowired
+	ChangeEventSource changeEventSource;
+
+	@GetMapping("/changes")
+	public List<ChangeEvent> changes(@RequestParam(defaultValue = "0") long offset,
+			@RequestParam(defaultValue = "100") int max) {
+		try {
+			return changeEventSource.read(offset, Math.min(max, 1000));
+		} catch (IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package com.kokabmedia.jpa.school.web;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.kokabmedia.jpa.school.entity.Course;
+import com.kokabmedia.jpa.school.feed.CourseFeedBroadcaster;
+import com.kokabmedia.jpa.school.ingest.ReviewIngestionQueue;
+import com.kokabmedia.jpa.school.ingest.ReviewSubmission;
+import com.kokabmedia.jpa.school.repository.CourseRepository;
+
+/*
+ * This class exposes the courses with a REST API.
+ * 
+ * GET  /courses/{id}          the course with its enrollment and review counters, with an ETag,
+ *                             as JSON or application/x-school-binary, see the ResponseCache
+ * GET  /courses/{id}/reviews  all reviews of the course in one JSON array, see the 
+ *                             ReactiveCourseController for the reviews as a stream
+ * GET  /courses/{id}/feed     the new reviews and enrollment changes of the course as server 
+ *                             sent events, see the CourseFeedBroadcaster
+ * POST /courses/{id}/reviews  submit a review {"description": "...", "rating": "5"}, the review
+ *                             is written by the ReviewIngestionQueue in the background
+ * 
+ * A review is answered with 202 Accepted when it is queued and 503 Service Unavailable when the 
+ * queue is full.
+ */
+@RestController
+@RequestMapping("/courses")
+public class CourseController {
+
+	@Autowired
+	CourseRepository courseRepository;
+
+	@Autowired
+	ReviewIngestionQueue reviewIngestionQueue;
+
+	@Autowired
+	CourseFeedBroadcaster courseFeedBroadcaster;
+
+	@Autowired
+	ResponseCache responseCache;
+
+	// Answered with 304 Not Modified when the ETag of the request is the version of the course
+	@GetMapping("/{id}")
+	public ResponseEntity<byte[]> course(@PathVariable Long id, WebRequest request) {
+		return responseCache.respond(request, "Course " + id, () -> courseRepository.findVersion(id), () -> {
+			Course course = courseRepository.findById(id);
+			return course == null ? null : new CourseResponse(course, courseRepository.findCounters(id));
+		}, ReadModelCodec::encodeCourse);
+	}
+
+	// The reviews are loaded at once and the request thread writes the response until the client has read it
+	@GetMapping("/{id}/reviews")
+	public List<ReviewResponse> reviews(@PathVariable Long id) {
+		Course course = courseRepository.findById(id);
+		if (course == null) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Course " + id + " not found");
+		}
+		// Not course.getReviews(), it would select the lazy description of every review separately
+		return courseRepository.findReviews(id).stream().map(ReviewResponse::new).collect(Collectors.toList());
+	}
+
+	@GetMapping(value = "/{id}/feed", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter feed(@PathVariable Long id) {
+		if (courseRepository.findById(id) == null) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Course " + id + " not found");
+		}
+		return courseFeedBroadcaster.subscribe(id);
+	}
+
+	@PostMapping("/{id}/reviews")
+	@ResponseStatus(HttpStatus.ACCEPTED)
+	public void addReview(@PathVariable Long id, @RequestBody ReviewRequest review) {
+		if (!reviewIngestionQueue.submit(new ReviewSubmission(id, review.getDescription(), review.getRating()))) {
+			throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many reviews waiting");
+		}
+	}
+
+	// The JSON body of a submitted review
+	public static class ReviewRequest {
+
+		private String description;
+		private String rating;
+
+		public String getDescription() {
+			return description;
+		}
+
+		public void setDescription(String description) {
+			this.description = description;
+		}
+
+		public String getRating() {
+			return rating;
+		}
+
+		public void setRating(String rating) {
+			this.rating = rating;
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package com.kokabmedia.jpa.school.web;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.kokabmedia.jpa.school.entity.Course;
+import com.kokabmedia.jpa.school.repository.CourseCounters;
+
+/*
+ * This class is the JSON representation of a Course with its counters, the lazy reviews and 
+ * students of the Course are not serialized.
+ */
+public class CourseResponse {
+
+	private final Long id;
+	private final String name;
+	private final Integer capacity;
+	private final int enrolledCount;
+	private final int reviewCount;
+	private final Double averageRating;
+
+	// The counters are read separately, see CourseRepository.findCounters()
+	public CourseResponse(Course course, CourseCounters counters) {
+		this.id = course.getId();
+		this.name = course.getName();
+		this.capacity = course.getCapacity();
+		this.enrolledCount = counters.getEnrolledCount();
+		this.reviewCount = counters.getReviewCount();
+		this.averageRating = counters.getAverageRating();
+	}
+
+	// A course that is read from JSON or from the binary format of the ReadModelCodec
+	@JsonCreator
+	public CourseResponse(@JsonProperty("id") Long id, @JsonProperty("name") String name,
+			@JsonProperty("capacity") Integer capacity, @JsonProperty("enrolledCount") int enrolledCount,
+			@JsonProperty("reviewCount") int reviewCount, @JsonProperty("averageRating") Double averageRating) {
+		this.id = id;
+		this.name = name;
+		this.capacity = capacity;
+		this.enrolledCount = enrolledCount;
+		this.reviewCount = reviewCount;
+		this.averageRating = averageRating;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Integer getCapacity() {
+		return capacity;
+	}
+
+	public int getEnrolledCount() {
+		return enrolledCount;
+	}
+
+	public int getReviewCount() {
+		return reviewCount;
+	}
+
+	public Double getAverageRating() {
+		return averageRating;
+	}
+}
@@ -0,0 +1,24 @@
+package com.kokabmedia.jpa.school.web;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.kokabmedia.jpa.school.tenant.TenantContext;
+
+/*
+ * The in memory read models, the term reports and the search indexes, are built from the tables
+ * of the default school only. A request for another school is answered with 501 Not Implemented
+ * instead of with the data of the default school.
+ */
+final class DefaultSchool {
+
+	private DefaultSchool() {
+	}
+
+	static void require(String feature) {
+		if (!TenantContext.isDefault()) {
+			throw new ResponseStatusException(HttpStatus.NOT_IMPLEMENTED,
+					feature + " is only available for the default school");
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package com.kokabmedia.jpa.school.web;
+
+import com.kokabmedia.jpa.school.entity.Student;
+
+/*
+ * This class is the JSON representation of a student that is enrolled in a course.
+ */
+public class EnrollmentResponse {
+
+	private final Long courseId;
+	private final Long studentId;
+	private final String firstName;
+	private final String lastName;
+
+	public EnrollmentResponse(Long courseId, Student student) {
+		this.courseId = courseId;
+		this.studentId = student.getId();
+		this.firstName = student.getFirstName();
+		this.lastName = student.getLastName();
+	}
+
+	public Long getCourseId() {
+		return courseId;
+	}
+
+	public Long getStudentId() {
+		return studentId;
+	}
+
+	public String getFirstName() {
+		return firstName;
+	}
+
+	public String getLastName() {
+		return lastName;
+	}
+}
@@ -0,0 +1,47 @@
+package com.kokabmedia.jpa.school.web;
+
+import java.util.List;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+/*
+ * This class turns a blocking query for the page after an id into a Flux of the rows.
+ * 
+ * Flux.generate() calls the query for one page at the time, only when the subscriber has taken 
+ * the rows of the previous page. A slow client therefore stops the queries instead of filling 
+ * the memory with rows that it cannot receive yet, at most one page is held per connection. The
+ * page starts after the last id of the previous page, see CourseRepository.findPageAfter().
+ * 
+ * The queries block a thread of the JDBC driver, they run on the bounded elastic Scheduler of 
+ * Reactor and not on the thread of the request. The bounded elastic Scheduler has at most ten 
+ * threads per CPU core, the rest of the pages wait in its queue.
+ */
+final class KeysetFlux {
+
+	// The state after the last page, the ids of the rows never reach it
+	private static final long DONE = Long.MAX_VALUE;
+
+	private KeysetFlux() {
+	}
+
+	static <T> Flux<T> of(LongFunction<List<T>> pageAfter, ToLongFunction<T> idOf, int pageSize) {
+
+		Flux<List<T>> pages = Flux.<List<T>, Long>generate(() -> Long.MIN_VALUE, (afterId, sink) -> {
+			List<T> page = afterId == DONE ? List.of() : pageAfter.apply(afterId);
+			if (page.isEmpty()) {
+				sink.complete();
+				return DONE;
+			}
+			sink.next(page);
+			// A short page is the last page, no query is needed to find out that there are no more rows
+			return page.size() < pageSize ? DONE : idOf.applyAsLong(page.get(page.size() - 1));
+		});
+
+		// Request the next page only when the rows of the current page are sent
+		return pages.concatMapIterable(page -> page, 1)
+				.subscribeOn(Schedulers.boundedElastic());
+	}
+}
@@ -0,0 +1,34 @@
+package com.kokabmedia.jpa.school.web;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/*
+ * This class registers the OpenEntityManagerInViewInterceptor that keeps the EntityManager of a 
+ * request open until the response is written, the lazy relations can then be read by the 
+ * controllers. spring.jpa.open-in-view=false turns off the interceptor of Spring Boot that is 
+ * registered for every request.
+ * 
+ * The EntityManager of an asynchronous request stays open until the response is complete. The 
+ * course feeds and the streams of the ReactiveCourseController can stay open for a long time 
+ * and do not use the EntityManager of the request, they are excluded so that an open connection
+ * does not hold a Hibernate Session.
+ */
+@Configuration
+public class OpenEntityManagerInViewConfig implements WebMvcConfigurer {
+
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		OpenEntityManagerInViewInterceptor interceptor = new OpenEntityManagerInViewInterceptor();
+		interceptor.setEntityManagerFactory(entityManagerFactory);
+		registry.addWebRequestInterceptor(interceptor).excludePathPatterns("/courses/*/feed", "/reactive/**");
+	}
+}
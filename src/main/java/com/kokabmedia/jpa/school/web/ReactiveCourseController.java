@@ -0,0 +1,133 @@
+package com.kokabmedia.jpa.school.web;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.kokabmedia.jpa.school.entity.Course;
+import com.kokabmedia.jpa.school.repository.CourseCounters;
+import com.kokabmedia.jpa.school.repository.CourseRepository;
+import com.kokabmedia.jpa.school.repository.StudentRepository;
+import com.kokabmedia.jpa.school.tenant.TenantContext;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/*
+ * This class exposes the courses, reviews and enrollments with a non blocking REST API for the
+ * streaming dashboards that keep many connections open.
+ * 
+ * GET /reactive/courses                   all courses, one JSON object per line
+ * GET /reactive/courses/{id}              the course with its counters
+ * GET /reactive/courses/{id}/reviews      the reviews of the course, one JSON object per line
+ * GET /reactive/courses/{id}/enrollments  the students of the course, one JSON object per line
+ * 
+ * Spring MVC writes a Flux as newline delimited JSON (application/x-ndjson) while the elements
+ * arrive. The request thread is returned to Tomcat when the method returns, the response is 
+ * written with an asynchronous request. Every element is sent when the previous element is 
+ * written, the rows are read with the KeysetFlux one page at the time as they are sent.
+ * 
+ * The repositories are called on the threads of the bounded elastic Scheduler, the school of 
+ * the request is taken along to those threads. Every page is read and converted to JSON objects 
+ * in its own read only transaction, the lazy fields are read before the transaction ends.
+ * 
+ * The reviews and enrollments of a course that does not exist or is soft deleted are answered
+ * with 404 Not Found like the course itself, the course is looked up before the first page.
+ */
+@RestController
+@RequestMapping("/reactive/courses")
+public class ReactiveCourseController {
+
+	@Value("${school.reactive.page-size:100}")
+	int pageSize;
+
+	@Autowired
+	CourseRepository courseRepository;
+
+	@Autowired
+	StudentRepository studentRepository;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public Flux<CourseResponse> courses() {
+		String tenant = TenantContext.get();
+		return KeysetFlux.of(afterId -> page(tenant, () -> withCounters(courseRepository.findPageAfter(afterId, pageSize)),
+				Function.identity()), CourseResponse::getId, pageSize);
+	}
+
+	@GetMapping("/{id}")
+	public Mono<CourseResponse> course(@PathVariable Long id) {
+		String tenant = TenantContext.get();
+		return Mono.fromCallable(() -> TenantContext.callAs(tenant, () -> readOnly().execute(status -> {
+			Course course = courseRepository.findById(id);
+			return course == null ? null : new CourseResponse(course, courseRepository.findCounters(id));
+		})))
+				.subscribeOn(Schedulers.boundedElastic())
+				.switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+						"Course " + id + " not found")));
+	}
+
+	@GetMapping(value = "/{id}/reviews", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public Flux<ReviewResponse> reviews(@PathVariable Long id) {
+		String tenant = TenantContext.get();
+		return ofCourse(tenant, id, KeysetFlux.of(afterId -> page(tenant,
+				() -> courseRepository.findReviewsAfter(id, afterId, pageSize), ReviewResponse::new),
+				ReviewResponse::getId, pageSize));
+	}
+
+	@GetMapping(value = "/{id}/enrollments", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public Flux<EnrollmentResponse> enrollments(@PathVariable Long id) {
+		String tenant = TenantContext.get();
+		return ofCourse(tenant, id, KeysetFlux.of(afterId -> page(tenant,
+				() -> studentRepository.findEnrolledAfter(id, afterId, pageSize),
+				student -> new EnrollmentResponse(id, student)), EnrollmentResponse::getStudentId, pageSize));
+	}
+
+	// The rows of a course, or 404 Not Found when the course does not exist or is soft deleted
+	private <T> Flux<T> ofCourse(String tenant, Long id, Flux<T> rows) {
+		return Mono.fromCallable(() -> TenantContext.callAs(tenant,
+				() -> readOnly().execute(status -> courseRepository.findById(id) != null)))
+				.subscribeOn(Schedulers.boundedElastic())
+				.flatMapMany(exists -> exists ? rows : Flux.error(new ResponseStatusException(HttpStatus.NOT_FOUND,
+						"Course " + id + " not found")));
+	}
+
+	// Read a page for the school and convert the entities in the same transaction
+	private <E, T> List<T> page(String tenant, Supplier<List<E>> query, Function<E, T> converter) {
+		return TenantContext.callAs(tenant, () -> readOnly().execute(status -> query.get().stream()
+				.map(converter)
+				.collect(Collectors.toList())));
+	}
+
+	// The counters of the courses of a page are read with one query
+	private List<CourseResponse> withCounters(List<Course> courses) {
+		Map<Long, CourseCounters> counters = courseRepository.findCounters(
+				courses.stream().map(Course::getId).collect(Collectors.toList()));
+		return courses.stream()
+				.map(course -> new CourseResponse(course, counters.get(course.getId())))
+				.collect(Collectors.toList());
+	}
+
+	private TransactionTemplate readOnly() {
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		transaction.setReadOnly(true);
+		return transaction;
+	}
+}
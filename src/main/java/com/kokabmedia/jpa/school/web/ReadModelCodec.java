@@ -0,0 +1,98 @@
+package com.kokabmedia.jpa.school.web;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.http.MediaType;
+
+import com.kokabmedia.jpa.school.codec.BinaryReader;
+import com.kokabmedia.jpa.school.codec.BinaryWriter;
+
+/*
+ * This class converts the CourseResponse and the StudentExport to and from a compact binary 
+ * format. The ResponseCache keeps the responses in this format and a client that accepts the
+ * application/x-school-binary media type receives it instead of JSON.
+ * 
+ * The first byte is the schema of the read model, the fields follow in the order of the schema
+ * without names, see the BinaryWriter for the encoding of the values. A new field is added with a
+ * new schema number, the reader of a client rejects a schema that it does not know.
+ * 
+ * CourseResponse, schema 1:
+ *   id (signed varint), name (string), capacity (nullable varint), enrolledCount (signed varint),
+ *   reviewCount (signed varint), averageRating (nullable double)
+ * 
+ * StudentExport, schema 2:
+ *   id (signed varint), firstName (string), lastName (string), passportNumber (string),
+ *   number of courses (varint), for every course id (signed varint) and name (string)
+ */
+public final class ReadModelCodec {
+
+	public static final String MEDIA_TYPE_VALUE = "application/x-school-binary";
+	public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+	static final int COURSE_SCHEMA = 1;
+	static final int STUDENT_SCHEMA = 2;
+
+	private ReadModelCodec() {
+	}
+
+	public static byte[] encodeCourse(CourseResponse course) {
+		BinaryWriter writer = new BinaryWriter(32 + length(course.getName()));
+		writer.writeByte(COURSE_SCHEMA)
+				.writeSignedVarLong(course.getId())
+				.writeString(course.getName())
+				.writeNullableInt(course.getCapacity())
+				.writeSignedVarLong(course.getEnrolledCount())
+				.writeSignedVarLong(course.getReviewCount())
+				.writeNullableDouble(course.getAverageRating());
+		return writer.toByteArray();
+	}
+
+	public static CourseResponse decodeCourse(byte[] bytes) {
+		BinaryReader reader = schema(bytes, COURSE_SCHEMA);
+		return new CourseResponse(reader.readSignedVarLong(), reader.readString(), reader.readNullableInt(),
+				Math.toIntExact(reader.readSignedVarLong()), Math.toIntExact(reader.readSignedVarLong()),
+				reader.readNullableDouble());
+	}
+
+	public static byte[] encodeStudent(StudentExport student) {
+		BinaryWriter writer = new BinaryWriter(64 + 24 * student.getCourses().size());
+		writer.writeByte(STUDENT_SCHEMA)
+				.writeSignedVarLong(student.getId())
+				.writeString(student.getFirstName())
+				.writeString(student.getLastName())
+				.writeString(student.getPassportNumber())
+				.writeVarLong(student.getCourses().size());
+		for (SearchResult course : student.getCourses()) {
+			writer.writeSignedVarLong(course.getId()).writeString(course.getName());
+		}
+		return writer.toByteArray();
+	}
+
+	public static StudentExport decodeStudent(byte[] bytes) {
+		BinaryReader reader = schema(bytes, STUDENT_SCHEMA);
+		long id = reader.readSignedVarLong();
+		String firstName = reader.readString();
+		String lastName = reader.readString();
+		String passportNumber = reader.readString();
+		int count = Math.toIntExact(reader.readVarLong());
+		List<SearchResult> courses = new ArrayList<>(Math.min(count, bytes.length));
+		for (int i = 0; i < count; i++) {
+			courses.add(new SearchResult(reader.readSignedVarLong(), reader.readString()));
+		}
+		return new StudentExport(id, firstName, lastName, passportNumber, courses);
+	}
+
+	private static BinaryReader schema(byte[] bytes, int expected) {
+		BinaryReader reader = new BinaryReader(bytes);
+		int schema = reader.readByte();
+		if (schema != expected) {
+			throw new IllegalArgumentException("Schema " + schema + " is not " + expected);
+		}
+		return reader;
+	}
+
+	private static int length(String value) {
+		return value == null ? 0 : value.length();
+	}
+}
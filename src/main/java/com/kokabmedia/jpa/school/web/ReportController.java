@@ -0,0 +1,60 @@
+package com.kokabmedia.jpa.school.web;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.kokabmedia.jpa.school.querybudget.QueryBudget;
+import com.kokabmedia.jpa.school.report.CourseReport;
+import com.kokabmedia.jpa.school.report.ReportingService;
+import com.kokabmedia.jpa.school.report.StudentReport;
+
+/*
+ * This class exposes the term reports of the ReportingService with a REST API, the reports are 
+ * calculated from the in memory snapshot and can be up to school.reporting.refresh-interval-ms 
+ * old.
+ * 
+ * GET  /reports/courses                       enrollments, reviews and average rating per course
+ * GET  /reports/students-without-passport     students that do not have a passport
+ * GET  /reports/students-without-course       students that are not enrolled in a course
+ * POST /reports/refresh                       read the changes from the database now
+ * 
+ * The snapshot holds the default school only, see the DefaultSchool class.
+ */
+@RestController
+@RequestMapping("/reports")
+public class ReportController {
+
+	@Autowired
+	ReportingService reportingService;
+
+	@GetMapping("/courses")
+	public List<CourseReport> courses() {
+		DefaultSchool.require("Reports");
+		return reportingService.courseReports();
+	}
+
+	@GetMapping("/students-without-passport")
+	public List<StudentReport> studentsWithoutPassport() {
+		DefaultSchool.require("Reports");
+		return reportingService.studentsWithoutPassport();
+	}
+
+	@GetMapping("/students-without-course")
+	public List<StudentReport> studentsWithoutCourse() {
+		DefaultSchool.require("Reports");
+		return reportingService.studentsWithoutCourse();
+	}
+
+	// Reads the tables in pages with the same select statement
+	@QueryBudget(maxStatements = 100_000, maxRepeats = 100_000)
+	@PostMapping("/refresh")
+	public void refresh() {
+		DefaultSchool.require("Reports");
+		reportingService.refresh();
+	}
+}
@@ -0,0 +1,146 @@
+package com.kokabmedia.jpa.school.web;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kokabmedia.jpa.school.repository.ResourceVersion;
+import com.kokabmedia.jpa.school.tenant.TenantContext;
+
+/*
+ * This class answers the GET requests of a course or a student with an ETag and keeps the 
+ * encoded responses in memory.
+ * 
+ * The version of the resource is read first with a small query, see ResourceVersion. When the 
+ * If-None-Match header of the request has the same tag the response is 304 Not Modified without
+ * a body and the entities are not loaded. Otherwise the response of the version is taken from 
+ * the cache, only when it is not in the cache the entities are loaded and encoded. A client that
+ * polls a course that did not change costs one query.
+ * 
+ * A request that accepts application/x-school-binary receives the binary format of the 
+ * ReadModelCodec, other requests receive JSON. The cache keeps every format of a resource under 
+ * its own key, the binary format takes about a third of the memory of the JSON. The tag of the 
+ * binary format ends with -b, a strong ETag belongs to one representation.
+ * 
+ * The responses have Cache-Control: no-cache, a client or proxy may keep the response but asks 
+ * the server with the ETag before it uses it again. Vary: Accept keeps the formats apart.
+ * 
+ * There is no Last-Modified header. The counters of a course and the enrollments of a student 
+ * have no time stamp, a request with only If-Modified-Since would be answered with 304 after an
+ * enrollment.
+ * 
+ * The cache holds school.http-cache.max-entries responses and removes the least recently used 
+ * response, 0 turns the cache off. The key contains the tag, a changed resource has a new key 
+ * and the old response is removed when it is not used anymore.
+ */
+@Component
+public class ResponseCache {
+
+	@Autowired
+	ObjectMapper objectMapper;
+
+	private final int maxEntries;
+	private final Map<String, byte[]> entries;
+
+	public ResponseCache(@Value("${school.http-cache.max-entries:10000}") int maxEntries) {
+		this.maxEntries = maxEntries;
+		this.entries = new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/*
+	 * Answer the request for the resource, the name is used for the cache key and the message of 
+	 * a 404 Not Found. Returns null when the response is 304 Not Modified.
+	 */
+	public <T> ResponseEntity<byte[]> respond(WebRequest request, String name, Supplier<ResourceVersion> version,
+			Supplier<T> loader, Function<T, byte[]> binaryEncoder) {
+
+		ResourceVersion current = version.get();
+		if (current == null) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, name + " not found");
+		}
+
+		boolean binary = acceptsBinary(request);
+		MediaType contentType = binary ? ReadModelCodec.MEDIA_TYPE : MediaType.APPLICATION_JSON;
+		String tag = binary ? current.getTag() + "-b" : current.getTag();
+		if (request.checkNotModified(tag)) {
+			return null;
+		}
+
+		String key = TenantContext.get() + ":" + name + ":" + tag;
+		byte[] body = get(key);
+		if (body == null) {
+			T model = loader.get();
+			if (model == null) {
+				throw new ResponseStatusException(HttpStatus.NOT_FOUND, name + " not found");
+			}
+			body = binary ? binaryEncoder.apply(model) : toJson(name, model);
+
+			// The resource changed while it was loaded, the response may be newer than the tag
+			if (!current.equals(version.get())) {
+				return ResponseEntity.ok().cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT)
+						.contentType(contentType).body(body);
+			}
+			put(key, body);
+		}
+
+		return ResponseEntity.ok().eTag(tag).cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT)
+				.contentType(contentType).body(body);
+	}
+
+	private static boolean acceptsBinary(WebRequest request) {
+		String accept = request.getHeader(HttpHeaders.ACCEPT);
+		if (accept == null) {
+			return false;
+		}
+		try {
+			return MediaType.parseMediaTypes(accept).stream().anyMatch(ReadModelCodec.MEDIA_TYPE::equalsTypeAndSubtype);
+		} catch (InvalidMediaTypeException e) {
+			return false;
+		}
+	}
+
+	private byte[] toJson(String name, Object model) {
+		try {
+			return objectMapper.writeValueAsBytes(model);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("JSON of " + name + " not written", e);
+		}
+	}
+
+	private synchronized byte[] get(String key) {
+		return maxEntries > 0 ? entries.get(key) : null;
+	}
+
+	private synchronized void put(String key, byte[] body) {
+		if (maxEntries > 0) {
+			entries.put(key, body);
+		}
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+}
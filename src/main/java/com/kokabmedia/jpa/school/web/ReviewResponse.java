@@ -0,0 +1,31 @@
+package com.kokabmedia.jpa.school.web;
+
+import com.kokabmedia.jpa.school.entity.Review;
+
+/*
+ * This class is the JSON representation of a Review without its Course.
+ */
+public class ReviewResponse {
+
+	private final Long id;
+	private final String description;
+	private final String rating;
+
+	public ReviewResponse(Review review) {
+		this.id = review.getId();
+		this.description = review.getDescription();
+		this.rating = review.getRating();
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public String getRating() {
+		return rating;
+	}
+}
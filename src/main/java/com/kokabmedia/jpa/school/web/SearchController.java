@@ -0,0 +1,82 @@
+package com.kokabmedia.jpa.school.web;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.kokabmedia.jpa.school.querybudget.QueryBudget;
+import com.kokabmedia.jpa.school.search.SearchService;
+
+/*
+ * This class exposes the SearchService with a REST API.
+ * 
+ * The @RestController annotation lets the Spring framework manage this class as a bean and 
+ * writes the return values of the methods as JSON in the HTTP response.
+ * 
+ * GET  /search/students?q=eri            students where the last name starts with "eri"
+ * GET  /search/courses?q=sprng&fuzzy=true courses with a name one typing mistake away from "sprng"
+ * POST /search/rebuild                   rebuild the indexes from the database
+ * 
+ * The limit parameter gives the maximum number of results, at most 1000.
+ * 
+ * The indexes hold the default school only, see the DefaultSchool class.
+ */
+@RestController
+@RequestMapping("/search")
+public class SearchController {
+
+	// Maximum number of results that are returned when no limit is given
+	private static final String DEFAULT_LIMIT = "20";
+
+	// A larger limit is lowered to this number of results
+	private static final int MAX_LIMIT = 1000;
+
+	@Autowired
+	SearchService searchService;
+
+	@GetMapping("/students")
+	public List<SearchResult> searchStudents(@RequestParam("q") String query,
+			@RequestParam(defaultValue = "false") boolean fuzzy,
+			@RequestParam(defaultValue = DEFAULT_LIMIT) int limit) {
+
+		DefaultSchool.require("Search");
+		return searchService.searchStudents(query, fuzzy, checkedLimit(limit)).stream()
+				.map(student -> new SearchResult(student.getId(), student.getFirstName() + " " + student.getLastName()))
+				.collect(Collectors.toList());
+	}
+
+	@GetMapping("/courses")
+	public List<SearchResult> searchCourses(@RequestParam("q") String query,
+			@RequestParam(defaultValue = "false") boolean fuzzy,
+			@RequestParam(defaultValue = DEFAULT_LIMIT) int limit) {
+
+		DefaultSchool.require("Search");
+		return searchService.searchCourses(query, fuzzy, checkedLimit(limit)).stream()
+				.map(course -> new SearchResult(course.getId(), course.getName()))
+				.collect(Collectors.toList());
+	}
+
+	// Reads the tables in pages with the same select statement
+	@QueryBudget(maxStatements = 100_000, maxRepeats = 100_000)
+	@PostMapping("/rebuild")
+	public void rebuild() {
+		DefaultSchool.require("Search");
+		searchService.rebuild();
+	}
+
+	// A limit below one is rejected, the limit is used to walk the index and to size the result
+	private static int checkedLimit(int limit) {
+		if (limit < 1) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The limit must be at least 1");
+		}
+		return Math.min(limit, MAX_LIMIT);
+	}
+}
@@ -0,0 +1,28 @@
+package com.kokabmedia.jpa.school.web;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/*
+ * This class is the JSON representation of a search hit, it holds only the id and the name 
+ * so that the lazy relations of the entities are not serialized.
+ */
+public class SearchResult {
+
+	private final Long id;
+	private final String name;
+
+	@JsonCreator
+	public SearchResult(@JsonProperty("id") Long id, @JsonProperty("name") String name) {
+		this.id = id;
+		this.name = name;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+}
@@ -0,0 +1,72 @@
+package com.kokabmedia.jpa.school.web;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import com.kokabmedia.jpa.school.entity.Student;
+import com.kokabmedia.jpa.school.repository.EnrollmentResult;
+import com.kokabmedia.jpa.school.repository.StudentRepository;
+
+/*
+ * This class exposes the students and their enrollments with a REST API.
+ * 
+ * GET    /students/{id}/export              the student with its passport number and courses, with an
+ *                                           ETag, as JSON or application/x-school-binary
+ * PUT    /students/{id}/courses/{courseId}  enroll the student in the course
+ * DELETE /students/{id}/courses/{courseId}  withdraw the student from the course
+ * 
+ * An enrollment is answered with 201 Created, 200 OK when the student was already enrolled, 
+ * 409 Conflict when the course is full and 404 Not Found when the student or course does not 
+ * exist. The EnrollmentResult is returned as the body.
+ */
+@RestController
+@RequestMapping("/students")
+public class StudentController {
+
+	@Autowired
+	StudentRepository studentRepository;
+
+	@Autowired
+	ResponseCache responseCache;
+
+	// Answered with 304 Not Modified when the ETag of the request is the version of the export
+	@GetMapping("/{id}/export")
+	public ResponseEntity<byte[]> export(@PathVariable Long id, WebRequest request) {
+		return responseCache.respond(request, "Student " + id, () -> studentRepository.findVersion(id), () -> {
+			Student student = studentRepository.findForExport(id);
+			return student == null ? null : new StudentExport(student);
+		}, ReadModelCodec::encodeStudent);
+	}
+
+	@PutMapping("/{id}/courses/{courseId}")
+	public ResponseEntity<EnrollmentResult> enroll(@PathVariable Long id, @PathVariable Long courseId) {
+
+		EnrollmentResult result = studentRepository.enrollIfCapacity(id, courseId);
+
+		switch (result) {
+		case ENROLLED:
+			return ResponseEntity.status(HttpStatus.CREATED).body(result);
+		case ALREADY_ENROLLED:
+			return ResponseEntity.ok(result);
+		case COURSE_FULL:
+			return ResponseEntity.status(HttpStatus.CONFLICT).body(result);
+		default:
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).body(result);
+		}
+	}
+
+	@DeleteMapping("/{id}/courses/{courseId}")
+	public ResponseEntity<Void> withdraw(@PathVariable Long id, @PathVariable Long courseId) {
+		return studentRepository.withdrawFromCourse(id, courseId)
+				? ResponseEntity.noContent().build()
+				: ResponseEntity.notFound().build();
+	}
+}
@@ -0,0 +1,63 @@
+package com.kokabmedia.jpa.school.web;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.kokabmedia.jpa.school.entity.Student;
+
+/*
+ * This class is the JSON representation of a Student with its passport number and the courses 
+ * it is enrolled in, the courses are written as SearchResult objects with only the id and name.
+ */
+public class StudentExport {
+
+	private final Long id;
+	private final String firstName;
+	private final String lastName;
+	private final String passportNumber;
+	private final List<SearchResult> courses;
+
+	public StudentExport(Student student) {
+		this.id = student.getId();
+		this.firstName = student.getFirstName();
+		this.lastName = student.getLastName();
+		this.passportNumber = student.getPassport() == null ? null : student.getPassport().getNumber();
+		this.courses = student.getCourses().stream()
+				.map(course -> new SearchResult(course.getId(), course.getName()))
+				.collect(Collectors.toList());
+	}
+
+	// A student that is read from JSON or from the binary format of the ReadModelCodec
+	@JsonCreator
+	public StudentExport(@JsonProperty("id") Long id, @JsonProperty("firstName") String firstName,
+			@JsonProperty("lastName") String lastName, @JsonProperty("passportNumber") String passportNumber,
+			@JsonProperty("courses") List<SearchResult> courses) {
+		this.id = id;
+		this.firstName = firstName;
+		this.lastName = lastName;
+		this.passportNumber = passportNumber;
+		this.courses = courses;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getFirstName() {
+		return firstName;
+	}
+
+	public String getLastName() {
+		return lastName;
+	}
+
+	public String getPassportNumber() {
+		return passportNumber;
+	}
+
+	public List<SearchResult> getCourses() {
+		return courses;
+	}
+}
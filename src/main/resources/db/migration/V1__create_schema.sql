@@ -0,0 +1,132 @@
+/*
+ * The tables of the entity classes with the columns that Hibernate created before the schema was
+ * managed with Flyway migrations, the names follow the Spring Boot naming strategy, for example
+ * the studentFirstName field of the Student entity is the student_first_name column.
+ *
+ * Hibernate did not create an index for a foreign key or a column that is only used in a
+ * where clause, the indexes below are declared for the queries of the repositories. The
+ * QueryPlanTest runs EXPLAIN on these queries and fails when one of them reads a whole table.
+ * The foreign keys are added after the indexes so that H2 uses the declared index for the
+ * foreign key instead of creating one more index on the same column.
+ *
+ * Hibernate validates the tables against the entity classes at startup, a field that is added
+ * to an entity needs a new migration, see spring.jpa.hibernate.ddl-auto=validate in
+ * application.properties.
+ */
+
+-- @GeneratedValue without a generator, used by Course, Student, Passport and BatchCheckpoint
+CREATE SEQUENCE hibernate_sequence START WITH 1 INCREMENT BY 1;
+
+-- The allocation size of the review_generator and outbox_generator is 50
+CREATE SEQUENCE review_sequence START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE outbox_sequence START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE course_details (
+	id BIGINT NOT NULL,
+	course_name VARCHAR(255) NOT NULL,
+	created_date TIMESTAMP,
+	last_updated_date TIMESTAMP,
+	is_deleted BOOLEAN NOT NULL,
+	capacity INTEGER,
+	CONSTRAINT course_details_pk PRIMARY KEY (id),
+	-- The natural id of the Course
+	CONSTRAINT course_details_name_uk UNIQUE (course_name)
+);
+
+CREATE TABLE passport_details (
+	id BIGINT NOT NULL,
+	passport_number VARCHAR(255) NOT NULL,
+	CONSTRAINT passport_details_pk PRIMARY KEY (id),
+	-- The natural id of the Passport
+	CONSTRAINT passport_details_number_uk UNIQUE (passport_number)
+);
+
+CREATE TABLE student_details (
+	id BIGINT NOT NULL,
+	student_first_name VARCHAR(255) NOT NULL,
+	student_last_name VARCHAR(255) NOT NULL,
+	created_date TIMESTAMP,
+	last_updated_date TIMESTAMP,
+	passport_id BIGINT,
+	CONSTRAINT student_details_pk PRIMARY KEY (id)
+);
+
+CREATE TABLE review_details (
+	id BIGINT NOT NULL,
+	description_review VARCHAR(255),
+	rating VARCHAR(255) NOT NULL,
+	created_date TIMESTAMP,
+	last_updated_date TIMESTAMP,
+	course_id BIGINT,
+	CONSTRAINT review_details_pk PRIMARY KEY (id)
+);
+
+-- The join table of the Student.courses @ManyToMany relationship
+CREATE TABLE student_course (
+	student_id BIGINT NOT NULL,
+	course_id BIGINT NOT NULL,
+	-- A student is enrolled in a course once, the key also finds the courses of a student
+	CONSTRAINT student_course_pk PRIMARY KEY (student_id, course_id)
+);
+
+-- The counters of a course, see the CourseCounterRepository class
+CREATE TABLE course_counter_stripes (
+	course_id BIGINT NOT NULL,
+	stripe INTEGER NOT NULL,
+	enrolled INTEGER NOT NULL,
+	quota INTEGER,
+	review_count INTEGER NOT NULL,
+	rating_count INTEGER NOT NULL,
+	rating_sum BIGINT NOT NULL,
+	CONSTRAINT course_counter_stripes_pk PRIMARY KEY (course_id, stripe)
+);
+
+-- The transactional outbox, see the OutboxRelay class
+CREATE TABLE outbox_events (
+	id BIGINT NOT NULL,
+	aggregate_type VARCHAR(255) NOT NULL,
+	aggregate_id BIGINT NOT NULL,
+	event_type VARCHAR(255) NOT NULL,
+	payload VARCHAR(4000),
+	created_date TIMESTAMP,
+	published BOOLEAN NOT NULL,
+	CONSTRAINT outbox_events_pk PRIMARY KEY (id)
+);
+
+-- The checkpoints of the batch jobs, see the BatchJobRunner class
+CREATE TABLE batch_checkpoints (
+	id BIGINT NOT NULL,
+	job_name VARCHAR(255) NOT NULL,
+	partition_number INTEGER NOT NULL,
+	last_id BIGINT NOT NULL,
+	to_id BIGINT NOT NULL,
+	processed BIGINT NOT NULL,
+	completed BOOLEAN NOT NULL,
+	last_updated_date TIMESTAMP,
+	CONSTRAINT batch_checkpoints_pk PRIMARY KEY (id),
+	CONSTRAINT batch_checkpoints_job_uk UNIQUE (job_name, partition_number)
+);
+
+-- The reviews of a course ordered by id, CourseRepository.findReviewsAfter() and the counters
+CREATE INDEX review_details_course_idx ON review_details (course_id, id);
+
+-- The student of a passport, StudentRepository.findStudentByPassportNumber(), one per passport
+CREATE UNIQUE INDEX student_details_passport_idx ON student_details (passport_id);
+
+-- The students of a course, StudentRepository.findEnrolledAfter() and the enrollment counts
+CREATE INDEX student_course_course_idx ON student_course (course_id, student_id);
+
+-- The courses that are not soft deleted in id order, see the @Where clause of the Course entity
+CREATE INDEX course_details_deleted_idx ON course_details (is_deleted, id);
+
+-- The events that the OutboxRelay has not published yet in id order
+CREATE INDEX outbox_events_published_idx ON outbox_events (published, id);
+
+ALTER TABLE student_details ADD CONSTRAINT student_details_passport_fk
+	FOREIGN KEY (passport_id) REFERENCES passport_details (id);
+ALTER TABLE review_details ADD CONSTRAINT review_details_course_fk
+	FOREIGN KEY (course_id) REFERENCES course_details (id);
+ALTER TABLE student_course ADD CONSTRAINT student_course_student_fk
+	FOREIGN KEY (student_id) REFERENCES student_details (id);
+ALTER TABLE student_course ADD CONSTRAINT student_course_course_fk
+	FOREIGN KEY (course_id) REFERENCES course_details (id);
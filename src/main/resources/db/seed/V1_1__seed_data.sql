@@ -1,7 +1,8 @@
 /*
- * When the application is launched this file with the name data.sql gets called and 
- * the data in this file is used to initialize the database, this is a Spring Boot 
- * auto configuration feature.
+ * The initial data of the default school, Flyway executes this migration once after the
+ * tables of V1__create_schema.sql are created. The migration is in the db/seed location, the
+ * generated profile and the schemas of the other schools only use the db/migration location
+ * and do not get these rows.
  */
 
 INSERT INTO course_details(id, course_name, created_date, last_updated_date, is_deleted) 
@@ -41,3 +42,23 @@ values(20003,10001);
 INSERT INTO STUDENT_COURSE(student_id, course_id)
 values(20001,10003);
 
+/*
+ * Every course has 8 counter stripes, see CourseCounterRepository.STRIPES. The counters of 
+ * the rows above are stored in the first stripe.
+ */
+INSERT INTO course_counter_stripes(course_id, stripe, enrolled, review_count, rating_count, rating_sum)
+SELECT c.id, x, 0, 0, 0, 0 FROM course_details c, SYSTEM_RANGE(0, 7);
+
+UPDATE course_counter_stripes s SET 
+enrolled = (SELECT COUNT(*) FROM student_course sc WHERE sc.course_id = s.course_id),
+review_count = (SELECT COUNT(*) FROM review_details r WHERE r.course_id = s.course_id),
+rating_count = (SELECT COUNT(*) FROM review_details r WHERE r.course_id = s.course_id),
+rating_sum = (SELECT COALESCE(SUM(CAST(r.rating AS INT)), 0) FROM review_details r WHERE r.course_id = s.course_id)
+WHERE s.stripe = 0;
+
+/*
+ * The rows above use fixed ids, the sequences start above them so that the ids generated
+ * by Hibernate for new rows do not collide with the ids of the initial data.
+ */
+ALTER SEQUENCE hibernate_sequence RESTART WITH 50001;
+ALTER SEQUENCE review_sequence RESTART WITH 50001;
@@ -0,0 +1,168 @@
+package com.kokabmedia.jpa.school;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kokabmedia.jpa.school.batch.BatchJob;
+import com.kokabmedia.jpa.school.batch.BatchJobFailedException;
+import com.kokabmedia.jpa.school.batch.BatchJobProgress;
+import com.kokabmedia.jpa.school.batch.BatchJobRunner;
+import com.kokabmedia.jpa.school.batch.BatchWriter;
+import com.kokabmedia.jpa.school.batch.ReviewDescriptionCleanupJob;
+import com.kokabmedia.jpa.school.entity.BatchCheckpoint;
+import com.kokabmedia.jpa.school.entity.Course;
+import com.kokabmedia.jpa.school.entity.Review;
+import com.kokabmedia.jpa.school.repository.BatchCheckpointRepository;
+
+@SpringBootTest(properties = { "school.batch.chunk-size=2", "school.batch.parallelism=2",
+		"school.batch.partitions-per-thread=2", "school.batch.partition-retries=1" })
+@DirtiesContext
+class BatchJobRunnerTest {
+
+	@Autowired
+	BatchJobRunner runner;
+
+	@Autowired
+	ReviewDescriptionCleanupJob cleanupJob;
+
+	@Autowired
+	BatchCheckpointRepository checkpoints;
+
+	@Autowired
+	EntityManager em;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@Test
+	public void run_processesEveryEntityOnce() {
+
+		addReviews(5, "Good course");
+		Set<Long> processedIds = ConcurrentHashMap.newKeySet();
+		BatchJob<Review> job = reviewJob("collect-reviews", (review, writer) -> processedIds.add(review.getId()));
+
+		long reviews = reviewCount();
+		assertEquals(reviews, runner.run(job));
+		assertEquals(reviews, processedIds.size());
+		for (BatchCheckpoint checkpoint : checkpoints.findByJob("collect-reviews")) {
+			assertTrue(checkpoint.isCompleted());
+		}
+
+		// A completed job starts again from the first id
+		assertEquals(reviews, runner.run(job));
+	}
+
+	@Test
+	public void run_continuesAfterTheCheckpointOfAFailedPartition() {
+
+		List<Long> added = addReviews(10, "Great course");
+		long failingId = added.get(added.size() - 1);
+		AtomicBoolean fail = new AtomicBoolean(true);
+		List<Long> processedIds = Collections.synchronizedList(new ArrayList<>());
+
+		BatchJob<Review> job = reviewJob("failing-job", (review, writer) -> {
+			if (fail.get() && review.getId() == failingId) {
+				throw new IllegalStateException("Failed at review " + failingId);
+			}
+			processedIds.add(review.getId());
+		});
+
+		assertThrows(BatchJobFailedException.class, () -> runner.run(job));
+		fail.set(false);
+
+		// Only the chunk with the failing review is processed again
+		long processedAgain = runner.run(job);
+		assertTrue(processedAgain >= 1 && processedAgain <= 2);
+		assertTrue(processedIds.containsAll(added));
+	}
+
+	@Test
+	public void failedChunk_isRetried() {
+
+		long failingId = addReviews(3, "Too fast").get(0);
+		AtomicBoolean failed = new AtomicBoolean();
+		BatchJob<Review> job = reviewJob("retried-job", (review, writer) -> {
+			if (review.getId() == failingId && failed.compareAndSet(false, true)) {
+				throw new IllegalStateException("Failed once at review " + failingId);
+			}
+		});
+
+		long reviews = reviewCount();
+		assertEquals(reviews, runner.run(job));
+
+		BatchJobProgress progress = runner.getProgress("retried-job");
+		assertFalse(progress.isRunning());
+		assertEquals(1, progress.getRetries());
+		assertEquals(reviews, progress.getRows());
+		assertEquals(reviews, progress.getProcessed());
+		assertEquals(progress.getPartitions(), progress.getCompletedPartitions());
+		assertEquals(0, progress.getFailedPartitions());
+	}
+
+	@Test
+	public void statelessJob_updatesTheRows() {
+
+		long id = addReviews(1, "  Too   fast ").get(0);
+
+		runner.run(cleanupJob);
+
+		String description = new TransactionTemplate(transactionManager)
+				.execute(status -> em.find(Review.class, id).getDescription());
+		assertEquals("Too fast", description);
+	}
+
+	private BatchJob<Review> reviewJob(String name, BiConsumer<Review, BatchWriter> process) {
+		return new BatchJob<Review>() {
+			@Override
+			public String getName() {
+				return name;
+			}
+
+			@Override
+			public Class<Review> getEntityType() {
+				return Review.class;
+			}
+
+			@Override
+			public void process(Review review, BatchWriter writer) {
+				process.accept(review, writer);
+			}
+		};
+	}
+
+	private List<Long> addReviews(int count, String description) {
+		return new TransactionTemplate(transactionManager).execute(status -> {
+			List<Long> ids = new ArrayList<>();
+			for (int i = 0; i < count; i++) {
+				Review review = new Review(description, "4");
+				review.setCourse(em.getReference(Course.class, 10002L));
+				em.persist(review);
+				ids.add(review.getId());
+			}
+			return ids;
+		});
+	}
+
+	private long reviewCount() {
+		return em.createQuery("select count(r) from Review r", Long.class).getSingleResult();
+	}
+}
@@ -0,0 +1,99 @@
+package com.kokabmedia.jpa.school;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.kokabmedia.jpa.school.repository.StudentRepository;
+import com.kokabmedia.jpa.school.web.ReadModelCodec;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ConditionalGetTest {
+
+	@Autowired
+	MockMvc mockMvc;
+
+	@Autowired
+	StudentRepository studentRepository;
+
+	@Test
+	public void course_notModified() throws Exception {
+
+		String etag = mockMvc.perform(get("/courses/10001"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.name").value("JPA in 50 steps"))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertNotNull(etag);
+
+		mockMvc.perform(get("/courses/10001").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified())
+				.andExpect(content().string(""));
+	}
+
+	@Test
+	@DirtiesContext // Leaves the data in a consistent state as it was before the changes in this method
+	public void enrollment_changesTheTags() throws Exception {
+
+		String courseTag = mockMvc.perform(get("/courses/10003")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		String studentTag = mockMvc.perform(get("/students/20002/export")).andReturn().getResponse()
+				.getHeader(HttpHeaders.ETAG);
+
+		studentRepository.enrollIfCapacity(20002L, 10003L);
+
+		String changedCourseTag = mockMvc.perform(get("/courses/10003").header(HttpHeaders.IF_NONE_MATCH, courseTag))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.enrolledCount").value(2))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertNotEquals(courseTag, changedCourseTag);
+
+		mockMvc.perform(get("/students/20002/export").header(HttpHeaders.IF_NONE_MATCH, studentTag))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	public void repeatedGet_returnsTheCachedJson() throws Exception {
+
+		String first = mockMvc.perform(get("/students/20001/export")).andReturn().getResponse().getContentAsString();
+		String second = mockMvc.perform(get("/students/20001/export")).andReturn().getResponse().getContentAsString();
+
+		assertEquals(first, second);
+	}
+
+	@Test
+	public void course_inTheBinaryFormat() throws Exception {
+
+		MockHttpServletResponse response = mockMvc.perform(get("/courses/10001")
+				.accept(ReadModelCodec.MEDIA_TYPE))
+				.andExpect(status().isOk())
+				.andReturn().getResponse();
+
+		assertEquals(ReadModelCodec.MEDIA_TYPE_VALUE, response.getContentType());
+		assertEquals("JPA in 50 steps", ReadModelCodec.decodeCourse(response.getContentAsByteArray()).getName());
+
+		// The binary format has its own tag
+		mockMvc.perform(get("/courses/10001").accept(ReadModelCodec.MEDIA_TYPE)
+				.header(HttpHeaders.IF_NONE_MATCH, response.getHeader(HttpHeaders.ETAG)))
+				.andExpect(status().isNotModified());
+		mockMvc.perform(get("/courses/10001").header(HttpHeaders.IF_NONE_MATCH, response.getHeader(HttpHeaders.ETAG)))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	public void unknownCourse_notFound() throws Exception {
+		mockMvc.perform(get("/courses/99999")).andExpect(status().isNotFound());
+	}
+}
@@ -0,0 +1,91 @@
+package com.kokabmedia.jpa.school;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+
+import com.kokabmedia.jpa.school.entity.Review;
+import com.kokabmedia.jpa.school.feed.CourseFeedBroadcaster;
+import com.kokabmedia.jpa.school.repository.CourseRepository;
+import com.kokabmedia.jpa.school.repository.StudentRepository;
+
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+class CourseFeedTest {
+
+	@LocalServerPort
+	int port;
+
+	@Autowired
+	CourseRepository courseRepository;
+
+	@Autowired
+	StudentRepository studentRepository;
+
+	@Autowired
+	CourseFeedBroadcaster broadcaster;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@Test
+	@DirtiesContext // Leaves the data in a consistent state as it was before the changes in this method
+	public void feed_sendsCommittedReviewsAndEnrollments() throws Exception {
+
+		HttpResponse<Stream<String>> response = client.send(HttpRequest.newBuilder(
+				URI.create("http://localhost:" + port + "/courses/10003/feed")).build(),
+				HttpResponse.BodyHandlers.ofLines());
+		assertEquals(200, response.statusCode());
+		assertEquals(1, broadcaster.getSubscriberCount());
+
+		Iterator<String> lines = response.body().iterator();
+
+		courseRepository.addReviewToCourse(10003L, new Review("Live review", "5"));
+		String review = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> dataOf(lines, "review"));
+		assertTrue(review.contains("\"description\":\"Live review\""), review);
+		assertTrue(review.contains("\"courseId\":10003"), review);
+
+		studentRepository.enrollIfCapacity(20002L, 10003L);
+		String enrollment = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> dataOf(lines, "enrollment"));
+		assertTrue(enrollment.contains("\"studentId\":20002"), enrollment);
+		assertTrue(enrollment.contains("\"enrolled\":true"), enrollment);
+
+		assertEquals(0, broadcaster.getDroppedCount());
+		response.body().close();
+	}
+
+	@Test
+	public void feed_ofUnknownCourse() throws Exception {
+		HttpResponse<String> response = client.send(HttpRequest.newBuilder(
+				URI.create("http://localhost:" + port + "/courses/99999/feed")).build(),
+				HttpResponse.BodyHandlers.ofString());
+		assertEquals(404, response.statusCode());
+	}
+
+	// Read the lines of the stream until the data line of the next event with the name
+	private static String dataOf(Iterator<String> lines, String name) {
+		boolean found = false;
+		while (lines.hasNext()) {
+			String line = lines.next();
+			if (line.equals("event:" + name)) {
+				found = true;
+			} else if (found && line.startsWith("data:")) {
+				return line.substring("data:".length());
+			}
+		}
+		throw new AssertionError("Feed ended before the " + name + " event");
+	}
+}
@@ -3,12 +3,19 @@ package com.kokabmedia.jpa.school;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.kokabmedia.jpa.school.entity.Course;
+import com.kokabmedia.jpa.school.entity.Review;
+import com.kokabmedia.jpa.school.repository.CourseCounters;
 import com.kokabmedia.jpa.school.repository.CourseRepository;
 
 @SpringBootTest
@@ -27,6 +34,9 @@ class CourseRepositoryTest {
 	@Autowired
 	CourseRepository repository;
 	
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+	
 	@Test
 	public void findById_basic() {
 		
@@ -70,5 +80,73 @@ class CourseRepositoryTest {
 		assertEquals("JPA in 50 steps - updated", courseUpdated.getName());
 
 	}
+	
+	@Test
+	public void findByName_basic() {
+		
+		Course course = repository.findByName("JPA in 50 steps");
+		
+		// Asserts the expected and the actual value
+		assertEquals(10001L, course.getId());
+		assertNull(repository.findByName("Unknown course"));
+	}
+	
+	@Test
+	public void findByName_repeatedLookupSkipsDatabase() {
+		
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		
+		repository.findByName("REST in 50 steps");
+		long statements = statistics.getPrepareStatementCount();
+		
+		// The second lookup is answered from the natural id cache and the Second Level Cache
+		Course course = repository.findByName("REST in 50 steps");
+		
+		assertEquals(10003L, course.getId());
+		assertEquals(statements, statistics.getPrepareStatementCount());
+	}
+	
+	@Test
+	@DirtiesContext // Leaves the data in a consistent state as it was before the changes in this method
+	public void findByName_softDeleted() {
+		
+		assertEquals(10002L, repository.findByName("Spring in 50 steps").getId());
+		
+		repository.deleteById(10002L);
+		
+		// The @Where clause of the Course entity hides the soft deleted course
+		assertNull(repository.findByName("Spring in 50 steps"));
+	}
+	
+	@Test
+	@DirtiesContext // Leaves the data in a consistent state as it was before the changes in this method
+	public void addReviewToCourse_updatesCounters() {
+		
+		CourseCounters counters = repository.findCounters(10001L);
+		assertEquals(2, counters.getReviewCount());
+		assertEquals(3.5, counters.getAverageRating());
+		
+		repository.addReviewToCourse(10001L, new Review("Very good course", "5"));
+		
+		// The counters are read from the stripes without loading the reviews
+		counters = repository.findCounters(10001L);
+		assertEquals(3, counters.getReviewCount());
+		assertEquals(4.0, counters.getAverageRating());
+		assertEquals(3, counters.getEnrolledCount());
+	}
+	
+	@Test
+	@Transactional // The review is rolled back at the end of the test
+	public void addReviewToCourse_addsTheReviewToALoadedList() {
+		
+		Course course = repository.findById(10001L);
+		assertEquals(2, course.getReviews().size());
+		
+		Review review = repository.addReviewToCourse(10001L, new Review("Very good course", "5"));
+		
+		// Once, with and without the bytecode enhancement of the entity classes
+		assertEquals(3, course.getReviews().size());
+		assertEquals(review, course.getReviews().get(2));
+	}
 
 }
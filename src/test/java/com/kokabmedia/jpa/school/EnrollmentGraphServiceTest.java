@@ -0,0 +1,62 @@
+package com.kokabmedia.jpa.school;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import com.kokabmedia.jpa.school.graph.CoEnrollment;
+import com.kokabmedia.jpa.school.graph.EnrollmentGraph;
+import com.kokabmedia.jpa.school.graph.EnrollmentGraphService;
+import com.kokabmedia.jpa.school.repository.StudentRepository;
+
+@SpringBootTest
+class EnrollmentGraphServiceTest {
+
+	@Autowired
+	EnrollmentGraphService graphService;
+	
+	@Autowired
+	StudentRepository studentRepository;
+	
+	@Test
+	public void graph_basic() {
+		
+		graphService.rebuild();
+		EnrollmentGraph graph = graphService.getGraph();
+		
+		assertEquals(4, graph.getEnrollmentCount());
+		assertArrayEquals(new long[] { 10001L, 10003L }, graph.coursesOf(20001L));
+		assertArrayEquals(new long[] { 20001L }, graph.studentsInAllCourses(10001L, 10003L));
+		assertArrayEquals(new long[] { 20001L, 20002L, 20003L }, graph.studentsInAnyCourse(10001L, 10003L));
+		assertArrayEquals(new long[] { 10001L }, graph.sharedCourses(20001L, 20002L));
+		
+		List<CoEnrollment> coEnrolled = graph.coEnrolledCourses(10003L, 10);
+		assertEquals(1, coEnrolled.size());
+		assertEquals(10001L, coEnrolled.get(0).getCourseId());
+		assertEquals(1, coEnrolled.get(0).getSharedStudents());
+	}
+	
+	@Test
+	@DirtiesContext // Leaves the data in a consistent state as it was before the changes in this method
+	public void graph_followsEnrollmentChanges() {
+		
+		graphService.rebuild();
+		
+		studentRepository.enrollIfCapacity(20002L, 10003L);
+		
+		// The change is applied after the commit of the enrollment
+		assertArrayEquals(new long[] { 20001L, 20002L }, graphService.getGraph().studentsInAllCourses(10001L, 10003L));
+		
+		studentRepository.withdrawFromCourse(20001L, 10003L);
+		
+		assertArrayEquals(new long[] { 20002L }, graphService.getGraph().studentsOf(10003L));
+		assertEquals(4, graphService.getGraph().getEnrollmentCount());
+	}
+
+}
@@ -0,0 +1,129 @@
+package com.kokabmedia.jpa.school;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kokabmedia.jpa.school.entity.Course;
+import com.kokabmedia.jpa.school.entity.Student;
+import com.kokabmedia.jpa.school.repository.CourseRepository;
+import com.kokabmedia.jpa.school.repository.EnrollmentResult;
+import com.kokabmedia.jpa.school.repository.StudentRepository;
+
+@SpringBootTest
+class EnrollmentTest {
+
+	@Autowired
+	StudentRepository studentRepository;
+	
+	@Autowired
+	CourseRepository courseRepository;
+	
+	@Autowired
+	EntityManager em;
+	
+	@Autowired
+	PlatformTransactionManager transactionManager;
+	
+	@Test
+	@DirtiesContext // Leaves the data in a consistent state as it was before the changes in this method
+	public void enrollIfCapacity_countsAndRejects() {
+		
+		assertEquals(EnrollmentResult.ENROLLED, studentRepository.enrollIfCapacity(20002L, 10003L));
+		assertEquals(EnrollmentResult.ALREADY_ENROLLED, studentRepository.enrollIfCapacity(20002L, 10003L));
+		assertEquals(EnrollmentResult.STUDENT_NOT_FOUND, studentRepository.enrollIfCapacity(99999L, 10003L));
+		assertEquals(EnrollmentResult.COURSE_NOT_FOUND, studentRepository.enrollIfCapacity(20002L, 99999L));
+		assertEquals(2, courseRepository.findCounters(10003L).getEnrolledCount());
+		
+		assertTrue(studentRepository.withdrawFromCourse(20002L, 10003L));
+		assertFalse(studentRepository.withdrawFromCourse(20002L, 10003L));
+		assertEquals(1, courseRepository.findCounters(10003L).getEnrolledCount());
+	}
+	
+	@Test
+	@DirtiesContext // Leaves the data in a consistent state as it was before the changes in this method
+	public void enrollIfCapacity_concurrentRegistrations() throws Exception {
+		
+		Course course = courseRepository.findById(10002L);
+		course.setCapacity(5);
+		courseRepository.save(course);
+		
+		List<Long> studentIds = new ArrayList<>();
+		for (int i = 0; i < 40; i++) {
+			studentIds.add(studentRepository.save(new Student("Student", "Number " + i)).getId());
+		}
+		
+		// 40 students try to get one of the 5 places at the same time
+		ExecutorService executor = Executors.newFixedThreadPool(16);
+		List<Future<EnrollmentResult>> results = new ArrayList<>();
+		for (Long studentId : studentIds) {
+			Callable<EnrollmentResult> enroll = () -> studentRepository.enrollIfCapacity(studentId, 10002L);
+			results.add(executor.submit(enroll));
+		}
+		
+		int enrolled = 0;
+		for (Future<EnrollmentResult> result : results) {
+			if (result.get() == EnrollmentResult.ENROLLED) {
+				enrolled++;
+			} else {
+				assertEquals(EnrollmentResult.COURSE_FULL, result.get());
+			}
+		}
+		executor.shutdown();
+		
+		Number rows = (Number) em.createNativeQuery("select count(*) from student_course where course_id = 10002")
+				.getSingleResult();
+		
+		assertEquals(5, enrolled);
+		assertEquals(5, rows.intValue());
+		assertEquals(5, courseRepository.findCounters(10002L).getEnrolledCount());
+	}
+	
+	@Test
+	@DirtiesContext // Leaves the data in a consistent state as it was before the changes in this method
+	public void deleteById_givesBackThePlaces() {
+		
+		// Bob is enrolled in JPA in 50 steps and REST in 50 steps
+		studentRepository.deleteById(20001L);
+		
+		assertEquals(2, courseRepository.findCounters(10001L).getEnrolledCount());
+		assertEquals(0, courseRepository.findCounters(10003L).getEnrolledCount());
+		
+		Course course = courseRepository.findById(10003L);
+		course.setCapacity(1);
+		courseRepository.save(course);
+		assertEquals(EnrollmentResult.ENROLLED, studentRepository.enrollIfCapacity(20002L, 10003L));
+	}
+	
+	@Test
+	@DirtiesContext // Leaves the data in a consistent state as it was before the changes in this method
+	public void save_managedCourse_changesTheCapacity() {
+		
+		// The Course of the Persistence Context already has the new capacity when it is saved
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			Course course = courseRepository.findById(10002L);
+			course.setCapacity(1);
+			courseRepository.save(course);
+		});
+		
+		assertEquals(EnrollmentResult.ENROLLED, studentRepository.enrollIfCapacity(20002L, 10002L));
+		assertEquals(EnrollmentResult.COURSE_FULL, studentRepository.enrollIfCapacity(20003L, 10002L));
+	}
+
+}
@@ -0,0 +1,73 @@
+package com.kokabmedia.jpa.school;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.IllegalTransactionStateException;
+
+import com.kokabmedia.jpa.school.entity.Course;
+import com.kokabmedia.jpa.school.outbox.ChangeEvent;
+import com.kokabmedia.jpa.school.outbox.ChangeEventSource;
+import com.kokabmedia.jpa.school.outbox.OutboxRelay;
+import com.kokabmedia.jpa.school.repository.CourseRepository;
+import com.kokabmedia.jpa.school.repository.OutboxRepository;
+import com.kokabmedia.jpa.school.repository.StudentRepository;
+
+@SpringBootTest
+class OutboxRelayTest {
+
+	@Autowired
+	CourseRepository courseRepository;
+	
+	@Autowired
+	StudentRepository studentRepository;
+	
+	@Autowired
+	OutboxRepository outboxRepository;
+	
+	@Autowired
+	OutboxRelay relay;
+	
+	@Autowired
+	ChangeEventSource changeEventSource;
+	
+	@Test
+	@DirtiesContext // Leaves the data in a consistent state as it was before the changes in this method
+	public void relay_publishesChangesInOrder() {
+		
+		Course course = courseRepository.save(new Course("Hibernate in 50 steps"));
+		studentRepository.enrollStudentInCourse(20002L, 10003L);
+		
+		relay.relay();
+		
+		List<ChangeEvent> events = changeEventSource.read(0, 100);
+		ChangeEvent created = events.get(events.size() - 2);
+		ChangeEvent enrolled = events.get(events.size() - 1);
+		
+		assertEquals("CREATED", created.getEventType());
+		assertEquals(course.getId(), created.getAggregateId());
+		assertEquals("Hibernate in 50 steps", created.getPayload().get("name").asText());
+		assertEquals("ENROLLED", enrolled.getEventType());
+		assertEquals(10003L, enrolled.getPayload().get("courseId").asLong());
+		
+		// A consumer continues from the next offset and only gets newer events
+		assertTrue(changeEventSource.read(enrolled.getNextOffset(), 100).isEmpty());
+	}
+	
+	@Test
+	public void record_needsTransaction() {
+		
+		// The event must be written in the transaction of the change
+		assertThrows(IllegalTransactionStateException.class,
+				() -> outboxRepository.record("Course", 10001L, "UPDATED", Map.of()));
+	}
+
+}
@@ -0,0 +1,109 @@
+package com.kokabmedia.jpa.school;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.kokabmedia.jpa.school.entity.Student;
+import com.kokabmedia.jpa.school.querybudget.QueryBudgetExceededException;
+import com.kokabmedia.jpa.school.querybudget.QueryBudgetScope;
+
+/*
+ * The tests run with school.query-budget.mode=fail, see src/test/resources/config/application.properties
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class QueryBudgetTest {
+
+	@Autowired
+	EntityManager em;
+
+	@Autowired
+	MockMvc mockMvc;
+
+	@Test
+	@Transactional
+	public void lazyCollectionInLoop_isReportedAsNPlusOne() {
+
+		try (QueryBudgetScope scope = QueryBudgetScope.open("test", 100, 2)) {
+
+			List<Student> students = em.createQuery("select s from Student s", Student.class).getResultList();
+
+			QueryBudgetExceededException exception = assertThrows(QueryBudgetExceededException.class, () -> {
+				for (Student student : students) {
+					student.getCourses().size();
+				}
+			});
+			assertTrue(exception.getMessage().contains("Student.courses"), exception.getMessage());
+		}
+	}
+
+	@Test
+	@Transactional
+	public void fetchJoin_staysWithinBudget() {
+
+		try (QueryBudgetScope scope = QueryBudgetScope.open("test", 1, 2)) {
+
+			List<Student> students = em.createQuery("select distinct s from Student s left join fetch s.courses",
+					Student.class).getResultList();
+			for (Student student : students) {
+				student.getCourses().size();
+			}
+			assertEquals(1, scope.getStatementCount());
+			assertTrue(scope.getViolations().isEmpty());
+		}
+	}
+
+	@Test
+	@Transactional
+	public void statementBudget_isEnforced() {
+
+		try (QueryBudgetScope scope = QueryBudgetScope.open("test", 2, 10)) {
+
+			em.createNativeQuery("select count(*) from student_details").getSingleResult();
+			em.createNativeQuery("select count(*) from course_details").getSingleResult();
+
+			assertThrows(QueryBudgetExceededException.class,
+					() -> em.createNativeQuery("select count(*) from review_details").getSingleResult());
+		}
+	}
+
+	@Test
+	public void withoutScope_nothingIsCounted() {
+		assertNull(QueryBudgetScope.current());
+		em.createNativeQuery("select count(*) from student_details").getSingleResult();
+	}
+
+	// MockMvc runs the request and the dispatch of the result on the thread of the test
+	@Test
+	public void asyncRequest_closesTheScopeOfTheThread() throws Exception {
+
+		MvcResult result = mockMvc.perform(get("/reactive/courses/10001"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		assertNull(QueryBudgetScope.current());
+
+		mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+		assertNull(QueryBudgetScope.current());
+
+		mockMvc.perform(get("/courses/10001/feed")).andExpect(request().asyncStarted());
+		assertNull(QueryBudgetScope.current());
+	}
+}
@@ -0,0 +1,168 @@
+package com.kokabmedia.jpa.school;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import com.kokabmedia.jpa.school.entity.Review;
+import com.kokabmedia.jpa.school.metrics.RepositoryTrace;
+import com.kokabmedia.jpa.school.metrics.RepositoryTraceEndpoint;
+import com.kokabmedia.jpa.school.repository.CourseRepository;
+import com.kokabmedia.jpa.school.repository.EnrollmentResult;
+import com.kokabmedia.jpa.school.repository.OutboxRepository;
+import com.kokabmedia.jpa.school.repository.StudentRepository;
+
+/*
+ * Runs EXPLAIN on the statements of the hot path repository methods, a statement that reads a
+ * whole table or a whole index fails the test, see the indexes in V1__create_schema.sql.
+ */
+@SpringBootTest(properties = "school.repository-metrics.tracing=true")
+@DirtiesContext // The review and the enrollment of the hot path calls are not removed
+class QueryPlanTest {
+
+	// The repository methods of the requests and the background writers
+	private static final Set<String> HOT_PATH = new LinkedHashSet<>(Arrays.asList(
+			"CourseRepository.findById", "CourseRepository.findByName", "CourseRepository.findVersion",
+			"CourseRepository.findCounters",
+			"CourseRepository.findPageAfter", "CourseRepository.findReviews", "CourseRepository.findReviewsAfter",
+			"CourseRepository.addReviewToCourse", "StudentRepository.findById",
+			"StudentRepository.findStudentByPassportNumber", "StudentRepository.findForExport",
+			"StudentRepository.findVersion", "StudentRepository.findEnrolledAfter",
+			"StudentRepository.findPassportByNumber", "StudentRepository.enrollIfCapacity",
+			"StudentRepository.withdrawFromCourse", "OutboxRepository.findUnpublished"));
+
+	/*
+	 * The index that H2 uses for a table of the plan, followed by the index condition, for
+	 * example PUBLIC.PRIMARY_KEY_8: ID = ?1. A table without a usable index is read with
+	 * PUBLIC.<table>.tableScan, an index without a condition is read from the first to the
+	 * last row.
+	 */
+	private static final Pattern INDEX = Pattern.compile("/\\* PUBLIC\\.([\\w.]+)(:.*?)? \\*/", Pattern.DOTALL);
+
+	@Autowired
+	CourseRepository courseRepository;
+
+	@Autowired
+	StudentRepository studentRepository;
+
+	@Autowired
+	OutboxRepository outboxRepository;
+
+	@Autowired
+	RepositoryTraceEndpoint traceEndpoint;
+
+	@Autowired
+	EntityManagerFactory emf;
+
+	@Autowired
+	DataSource dataSource;
+
+	@Test
+	public void hotPathQueries_useIndexes() throws SQLException {
+
+		// Read from the database instead of the Second Level Cache
+		emf.getCache().evictAll();
+
+		courseRepository.findById(10001L);
+		courseRepository.findByName("Spring in 50 steps");
+		courseRepository.findVersion(10001L);
+		courseRepository.findCounters(10001L);
+		courseRepository.findPageAfter(10001L, 10);
+		courseRepository.findReviews(10001L);
+		courseRepository.findReviewsAfter(10001L, 0, 10);
+		courseRepository.addReviewToCourse(10002L, new Review("Indexed course", "5"));
+
+		studentRepository.findById(20002L);
+		studentRepository.findStudentByPassportNumber("E12345");
+		studentRepository.findForExport(20001L);
+		studentRepository.findVersion(20001L);
+		studentRepository.findEnrolledAfter(10001L, 0, 10);
+		studentRepository.findPassportByNumber("E985642");
+		assertEquals(EnrollmentResult.ENROLLED, studentRepository.enrollIfCapacity(20002L, 10003L));
+		assertTrue(studentRepository.withdrawFromCourse(20002L, 10003L));
+
+		outboxRepository.findUnpublished(10);
+
+		Set<String> statements = hotPathStatements();
+		assertFalse(statements.isEmpty());
+
+		List<String> fullScans = new ArrayList<>();
+		try (Connection connection = dataSource.getConnection()) {
+			for (String sql : statements) {
+				String plan = explain(connection, sql);
+				if (readsWholeTable(plan)) {
+					fullScans.add(plan);
+				}
+			}
+		}
+		assertTrue(fullScans.isEmpty(), "Full scans on the hot path:\n" + String.join("\n\n", fullScans));
+	}
+
+	// The statements of the hot path methods and the repository methods that they called
+	private Set<String> hotPathStatements() {
+		Set<String> statements = new LinkedHashSet<>();
+		for (RepositoryTrace trace : traceEndpoint.traces()) {
+			if (!HOT_PATH.contains(trace.getMethod())) {
+				continue;
+			}
+			for (RepositoryTrace span : traceEndpoint.trace(trace.getTraceId())) {
+				for (String sql : span.getStatements()) {
+					String command = sql.trim().toLowerCase(Locale.ROOT);
+					// Inserts by values and the next value of a sequence do not read a table
+					if (command.startsWith("select") || command.startsWith("update") || command.startsWith("delete")) {
+						statements.add(sql.trim());
+					}
+				}
+			}
+		}
+		return statements;
+	}
+
+	// The plan of H2 for the statement, the parameters are not used for the plan and are set to null
+	private static String explain(Connection connection, String sql) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement("explain " + sql)) {
+			int parameters = statement.getParameterMetaData().getParameterCount();
+			for (int i = 1; i <= parameters; i++) {
+				statement.setObject(i, null);
+			}
+			StringBuilder plan = new StringBuilder();
+			try (ResultSet result = statement.executeQuery()) {
+				while (result.next()) {
+					plan.append(result.getString(1));
+				}
+			}
+			return plan.toString();
+		}
+	}
+
+	static boolean readsWholeTable(String plan) {
+		Matcher index = INDEX.matcher(plan.replace("\"", ""));
+		while (index.find()) {
+			if (index.group(1).endsWith(".tableScan") || index.group(2) == null) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,89 @@
+package com.kokabmedia.jpa.school;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.kokabmedia.jpa.school.tenant.TenantContext;
+import com.kokabmedia.jpa.school.web.EnrollmentResponse;
+import com.kokabmedia.jpa.school.web.ReactiveCourseController;
+
+import reactor.test.StepVerifier;
+
+@SpringBootTest(properties = { "school.reactive.page-size=2", "school.tenancy.tenants=default,north" })
+class ReactiveCourseControllerTest {
+
+	// The query of StudentRepository.findEnrolledAfter()
+	private static final String ENROLLED_QUERY = "select s from Student s join s.courses c "
+			+ "where c.id = :courseId and s.id > :afterId order by s.id";
+
+	@Autowired
+	ReactiveCourseController controller;
+
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	@Test
+	public void enrollments_areReadInPages() {
+		StepVerifier.create(controller.enrollments(10001L).map(EnrollmentResponse::getStudentId))
+				.expectNext(20001L, 20002L, 20003L)
+				.verifyComplete();
+	}
+
+	@Test
+	public void enrollments_onlyReadThePagesThatAreRequested() {
+
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		long before = statistics.getQueryStatistics(ENROLLED_QUERY).getExecutionCount();
+
+		// The first page has two students, the second page is not read for one student
+		StepVerifier.create(controller.enrollments(10001L), 1)
+				.expectNextCount(1)
+				.thenCancel()
+				.verify();
+
+		assertEquals(1, statistics.getQueryStatistics(ENROLLED_QUERY).getExecutionCount() - before);
+	}
+
+	@Test
+	public void reviews_ofCourse() {
+		StepVerifier.create(controller.reviews(10001L))
+				.expectNextMatches(review -> review.getId() == 40001L && "Good course".equals(review.getDescription()))
+				.expectNextMatches(review -> review.getId() == 40002L)
+				.verifyComplete();
+	}
+
+	@Test
+	public void course_notFound() {
+		StepVerifier.create(controller.course(99999L))
+				.expectError(ResponseStatusException.class)
+				.verify();
+	}
+
+	@Test
+	public void reviewsAndEnrollments_ofUnknownCourse_notFound() {
+		StepVerifier.create(controller.reviews(99999L))
+				.expectError(ResponseStatusException.class)
+				.verify();
+		StepVerifier.create(controller.enrollments(99999L))
+				.expectError(ResponseStatusException.class)
+				.verify();
+	}
+
+	@Test
+	public void courses_ofTheSchoolOfTheRequest() {
+		StepVerifier.create(controller.courses())
+				.expectNextCount(3)
+				.verifyComplete();
+
+		StepVerifier.create(TenantContext.callAs("north", () -> controller.courses()))
+				.verifyComplete();
+	}
+}
@@ -0,0 +1,66 @@
+package com.kokabmedia.jpa.school;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kokabmedia.jpa.school.web.CourseResponse;
+import com.kokabmedia.jpa.school.web.ReadModelCodec;
+import com.kokabmedia.jpa.school.web.SearchResult;
+import com.kokabmedia.jpa.school.web.StudentExport;
+
+class ReadModelCodecTest {
+
+	@Test
+	public void course_roundTrip() {
+
+		CourseResponse course = ReadModelCodec.decodeCourse(ReadModelCodec.encodeCourse(
+				new CourseResponse(10001L, "JPA in 50 steps", null, 3, 2, 3.5)));
+
+		assertEquals(10001L, course.getId());
+		assertEquals("JPA in 50 steps", course.getName());
+		assertNull(course.getCapacity());
+		assertEquals(3, course.getEnrolledCount());
+		assertEquals(2, course.getReviewCount());
+		assertEquals(3.5, course.getAverageRating());
+	}
+
+	@Test
+	public void student_roundTrip() {
+
+		StudentExport student = ReadModelCodec.decodeStudent(ReadModelCodec.encodeStudent(new StudentExport(20001L,
+				"Bob", "Erikson", null, List.of(new SearchResult(10001L, "JPA in 50 steps"),
+						new SearchResult(10003L, "REST in 50 steps")))));
+
+		assertEquals(20001L, student.getId());
+		assertEquals("Erikson", student.getLastName());
+		assertNull(student.getPassportNumber());
+		assertEquals(2, student.getCourses().size());
+		assertEquals("REST in 50 steps", student.getCourses().get(1).getName());
+	}
+
+	@Test
+	public void binary_isSmallerThanJson() throws Exception {
+
+		CourseResponse course = new CourseResponse(10001L, "JPA in 50 steps", 120, 118, 40, 4.25);
+
+		assertTrue(ReadModelCodec.encodeCourse(course).length * 2 < new ObjectMapper().writeValueAsBytes(course).length);
+	}
+
+	@Test
+	public void otherSchema_isRejected() {
+
+		byte[] course = ReadModelCodec.encodeCourse(new CourseResponse(10001L, "JPA in 50 steps", null, 0, 0, null));
+
+		assertThrows(IllegalArgumentException.class, () -> ReadModelCodec.decodeStudent(course));
+		assertThrows(IllegalArgumentException.class,
+				() -> ReadModelCodec.decodeCourse(Arrays.copyOf(course, course.length - 1)));
+	}
+}
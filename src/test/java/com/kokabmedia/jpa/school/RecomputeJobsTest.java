@@ -0,0 +1,83 @@
+package com.kokabmedia.jpa.school;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kokabmedia.jpa.school.batch.BatchJobRunner;
+import com.kokabmedia.jpa.school.batch.CourseCounterRecomputeJob;
+import com.kokabmedia.jpa.school.entity.Student;
+import com.kokabmedia.jpa.school.repository.CourseCounters;
+import com.kokabmedia.jpa.school.repository.CourseRepository;
+import com.kokabmedia.jpa.school.search.SearchService;
+import com.kokabmedia.jpa.school.search.StudentSearchIndexJob;
+
+@SpringBootTest(properties = { "school.batch.chunk-size=2", "school.batch.parallelism=2" })
+@DirtiesContext
+class RecomputeJobsTest {
+
+	@Autowired
+	BatchJobRunner runner;
+
+	@Autowired
+	CourseCounterRecomputeJob counterJob;
+
+	@Autowired
+	StudentSearchIndexJob studentSearchIndexJob;
+
+	@Autowired
+	CourseRepository courseRepository;
+
+	@Autowired
+	SearchService searchService;
+
+	@Autowired
+	EntityManager em;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@Test
+	public void courseCounterRecompute_correctsTheStripes() {
+
+		int reviews = courseRepository.findCounters(10001L).getReviewCount();
+
+		// A review that is inserted with SQL does not change the counters
+		execute("insert into review_details(id, description_review, rating, course_id) "
+				+ "values(90001, 'Inserted with SQL', '2', 10001)");
+		assertEquals(reviews, courseRepository.findCounters(10001L).getReviewCount());
+
+		runner.run(counterJob);
+
+		CourseCounters counters = courseRepository.findCounters(10001L);
+		assertEquals(reviews + 1, counters.getReviewCount());
+		assertEquals(((Number) em.createNativeQuery("select count(*) from student_course where course_id = 10001")
+				.getSingleResult()).intValue(), counters.getEnrolledCount());
+	}
+
+	@Test
+	public void studentSearchIndexJob_rebuildsTheIndex() {
+
+		// A name that is changed with SQL is not seen by the SearchIndexListener
+		execute("update student_details set student_last_name = 'Recomputed' where id = 20001");
+		assertTrue(searchService.searchStudents("Recomputed", false, 10).isEmpty());
+
+		runner.run(studentSearchIndexJob);
+
+		assertEquals(20001L, searchService.searchStudents("Recomputed", false, 10).stream()
+				.map(Student::getId).findFirst().orElse(null));
+	}
+
+	private void execute(String sql) {
+		new TransactionTemplate(transactionManager)
+				.executeWithoutResult(status -> em.createNativeQuery(sql).executeUpdate());
+	}
+}
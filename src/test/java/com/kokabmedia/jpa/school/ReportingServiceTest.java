@@ -0,0 +1,103 @@
+package com.kokabmedia.jpa.school;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import com.kokabmedia.jpa.school.entity.Review;
+import com.kokabmedia.jpa.school.entity.Student;
+import com.kokabmedia.jpa.school.report.CourseReport;
+import com.kokabmedia.jpa.school.report.ReportingService;
+import com.kokabmedia.jpa.school.repository.CourseRepository;
+import com.kokabmedia.jpa.school.repository.StudentRepository;
+
+@SpringBootTest
+class ReportingServiceTest {
+
+	@Autowired
+	ReportingService reportingService;
+	
+	@Autowired
+	StudentRepository studentRepository;
+	
+	@Autowired
+	CourseRepository courseRepository;
+	
+	@Test
+	public void courseReports_basic() {
+		
+		reportingService.rebuild();
+		
+		CourseReport jpa = find(reportingService.courseReports(), 10001L);
+		assertEquals(3, jpa.getEnrolledCount());
+		assertEquals(2, jpa.getReviewCount());
+		assertEquals(3.5, jpa.getAverageRating());
+		
+		CourseReport spring = find(reportingService.courseReports(), 10002L);
+		assertEquals(0, spring.getEnrolledCount());
+		assertNull(spring.getAverageRating());
+		
+		// Every student of the initial data has a passport
+		assertTrue(reportingService.studentsWithoutPassport().isEmpty());
+	}
+	
+	@Test
+	@DirtiesContext // Leaves the data in a consistent state as it was before the changes in this method
+	public void refresh_readsChangedRows() {
+		
+		reportingService.rebuild();
+		
+		Student student = studentRepository.save(new Student("Nina", "Nilsson"));
+		studentRepository.enrollIfCapacity(student.getId(), 10002L);
+		courseRepository.addReviewToCourse(10002L, new Review("Nice course", "5"));
+		courseRepository.deleteById(10003L);
+		
+		reportingService.refresh();
+		
+		List<CourseReport> courses = reportingService.courseReports();
+		CourseReport spring = find(courses, 10002L);
+		assertEquals(1, spring.getEnrolledCount());
+		assertEquals(1, spring.getReviewCount());
+		assertEquals(5.0, spring.getAverageRating());
+		
+		// The soft deleted course is not in the report
+		assertNull(find(courses, 10003L));
+		
+		assertEquals(student.getId(), reportingService.studentsWithoutPassport().get(0).getStudentId());
+	}
+	
+	@Test
+	@DirtiesContext // Leaves the data in a consistent state as it was before the changes in this method
+	public void checkConsistency_findsDeletedRows() {
+		
+		Student student = studentRepository.save(new Student("Nina", "Nilsson"));
+		reportingService.refresh();
+		assertTrue(inReport(student));
+		
+		// A deleted row has no time stamp that the refresh can read
+		studentRepository.deleteById(student.getId());
+		reportingService.refresh();
+		assertTrue(inReport(student));
+		
+		reportingService.checkConsistency();
+		assertFalse(inReport(student));
+	}
+	
+	private boolean inReport(Student student) {
+		return reportingService.studentsWithoutPassport().stream()
+				.anyMatch(report -> report.getStudentId() == student.getId());
+	}
+	
+	private CourseReport find(List<CourseReport> courses, Long courseId) {
+		return courses.stream().filter(course -> course.getCourseId() == courseId).findFirst().orElse(null);
+	}
+
+}
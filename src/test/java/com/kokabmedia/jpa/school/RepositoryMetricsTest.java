@@ -0,0 +1,84 @@
+package com.kokabmedia.jpa.school;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import com.kokabmedia.jpa.school.entity.Student;
+import com.kokabmedia.jpa.school.metrics.RepositoryMetricsEndpoint;
+import com.kokabmedia.jpa.school.metrics.RepositoryTrace;
+import com.kokabmedia.jpa.school.metrics.RepositoryTraceEndpoint;
+import com.kokabmedia.jpa.school.repository.CourseRepository;
+import com.kokabmedia.jpa.school.repository.StudentRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+@SpringBootTest(properties = "school.repository-metrics.tracing=true")
+class RepositoryMetricsTest {
+
+	@Autowired
+	MeterRegistry registry;
+
+	@Autowired
+	RepositoryMetricsEndpoint metricsEndpoint;
+
+	@Autowired
+	RepositoryTraceEndpoint traceEndpoint;
+
+	@Autowired
+	CourseRepository courseRepository;
+
+	@Autowired
+	StudentRepository studentRepository;
+
+	@Test
+	public void findById_recordsCacheHitAndRows() {
+
+		// The second find reads the Course from the Second Level Cache
+		courseRepository.findById(10001L);
+		courseRepository.findById(10001L);
+
+		Timer hit = registry.find("school.repository.calls")
+				.tags("class", "CourseRepository", "method", "findById", "cache", "hit").timer();
+		assertNotNull(hit);
+		assertTrue(hit.count() >= 1);
+
+		assertEquals(1.0, registry.find("school.repository.rows")
+				.tags("class", "CourseRepository", "method", "findById").summary().mean());
+
+		Map<String, Map<String, Object>> methods = metricsEndpoint.methods();
+		assertTrue(methods.get("CourseRepository.findById cache=hit").containsKey("p99Micros"));
+	}
+
+	@Test
+	@DirtiesContext // Leaves the data in a consistent state as it was before the changes in this method
+	public void enrollIfCapacity_traceLinksStatementsToMethods() {
+
+		Student student = studentRepository.save(new Student("Tom", "Tracer"));
+		studentRepository.enrollIfCapacity(student.getId(), 10002L);
+
+		RepositoryTrace enroll = traceEndpoint.traces().stream()
+				.filter(trace -> trace.getMethod().equals("StudentRepository.enrollIfCapacity"))
+				.findFirst().get();
+		assertFalse(enroll.getStatements().isEmpty());
+
+		// The stripe update is a child span in the same trace
+		List<RepositoryTrace> spans = traceEndpoint.trace(enroll.getTraceId());
+		RepositoryTrace reserveSeat = spans.stream()
+				.filter(trace -> trace.getMethod().equals("CourseCounterRepository.reserveSeat"))
+				.findFirst().get();
+		assertEquals(enroll.getSpanId(), reserveSeat.getParentId());
+		assertTrue(reserveSeat.getStatements().get(0).contains("course_counter_stripes"));
+		assertTrue(enroll.getStatementCount() > reserveSeat.getStatementCount());
+	}
+}
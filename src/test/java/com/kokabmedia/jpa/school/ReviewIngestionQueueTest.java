@@ -0,0 +1,62 @@
+package com.kokabmedia.jpa.school;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import com.kokabmedia.jpa.school.ingest.ReviewIngestionQueue;
+import com.kokabmedia.jpa.school.ingest.ReviewSubmission;
+
+@SpringBootTest
+class ReviewIngestionQueueTest {
+
+	@Autowired
+	ReviewIngestionQueue queue;
+	
+	@Autowired
+	EntityManager em;
+	
+	@Test
+	@DirtiesContext // Leaves the data in a consistent state as it was before the changes in this method
+	public void submit_writesReviewsInBatches() throws InterruptedException {
+		
+		for (int i = 0; i < 1200; i++) {
+			assertTrue(queue.submit(new ReviewSubmission(10003L, "Review " + i, "4")));
+		}
+		
+		// The writer thread writes the reviews in the background
+		assertTrue(queue.awaitEmpty(30, TimeUnit.SECONDS));
+		
+		Long reviews = em.createQuery("select count(r) from Review r where r.course.id = 10003", Long.class)
+				.getSingleResult();
+		
+		// Course 10003 has one review in the seed migration
+		assertEquals(1201L, reviews);
+	}
+	
+	@Test
+	@DirtiesContext
+	public void submit_unknownCourseDoesNotDropBatch() throws InterruptedException {
+		
+		queue.submit(new ReviewSubmission(10001L, "Good", "5"));
+		queue.submit(new ReviewSubmission(99999L, "Unknown course", "1"));
+		queue.submit(new ReviewSubmission(10001L, "Fine", "3"));
+		
+		assertTrue(queue.awaitEmpty(30, TimeUnit.SECONDS));
+		
+		Long reviews = em.createQuery("select count(r) from Review r where r.course.id = 10001", Long.class)
+				.getSingleResult();
+		
+		// Course 10001 has two reviews in the seed migration
+		assertEquals(4L, reviews);
+	}
+
+}
@@ -0,0 +1,93 @@
+package com.kokabmedia.jpa.school;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.kokabmedia.jpa.school.entity.Course;
+import com.kokabmedia.jpa.school.entity.Student;
+import com.kokabmedia.jpa.school.repository.StudentRepository;
+import com.kokabmedia.jpa.school.search.SearchService;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class SearchServiceTest {
+
+	@Autowired
+	SearchService searchService;
+	
+	@Autowired
+	StudentRepository studentRepository;
+	
+	@Autowired
+	MockMvc mockMvc;
+	
+	@Test
+	public void searchStudents_prefix() {
+		
+		List<Student> students = searchService.searchStudents("eri", false, 10);
+		
+		assertEquals(1, students.size());
+		assertEquals("Erikson", students.get(0).getLastName());
+	}
+	
+	@Test
+	public void searchLimit_isRejectedBelowOneAndCapped() throws Exception {
+		
+		mockMvc.perform(get("/search/students").param("q", "eri").param("limit", "0"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/search/courses").param("q", "spr").param("limit", "-1"))
+				.andExpect(status().isBadRequest());
+		
+		mockMvc.perform(get("/search/students").param("q", "eri").param("limit", "100000000"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].name").value("Bob Erikson"));
+	}
+	
+	@Test
+	public void searchStudents_fuzzy() {
+		
+		// One character is missing in the last name Jonson
+		List<Student> students = searchService.searchStudents("Jonsn", true, 10);
+		
+		assertEquals(1, students.size());
+		assertEquals(20002L, students.get(0).getId());
+	}
+	
+	@Test
+	public void searchCourses_prefix() {
+		
+		List<Course> courses = searchService.searchCourses("spr", false, 10);
+		
+		assertEquals(1, courses.size());
+		assertEquals("Spring in 50 steps", courses.get(0).getName());
+		
+		// Every word of the query has to match a word of the name
+		assertEquals(3, searchService.searchCourses("50 st", false, 10).size());
+	}
+	
+	@Test
+	@DirtiesContext // Leaves the data in a consistent state as it was before the changes in this method
+	public void searchStudents_afterSaveAndDelete() {
+		
+		Student student = studentRepository.save(new Student("Anna", "Lindqvist"));
+		
+		// The index is updated when the transaction of the save method is committed
+		assertEquals(1, searchService.searchStudents("lindq", false, 10).size());
+		
+		studentRepository.deleteById(student.getId());
+		assertTrue(searchService.searchStudents("lindq", false, 10).isEmpty());
+	}
+
+}
@@ -5,6 +5,8 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 
 import javax.persistence.EntityManager;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,6 +61,43 @@ class StudentRepositoryTest {
 		logger.info("student -> {}", passport.getStudent());
 	}
 	
- 
+	@Test
+	public void findStudentByPassportNumber() {
+		
+		Student student = repository.findStudentByPassportNumber("E123654");
+		
+		// Asserts the expected and the actual value
+		assertEquals("Jonson", student.getLastName());
+		assertNull(repository.findStudentByPassportNumber("X000000"));
+	}
+	
+	@Test
+	public void findStudentByPassportNumber_oneQueryThenCached() {
+		
+		Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		em.getEntityManagerFactory().getCache().evictAll();
+		long statements = statistics.getPrepareStatementCount();
+		
+		// The student and the passport are read with one query
+		Student student = repository.findStudentByPassportNumber("E985642");
+		
+		assertEquals("Edards", student.getLastName());
+		assertEquals(statements + 1, statistics.getPrepareStatementCount());
+		
+		// The passport number and both entities are then answered from the Second Level Cache
+		Passport passport = repository.findPassportByNumber("E985642");
+		repository.findById(student.getId());
+		
+		assertEquals(student.getPassport().getId(), passport.getId());
+		assertEquals(statements + 1, statistics.getPrepareStatementCount());
+	}
 	
+	@Test
+	public void findPassportByNumber() {
+		
+		Passport passport = repository.findPassportByNumber("E12345");
+		
+		assertEquals(30001L, passport.getId());
 	}
+
+}
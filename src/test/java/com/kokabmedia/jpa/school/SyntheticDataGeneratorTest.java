@@ -0,0 +1,96 @@
+package com.kokabmedia.jpa.school;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import com.kokabmedia.jpa.school.entity.Student;
+import com.kokabmedia.jpa.school.generator.GeneratorSettings;
+import com.kokabmedia.jpa.school.generator.SyntheticDataGenerator;
+import com.kokabmedia.jpa.school.repository.CourseRepository;
+import com.kokabmedia.jpa.school.repository.StudentRepository;
+
+@SpringBootTest
+@DirtiesContext // The generated rows are not removed
+class SyntheticDataGeneratorTest {
+
+	// Only the generated rows, the ids of the seed migration are below 1000000
+	private static final String FINGERPRINT = "select (select count(*) from student_course where student_id >= 1000000), "
+			+ "(select sum(student_id * 31 + course_id) from student_course where student_id >= 1000000), "
+			+ "(select sum(id * cast(rating as int)) from review_details where id >= 1000000), "
+			+ "(select count(*) from passport_details where id >= 1000000)";
+
+	@Autowired
+	DataSource dataSource;
+
+	@Autowired
+	CourseRepository courseRepository;
+
+	@Autowired
+	StudentRepository studentRepository;
+
+	@Test
+	public void generate_isDeterministicAndConsistent() throws SQLException {
+
+		GeneratorSettings settings = new GeneratorSettings();
+		settings.setStudents(2_000);
+		settings.setCourses(50);
+		settings.setReviews(5_000);
+		settings.setBatchSize(500);
+
+		// An empty copy of the schema for the second run
+		List<String> schema = new JdbcTemplate(dataSource).queryForList("script nodata", String.class);
+
+		try (Connection connection = dataSource.getConnection()) {
+			new SyntheticDataGenerator(settings).generate(connection);
+		}
+		List<Object> fingerprint = fingerprint(dataSource.getConnection());
+
+		try (Connection copy = DriverManager.getConnection("jdbc:h2:mem:generatorcopy", "sa", "")) {
+			try (Statement statement = copy.createStatement()) {
+				for (String sql : schema) {
+					statement.execute(sql);
+				}
+			}
+			new SyntheticDataGenerator(settings).generate(copy);
+
+			assertEquals(fingerprint, fingerprint(copy));
+		}
+
+		// The counter stripes match the generated enrollments and reviews
+		Long enrollments = new JdbcTemplate(dataSource).queryForObject(
+				"select count(*) from student_course where course_id = 1000000", Long.class);
+		assertEquals(enrollments.intValue(), courseRepository.findCounters(1_000_000L).getEnrolledCount());
+
+		// The most popular course has many more students than the median course
+		List<Long> counts = new JdbcTemplate(dataSource).queryForList("select count(*) c from student_course "
+				+ "where course_id >= 1000000 group by course_id order by c desc", Long.class);
+		assertTrue(counts.get(0) > 5 * counts.get(counts.size() / 2), counts.toString());
+
+		// Hibernate generates ids above the generated rows
+		Student student = studentRepository.save(new Student("New", "Student"));
+		assertTrue(student.getId() >= 1_000_000L + 50 + 2_000 * 2);
+	}
+
+	private static List<Object> fingerprint(Connection connection) throws SQLException {
+		try (connection; Statement statement = connection.createStatement();
+				ResultSet result = statement.executeQuery(FINGERPRINT)) {
+			result.next();
+			return List.of(result.getObject(1), result.getObject(2), result.getObject(3), result.getObject(4));
+		}
+	}
+}
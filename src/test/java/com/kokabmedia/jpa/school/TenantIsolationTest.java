@@ -0,0 +1,88 @@
+package com.kokabmedia.jpa.school;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import com.kokabmedia.jpa.school.entity.Course;
+import com.kokabmedia.jpa.school.repository.CourseRepository;
+import com.kokabmedia.jpa.school.tenant.TenantContext;
+import com.kokabmedia.jpa.school.tenant.TenantRegistry;
+import com.kokabmedia.jpa.school.tenant.UnknownTenantException;
+
+@SpringBootTest(properties = "school.tenancy.tenants=default,north")
+@DirtiesContext
+class TenantIsolationTest {
+
+	private static final String COURSE_REGION = Course.class.getName();
+
+	@Autowired
+	CourseRepository courseRepository;
+
+	@Autowired
+	TenantRegistry tenantRegistry;
+
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	@Test
+	public void tenantSchema_startsEmpty() {
+		assertNotNull(courseRepository.findById(10001L));
+		assertNull(TenantContext.callAs("north", () -> courseRepository.findById(10001L)));
+	}
+
+	@Test
+	public void save_isOnlyVisibleToItsTenant() {
+
+		Course course = TenantContext.callAs("north", () -> courseRepository.save(new Course("Spring in the north")));
+
+		assertEquals("Spring in the north",
+				TenantContext.callAs("north", () -> courseRepository.findByName("Spring in the north").getName()));
+		assertNull(courseRepository.findByName("Spring in the north"));
+
+		// The ids come from the sequence of the schema, the same id can be used by the default school
+		Course cached = TenantContext.callAs("north", () -> courseRepository.findById(course.getId()));
+		assertEquals("Spring in the north", cached.getName());
+		Course other = courseRepository.findById(course.getId());
+		assertTrue(other == null || !"Spring in the north".equals(other.getName()));
+	}
+
+	@Test
+	public void secondLevelCache_hasARegionPerTenant() {
+
+		courseRepository.findById(10001L);
+		TenantContext.runAs("north", () -> courseRepository.findById(10001L));
+
+		CacheManager cacheManager = ((JCacheRegionFactory) entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+				.getCache().getRegionFactory()).getCacheManager();
+		assertTrue(size(cacheManager.getCache(COURSE_REGION)) > 0);
+		assertEquals(0, size(cacheManager.getCache(COURSE_REGION + "@north")));
+	}
+
+	@Test
+	public void unknownTenant_isRejected() {
+		assertEquals("SCHOOL_NORTH", tenantRegistry.schemaOf("north"));
+		assertThrows(UnknownTenantException.class, () -> tenantRegistry.schemaOf("south"));
+	}
+
+	private static int size(Cache<Object, Object> cache) {
+		int size = 0;
+		for (Cache.Entry<Object, Object> entry : cache) {
+			size++;
+		}
+		return size;
+	}
+}
@@ -0,0 +1,198 @@
+package com.kokabmedia.jpa.school.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.ManagedEntity;
+import org.hibernate.engine.spi.PersistentAttributeInterceptable;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kokabmedia.jpa.school.entity.Passport;
+import com.kokabmedia.jpa.school.entity.Review;
+import com.kokabmedia.jpa.school.entity.Student;
+import com.kokabmedia.jpa.school.generator.GeneratorSettings;
+import com.kokabmedia.jpa.school.generator.SyntheticDataGenerator;
+
+/*
+ * Statements and time of loading passports and reviews, and the time of a flush of a large
+ * Persistence Context, with and without the bytecode enhancement of the entity classes (see the
+ * hibernate-enhance-maven-plugin in pom.xml).
+ *
+ * - Passports: without enhancement every Passport selects its Student, the mappedBy
+ *   Passport.student can not be lazy. With enhancement and @LazyToOne(NO_PROXY) one select
+ *   loads all passports.
+ * - Reviews: with enhancement the lazy Review.description is not selected.
+ * - Flush: without enhancement a flush compares every managed Student with its snapshot, with
+ *   dirty tracking only the students that have changed fields are looked at.
+ *
+ * Run it once with the enhanced classes and once without, the log line shows which one it was:
+ * ./mvnw test -Dtest=BytecodeEnhancementBenchmark -Dbenchmark=true
+ * ./mvnw clean test -Dtest=BytecodeEnhancementBenchmark -Dbenchmark=true -Dbytecode-enhancement.phase=none
+ *
+ * The settings are system properties:
+ * - benchmark.students, number of students with a passport, default 50000
+ * - benchmark.reviews, number of reviews, default 200000
+ */
+@SpringBootTest(properties = { "spring.jpa.show-sql=false", "logging.level.org.hibernate.type=info",
+		"logging.level.org.hibernate.stat=info", "school.query-budget.mode=off" })
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DirtiesContext
+class BytecodeEnhancementBenchmark {
+
+	private static final int STUDENTS = Integer.getInteger("benchmark.students", 50_000);
+	private static final int REVIEWS = Integer.getInteger("benchmark.reviews", 200_000);
+
+	// Every CHANGED_EVERY-th student is changed before a flush
+	private static final int CHANGED_EVERY = 100;
+	private static final int FLUSHES = 10;
+
+	// For logging purposes
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	@Autowired
+	DataSource dataSource;
+
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	// The EntityManager of the transaction of the flush test
+	@Autowired
+	EntityManager em;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	private GeneratorSettings settings;
+	private Statistics statistics;
+
+	@BeforeAll
+	public void generate() throws SQLException {
+		settings = new GeneratorSettings();
+		settings.setStudents(STUDENTS);
+		settings.setCourses(100);
+		settings.setReviews(REVIEWS);
+		settings.setPassportShare(1);
+		try (Connection connection = dataSource.getConnection()) {
+			new SyntheticDataGenerator(settings).generate(connection);
+		}
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		logger.info("benchmark enhanced={} dirtyTracking={} lazyInitialization={}", isEnhanced(),
+				SelfDirtinessTracker.class.isAssignableFrom(Student.class),
+				PersistentAttributeInterceptable.class.isAssignableFrom(Review.class));
+	}
+
+	@Test
+	public void loadPassports() {
+
+		long firstPassport = settings.getFirstId() + settings.getCourses() + STUDENTS;
+		Result result = measure(reader -> reader.createQuery("select p from Passport p where p.id >= :first", Passport.class)
+				.setParameter("first", firstPassport)
+				.getResultList());
+
+		assertEquals(STUDENTS, result.rows);
+		logger.info("benchmark enhanced={} load passports={} statements={} time={}ms", isEnhanced(), result.rows,
+				result.statements, result.millis);
+	}
+
+	@Test
+	public void loadReviews() {
+
+		Result result = measure(reader -> reader.createQuery("select r from Review r where r.id >= :first", Review.class)
+				.setParameter("first", settings.getFirstId())
+				.getResultList());
+
+		assertEquals(REVIEWS, result.rows);
+		logger.info("benchmark enhanced={} load reviews={} statements={} time={}ms", isEnhanced(), result.rows,
+				result.statements, result.millis);
+	}
+
+	@Test
+	public void flushManagedStudents() {
+
+		long firstStudent = settings.getFirstId() + settings.getCourses();
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		transaction.executeWithoutResult(status -> {
+			List<Student> students = em.createQuery("select s from Student s where s.id >= :first", Student.class)
+					.setParameter("first", firstStudent)
+					.getResultList();
+
+			// A flush without changes only has to find out that nothing has changed
+			long start = System.nanoTime();
+			em.flush();
+			long unchanged = System.nanoTime() - start;
+
+			long changed = 0;
+			for (int flush = 0; flush < FLUSHES; flush++) {
+				for (int i = flush; i < students.size(); i += CHANGED_EVERY) {
+					students.get(i).setLastName("Flushed " + flush);
+				}
+				start = System.nanoTime();
+				em.flush();
+				changed += System.nanoTime() - start;
+			}
+
+			logger.info("benchmark enhanced={} flush managed={} unchanged={}us changed={} perFlush={}us",
+					isEnhanced(), students.size(), TimeUnit.NANOSECONDS.toMicros(unchanged),
+					students.size() / CHANGED_EVERY, TimeUnit.NANOSECONDS.toMicros(changed / FLUSHES));
+
+			// The changed names are not written
+			status.setRollbackOnly();
+		});
+	}
+
+	// Run the query in a new EntityManager without the second level cache and count its statements
+	private Result measure(Function<EntityManager, List<?>> query) {
+		entityManagerFactory.getCache().evictAll();
+		EntityManager reader = entityManagerFactory.createEntityManager();
+		try {
+			statistics.clear();
+			long start = System.nanoTime();
+			int rows = query.apply(reader).size();
+			return new Result(rows, statistics.getPrepareStatementCount(),
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static boolean isEnhanced() {
+		return ManagedEntity.class.isAssignableFrom(Passport.class);
+	}
+
+	private static class Result {
+
+		final int rows;
+		final long statements;
+		final long millis;
+
+		Result(int rows, long statements, long millis) {
+			this.rows = rows;
+			this.statements = statements;
+			this.millis = millis;
+		}
+	}
+}
@@ -0,0 +1,201 @@
+package com.kokabmedia.jpa.school.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.kokabmedia.jpa.school.entity.Student;
+import com.kokabmedia.jpa.school.generator.GeneratorSettings;
+import com.kokabmedia.jpa.school.generator.SyntheticDataGenerator;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/*
+ * Garbage collection pauses and hit latency of the second level cache with a large working set,
+ * the HeapCacheTierBenchmark keeps every cached Student on the Java heap and the
+ * OffHeapCacheTierBenchmark keeps most of them in direct memory, see the ehcache-heap.xml and
+ * ehcache-offheap.xml files of the test resources. Both classes run this test and log one line
+ * with the same fields, so the results can be read side by side.
+ *
+ * The students are written with the SyntheticDataGenerator and every student is read once to
+ * put it in the cache. After that the students are read with random ids, every read is a cache
+ * hit, and the latency of every read is recorded. The garbage collections during the reads are
+ * recorded with the notifications of the GarbageCollectorMXBeans, at the end a full collection
+ * shows how long the collector takes to go through the heap with the cached entries.
+ *
+ * The settings are system properties:
+ * - benchmark.students, number of students in the cache, default 1000000
+ * - benchmark.lookups, number of random reads, default 2000000
+ *
+ * The heap only cache needs a large heap, the off heap cache direct memory, run them with:
+ * ./mvnw test -Dtest='*CacheTierBenchmark' -Dbenchmark=true -DargLine="-Xmx4g -XX:MaxDirectMemorySize=4g"
+ */
+abstract class CacheTierBenchmark {
+
+	private static final int STUDENTS = Integer.getInteger("benchmark.students", 1_000_000);
+	private static final int LOOKUPS = Integer.getInteger("benchmark.lookups", 2_000_000);
+
+	// For logging purposes
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	@Autowired
+	DataSource dataSource;
+
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	// The name of the configuration in the log line
+	abstract String tier();
+
+	@Test
+	public void readStudentsFromTheSecondLevelCache() throws SQLException {
+
+		long firstStudent = generateStudents();
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		for (int i = 0; i < STUDENTS; i++) {
+			find(firstStudent + i);
+		}
+		statistics.clear();
+
+		SplittableRandom random = new SplittableRandom(42);
+		long[] latencies = new long[LOOKUPS];
+		GcPauses pauses = new GcPauses();
+		long start = System.nanoTime();
+		for (int i = 0; i < LOOKUPS; i++) {
+			long id = firstStudent + random.nextInt(STUDENTS);
+			long lookupStart = System.nanoTime();
+			find(id);
+			latencies[i] = System.nanoTime() - lookupStart;
+		}
+		long elapsed = System.nanoTime() - start;
+		pauses.stop();
+
+		// Every read was answered from the cache
+		assertEquals(LOOKUPS, statistics.getSecondLevelCacheHitCount());
+		assertEquals(0, statistics.getSecondLevelCacheMissCount());
+
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		long fullGcStart = System.nanoTime();
+		System.gc();
+		long fullGc = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - fullGcStart);
+		long heapAfterGc = memory.getHeapMemoryUsage().getUsed();
+
+		Arrays.sort(latencies);
+		logger.info("benchmark cache={} students={} lookups={} lookups/s={} p50={}us p99={}us p999={}us max={}us "
+				+ "gcPauses={} gcPauseTotal={}ms gcPauseMax={}ms fullGc={}ms heapAfterGc={}MB",
+				tier(), STUDENTS, LOOKUPS, LOOKUPS * 1_000_000_000L / Math.max(elapsed, 1),
+				micros(latencies, 0.50), micros(latencies, 0.99), micros(latencies, 0.999),
+				latencies[LOOKUPS - 1] / 1_000, pauses.count(), pauses.total(), pauses.max(), fullGc,
+				heapAfterGc / (1024 * 1024));
+	}
+
+	// Read a student in its own EntityManager, without a transaction as a read only request
+	private void find(long id) {
+		EntityManager em = entityManagerFactory.createEntityManager();
+		try {
+			assertNotNull(em.find(Student.class, id));
+		} finally {
+			em.close();
+		}
+	}
+
+	// Write the students without courses, reviews and passports, returns the id of the first one
+	private long generateStudents() throws SQLException {
+		GeneratorSettings settings = new GeneratorSettings();
+		settings.setStudents(STUDENTS);
+		settings.setCourses(1);
+		settings.setCoursesPerStudent(1);
+		settings.setReviews(0);
+		settings.setPassportShare(0);
+		try (Connection connection = dataSource.getConnection()) {
+			new SyntheticDataGenerator(settings).generate(connection);
+		}
+		return settings.getFirstId() + settings.getCourses();
+	}
+
+	private static long micros(long[] sorted, double percentile) {
+		return sorted[(int) (sorted.length * percentile)] / 1_000;
+	}
+
+	// The stop the world collections between the construction and stop()
+	private static class GcPauses implements NotificationListener {
+
+		private final List<NotificationEmitter> emitters = new ArrayList<>();
+		private final List<Long> durations = new ArrayList<>();
+
+		GcPauses() {
+			for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+				// Concurrent cycles run next to the application and do not pause it
+				if (collector instanceof NotificationEmitter && !collector.getName().contains("Concurrent")) {
+					((NotificationEmitter) collector).addNotificationListener(this, null, null);
+					emitters.add((NotificationEmitter) collector);
+				}
+			}
+		}
+
+		@Override
+		public void handleNotification(Notification notification, Object handback) {
+			if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+				GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+						.from((CompositeData) notification.getUserData());
+				synchronized (durations) {
+					durations.add(info.getGcInfo().getDuration());
+				}
+			}
+		}
+
+		void stop() {
+			for (NotificationEmitter emitter : emitters) {
+				try {
+					emitter.removeNotificationListener(this);
+				} catch (ListenerNotFoundException e) {
+					// Not registered
+				}
+			}
+		}
+
+		int count() {
+			synchronized (durations) {
+				return durations.size();
+			}
+		}
+
+		long total() {
+			synchronized (durations) {
+				return durations.stream().mapToLong(Long::longValue).sum();
+			}
+		}
+
+		long max() {
+			synchronized (durations) {
+				return durations.stream().mapToLong(Long::longValue).max().orElse(0);
+			}
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package com.kokabmedia.jpa.school.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.query.NativeQuery;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kokabmedia.jpa.school.entity.Course;
+import com.kokabmedia.jpa.school.entity.Student;
+import com.kokabmedia.jpa.school.repository.CourseRepository;
+import com.kokabmedia.jpa.school.repository.EnrollmentResult;
+import com.kokabmedia.jpa.school.repository.StudentRepository;
+
+/*
+ * Throughput of enrollments in one popular course with 64 threads, the Student.addCourse() and
+ * StudentRepository.save() flow with a single counter of the course against
+ * StudentRepository.enrollIfCapacity() with the striped counters and a capacity check. The
+ * single counter is the first stripe of the course, every enrollment of the flow updates the
+ * same row.
+ *
+ * The lock timeout of H2 is raised because 64 transactions can wait for the same stripe.
+ *
+ * The benchmarks are not run with the normal tests, run them with:
+ * ./mvnw test -Dtest='*Benchmark' -Dbenchmark=true
+ */
+@SpringBootTest(properties = { "spring.jpa.show-sql=false", "logging.level.org.hibernate.type=info",
+		"logging.level.org.hibernate.stat=info", "spring.datasource.hikari.maximum-pool-size=64",
+		"spring.datasource.url=jdbc:h2:mem:testdb;LOCK_TIMEOUT=10000" })
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DirtiesContext
+class EnrollmentContentionBenchmark {
+
+	private static final int THREADS = 64;
+	private static final int STUDENTS = 6_400;
+
+	// For logging purposes
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	@Autowired
+	StudentRepository studentRepository;
+
+	@Autowired
+	CourseRepository courseRepository;
+
+	@Autowired
+	EntityManager em;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@Test
+	public void addCourseAgainstStripedCounters() throws InterruptedException {
+
+		List<Long> studentIds = new ArrayList<>();
+		for (int i = 0; i < STUDENTS; i++) {
+			studentIds.add(studentRepository.save(new Student("Student", "Number " + i)).getId());
+		}
+
+		Course addCourseTarget = courseRepository.save(new Course("Popular course A"));
+		Course stripedTarget = courseRepository.save(new Course("Popular course B"));
+		stripedTarget.setCapacity(STUDENTS);
+		courseRepository.save(stripedTarget);
+
+		/*
+		 * The flow before the striped counters, the student and its courses are loaded, the course
+		 * is added to the list and one counter row of the course is updated in the same transaction
+		 */
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		long addCourse = run(studentIds, studentId -> transaction.executeWithoutResult(status -> {
+			Student student = studentRepository.findById(studentId);
+			student.addCourse(courseRepository.findById(addCourseTarget.getId()));
+			studentRepository.save(student);
+			em.createNativeQuery("update course_counter_stripes set enrolled = enrolled + 1 "
+					+ "where course_id = :courseId and stripe = 0")
+					.unwrap(NativeQuery.class)
+					.addSynchronizedQuerySpace("course_counter_stripes")
+					.setParameter("courseId", addCourseTarget.getId())
+					.executeUpdate();
+		}));
+
+		AtomicInteger enrolled = new AtomicInteger();
+		long striped = run(studentIds, studentId -> {
+			if (studentRepository.enrollIfCapacity(studentId, stripedTarget.getId()) == EnrollmentResult.ENROLLED) {
+				enrolled.incrementAndGet();
+			}
+		});
+
+		assertEquals(STUDENTS, enrolled.get());
+		assertEquals(STUDENTS, courseRepository.findCounters(addCourseTarget.getId()).getEnrolledCount());
+		assertEquals(STUDENTS, courseRepository.findCounters(stripedTarget.getId()).getEnrolledCount());
+
+		logger.info("benchmark enrollments={} threads={} addCourse+save={} enrollments/s", STUDENTS, THREADS,
+				perSecond(addCourse));
+		logger.info("benchmark enrollments={} threads={} enrollIfCapacity={} enrollments/s", STUDENTS, THREADS,
+				perSecond(striped));
+	}
+
+	private long perSecond(long elapsedMillis) {
+		return STUDENTS * 1000L / Math.max(elapsedMillis, 1);
+	}
+
+	// Run the task for every student on THREADS threads and return the elapsed milliseconds
+	private long run(List<Long> studentIds, LongConsumer task) throws InterruptedException {
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		long start = System.nanoTime();
+
+		for (int thread = 0; thread < THREADS; thread++) {
+			int first = thread;
+			executor.execute(() -> {
+				for (int i = first; i < studentIds.size(); i += THREADS) {
+					task.accept(studentIds.get(i));
+				}
+			});
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.MINUTES));
+
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	}
+}
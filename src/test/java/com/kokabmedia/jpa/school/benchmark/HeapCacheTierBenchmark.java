@@ -0,0 +1,19 @@
+package com.kokabmedia.jpa.school.benchmark;
+
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+// The Student region on the Java heap only, see the CacheTierBenchmark.
+@SpringBootTest(properties = { "spring.jpa.properties.hibernate.javax.cache.uri=benchmark/ehcache-heap.xml",
+		"spring.jpa.show-sql=false", "logging.level.org.hibernate.type=info", "logging.level.org.hibernate.stat=info",
+		"logging.level.org.ehcache=info", "school.reporting.refresh-interval-ms=3600000" })
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DirtiesContext
+class HeapCacheTierBenchmark extends CacheTierBenchmark {
+
+	@Override
+	String tier() {
+		return "heap";
+	}
+}
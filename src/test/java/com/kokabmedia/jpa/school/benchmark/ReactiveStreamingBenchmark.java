@@ -0,0 +1,152 @@
+package com.kokabmedia.jpa.school.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+
+import com.kokabmedia.jpa.school.entity.Course;
+import com.kokabmedia.jpa.school.ingest.ReviewBatchWriter;
+import com.kokabmedia.jpa.school.ingest.ReviewSubmission;
+import com.kokabmedia.jpa.school.repository.CourseRepository;
+
+/*
+ * Memory and threads per open connection of the servlet API against the streaming API, for a 
+ * course with many reviews:
+ * 
+ * GET /courses/{id}/reviews           the reviews in one JSON array, written by the request thread
+ * GET /reactive/courses/{id}/reviews  the reviews as a stream, read one page at the time
+ * 
+ * The clients open the connections with a small receive buffer and do not read the responses, as
+ * a dashboard that is slower than the server. After a few seconds the heap that is still in use 
+ * after a garbage collection and the number of live threads are compared with the values before 
+ * the connections were opened.
+ * 
+ * The settings are system properties:
+ * - benchmark.connections, number of open connections, default 100
+ * - benchmark.reviews, number of reviews of the course, default 10000
+ * 
+ * The benchmarks are not run with the normal tests, run them with:
+ * ./mvnw test -Dtest='*Benchmark' -Dbenchmark=true
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = { "spring.jpa.show-sql=false",
+		"logging.level.org.hibernate.type=info", "logging.level.org.hibernate.stat=info",
+		"school.query-budget.mode=off", "server.tomcat.threads.max=1000",
+		"spring.datasource.hikari.maximum-pool-size=32" })
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DirtiesContext
+class ReactiveStreamingBenchmark {
+
+	private static final int CONNECTIONS = Integer.getInteger("benchmark.connections", 100);
+	private static final int REVIEWS = Integer.getInteger("benchmark.reviews", 10_000);
+	private static final int BATCH_SIZE = 1_000;
+	private static final long HOLD_MILLIS = 5_000;
+
+	// For logging purposes
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	@LocalServerPort
+	int port;
+
+	@Autowired
+	CourseRepository courseRepository;
+
+	@Autowired
+	ReviewBatchWriter reviewBatchWriter;
+
+	@Test
+	public void memoryPerConnection() throws Exception {
+
+		Long courseId = courseRepository.save(new Course("Streamed course")).getId();
+		String description = "A review that is long enough to fill the socket buffers quickly ".repeat(2);
+		for (int from = 0; from < REVIEWS; from += BATCH_SIZE) {
+			List<ReviewSubmission> batch = new ArrayList<>();
+			for (int i = from; i < Math.min(from + BATCH_SIZE, REVIEWS); i++) {
+				batch.add(new ReviewSubmission(courseId, description + i, String.valueOf(1 + i % 5)));
+			}
+			reviewBatchWriter.writeBatch(batch);
+		}
+
+		long[] servlet = hold("/courses/" + courseId + "/reviews", "application/json");
+		long[] streaming = hold("/reactive/courses/" + courseId + "/reviews", "application/x-ndjson");
+
+		logger.info("benchmark connections={} reviews={} servlet heap={} KB/connection threads={}", CONNECTIONS,
+				REVIEWS, servlet[0] / CONNECTIONS / 1024, servlet[1]);
+		logger.info("benchmark connections={} reviews={} streaming heap={} KB/connection threads={}", CONNECTIONS,
+				REVIEWS, streaming[0] / CONNECTIONS / 1024, streaming[1]);
+	}
+
+	/*
+	 * Open the connections, wait until the server is blocked by the clients and return the heap 
+	 * bytes and the threads that were added.
+	 */
+	private long[] hold(String path, String accept) throws Exception {
+
+		long heapBefore = usedHeapAfterGc();
+		int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+		List<Socket> sockets = new ArrayList<>();
+		byte[] request = ("GET " + path + " HTTP/1.1\r\nHost: localhost\r\nAccept: " + accept + "\r\n\r\n")
+				.getBytes(StandardCharsets.US_ASCII);
+		for (int i = 0; i < CONNECTIONS; i++) {
+			Socket socket = new Socket();
+			socket.setReceiveBufferSize(4096);
+			socket.connect(new InetSocketAddress("localhost", port));
+			OutputStream out = socket.getOutputStream();
+			out.write(request);
+			out.flush();
+			sockets.add(socket);
+		}
+		Thread.sleep(HOLD_MILLIS);
+
+		long heap = usedHeapAfterGc() - heapBefore;
+		int threads = ManagementFactory.getThreadMXBean().getThreadCount() - threadsBefore;
+
+		int ok = 0;
+		for (Socket socket : sockets) {
+			if (statusLine(socket.getInputStream()).startsWith("HTTP/1.1 200")) {
+				ok++;
+			}
+			socket.close();
+		}
+		assertEquals(CONNECTIONS, ok);
+
+		// Let the server notice the closed connections before the next measurement
+		Thread.sleep(HOLD_MILLIS);
+		return new long[] { heap, threads };
+	}
+
+	private static String statusLine(InputStream in) throws IOException {
+		StringBuilder line = new StringBuilder();
+		int c;
+		while ((c = in.read()) != -1 && c != '\r') {
+			line.append((char) c);
+		}
+		return line.toString();
+	}
+
+	private static long usedHeapAfterGc() throws InterruptedException {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(200);
+		}
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+}
@@ -0,0 +1,131 @@
+package com.kokabmedia.jpa.school.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kokabmedia.jpa.school.web.CourseResponse;
+import com.kokabmedia.jpa.school.web.ReadModelCodec;
+import com.kokabmedia.jpa.school.web.SearchResult;
+import com.kokabmedia.jpa.school.web.StudentExport;
+
+/*
+ * Bytes per cache entry and encode and decode throughput of the binary ReadModelCodec against 
+ * Jackson, for a course and for a student export with five courses. The @Benchmark methods run
+ * with JMH in a forked JVM, the test method starts JMH and logs the results.
+ *
+ * The benchmarks are not run with the normal tests, run them with:
+ * ./mvnw test -Dtest='*Benchmark' -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadModelCodecBenchmark {
+
+	// For logging purposes
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private CourseResponse course;
+	private StudentExport student;
+	private byte[] courseJson;
+	private byte[] courseBinary;
+	private byte[] studentJson;
+	private byte[] studentBinary;
+
+	@Setup
+	public void setUp() throws Exception {
+		course = new CourseResponse(1_000_123L, "Databases level 3", 250, 231, 1_874, 4.137);
+		List<SearchResult> courses = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			courses.add(new SearchResult(1_000_100L + i * 37, "Topic " + i + " level " + (i % 4)));
+		}
+		student = new StudentExport(1_104_561L, "Jill", "Jonson", "E1104561", courses);
+
+		courseJson = objectMapper.writeValueAsBytes(course);
+		courseBinary = ReadModelCodec.encodeCourse(course);
+		studentJson = objectMapper.writeValueAsBytes(student);
+		studentBinary = ReadModelCodec.encodeStudent(student);
+	}
+
+	@Test
+	public void codecAgainstJackson() throws Exception {
+
+		setUp();
+		logger.info("benchmark course bytes json={} binary={}", courseJson.length, courseBinary.length);
+		logger.info("benchmark student bytes json={} binary={}", studentJson.length, studentBinary.length);
+
+		Collection<RunResult> results = new Runner(new OptionsBuilder()
+				.include(getClass().getName() + "\\.")
+				.build()).run();
+		for (RunResult result : results) {
+			logger.info("benchmark {} {} {}", result.getParams().getBenchmark().replace(getClass().getName() + ".", ""),
+					Math.round(result.getPrimaryResult().getScore()), result.getPrimaryResult().getScoreUnit());
+		}
+	}
+
+	@Benchmark
+	public byte[] courseToJson() throws Exception {
+		return objectMapper.writeValueAsBytes(course);
+	}
+
+	@Benchmark
+	public CourseResponse courseFromJson() throws Exception {
+		return objectMapper.readValue(courseJson, CourseResponse.class);
+	}
+
+	@Benchmark
+	public byte[] courseToBinary() {
+		return ReadModelCodec.encodeCourse(course);
+	}
+
+	@Benchmark
+	public CourseResponse courseFromBinary() {
+		return ReadModelCodec.decodeCourse(courseBinary);
+	}
+
+	@Benchmark
+	public byte[] studentToJson() throws Exception {
+		return objectMapper.writeValueAsBytes(student);
+	}
+
+	@Benchmark
+	public StudentExport studentFromJson() throws Exception {
+		return objectMapper.readValue(studentJson, StudentExport.class);
+	}
+
+	@Benchmark
+	public byte[] studentToBinary() {
+		return ReadModelCodec.encodeStudent(student);
+	}
+
+	@Benchmark
+	public StudentExport studentFromBinary() {
+		return ReadModelCodec.decodeStudent(studentBinary);
+	}
+}
@@ -0,0 +1,91 @@
+package com.kokabmedia.jpa.school.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import com.kokabmedia.jpa.school.entity.Review;
+import com.kokabmedia.jpa.school.ingest.ReviewIngestionQueue;
+import com.kokabmedia.jpa.school.ingest.ReviewSubmission;
+import com.kokabmedia.jpa.school.repository.CourseRepository;
+
+/*
+ * Throughput of the synchronous CourseRepository.addReviewToCourse() path against the
+ * ReviewIngestionQueue, both with the same number of submitting threads.
+ * 
+ * The benchmarks are not run with the normal tests, run them with:
+ * ./mvnw test -Dtest='*Benchmark' -Dbenchmark=true
+ */
+@SpringBootTest(properties = { "spring.jpa.show-sql=false", "logging.level.org.hibernate.type=info",
+		"logging.level.org.hibernate.stat=info", "school.reviews.ingest.capacity=1000000" })
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DirtiesContext
+class ReviewIngestionBenchmark {
+
+	private static final int THREADS = 16;
+	private static final int REVIEWS = 50_000;
+	private static final long[] COURSES = { 10001L, 10002L, 10003L };
+
+	// For logging purposes
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	@Autowired
+	CourseRepository courseRepository;
+
+	@Autowired
+	ReviewIngestionQueue queue;
+
+	@Test
+	public void synchronousAgainstQueued() throws InterruptedException {
+
+		long synchronous = run(i -> courseRepository.addReviewToCourse(COURSES[i % COURSES.length],
+				new Review("Synchronous review " + i, "4")));
+
+		// The submitting threads are done when the reviews are accepted, the writer thread is done later
+		long start = System.nanoTime();
+		long accepted = run(i -> queue.submit(new ReviewSubmission(COURSES[i % COURSES.length],
+				"Queued review " + i, "4")));
+		assertTrue(queue.awaitEmpty(5, TimeUnit.MINUTES));
+		long written = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		logger.info("benchmark reviews={} threads={} synchronous={} reviews/s", REVIEWS, THREADS,
+				perSecond(synchronous));
+		logger.info("benchmark reviews={} threads={} queued accepted={} reviews/s written={} reviews/s",
+				REVIEWS, THREADS, perSecond(accepted), perSecond(written));
+	}
+
+	private long perSecond(long elapsedMillis) {
+		return REVIEWS * 1000L / Math.max(elapsedMillis, 1);
+	}
+
+	// Run the task REVIEWS times on THREADS threads and return the elapsed milliseconds
+	private long run(IntConsumer task) throws InterruptedException {
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		long start = System.nanoTime();
+
+		for (int thread = 0; thread < THREADS; thread++) {
+			int first = thread;
+			executor.execute(() -> {
+				for (int i = first; i < REVIEWS; i += THREADS) {
+					task.accept(i);
+				}
+			});
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.MINUTES));
+
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	}
+}
@@ -0,0 +1,171 @@
+package com.kokabmedia.jpa.school.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.kokabmedia.jpa.school.generator.ZipfSampler;
+
+/*
+ * This class sends the registration day workload to a running application, every client is a 
+ * thread that sends its next request when the previous response is received.
+ * 
+ * The operations are chosen with the weights of the mix, the courses with a Zipf distribution 
+ * and the students uniformly from the data set of GET /loadtest/dataset. Every client has its 
+ * own Random with the seed plus the client number, so that a run sends the same requests as a 
+ * previous run with the same settings.
+ * 
+ * The latencies of the warm up are not recorded, after the warm up every response is recorded 
+ * in the LoadReport.
+ */
+class LoadGenerator {
+
+	enum Operation {
+		COURSE_LOOKUP, ENROLLMENT, REVIEW, STUDENT_EXPORT
+	}
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final String baseUrl;
+	private final int clients;
+	private final Duration warmup;
+	private final Duration duration;
+	private final Map<Operation, Integer> mix;
+	private final long seed;
+
+	private final HttpClient httpClient;
+
+	private long[] studentIds;
+	private long[] courseIds;
+	private ZipfSampler courseSampler;
+
+	LoadGenerator(String baseUrl, int clients, Duration warmup, Duration duration, Map<Operation, Integer> mix,
+			long seed) {
+		this.baseUrl = baseUrl;
+		this.clients = clients;
+		this.warmup = warmup;
+		this.duration = duration;
+		this.mix = new EnumMap<>(mix);
+		this.seed = seed;
+		this.httpClient = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofSeconds(10))
+				.build();
+	}
+
+	// Parse a mix like "COURSE_LOOKUP:60,ENROLLMENT:25,REVIEW:10,STUDENT_EXPORT:5"
+	static Map<Operation, Integer> parseMix(String mix) {
+		Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+		for (String entry : mix.split(",")) {
+			String[] parts = entry.trim().split(":");
+			weights.put(Operation.valueOf(parts[0].trim()), Integer.valueOf(parts[1].trim()));
+		}
+		return weights;
+	}
+
+	LoadReport run() throws IOException, InterruptedException {
+
+		JsonNode dataset = objectMapper.readTree(send(HttpRequest.newBuilder(URI.create(baseUrl + "/loadtest/dataset"))
+				.GET().build()).body());
+		studentIds = objectMapper.convertValue(dataset.get("studentIds"), long[].class);
+		courseIds = objectMapper.convertValue(dataset.get("courseIds"), long[].class);
+		if (studentIds.length == 0 || courseIds.length == 0) {
+			throw new IllegalStateException("The application has no load test data set, start it with the loadtest profile");
+		}
+		courseSampler = new ZipfSampler(courseIds.length, 1.0);
+
+		LoadReport report = new LoadReport(clients);
+		long warmupEnd = System.nanoTime() + warmup.toNanos();
+		long end = warmupEnd + duration.toNanos();
+
+		ExecutorService executor = Executors.newFixedThreadPool(clients);
+		for (int client = 0; client < clients; client++) {
+			Random random = new Random(seed + client);
+			executor.execute(() -> {
+				while (System.nanoTime() < end) {
+					Operation operation = choose(random);
+					HttpRequest request = request(operation, random);
+					long start = System.nanoTime();
+					int status;
+					try {
+						status = send(request).statusCode();
+					} catch (IOException e) {
+						status = -1;
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+					if (start >= warmupEnd) {
+						report.record(operation, System.nanoTime() - start, expected(operation, status));
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		executor.awaitTermination(warmup.plus(duration).toSeconds() + 60, TimeUnit.SECONDS);
+
+		report.finish(duration);
+		return report;
+	}
+
+	private Operation choose(Random random) {
+		int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+		int value = random.nextInt(total);
+		for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+			value -= entry.getValue();
+			if (value < 0) {
+				return entry.getKey();
+			}
+		}
+		throw new IllegalStateException();
+	}
+
+	private HttpRequest request(Operation operation, Random random) {
+
+		long studentId = studentIds[random.nextInt(studentIds.length)];
+		long courseId = courseIds[courseSampler.sample(random.nextDouble())];
+
+		switch (operation) {
+		case COURSE_LOOKUP:
+			return HttpRequest.newBuilder(uri("/courses/" + courseId)).GET().build();
+		case ENROLLMENT:
+			return HttpRequest.newBuilder(uri("/students/" + studentId + "/courses/" + courseId))
+					.PUT(HttpRequest.BodyPublishers.noBody()).build();
+		case REVIEW:
+			String review = "{\"description\":\"Load test review\",\"rating\":\"" + (1 + random.nextInt(5)) + "\"}";
+			return HttpRequest.newBuilder(uri("/courses/" + courseId + "/reviews"))
+					.header("Content-Type", "application/json")
+					.POST(HttpRequest.BodyPublishers.ofString(review)).build();
+		default:
+			return HttpRequest.newBuilder(uri("/students/" + studentId + "/export")).GET().build();
+		}
+	}
+
+	// A full course and an existing enrollment are normal answers on registration day
+	private static boolean expected(Operation operation, int status) {
+		if (operation == Operation.ENROLLMENT) {
+			return status == 200 || status == 201 || status == 409;
+		}
+		return status >= 200 && status < 300;
+	}
+
+	private URI uri(String path) {
+		return URI.create(baseUrl + path);
+	}
+
+	private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+		return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+	}
+}
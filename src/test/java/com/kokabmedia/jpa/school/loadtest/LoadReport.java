@@ -0,0 +1,114 @@
+package com.kokabmedia.jpa.school.loadtest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import com.kokabmedia.jpa.school.loadtest.LoadGenerator.Operation;
+
+/*
+ * The throughput and latency percentiles of a load test run, for every operation.
+ * 
+ * The latencies are recorded in an HdrHistogram with 3 significant digits, the percentiles are 
+ * exact to 0.1 percent. The report is written as a table to the log and appended to a CSV file
+ * with one line for every operation, the label of the run, usually the commit, is the first 
+ * column so that the runs of different commits can be compared.
+ */
+class LoadReport {
+
+	static final String CSV_HEADER = "label,time,clients,operation,requests,errors,throughput_per_s,"
+			+ "p50_ms,p90_ms,p99_ms,p999_ms,max_ms";
+
+	private final int clients;
+	private final Map<Operation, ConcurrentHistogram> latencies = new EnumMap<>(Operation.class);
+	private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+	private Duration duration;
+
+	LoadReport(int clients) {
+		this.clients = clients;
+		for (Operation operation : Operation.values()) {
+			latencies.put(operation, new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(1), 3));
+			errors.put(operation, new LongAdder());
+		}
+	}
+
+	void record(Operation operation, long nanos, boolean expected) {
+		latencies.get(operation).recordValue(Math.min(nanos, TimeUnit.MINUTES.toNanos(1)));
+		if (!expected) {
+			errors.get(operation).increment();
+		}
+	}
+
+	void finish(Duration duration) {
+		this.duration = duration;
+	}
+
+	long requests() {
+		return latencies.values().stream().mapToLong(Histogram::getTotalCount).sum();
+	}
+
+	long errors() {
+		return errors.values().stream().mapToLong(LongAdder::sum).sum();
+	}
+
+	// One line for every operation that was sent, without the label and the time
+	List<String> lines() {
+		List<String> lines = new ArrayList<>();
+		for (Operation operation : Operation.values()) {
+			Histogram histogram = latencies.get(operation);
+			if (histogram.getTotalCount() == 0) {
+				continue;
+			}
+			lines.add(String.format(Locale.ROOT, "%d,%s,%d,%d,%.1f,%.2f,%.2f,%.2f,%.2f,%.2f", clients, operation,
+					histogram.getTotalCount(), errors.get(operation).sum(),
+					histogram.getTotalCount() / (double) duration.toSeconds(),
+					millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+					millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+					millis(histogram.getMaxValue())));
+		}
+		return lines;
+	}
+
+	// The report as a table for the log
+	String table() {
+		StringBuilder table = new StringBuilder(String.format(Locale.ROOT, "%-15s %9s %7s %9s %8s %8s %8s %8s %8s%n",
+				"operation", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+		for (String line : lines()) {
+			Object[] columns = line.split(",");
+			table.append(String.format(Locale.ROOT, "%-15s %9s %7s %9s %8s %8s %8s %8s %8s%n",
+					List.of(columns).subList(1, 10).toArray()));
+		}
+		return table.toString();
+	}
+
+	// Append the lines of the report to a CSV file, the header is written when the file is new
+	void appendCsv(Path file, String label) throws IOException {
+		Files.createDirectories(file.toAbsolutePath().getParent());
+		List<String> rows = new ArrayList<>();
+		if (!Files.exists(file)) {
+			rows.add(CSV_HEADER);
+		}
+		String time = Instant.now().toString();
+		for (String line : lines()) {
+			rows.add(label + "," + time + "," + line);
+		}
+		Files.write(file, rows, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+	}
+
+	private static double millis(long nanos) {
+		return nanos / 1_000_000.0;
+	}
+}
@@ -0,0 +1,73 @@
+package com.kokabmedia.jpa.school.loadtest;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Registration day load test against a running application, the application is started with the
+ * loadtest profile so that it seeds the data set:
+ * 
+ * ./mvnw spring-boot:run -Dspring-boot.run.profiles=loadtest
+ * ./mvnw test -Dtest=RegistrationDayLoadTest -Dloadtest.url=http://localhost:8080
+ * 
+ * The settings are system properties:
+ * - loadtest.clients, number of concurrent clients, default 64
+ * - loadtest.warmup-seconds and loadtest.duration-seconds, default 15 and 60
+ * - loadtest.mix, the weights of the operations, default 
+ *   COURSE_LOOKUP:60,ENROLLMENT:25,REVIEW:10,STUDENT_EXPORT:5
+ * - loadtest.seed, default 42
+ * - loadtest.label, the label in the CSV file, default the current git commit
+ * - loadtest.report, the CSV file, default target/loadtest/results.csv
+ * 
+ * The test is not run without the loadtest.url property.
+ */
+@EnabledIfSystemProperty(named = "loadtest.url", matches = ".+")
+class RegistrationDayLoadTest {
+
+	// For logging purposes
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	@Test
+	public void registrationDay() throws Exception {
+
+		int clients = Integer.getInteger("loadtest.clients", 64);
+		LoadGenerator generator = new LoadGenerator(System.getProperty("loadtest.url"), clients,
+				Duration.ofSeconds(Integer.getInteger("loadtest.warmup-seconds", 15)),
+				Duration.ofSeconds(Integer.getInteger("loadtest.duration-seconds", 60)),
+				LoadGenerator.parseMix(System.getProperty("loadtest.mix",
+						"COURSE_LOOKUP:60,ENROLLMENT:25,REVIEW:10,STUDENT_EXPORT:5")),
+				Long.getLong("loadtest.seed", 42));
+
+		LoadReport report = generator.run();
+
+		String label = System.getProperty("loadtest.label", gitCommit());
+		report.appendCsv(Paths.get(System.getProperty("loadtest.report", "target/loadtest/results.csv")), label);
+		logger.info("Registration day load test {} with {} clients:\n{}", label, clients, report.table());
+
+		// Less than 1 percent unexpected answers, a full course is an expected answer
+		assertTrue(report.errors() * 100 < report.requests(), report.errors() + " errors");
+	}
+
+	private static String gitCommit() {
+		try {
+			Process git = new ProcessBuilder("git", "rev-parse", "--short", "HEAD").redirectErrorStream(true).start();
+			try (BufferedReader output = new BufferedReader(
+					new InputStreamReader(git.getInputStream(), StandardCharsets.UTF_8))) {
+				String commit = output.readLine();
+				return git.waitFor() == 0 && commit != null ? commit.trim() : "unknown";
+			}
+		} catch (Exception e) {
+			return "unknown";
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package com.kokabmedia.jpa.school.outbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class FileOutboxSinkTest {
+
+	@TempDir
+	Path directory;
+
+	private FileOutboxSink sink;
+
+	@BeforeEach
+	public void open() throws IOException {
+		sink = new FileOutboxSink();
+		sink.file = directory.resolve("outbox.jsonl").toString();
+		sink.objectMapper = new ObjectMapper();
+		sink.open();
+		sink.publish(List.of(event(1L), event(2L)));
+	}
+
+	@AfterEach
+	public void close() throws IOException {
+		sink.close();
+	}
+
+	@Test
+	public void read_fromTheNextOffset() {
+
+		List<ChangeEvent> events = sink.read(0, 100);
+		assertEquals(2, events.size());
+
+		assertEquals(2L, sink.read(events.get(0).getNextOffset(), 100).get(0).getEventId());
+		assertTrue(sink.read(events.get(1).getNextOffset(), 100).isEmpty());
+	}
+
+	@Test
+	public void read_offsetThatIsNotTheStartOfAnEvent() {
+
+		long end = sink.read(0, 100).get(1).getNextOffset();
+
+		assertThrows(IllegalArgumentException.class, () -> sink.read(-1, 100));
+		assertThrows(IllegalArgumentException.class, () -> sink.read(end + 1, 100));
+		assertThrows(IllegalArgumentException.class, () -> sink.read(3, 100));
+	}
+
+	private static ChangeEvent event(Long eventId) {
+		return new ChangeEvent(-1, -1, null, eventId, "Course", 10001L, "UPDATED", null, null);
+	}
+}
@@ -0,0 +1,46 @@
+package com.kokabmedia.jpa.school.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/*
+ * The names that a rebuild has read before a concurrent commit do not overwrite the change of
+ * the commit, the putRead() calls below stand for rows read before the change was written.
+ */
+class SearchIndexRebuildTest {
+
+	@Test
+	public void savedDuringRebuild_keepsTheNewName() {
+
+		SearchIndex searchIndex = new SearchIndex();
+		searchIndex.putStudent(20001L, "Erikson");
+
+		IndexRebuild rebuild = searchIndex.startStudentRebuild();
+		searchIndex.putStudent(20001L, "Anderson");
+		rebuild.putRead(20001L, "Erikson");
+		searchIndex.finishStudentRebuild();
+
+		assertEquals(Set.of(20001L), searchIndex.searchStudents("anderson", false, 10));
+		assertTrue(searchIndex.searchStudents("erikson", false, 10).isEmpty());
+	}
+
+	@Test
+	public void deletedDuringRebuild_isNotAddedAgain() {
+
+		SearchIndex searchIndex = new SearchIndex();
+		searchIndex.putCourse(10001L, "JPA in 50 steps");
+
+		IndexRebuild rebuild = searchIndex.startCourseRebuild();
+		searchIndex.removeCourse(10001L);
+		rebuild.putRead(10001L, "JPA in 50 steps");
+		rebuild.putRead(10002L, "Spring in 50 steps");
+		searchIndex.finishCourseRebuild();
+
+		assertEquals(Set.of(10002L), searchIndex.searchCourses("steps", false, 10));
+		assertEquals(1, searchIndex.courseCount());
+	}
+}